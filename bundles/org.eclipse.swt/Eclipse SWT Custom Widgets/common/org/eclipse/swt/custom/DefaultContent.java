@@ -790,7 +790,36 @@ public void removeTextChangeListener(TextChangeListener listener){
 public void replaceTextRange(int start, int replaceLength, String newText){
 	// check for invalid replace operations
 	validateReplace(start, replaceLength);
-
+	replace(start, replaceLength, newText, null, null);
+}
+/**
+ * Replaces several ranges of the text with one change. Notifies the appropriate
+ * listeners once, the text from the start of the first range to the end of the
+ * last range is replaced in one pass.
+ *
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range
+ *
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_NULL_ARGUMENT when ranges, texts or one of the texts is null</li>
+ *   <li>ERROR_INVALID_ARGUMENT when ranges does not have two values for each text,
+ *      when the ranges are not sorted or overlap, or when the text change results
+ *      in a multi byte line delimiter being split or partially deleted</li>
+ *   <li>ERROR_INVALID_RANGE when a range is outside of the content</li>
+ * </ul>
+ */
+@Override
+public void replaceTextRanges(int[] ranges, String[] texts) {
+	String newText = TextRanges.getReplacementText(this, ranges, texts);
+	if (newText == null) return;
+	int count = texts.length;
+	for (int i = 0; i < count; i++) {
+		validateReplace(ranges[2 * i], ranges[2 * i + 1]);
+	}
+	int start = ranges[0];
+	replace(start, ranges[2 * count - 2] + ranges[2 * count - 1] - start, newText, ranges.clone(), texts.clone());
+}
+void replace(int start, int replaceLength, String newText, int[] ranges, String[] texts) {
 	// inform listeners
 	StyledTextEvent event = new StyledTextEvent(this);
 	event.type = ST.TextChanging;
@@ -800,6 +829,9 @@ public void replaceTextRange(int start, int replaceLength, String newText){
 	event.newLineCount = lineCount(newText);
 	event.replaceCharCount = replaceLength;
 	event.newCharCount = newText.length();
+	event.ranges = ranges;
+	event.texts = texts;
+	if (ranges != null) event.lineCounts = getLineCounts(ranges, texts);
 	sendTextEvent(event);
 
 	// first delete the text to be replaced
@@ -811,6 +843,18 @@ public void replaceTextRange(int start, int replaceLength, String newText){
 	event.type = ST.TextChanged;
 	sendTextEvent(event);
 }
+/**
+ * Returns the number of replaced lines and the number of new lines of each
+ * range, counted like the lines of a change of that range alone.
+ */
+int[] getLineCounts(int[] ranges, String[] texts) {
+	int[] lineCounts = new int[ranges.length];
+	for (int i = 0; i < texts.length; i++) {
+		lineCounts[2 * i] = lineCount(ranges[2 * i], ranges[2 * i + 1]);
+		lineCounts[2 * i + 1] = lineCount(texts[i]);
+	}
+	return lineCounts;
+}
 /**
  * Sends the text listeners the TextChanged event.
  */
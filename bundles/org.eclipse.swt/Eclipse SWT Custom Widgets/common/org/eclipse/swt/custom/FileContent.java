@@ -0,0 +1,560 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.List;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.widgets.*;
+
+/**
+ * A read-only <code>StyledTextContent</code> that shows a file, like a large
+ * log file, without reading it into memory.
+ * <p>
+ * The file is read a block at a time where it is needed, it is not mapped
+ * into memory, so disposing the content releases the file at once and does
+ * not keep it locked until the next garbage collection. A background thread
+ * decodes the file and indexes its lines, and the content grows as the
+ * lines get indexed: every time, the content sends its listeners the events
+ * of an append at the end of the text, on the user-interface thread of the
+ * display. The widget shows the start of the file right away and its scroll
+ * bars follow the indexing. The text of the file is decoded again when it
+ * is shown, a few blocks are cached. The memory used is a few bytes per
+ * line and does not depend on the length of the lines.
+ * </p><p>
+ * When the content follows the file, like <code>tail -f</code>, the thread
+ * keeps watching the file after it has indexed it and appends the lines
+ * that are written to it. A file that gets shorter, like a log file that is
+ * rotated, is not followed any further.
+ * </p><p>
+ * The charset must decode the same characters from the start of any
+ * character, which is the case of UTF-8 and of the single byte charsets.
+ * The content shows at most <code>Integer.MAX_VALUE</code> characters of
+ * the file. It can not be edited: the widget has to be read-only, and
+ * <code>replaceTextRange</code> and <code>setText</code> throw an exception.
+ * The content must be disposed when it is no longer needed, which stops
+ * the thread and closes the file.
+ * </p><p>
+ * The <code>TextChangingEvent</code> of an append does not have the
+ * appended text, to avoid decoding it, and its <code>newText</code> is
+ * <code>null</code>. The text can be read from the content once the
+ * <code>TextChangedEvent</code> is sent.
+ * </p>
+ * <pre><code>
+ * StyledText text = new StyledText(parent, SWT.MULTI | SWT.READ_ONLY | SWT.V_SCROLL | SWT.H_SCROLL);
+ * FileContent content = new FileContent(display, "/var/log/app.log", StandardCharsets.UTF_8, true);
+ * text.setContent(content);
+ * text.addDisposeListener(e -&gt; content.dispose());
+ * </code></pre>
+ *
+ * @see StyledText#setContent(StyledTextContent)
+ * @since 3.120
+ */
+public class FileContent implements StyledTextContent {
+	private final static String LineDelimiter = System.lineSeparator();
+
+	/* The number of bytes that the indexer decodes at a time into a block */
+	static final int BLOCK_SIZE = 1 << 16;
+	/* The offset of every LINE_STRIDE line is in the line index */
+	static final int LINE_STRIDE = 32;
+	static final int CACHED_BLOCKS = 32;
+	/* The number of milliseconds between checks for appends when following the file */
+	static final int FOLLOW_INTERVAL = 500;
+
+	final Display display;
+	final Charset charset;
+	final boolean follow;
+	final FileChannel channel;
+	Thread indexer;
+	volatile boolean disposed;
+	List<StyledTextListener> textListeners = new ArrayList<>();
+
+	/*
+	 * The index that the content shows, only used by the user-interface thread.
+	 * Block i has the characters from blockChars[i] to blockChars[i + 1], decoded
+	 * from the bytes from blockBytes[i] to blockBytes[i + 1]. The arrays are shared
+	 * with the indexer, which only writes after the entries that have been published.
+	 */
+	int charCount, lineCount = 1;
+	int[] blockChars = new int[17];
+	long[] blockBytes = new long[17];
+	int blockCount;
+	int[] lineOffsets = new int[16];
+	int lineOffsetCount = 1;
+	Map<Integer, char[]> cache = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, char[]> eldest) {
+			return size() > CACHED_BLOCKS;
+		}
+	};
+	/* The block that was read last */
+	char[] lastBlock;
+	int lastBlockStart, lastBlockEnd;
+	/* The bytes of the block that is decoded by the user-interface thread */
+	final ByteBuffer blockBuffer = ByteBuffer.allocate(BLOCK_SIZE);
+
+	/* The index that the indexer has built, guarded by the lock */
+	final Object lock = new Object();
+	int indexedChars, indexedLines;
+	int[] indexBlockChars = blockChars;
+	long[] indexBlockBytes = blockBytes;
+	int indexBlockCount;
+	int[] indexLineOffsets = lineOffsets;
+	int indexLineOffsetCount = 1;
+
+/**
+ * Creates a content that shows the file and starts indexing it.
+ *
+ * @param display the display of the widget, the content is changed in its user-interface thread
+ * @param fileName the name of the file
+ * @param charset the charset of the file
+ * @param follow <code>true</code> to append what is written to the file after it has been indexed
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the display, the file name or the charset is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if the file can not be opened</li>
+ * </ul>
+ */
+public FileContent(Display display, String fileName, Charset charset, boolean follow) {
+	if (display == null || fileName == null || charset == null) error(SWT.ERROR_NULL_ARGUMENT);
+	this.display = display;
+	this.charset = charset;
+	this.follow = follow;
+	FileChannel channel = null;
+	try {
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+	} catch (IOException | InvalidPathException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	this.channel = channel;
+	indexer = new Thread(this::index, "SWT FileContent Indexer"); //$NON-NLS-1$
+	indexer.setDaemon(true);
+	indexer.start();
+}
+/**
+ * @see StyledTextContent#addTextChangeListener(TextChangeListener)
+ */
+@Override
+public void addTextChangeListener(TextChangeListener listener) {
+	if (listener == null) error(SWT.ERROR_NULL_ARGUMENT);
+	StyledTextListener typedListener = new StyledTextListener(listener);
+	textListeners.add(typedListener);
+}
+/**
+ * Adds a block to the index of the indexer, given the offsets of its end.
+ */
+void addBlock(int chars, long bytes) {
+	if (indexBlockCount + 2 > indexBlockChars.length) {
+		indexBlockChars = Arrays.copyOf(indexBlockChars, indexBlockChars.length * 2);
+		indexBlockBytes = Arrays.copyOf(indexBlockBytes, indexBlockBytes.length * 2);
+	}
+	indexBlockChars[indexBlockCount + 1] = chars;
+	indexBlockBytes[indexBlockCount + 1] = bytes;
+	indexBlockCount++;
+}
+/**
+ * Adds the start of a line to the index of the indexer.
+ */
+void addLine(int offset) {
+	indexedLines++;
+	if (indexedLines % LINE_STRIDE != 0) return;
+	if (indexLineOffsetCount == indexLineOffsets.length) {
+		indexLineOffsets = Arrays.copyOf(indexLineOffsets, indexLineOffsetCount * 2);
+	}
+	indexLineOffsets[indexLineOffsetCount++] = offset;
+}
+/**
+ * Answers the characters of a block, decoding them if they are not cached.
+ */
+char[] block(int index) {
+	char[] chars = cache.get(index);
+	if (chars == null) {
+		chars = new char[blockChars[index + 1] - blockChars[index]];
+		try {
+			ByteBuffer bytes = read(blockBytes[index], (int) (blockBytes[index + 1] - blockBytes[index]), blockBuffer);
+			CharsetDecoder decoder = newDecoder();
+			CharBuffer buffer = CharBuffer.wrap(chars);
+			decoder.decode(bytes, buffer, true);
+			decoder.flush(buffer);
+		} catch (IOException e) {
+			SWT.error(SWT.ERROR_IO, e);
+		}
+		cache.put(index, chars);
+	}
+	lastBlock = chars;
+	lastBlockStart = blockChars[index];
+	lastBlockEnd = lastBlockStart + chars.length;
+	return chars;
+}
+/**
+ * Answers the index of the block of the character at the offset.
+ */
+int blockIndex(int offset) {
+	int low = 0, high = blockCount - 1;
+	while (low < high) {
+		int middle = (low + high + 1) >>> 1;
+		if (blockChars[middle] <= offset) {
+			low = middle;
+		} else {
+			high = middle - 1;
+		}
+	}
+	return low;
+}
+char charAt(int offset) {
+	if (offset < lastBlockStart || offset >= lastBlockEnd) block(blockIndex(offset));
+	return lastBlock[offset - lastBlockStart];
+}
+/**
+ * Answers the number of line delimiters in the range, a \r\n delimiter is
+ * counted at its \n.
+ */
+int countLines(int start, int end) {
+	int count = 0;
+	for (int offset = start; offset < end; offset++) {
+		char ch = charAt(offset);
+		if (ch == SWT.LF) {
+			count++;
+		} else if (ch == SWT.CR) {
+			if (offset + 1 >= charCount || charAt(offset + 1) != SWT.LF) count++;
+		}
+	}
+	return count;
+}
+/**
+ * Stops indexing and closes the file, which can then be deleted or
+ * renamed. The text that has been indexed can still be read, as long
+ * as it is cached.
+ */
+public void dispose() {
+	if (disposed) return;
+	disposed = true;
+	Thread thread = indexer;
+	indexer = null;
+	if (thread != null) thread.interrupt();
+	try {
+		channel.close();
+	} catch (IOException e) {
+	}
+}
+void error(int code) {
+	SWT.error(code);
+}
+/**
+ * @see StyledTextContent#getCharCount()
+ */
+@Override
+public int getCharCount() {
+	return charCount;
+}
+/**
+ * Returns the line at <code>index</code> without delimiters.
+ *
+ * @param index	the index of the line to return
+ * @return the line text without delimiters
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT when index is out of range</li>
+ * </ul>
+ */
+@Override
+public String getLine(int index) {
+	int start = getOffsetAtLine(index);
+	int end = start;
+	while (end < charCount) {
+		char ch = charAt(end);
+		if (ch == SWT.CR || ch == SWT.LF) break;
+		end++;
+	}
+	return getTextRange(start, end - start);
+}
+/**
+ * Returns the line at the given offset.
+ *
+ * @param offset offset of the character, the offset after the last
+ * 	character answers the last line
+ * @return the line index
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_ARGUMENT when offset is out of range</li>
+ * </ul>
+ */
+@Override
+public int getLineAtOffset(int offset) {
+	if (offset > charCount || offset < 0) error(SWT.ERROR_INVALID_ARGUMENT);
+	int low = 0, high = lineOffsetCount - 1;
+	while (low < high) {
+		int middle = (low + high + 1) >>> 1;
+		if (lineOffsets[middle] <= offset) {
+			low = middle;
+		} else {
+			high = middle - 1;
+		}
+	}
+	return low * LINE_STRIDE + countLines(lineOffsets[low], offset);
+}
+/**
+ * @see StyledTextContent#getLineCount()
+ */
+@Override
+public int getLineCount() {
+	return lineCount;
+}
+/**
+ * @see StyledTextContent#getLineDelimiter()
+ */
+@Override
+public String getLineDelimiter() {
+	return LineDelimiter;
+}
+/**
+ * Returns the offset of the given line.
+ *
+ * @param lineIndex index of line
+ * @return the offset of the first character of the line
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT when lineIndex is out of range</li>
+ * </ul>
+ */
+@Override
+public int getOffsetAtLine(int lineIndex) {
+	if (lineIndex >= lineCount || lineIndex < 0) error(SWT.ERROR_INVALID_ARGUMENT);
+	int offset = lineOffsets[lineIndex / LINE_STRIDE];
+	for (int remaining = lineIndex % LINE_STRIDE; remaining > 0; offset++) {
+		char ch = charAt(offset);
+		if (ch == SWT.LF) {
+			remaining--;
+		} else if (ch == SWT.CR) {
+			if (offset + 1 < charCount && charAt(offset + 1) == SWT.LF) offset++;
+			remaining--;
+		}
+	}
+	return offset;
+}
+/**
+ * Returns a string representing the content at the given range.
+ *
+ * @param start the start offset of the text to return
+ * @param length the length of the text to return
+ * @return the text at the given range
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_RANGE when the range is outside of the content</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if the file can not be read</li>
+ * </ul>
+ */
+@Override
+public String getTextRange(int start, int length) {
+	if (start < 0 || length < 0 || start > charCount - length) error(SWT.ERROR_INVALID_RANGE);
+	if (length == 0) return "";
+	char[] result = new char[length];
+	int offset = start, end = start + length;
+	while (offset < end) {
+		if (offset < lastBlockStart || offset >= lastBlockEnd) block(blockIndex(offset));
+		int count = Math.min(end, lastBlockEnd) - offset;
+		System.arraycopy(lastBlock, offset - lastBlockStart, result, offset - start, count);
+		offset += count;
+	}
+	return new String(result);
+}
+/**
+ * Decodes and indexes the file, in the indexer thread.
+ */
+void index() {
+	CharsetDecoder decoder = newDecoder();
+	ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+	CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+	long position = 0;
+	boolean pendingCR = false;
+	try {
+		while (!disposed) {
+			long size = channel.size();
+			if (size < position) break;
+			int length = (int) Math.min(BLOCK_SIZE, size - position);
+			boolean endOfInput = !follow && position + length == size;
+			chars.clear();
+			if (length > 0) {
+				ByteBuffer bytes = read(position, length, buffer);
+				decoder.reset();
+				decoder.decode(bytes, chars, endOfInput);
+				if (endOfInput) decoder.flush(chars);
+				length = bytes.position();
+			}
+			int count = chars.position();
+			if (count == 0 && length == 0) {
+				/* At the end of the file, or of what has been written to it */
+				if (!follow) {
+					if (pendingCR) {
+						synchronized (lock) {
+							addLine(indexedChars + 1);
+							indexedChars++;
+						}
+						pendingCR = false;
+						publishLater();
+					}
+					break;
+				}
+				Thread.sleep(FOLLOW_INTERVAL);
+				continue;
+			}
+			if (indexedChars + (pendingCR ? 1 : 0) > Integer.MAX_VALUE - count) break;
+			/* The characters before the block have been published, but for a \r at the end */
+			int blockStart = indexedChars + (pendingCR ? 1 : 0);
+			char[] array = chars.array();
+			synchronized (lock) {
+				for (int i = 0; i < count; i++) {
+					char ch = array[i];
+					if (pendingCR) {
+						pendingCR = false;
+						if (ch == SWT.LF) {
+							addLine(blockStart + i + 1);
+							continue;
+						}
+						addLine(blockStart + i);
+					}
+					if (ch == SWT.CR) {
+						pendingCR = true;
+					} else if (ch == SWT.LF) {
+						addLine(blockStart + i + 1);
+					}
+				}
+				addBlock(blockStart + count, position + length);
+				/* A \r at the end is shown once it is known whether a \n follows it */
+				indexedChars = blockStart + count - (pendingCR ? 1 : 0);
+			}
+			position += length;
+			publishLater();
+		}
+	} catch (InterruptedException | IOException e) {
+		/* Disposed, or the file can not be read, the content stays what has been indexed */
+	} catch (SWTException e) {
+		/* The display has been disposed */
+	}
+}
+CharsetDecoder newDecoder() {
+	return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+}
+/**
+ * Shows the lines that the indexer has indexed, in the user-interface thread.
+ */
+void publish() {
+	int newCharCount, newLineCount, newLineOffsetCount;
+	int[] newLineOffsets;
+	synchronized (lock) {
+		newCharCount = indexedChars;
+		newLineCount = indexedLines + 1;
+		newLineOffsets = indexLineOffsets;
+		newLineOffsetCount = indexLineOffsetCount;
+		blockChars = indexBlockChars;
+		blockBytes = indexBlockBytes;
+		blockCount = indexBlockCount;
+	}
+	if (newCharCount == charCount) return;
+	StyledTextEvent event = new StyledTextEvent(this);
+	event.type = ST.TextChanging;
+	event.start = charCount;
+	event.replaceLineCount = 0;
+	event.newLineCount = newLineCount - lineCount;
+	event.replaceCharCount = 0;
+	event.newCharCount = newCharCount - charCount;
+	sendTextEvent(event);
+
+	lineOffsets = newLineOffsets;
+	lineOffsetCount = newLineOffsetCount;
+	charCount = newCharCount;
+	lineCount = newLineCount;
+
+	event = new StyledTextEvent(this);
+	event.type = ST.TextChanged;
+	sendTextEvent(event);
+}
+/**
+ * Asks the user-interface thread to show the lines that have been indexed.
+ * The requests that are waiting are coalesced.
+ */
+void publishLater() {
+	if (display.isDisposed()) {
+		dispose();
+		return;
+	}
+	display.asyncExec(this, () -> {
+		if (!disposed) publish();
+	});
+}
+/**
+ * Reads the bytes of the file at the position into the buffer, the length
+ * is at most a block. The buffer is answered ready to be decoded, it is
+ * shorter if the file has been truncated.
+ */
+ByteBuffer read(long position, int length, ByteBuffer buffer) throws IOException {
+	buffer.clear();
+	buffer.limit(length);
+	while (buffer.hasRemaining()) {
+		if (channel.read(buffer, position + buffer.position()) < 0) break;
+	}
+	buffer.flip();
+	return buffer;
+}
+/**
+ * @see StyledTextContent#removeTextChangeListener(TextChangeListener)
+ */
+@Override
+public void removeTextChangeListener(TextChangeListener listener) {
+	if (listener == null) error(SWT.ERROR_NULL_ARGUMENT);
+	for (int i = 0; i < textListeners.size(); i++) {
+		TypedListener typedListener = textListeners.get(i);
+		if (typedListener.getEventListener() == listener) {
+			textListeners.remove(i);
+			break;
+		}
+	}
+}
+/**
+ * The content is read-only.
+ *
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT always</li>
+ * </ul>
+ */
+@Override
+public void replaceTextRange(int start, int replaceLength, String text) {
+	error(SWT.ERROR_INVALID_ARGUMENT);
+}
+/**
+ * Sends the text listeners the TextChanged event.
+ */
+void sendTextEvent(StyledTextEvent event) {
+	for (StyledTextListener textListener : textListeners) {
+		textListener.handleEvent(event);
+	}
+}
+/**
+ * The content is read-only.
+ *
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT always</li>
+ * </ul>
+ */
+@Override
+public void setText(String text) {
+	error(SWT.ERROR_INVALID_ARGUMENT);
+}
+}
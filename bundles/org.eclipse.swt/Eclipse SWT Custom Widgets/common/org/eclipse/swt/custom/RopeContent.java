@@ -0,0 +1,696 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.*;
+import java.util.List;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.widgets.*;
+
+/**
+ * A <code>StyledTextContent</code> for large documents.
+ * <p>
+ * The text is stored in chunks of up to a few thousand characters that are
+ * the nodes of a balanced binary tree (a rope). Every node knows the number
+ * of characters and line delimiters of its subtree, so that finding the line
+ * at an offset or the offset of a line, inserting and deleting take time
+ * proportional to the logarithm of the size of the document, wherever the
+ * edit is, and the memory used does not depend on the number of lines.
+ * The content that <code>StyledText</code> creates by default moves its gap
+ * and its line index to the place of an edit, which takes time proportional
+ * to the size of the document when edits are far apart, as in a global
+ * replace.
+ * </p><p>
+ * To use it, set it on the widget before setting the text:
+ * </p>
+ * <pre><code>
+ * StyledText text = new StyledText(parent, SWT.MULTI | SWT.V_SCROLL);
+ * text.setContent(new RopeContent());
+ * text.setText(contents);
+ * </code></pre>
+ * <p>
+ * Like the default content, a \r\n line delimiter can not be split or
+ * partially deleted. When an edit joins a \r and a \n into a \r\n delimiter,
+ * the <code>TextChangingEvent</code> counts the line that disappears as a
+ * replaced line, so the line count of the widget stays the line count of
+ * the content.
+ * </p>
+ *
+ * @see StyledText#setContent(StyledTextContent)
+ * @since 3.120
+ */
+public class RopeContent implements StyledTextContent {
+	private final static String LineDelimiter = System.lineSeparator();
+
+	/* The number of characters of a chunk. Chunks of a document that has
+	 * more than one are never smaller than the minimum. */
+	static final int MAX_CHUNK = 2048;
+	static final int MIN_CHUNK = 256;
+	static final int BUILD_CHUNK = 1024;
+
+	List<StyledTextListener> textListeners = new ArrayList<>();
+	Node root;
+
+	/* The nodes from the root to the node that find() answers */
+	Node[] path = new Node[64];
+	int depth;
+	/* The number of line delimiters before the node that find() answers */
+	int foundLines;
+	/* The trees that split() answers and the node that removeFirst() and removeLast() remove */
+	Node splitLeft, splitRight, removed;
+
+	static final class Node {
+		char[] text;
+		int length;
+		/* The number of line delimiters in the text of the node */
+		int lineCount;
+		Node left, right;
+		int height;
+		/* The number of characters and line delimiters of the subtree */
+		int charTotal, lineTotal;
+
+		Node(char[] text) {
+			this.text = text;
+			length = text.length;
+			lineCount = countLines(text, 0, length);
+		}
+	}
+
+/**
+ * Creates a new RopeContent. A <code>StyledTextContent</code> will always
+ * have at least one empty line.
+ */
+public RopeContent() {
+	setText("");
+}
+/**
+ * @see StyledTextContent#addTextChangeListener(TextChangeListener)
+ */
+@Override
+public void addTextChangeListener(TextChangeListener listener) {
+	if (listener == null) error(SWT.ERROR_NULL_ARGUMENT);
+	StyledTextListener typedListener = new StyledTextListener(listener);
+	textListeners.add(typedListener);
+}
+static Node balance(Node node) {
+	update(node);
+	int factor = height(node.left) - height(node.right);
+	if (factor > 1) {
+		if (height(node.left.left) < height(node.left.right)) node.left = rotateLeft(node.left);
+		return rotateRight(node);
+	}
+	if (factor < -1) {
+		if (height(node.right.right) < height(node.right.left)) node.right = rotateRight(node.right);
+		return rotateLeft(node);
+	}
+	return node;
+}
+/**
+ * Builds a balanced tree of chunks of <code>BUILD_CHUNK</code> characters
+ * or less, that does not split a \r\n delimiter.
+ */
+static Node build(String text) {
+	int length = text.length();
+	if (length == 0) return null;
+	int count = (length + BUILD_CHUNK - 1) / BUILD_CHUNK;
+	int[] bounds = new int[count + 1];
+	for (int i = 1; i < count; i++) {
+		int bound = (int) ((long) i * length / count);
+		if (text.charAt(bound - 1) == '\r' && text.charAt(bound) == '\n') bound++;
+		bounds[i] = bound;
+	}
+	bounds[count] = length;
+	return build(text, bounds, 0, count);
+}
+static Node build(String text, int[] bounds, int from, int to) {
+	if (from == to) return null;
+	int middle = (from + to) >>> 1;
+	char[] chars = new char[bounds[middle + 1] - bounds[middle]];
+	text.getChars(bounds[middle], bounds[middle + 1], chars, 0);
+	Node node = new Node(chars);
+	node.left = build(text, bounds, from, middle);
+	node.right = build(text, bounds, middle + 1, to);
+	update(node);
+	return node;
+}
+static int chars(Node node) {
+	return node == null ? 0 : node.charTotal;
+}
+char charAt(int offset) {
+	/* The node where offset + 1 is answered holds the character at offset */
+	int start = find(offset + 1);
+	return path[depth - 1].text[offset - start];
+}
+/**
+ * Answers the tree of the nodes of both trees.
+ */
+Node concat(Node left, Node right) {
+	if (left == null) return right;
+	if (right == null) return left;
+	right = removeFirst(right);
+	return join(left, removed, right);
+}
+static void copy(Node node, int start, int from, int to, char[] result) {
+	while (node != null) {
+		int nodeStart = start + chars(node.left);
+		int nodeEnd = nodeStart + node.length;
+		if (from < nodeStart) copy(node.left, start, from, to, result);
+		int copyStart = Math.max(from, nodeStart), copyEnd = Math.min(to, nodeEnd);
+		if (copyStart < copyEnd) {
+			System.arraycopy(node.text, copyStart - nodeStart, result, copyStart - from, copyEnd - copyStart);
+		}
+		if (to <= nodeEnd) return;
+		start = nodeEnd;
+		node = node.right;
+	}
+}
+/**
+ * Answers the number of line delimiters in the range of the text. A \r\n
+ * delimiter counts once.
+ */
+static int countLines(char[] text, int start, int end) {
+	int count = 0;
+	for (int i = start; i < end; i++) {
+		char ch = text[i];
+		if (ch == SWT.CR) {
+			count++;
+			if (i + 1 < end && text[i + 1] == SWT.LF) i++;
+		} else if (ch == SWT.LF) {
+			count++;
+		}
+	}
+	return count;
+}
+static int countLines(String text) {
+	int count = 0, length = text.length();
+	for (int i = 0; i < length; i++) {
+		char ch = text.charAt(i);
+		if (ch == SWT.CR) {
+			count++;
+			if (i + 1 < length && text.charAt(i + 1) == SWT.LF) i++;
+		} else if (ch == SWT.LF) {
+			count++;
+		}
+	}
+	return count;
+}
+void error(int code) {
+	SWT.error(code);
+}
+/**
+ * Finds the node of an offset and answers the offset of its first character.
+ * The node is the one that the character before the offset is in, or the
+ * first node for offset 0. The nodes from the root to the node are in
+ * <code>path</code>.
+ */
+int find(int offset) {
+	depth = 0;
+	foundLines = 0;
+	int start = 0;
+	Node node = root;
+	while (node != null) {
+		path[depth++] = node;
+		int leftChars = chars(node.left);
+		if (offset <= start + leftChars && leftChars > 0) {
+			node = node.left;
+		} else if (offset <= start + leftChars + node.length) {
+			foundLines += lines(node.left);
+			return start + leftChars;
+		} else {
+			foundLines += lines(node.left) + node.lineCount;
+			start += leftChars + node.length;
+			node = node.right;
+		}
+	}
+	return 0;
+}
+/**
+ * @see StyledTextContent#getCharCount()
+ */
+@Override
+public int getCharCount() {
+	return chars(root);
+}
+/**
+ * Returns the line at <code>index</code> without delimiters.
+ *
+ * @param index	the index of the line to return
+ * @return the line text without delimiters
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT when index is out of range</li>
+ * </ul>
+ */
+@Override
+public String getLine(int index) {
+	int lineCount = getLineCount();
+	if (index >= lineCount || index < 0) error(SWT.ERROR_INVALID_ARGUMENT);
+	int start = getOffsetAtLine(index);
+	int end = index + 1 < lineCount ? getOffsetAtLine(index + 1) : getCharCount();
+	char[] line = new char[end - start];
+	copy(root, 0, start, end, line);
+	int length = line.length;
+	if (length > 0 && line[length - 1] == SWT.LF) length--;
+	if (length > 0 && line[length - 1] == SWT.CR) length--;
+	return new String(line, 0, length);
+}
+/**
+ * @see StyledTextContent#getLineDelimiter()
+ */
+@Override
+public String getLineDelimiter() {
+	return LineDelimiter;
+}
+/**
+ * @see StyledTextContent#getLineCount()
+ */
+@Override
+public int getLineCount() {
+	return lines(root) + 1;
+}
+/**
+ * Returns the line at the given offset.
+ *
+ * @param offset offset of the character, the offset after the last
+ * 	character answers the last line
+ * @return the line index
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_ARGUMENT when offset is out of range</li>
+ * </ul>
+ */
+@Override
+public int getLineAtOffset(int offset) {
+	if (offset > getCharCount() || offset < 0) error(SWT.ERROR_INVALID_ARGUMENT);
+	if (root == null) return 0;
+	int local = offset - find(offset);
+	Node node = path[depth - 1];
+	int line = foundLines + countLines(node.text, 0, local);
+	/* Between the \r and the \n of a delimiter, the \r does not end the line yet */
+	if (local > 0 && local < node.length && node.text[local - 1] == SWT.CR && node.text[local] == SWT.LF) {
+		line--;
+	}
+	return line;
+}
+/**
+ * Returns the offset of the given line.
+ *
+ * @param lineIndex index of line
+ * @return the offset of the first character of the line
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_ARGUMENT when lineIndex is out of range</li>
+ * </ul>
+ */
+@Override
+public int getOffsetAtLine(int lineIndex) {
+	if (lineIndex == 0) return 0;
+	if (lineIndex >= getLineCount() || lineIndex < 0) error(SWT.ERROR_INVALID_ARGUMENT);
+	/* Find the node of the delimiter that ends the previous line */
+	int remaining = lineIndex, start = 0;
+	Node node = root;
+	while (true) {
+		int leftLines = lines(node.left);
+		if (remaining <= leftLines) {
+			node = node.left;
+		} else if (remaining <= leftLines + node.lineCount) {
+			remaining -= leftLines;
+			start += chars(node.left);
+			break;
+		} else {
+			remaining -= leftLines + node.lineCount;
+			start += chars(node.left) + node.length;
+			node = node.right;
+		}
+	}
+	char[] text = node.text;
+	for (int i = 0; i < node.length; i++) {
+		char ch = text[i];
+		if (ch == SWT.CR) {
+			if (i + 1 < node.length && text[i + 1] == SWT.LF) i++;
+		} else if (ch != SWT.LF) {
+			continue;
+		}
+		if (--remaining == 0) return start + i + 1;
+	}
+	return start + node.length;
+}
+/**
+ * Returns a string representing the content at the given range.
+ *
+ * @param start the start offset of the text to return
+ * @param length the length of the text to return
+ * @return the text at the given range
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_RANGE when the range is outside of the content</li>
+ * </ul>
+ */
+@Override
+public String getTextRange(int start, int length) {
+	if (start < 0 || length < 0 || start > getCharCount() - length) error(SWT.ERROR_INVALID_RANGE);
+	if (length == 0) return "";
+	char[] result = new char[length];
+	copy(root, 0, start, start + length, result);
+	return new String(result);
+}
+static int height(Node node) {
+	return node == null ? 0 : node.height;
+}
+/**
+ * Returns whether or not the given character offset is inside a \r\n line delimiter.
+ */
+boolean isInsideCRLF(int offset) {
+	if (offset <= 0 || offset >= getCharCount()) return false;
+	return charAt(offset - 1) == SWT.CR && charAt(offset) == SWT.LF;
+}
+/**
+ * Answers the tree of the left tree, the node and the right tree, in this
+ * order. The heights of the trees can differ by any amount.
+ */
+static Node join(Node left, Node node, Node right) {
+	if (height(left) > height(right) + 1) {
+		left.right = join(left.right, node, right);
+		return balance(left);
+	}
+	if (height(right) > height(left) + 1) {
+		right.left = join(left, node, right.left);
+		return balance(right);
+	}
+	node.left = left;
+	node.right = right;
+	update(node);
+	return node;
+}
+static int lines(Node node) {
+	return node == null ? 0 : node.lineTotal;
+}
+/**
+ * Removes the first node of the tree into <code>removed</code> and answers
+ * the tree of the other nodes.
+ */
+Node removeFirst(Node node) {
+	if (node.left == null) {
+		Node right = node.right;
+		node.right = null;
+		update(node);
+		removed = node;
+		return right;
+	}
+	node.left = removeFirst(node.left);
+	return balance(node);
+}
+/**
+ * Removes the last node of the tree into <code>removed</code> and answers
+ * the tree of the other nodes.
+ */
+Node removeLast(Node node) {
+	if (node.right == null) {
+		Node left = node.left;
+		node.left = null;
+		update(node);
+		removed = node;
+		return left;
+	}
+	node.right = removeLast(node.right);
+	return balance(node);
+}
+/**
+ * @see StyledTextContent#removeTextChangeListener(TextChangeListener)
+ */
+@Override
+public void removeTextChangeListener(TextChangeListener listener) {
+	if (listener == null) error(SWT.ERROR_NULL_ARGUMENT);
+	for (int i = 0; i < textListeners.size(); i++) {
+		TypedListener typedListener = textListeners.get(i);
+		if (typedListener.getEventListener() == listener) {
+			textListeners.remove(i);
+			break;
+		}
+	}
+}
+/**
+ * Replaces the range of the text with the new text, without notifying the
+ * listeners.
+ */
+void replace(int start, int end, String text) {
+	int textLength = text.length();
+	if (root != null) {
+		/* Edit a single node in place when it stays within the bounds of a chunk */
+		int nodeStart = find(start);
+		Node node = path[depth - 1];
+		int from = start - nodeStart, to = end - nodeStart;
+		int length = node.length - (to - from) + textLength;
+		boolean single = root.left == null && root.right == null;
+		boolean fits = to <= node.length && length <= MAX_CHUNK && (length >= MIN_CHUNK || single && length > 0);
+		if (fits && to == node.length && end < getCharCount()) {
+			/* A \r at the end of the node could start a \r\n delimiter with the next node */
+			char last = textLength > 0 ? text.charAt(textLength - 1) : node.text[from - 1];
+			fits = last != SWT.CR;
+		}
+		if (fits) {
+			char[] chars = node.text;
+			if (length > chars.length) {
+				chars = new char[Math.min(MAX_CHUNK, Math.max(length, chars.length + (chars.length >> 1)))];
+				System.arraycopy(node.text, 0, chars, 0, from);
+			}
+			System.arraycopy(node.text, to, chars, from + textLength, node.length - to);
+			text.getChars(0, textLength, chars, from);
+			node.text = chars;
+			node.length = length;
+			node.lineCount = countLines(chars, 0, length);
+			for (int i = depth - 1; i >= 0; i--) update(path[i]);
+			return;
+		}
+	}
+	/* Cut out the range and rebuild the nodes around it with the new text */
+	split(root, start);
+	Node left = splitLeft;
+	split(splitRight, end - start);
+	Node right = splitRight;
+	StringBuilder builder = new StringBuilder(textLength + 2 * MAX_CHUNK);
+	builder.append(text);
+	do {
+		if (left != null) {
+			left = removeLast(left);
+			builder.insert(0, removed.text, 0, removed.length);
+		}
+		if (right != null) {
+			right = removeFirst(right);
+			builder.append(removed.text, 0, removed.length);
+		}
+	} while (builder.length() < MIN_CHUNK && (left != null || right != null));
+	removed = splitLeft = splitRight = null;
+	root = concat(concat(left, build(builder.toString())), right);
+}
+/**
+ * Replaces the text with <code>newText</code> starting at position <code>start</code>
+ * for a length of <code>replaceLength</code>.  Notifies the appropriate listeners.
+ * <p>
+ * When sending the TextChangingEvent, <code>newLineCount</code> is the number of
+ * lines that are going to be inserted and <code>replaceLineCount</code> is
+ * the number of lines that are going to be deleted, based on the change
+ * that occurs visually. A line delimiter that is joined with the edit, like
+ * the \r and \n around a deleted character, is deleted.
+ * </p>
+ *
+ * @param start	start offset of text to replace
+ * @param replaceLength length of text to replace
+ * @param newText text to replace
+ *
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_NULL_ARGUMENT when newText is null</li>
+ *   <li>ERROR_INVALID_RANGE when the range is outside of the content</li>
+ *   <li>ERROR_INVALID_ARGUMENT when the text change results in a multi byte
+ *      line delimiter being split or partially deleted.  Splitting a line
+ *      delimiter by inserting text between the CR and LF characters of the
+ *      \r\n delimiter or deleting part of this line delimiter is not supported</li>
+ * </ul>
+ */
+@Override
+public void replaceTextRange(int start, int replaceLength, String newText) {
+	if (newText == null) error(SWT.ERROR_NULL_ARGUMENT);
+	int charCount = getCharCount();
+	if (start < 0 || replaceLength < 0 || start > charCount - replaceLength) error(SWT.ERROR_INVALID_RANGE);
+	validateReplace(start, replaceLength);
+	replaceText(start, replaceLength, newText, null, null);
+}
+/**
+ * Replaces several ranges of the text with one change. Notifies the appropriate
+ * listeners once, the text from the start of the first range to the end of the
+ * last range is replaced in one pass.
+ *
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range
+ *
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_NULL_ARGUMENT when ranges, texts or one of the texts is null</li>
+ *   <li>ERROR_INVALID_ARGUMENT when ranges does not have two values for each text,
+ *      when the ranges are not sorted or overlap, or when the text change results
+ *      in a multi byte line delimiter being split or partially deleted</li>
+ *   <li>ERROR_INVALID_RANGE when a range is outside of the content</li>
+ * </ul>
+ */
+@Override
+public void replaceTextRanges(int[] ranges, String[] texts) {
+	String newText = TextRanges.getReplacementText(this, ranges, texts);
+	if (newText == null) return;
+	int count = texts.length;
+	for (int i = 0; i < count; i++) {
+		validateReplace(ranges[2 * i], ranges[2 * i + 1]);
+	}
+	int start = ranges[0];
+	replaceText(start, ranges[2 * count - 2] + ranges[2 * count - 1] - start, newText, ranges.clone(), texts.clone());
+}
+void replaceText(int start, int replaceLength, String newText, int[] ranges, String[] texts) {
+	int end = start + replaceLength;
+	int joined = getJoinedLines(start, end, newText);
+
+	// inform listeners
+	StyledTextEvent event = new StyledTextEvent(this);
+	event.type = ST.TextChanging;
+	event.start = start;
+	event.replaceLineCount = countLines(getTextRange(start, replaceLength)) + joined;
+	event.text = newText;
+	event.newLineCount = countLines(newText);
+	event.replaceCharCount = replaceLength;
+	event.newCharCount = newText.length();
+	event.ranges = ranges;
+	event.texts = texts;
+	if (ranges != null) event.lineCounts = getLineCounts(ranges, texts);
+	sendTextEvent(event);
+
+	replace(start, end, newText);
+
+	// inform listeners
+	event = new StyledTextEvent(this);
+	event.type = ST.TextChanged;
+	sendTextEvent(event);
+}
+/**
+ * Answers the number of line delimiters around the range that join into
+ * a \r\n delimiter when the range is replaced with the text.
+ */
+int getJoinedLines(int start, int end, String newText) {
+	boolean crBefore = start > 0 && charAt(start - 1) == SWT.CR;
+	boolean lfAfter = end < getCharCount() && charAt(end) == SWT.LF;
+	int joined = 0;
+	if (newText.isEmpty()) {
+		if (crBefore && lfAfter) joined++;
+	} else {
+		if (crBefore && newText.charAt(0) == SWT.LF) joined++;
+		if (lfAfter && newText.charAt(newText.length() - 1) == SWT.CR) joined++;
+	}
+	return joined;
+}
+/**
+ * Returns the number of replaced lines and the number of new lines of each
+ * range, counted like the lines of a change of that range alone.
+ */
+int[] getLineCounts(int[] ranges, String[] texts) {
+	int[] lineCounts = new int[ranges.length];
+	for (int i = 0; i < texts.length; i++) {
+		int start = ranges[2 * i], end = start + ranges[2 * i + 1];
+		lineCounts[2 * i] = countLines(getTextRange(start, end - start)) + getJoinedLines(start, end, texts[i]);
+		lineCounts[2 * i + 1] = countLines(texts[i]);
+	}
+	return lineCounts;
+}
+static Node rotateLeft(Node node) {
+	Node right = node.right;
+	node.right = right.left;
+	right.left = node;
+	update(node);
+	update(right);
+	return right;
+}
+static Node rotateRight(Node node) {
+	Node left = node.left;
+	node.left = left.right;
+	left.right = node;
+	update(node);
+	update(left);
+	return left;
+}
+/**
+ * Sends the text listeners the TextChanged event.
+ */
+void sendTextEvent(StyledTextEvent event) {
+	for (StyledTextListener textListener : textListeners) {
+		textListener.handleEvent(event);
+	}
+}
+/**
+ * Sets the content to text.
+ *
+ * @param text the text
+ */
+@Override
+public void setText(String text) {
+	if (text == null) error(SWT.ERROR_NULL_ARGUMENT);
+	root = build(text);
+	StyledTextEvent event = new StyledTextEvent(this);
+	event.type = ST.TextSet;
+	event.text = "";
+	sendTextEvent(event);
+}
+/**
+ * Splits the tree at the offset into <code>splitLeft</code> and
+ * <code>splitRight</code>. The node that the offset is in is split in two.
+ */
+void split(Node node, int offset) {
+	if (node == null) {
+		splitLeft = splitRight = null;
+		return;
+	}
+	Node left = node.left, right = node.right;
+	int leftChars = chars(left);
+	if (offset <= leftChars) {
+		split(left, offset);
+		splitRight = join(splitRight, node, right);
+	} else if (offset >= leftChars + node.length) {
+		split(right, offset - leftChars - node.length);
+		splitLeft = join(left, node, splitLeft);
+	} else {
+		int local = offset - leftChars;
+		Node tail = new Node(Arrays.copyOfRange(node.text, local, node.length));
+		node.length = local;
+		node.lineCount = countLines(node.text, 0, local);
+		splitLeft = join(left, node, null);
+		splitRight = join(null, tail, right);
+	}
+}
+static void update(Node node) {
+	node.height = Math.max(height(node.left), height(node.right)) + 1;
+	node.charTotal = chars(node.left) + node.length + chars(node.right);
+	node.lineTotal = lines(node.left) + node.lineCount + lines(node.right);
+}
+private void validateReplace(int start, int replaceLength) {
+	if (replaceLength == 0) {
+		// inserting text, see if the \r\n line delimiter is being split
+		if (isInsideCRLF(start)) {
+			String message = " [0: start=" + start + " len=" + replaceLength + "]";
+			SWT.error(SWT.ERROR_INVALID_ARGUMENT, null, message);
+		}
+	} else {
+		// deleting text, see if part of a \r\n line delimiter is being deleted
+		if (isInsideCRLF(start)) {
+			String message = " [1: start=" + start + " len=" + replaceLength + "]";
+			SWT.error(SWT.ERROR_INVALID_ARGUMENT, null, message);
+		}
+
+		if (isInsideCRLF(start + replaceLength)) {
+			String message = " [2: start=" + start + " len=" + replaceLength + "]";
+			SWT.error(SWT.ERROR_INVALID_ARGUMENT, null, message);
+		}
+	}
+}
+}
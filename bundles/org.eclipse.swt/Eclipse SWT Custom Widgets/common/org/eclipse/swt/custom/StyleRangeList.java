@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.*;
+
+/**
+ * The style ranges of a <code>StyledTextRenderer</code>, sorted by offset and
+ * not overlapping.
+ * <p>
+ * The ranges are stored in leaves of up to a few hundred ranges. A leaf keeps
+ * the starts of its ranges relative to the start of its first range, and the
+ * starts of the leaves are kept as differences in a Fenwick tree, so moving
+ * the ranges after an edit changes one leaf and the tree instead of every
+ * range after it. Finding the range at an offset, the range at an index,
+ * replacing a few ranges and moving the ranges after an edit take time
+ * proportional to the size of a leaf and to the logarithm of the number of
+ * leaves. Only splitting, merging or replacing whole leaves rebuilds the
+ * index of the leaves, which takes time proportional to the number of leaves.
+ * </p>
+ */
+class StyleRangeList {
+	/* The number of ranges of a leaf. Leaves of a list that has more than one
+	 * are never smaller than the minimum. */
+	static final int MAX_LEAF = 256;
+	static final int MIN_LEAF = 32;
+	static final int BUILD_LEAF = 192;
+
+	Leaf[] leaves = new Leaf[0];
+	int leafCount, count;
+	/* Fenwick trees of the number of ranges of every leaf and of the
+	 * difference between the start of every leaf and the start of the leaf
+	 * before it. The start of a leaf is the start of its first range. */
+	int[] counts = new int[1], starts = new int[1];
+	/* The leaf that locate() answers, the index and the start of its first range */
+	int foundLeaf = -1, foundIndex, foundStart;
+
+	/* The arrays of a leaf grow with its ranges, up to the maximum */
+	static final class Leaf {
+		int count;
+		int[] starts, lengths;
+		StyleRange[] styles;
+
+		Leaf(int capacity) {
+			starts = new int[capacity];
+			lengths = new int[capacity];
+			styles = new StyleRange[capacity];
+		}
+		void ensureCapacity(int size) {
+			if (size <= starts.length) return;
+			int capacity = Math.min(MAX_LEAF, Math.max(size, starts.length * 2));
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			styles = Arrays.copyOf(styles, capacity);
+		}
+	}
+
+StyleRangeList copy() {
+	StyleRangeList list = new StyleRangeList();
+	list.leaves = new Leaf[leafCount];
+	for (int i = 0; i < leafCount; i++) {
+		Leaf leaf = leaves[i], newLeaf = list.leaves[i] = new Leaf(leaf.count);
+		newLeaf.count = leaf.count;
+		System.arraycopy(leaf.starts, 0, newLeaf.starts, 0, leaf.count);
+		System.arraycopy(leaf.lengths, 0, newLeaf.lengths, 0, leaf.count);
+		for (int j = 0; j < leaf.count; j++) {
+			newLeaf.styles[j] = (StyleRange)leaf.styles[j].clone();
+		}
+	}
+	list.leafCount = leafCount;
+	list.count = count;
+	list.counts = counts.clone();
+	list.starts = starts.clone();
+	return list;
+}
+/**
+ * Copies the ranges from <code>start</code> (inclusive) to <code>end</code>
+ * (exclusive) into the given arrays, either of them can be <code>null</code>.
+ */
+void get(int start, int end, int[] ranges, StyleRange[] styles) {
+	if (start >= end) return;
+	int leafIndex = locate(start);
+	Leaf leaf = leaves[leafIndex];
+	int leafStart = foundStart;
+	for (int i = start - foundIndex, j = 0; j < end - start; i++, j++) {
+		if (i == leaf.count) {
+			leaf = leaves[++leafIndex];
+			leafStart = sum(starts, leafIndex + 1);
+			i = 0;
+		}
+		if (ranges != null) {
+			ranges[j << 1] = leafStart + leaf.starts[i];
+			ranges[(j << 1) + 1] = leaf.lengths[i];
+		}
+		if (styles != null) styles[j] = leaf.styles[i];
+	}
+}
+int getLength(int index) {
+	int leafIndex = locate(index);
+	return leaves[leafIndex].lengths[index - foundIndex];
+}
+int getStart(int index) {
+	int leafIndex = locate(index);
+	return foundStart + leaves[leafIndex].starts[index - foundIndex];
+}
+StyleRange getStyle(int index) {
+	int leafIndex = locate(index);
+	return leaves[leafIndex].styles[index - foundIndex];
+}
+/**
+ * Returns the index of the first range that ends after the given offset,
+ * or the number of ranges when there is none.
+ */
+int indexOf(int offset) {
+	if (count == 0) return 0;
+	/* The last leaf that starts at or before the offset */
+	int leafIndex = 0, leafStart = 0;
+	for (int step = Integer.highestOneBit(leafCount); step > 0; step >>= 1) {
+		int next = leafIndex + step;
+		if (next <= leafCount && leafStart + starts[next] <= offset) {
+			leafIndex = next;
+			leafStart += starts[next];
+		}
+	}
+	if (leafIndex == 0) return 0;
+	Leaf leaf = leaves[--leafIndex];
+	int low = -1, high = leaf.count;
+	while (high - low > 1) {
+		int index = (high + low) >>> 1;
+		if (leafStart + leaf.starts[index] + leaf.lengths[index] > offset) {
+			high = index;
+		} else {
+			low = index;
+		}
+	}
+	return sum(counts, leafIndex) + high;
+}
+/**
+ * Returns the leaf of the range at the given index, or the last leaf when
+ * the index is the number of ranges, and sets the index and the start of
+ * its first range.
+ */
+int locate(int index) {
+	if (foundLeaf != -1 && foundIndex <= index && index < foundIndex + leaves[foundLeaf].count) {
+		return foundLeaf;
+	}
+	int leafIndex = 0, first = 0;
+	for (int step = Integer.highestOneBit(leafCount); step > 0; step >>= 1) {
+		int next = leafIndex + step;
+		if (next <= leafCount && first + counts[next] <= index) {
+			leafIndex = next;
+			first += counts[next];
+		}
+	}
+	if (leafIndex == leafCount) {
+		leafIndex--;
+		first -= leaves[leafIndex].count;
+	}
+	foundLeaf = leafIndex;
+	foundIndex = first;
+	foundStart = sum(starts, leafIndex + 1);
+	return leafIndex;
+}
+/**
+ * Moves the first range of a leaf to the start of the leaf.
+ */
+void normalize(int leafIndex) {
+	Leaf leaf = leaves[leafIndex];
+	int delta = leaf.starts[0];
+	if (delta == 0) return;
+	for (int i = 0; i < leaf.count; i++) {
+		leaf.starts[i] -= delta;
+	}
+	add(starts, leafIndex, delta);
+	if (leafIndex + 1 < leafCount) add(starts, leafIndex + 1, -delta);
+}
+/**
+ * Replaces the ranges from <code>start</code> (inclusive) to <code>end</code>
+ * (exclusive) with the first <code>newCount</code> ranges of the given arrays.
+ */
+void replace(int start, int end, int[] newRanges, StyleRange[] newStyles, int newCount) {
+	if (start == end && newCount == 0) return;
+	if (leafCount > 0) {
+		int leafIndex = locate(start);
+		Leaf leaf = leaves[leafIndex];
+		int leafStart = foundStart;
+		int startIndex = start - foundIndex, endIndex = end - foundIndex;
+		int size = leaf.count - (endIndex - startIndex) + newCount;
+		if (endIndex <= leaf.count && 0 < size && size <= MAX_LEAF && (size >= MIN_LEAF || leafCount == 1)) {
+			leaf.ensureCapacity(size);
+			System.arraycopy(leaf.starts, endIndex, leaf.starts, startIndex + newCount, leaf.count - endIndex);
+			System.arraycopy(leaf.lengths, endIndex, leaf.lengths, startIndex + newCount, leaf.count - endIndex);
+			System.arraycopy(leaf.styles, endIndex, leaf.styles, startIndex + newCount, leaf.count - endIndex);
+			for (int i = size; i < leaf.count; i++) {
+				leaf.styles[i] = null;
+			}
+			for (int i = 0; i < newCount; i++) {
+				leaf.starts[startIndex + i] = newRanges[i << 1] - leafStart;
+				leaf.lengths[startIndex + i] = newRanges[(i << 1) + 1];
+				leaf.styles[startIndex + i] = newStyles[i];
+			}
+			add(counts, leafIndex, size - leaf.count);
+			count += size - leaf.count;
+			leaf.count = size;
+			if (startIndex == 0) normalize(leafIndex);
+			foundLeaf = -1;
+			return;
+		}
+	}
+	rebuild(start, end, newRanges, newStyles, newCount);
+}
+/**
+ * Replaces the leaves of the ranges from <code>start</code> to
+ * <code>end</code> with new leaves.
+ */
+void rebuild(int start, int end, int[] newRanges, StyleRange[] newStyles, int newCount) {
+	int firstLeaf = 0, lastLeaf = -1, firstIndex = 0, oldCount = 0;
+	if (leafCount > 0) {
+		firstLeaf = locate(start);
+		firstIndex = foundIndex;
+		lastLeaf = end > start ? locate(end - 1) : firstLeaf;
+		for (int i = firstLeaf; i <= lastLeaf; i++) {
+			oldCount += leaves[i].count;
+		}
+		/* A small leaf is merged with the next one, or the previous one */
+		int total = oldCount - (end - start) + newCount;
+		if (total < MIN_LEAF) {
+			if (lastLeaf + 1 < leafCount) {
+				oldCount += leaves[++lastLeaf].count;
+			} else if (firstLeaf > 0) {
+				oldCount += leaves[--firstLeaf].count;
+				firstIndex -= leaves[firstLeaf].count;
+			}
+		}
+	}
+	int[] leafStarts = getLeafStarts();
+	int total = oldCount - (end - start) + newCount;
+	int[] ranges = new int[total << 1];
+	StyleRange[] styles = new StyleRange[total];
+	int j = 0, index = firstIndex;
+	boolean inserted = false;
+	for (int i = firstLeaf; i <= lastLeaf; i++) {
+		Leaf leaf = leaves[i];
+		for (int k = 0; k < leaf.count; k++, index++) {
+			if (index == start) {
+				j = copy(newRanges, newStyles, newCount, ranges, styles, j);
+				inserted = true;
+			}
+			if (index < start || index >= end) {
+				ranges[j << 1] = leafStarts[i] + leaf.starts[k];
+				ranges[(j << 1) + 1] = leaf.lengths[k];
+				styles[j++] = leaf.styles[k];
+			}
+		}
+	}
+	if (!inserted) copy(newRanges, newStyles, newCount, ranges, styles, j);
+
+	int buildCount = (total + BUILD_LEAF - 1) / BUILD_LEAF;
+	int removed = lastLeaf - firstLeaf + 1;
+	int newLeafCount = leafCount - removed + buildCount;
+	Leaf[] newLeaves = new Leaf[newLeafCount];
+	int[] newLeafStarts = new int[newLeafCount];
+	System.arraycopy(leaves, 0, newLeaves, 0, firstLeaf);
+	System.arraycopy(leafStarts, 0, newLeafStarts, 0, firstLeaf);
+	System.arraycopy(leaves, lastLeaf + 1, newLeaves, firstLeaf + buildCount, leafCount - lastLeaf - 1);
+	System.arraycopy(leafStarts, lastLeaf + 1, newLeafStarts, firstLeaf + buildCount, leafCount - lastLeaf - 1);
+	for (int i = 0; i < buildCount; i++) {
+		/* The ranges are spread evenly over the new leaves */
+		int first = (int)((long)total * i / buildCount), last = (int)((long)total * (i + 1) / buildCount);
+		Leaf leaf = newLeaves[firstLeaf + i] = new Leaf(last - first);
+		int leafStart = newLeafStarts[firstLeaf + i] = ranges[first << 1];
+		for (int k = first; k < last; k++) {
+			leaf.starts[k - first] = ranges[k << 1] - leafStart;
+			leaf.lengths[k - first] = ranges[(k << 1) + 1];
+			leaf.styles[k - first] = styles[k];
+		}
+		leaf.count = last - first;
+	}
+	leaves = newLeaves;
+	leafCount = newLeafCount;
+	count += newCount - (end - start);
+	counts = new int[leafCount + 1];
+	starts = new int[leafCount + 1];
+	for (int i = 1; i <= leafCount; i++) {
+		counts[i] += leaves[i - 1].count;
+		starts[i] += newLeafStarts[i - 1] - (i > 1 ? newLeafStarts[i - 2] : 0);
+		int parent = i + (i & -i);
+		if (parent <= leafCount) {
+			counts[parent] += counts[i];
+			starts[parent] += starts[i];
+		}
+	}
+	foundLeaf = -1;
+}
+static int copy(int[] ranges, StyleRange[] styles, int count, int[] newRanges, StyleRange[] newStyles, int index) {
+	if (count == 0) return index;
+	System.arraycopy(ranges, 0, newRanges, index << 1, count << 1);
+	System.arraycopy(styles, 0, newStyles, index, count);
+	return index + count;
+}
+/**
+ * Returns the start of every leaf.
+ */
+int[] getLeafStarts() {
+	int[] leafStarts = new int[leafCount];
+	int[] values = starts.clone();
+	for (int i = leafCount; i > 0; i--) {
+		int parent = i + (i & -i);
+		if (parent <= leafCount) values[parent] -= values[i];
+	}
+	for (int i = 0, start = 0; i < leafCount; i++) {
+		leafStarts[i] = start += values[i + 1];
+	}
+	return leafStarts;
+}
+void setLength(int index, int length) {
+	int leafIndex = locate(index);
+	leaves[leafIndex].lengths[index - foundIndex] = length;
+}
+void setRange(int index, int start, int length) {
+	int leafIndex = locate(index);
+	Leaf leaf = leaves[leafIndex];
+	int i = index - foundIndex;
+	leaf.starts[i] = start - foundStart;
+	leaf.lengths[i] = length;
+	if (i == 0) {
+		normalize(leafIndex);
+		foundLeaf = -1;
+	}
+}
+/**
+ * Moves the ranges from the given index to the end by the given number of
+ * characters.
+ */
+void shift(int index, int delta) {
+	if (index >= count || delta == 0) return;
+	int leafIndex = locate(index);
+	Leaf leaf = leaves[leafIndex];
+	int i = index - foundIndex;
+	if (i == 0) {
+		add(starts, leafIndex, delta);
+	} else {
+		for (; i < leaf.count; i++) {
+			leaf.starts[i] += delta;
+		}
+		if (leafIndex + 1 < leafCount) add(starts, leafIndex + 1, delta);
+	}
+	foundLeaf = -1;
+}
+int size() {
+	return count;
+}
+void add(int[] tree, int leafIndex, int delta) {
+	for (int i = leafIndex + 1; i <= leafCount; i += i & -i) {
+		tree[i] += delta;
+	}
+}
+static int sum(int[] tree, int leafCount) {
+	int sum = 0;
+	for (int i = leafCount; i > 0; i -= i & -i) {
+		sum += tree[i];
+	}
+	return sum;
+}
+}
@@ -160,6 +160,8 @@ public class StyledText extends Canvas {
 	int lastTextChangeNewCharCount;		// event for use in the
 	int lastTextChangeReplaceLineCount;	// text changed handler
 	int lastTextChangeReplaceCharCount;
+	int[] lastTextChangeRanges;			// the replacements of a batch
+	String[] lastTextChangeTexts;
 	int lastCharCount = 0;
 	int lastLineBottom;					// the bottom pixel of the last line been replaced
 	boolean bidiColoring = false;		// apply the BIDI algorithm on text segments of the same color
@@ -326,9 +328,9 @@ public class StyledText extends Canvas {
 				printerRenderer.setLineIndent(i, 1, indent * printerDPI.x / screenDPI.x);
 			}
 		}
-		StyleRange[] styles = printerRenderer.styles;
-		for (int i = 0; i < printerRenderer.styleCount; i++) {
-			StyleRange style = styles[i];
+		StyleRange[] styles = new StyleRange[printerRenderer.styleRanges.size()];
+		printerRenderer.styleRanges.get(0, styles.length, null, styles);
+		for (StyleRange style : styles) {
 			Font font = style.font;
 			if (style.font != null) {
 				Font printerFont = (Font)resources.get(font);
@@ -1587,7 +1589,12 @@ void calculateTopIndex(int delta) {
 	} else {
 		if (delta >= 0) {
 			delta -= topIndexY;
-			int lineIndex = topIndex;
+			int lineIndex = renderer.getScrollLineIndex(topIndex, delta, true);
+			if (lineIndex != -1) {
+				delta -= renderer.getLinesHeight(topIndex, lineIndex);
+			} else {
+				lineIndex = topIndex;
+			}
 			int lineCount = content.getLineCount();
 			while (lineIndex < lineCount) {
 				if (delta <= 0) break;
@@ -1602,7 +1609,12 @@ void calculateTopIndex(int delta) {
 			}
 		} else {
 			delta -= topIndexY;
-			int lineIndex = topIndex;
+			int lineIndex = renderer.getScrollLineIndex(topIndex, delta, false);
+			if (lineIndex != -1) {
+				delta += renderer.getLinesHeight(lineIndex, topIndex);
+			} else {
+				lineIndex = topIndex;
+			}
 			while (lineIndex > 0) {
 				int lineHeight = renderer.getCachedLineHeight(lineIndex - 1);
 				if (delta + lineHeight > 0) break;
@@ -2302,19 +2314,22 @@ void doAutoScroll(int direction, int distance) {
  * Move the caret in front of the deleted text.
  */
 void doBackspace() {
-	Event event = new Event();
-	event.text = "";
+	List<Event> events = new ArrayList<>(selection.length);
 	if (Arrays.stream(selection).anyMatch(p -> p.x != p.y)) { // at least one range to delete
 		for (int i = selection.length - 1; i >= 0; i--) { // from bottom to top to avoid moving ranges
 			Point sel = selection[i];
+			Event event = new Event();
+			event.text = "";
 			event.start = sel.x;
 			event.end = sel.y;
-			sendKeyEvent(event);
+			events.add(event);
 		}
 	} else {
 		for (int i = caretOffsets.length - 1; i >= 0; i--) { // reverse loop, process from bottom to top
 			int caretOffset = caretOffsets[i];
 			if (caretOffset > 0) {
+				Event event = new Event();
+				event.text = "";
 				int lineIndex = content.getLineAtOffset(caretOffset);
 				int lineOffset = content.getOffsetAtLine(lineIndex);
 				if (caretOffset == lineOffset) {
@@ -2337,10 +2352,11 @@ void doBackspace() {
 					event.start = start + lineOffset;
 					event.end = caretOffset;
 				}
-				sendKeyEvent(event);
+				events.add(event);
 			}
 		}
 	}
+	sendKeyEvents(events);
 }
 void doBlockColumn(boolean next) {
 	if (blockXLocation == -1) setBlockSelectionOffset(caretOffsets[0], false);
@@ -2506,6 +2522,8 @@ void doContent(final char key) {
 		return;
 	}
 
+	List<Event> events = new ArrayList<>(selection.length);
+	int charCount = content.getCharCount();
 	for (int i = selection.length - 1; i >= 0; i--) {
 		Point sel = selection[i];
 		Event event = new Event();
@@ -2534,12 +2552,14 @@ void doContent(final char key) {
 			event.text = new String(new char[] {key});
 		}
 		if (event.text != null) {
-			if (textLimit > 0 && content.getCharCount() - (event.end - event.start) >= textLimit) {
-				return;
+			if (textLimit > 0 && charCount - (event.end - event.start) >= textLimit) {
+				break;
 			}
-			sendKeyEvent(event);
+			charCount += event.text.length() - (event.end - event.start);
+			events.add(event);
 		}
 	}
+	sendKeyEvents(events);
 }
 /**
  * Moves the caret after the last character of the widget content.
@@ -2596,18 +2616,21 @@ void doCursorNext() {
  * Deletes the next character. Delete the selected text if any.
  */
 void doDelete() {
-	Event event = new Event();
-	event.text = "";
+	List<Event> events = new ArrayList<>(selection.length);
 	if (Arrays.stream(selection).anyMatch(sel -> sel.x != sel.y)) {
 		for (Point sel : selection) {
+			Event event = new Event();
+			event.text = "";
 			event.start = sel.x;
 			event.end = sel.y;
-			sendKeyEvent(event);
+			events.add(event);
 		}
 	} else {
 		for (int i = caretOffsets.length - 1; i >= 0; i--) {
 			int caretOffset = caretOffsets[i];
 			if (caretOffset < content.getCharCount()) {
+				Event event = new Event();
+				event.text = "";
 				int line = content.getLineAtOffset(caretOffset);
 				int lineOffset = content.getOffsetAtLine(line);
 				int lineLength = content.getLine(line).length();
@@ -2618,10 +2641,11 @@ void doDelete() {
 					event.start = caretOffset;
 					event.end = getClusterNext(caretOffset, line);
 				}
-				sendKeyEvent(event);
+				events.add(event);
 			}
 		}
 	}
+	sendKeyEvents(events);
 }
 /**
  * Deletes the next word.
@@ -2632,14 +2656,16 @@ void doDeleteWordNext() {
 		// only the delete key was pressed
 		doDelete();
 	} else {
+		List<Event> events = new ArrayList<>(caretOffsets.length);
 		for (int i = caretOffsets.length - 1; i >= 0; i--) {
 			int caretOffset = caretOffsets[i];
 			Event event = new Event();
 			event.text = "";
 			event.start = caretOffset;
 			event.end = getWordNext(caretOffset, SWT.MOVEMENT_WORD);
-			sendKeyEvent(event);
+			events.add(event);
 		}
+		sendKeyEvents(events);
 	}
 }
 /**
@@ -2651,14 +2677,16 @@ void doDeleteWordPrevious() {
 		// only the backspace key was pressed
 		doBackspace();
 	} else {
+		List<Event> events = new ArrayList<>(caretOffsets.length);
 		for (int i = caretOffsets.length - 1; i >= 0; i--) {
 			int caretOffset = caretOffsets[i];
 			Event event = new Event();
 			event.text = "";
 			event.start = getWordPrevious(caretOffset, SWT.MOVEMENT_WORD);
 			event.end = caretOffset;
-			sendKeyEvent(event);
+			events.add(event);
 		}
+		sendKeyEvents(events);
 	}
 }
 /**
@@ -4384,7 +4412,10 @@ public int getLinePixel(int lineIndex) {
 	if (lineIndex == topIndex)
 		return topIndexY + topMargin;
 	int height = topIndexY;
-	if (lineIndex > topIndex) {
+	int linesHeight = renderer.getLinesHeight(Math.min(topIndex, lineIndex), Math.max(topIndex, lineIndex));
+	if (linesHeight != -1) {
+		height += lineIndex > topIndex ? linesHeight : -linesHeight;
+	} else if (lineIndex > topIndex) {
 		for (int i = topIndex; i < lineIndex; i++) {
 			height += renderer.getLineHeight(i);
 		}
@@ -4416,7 +4447,9 @@ public int getLineIndex(int y) {
 		return lineIndex;
 	}
 	if (y == topIndexY) return topIndex;
-	int line = topIndex;
+	int line = renderer.getLineIndex(topIndex, y - topIndexY);
+	if (line != -1) return line;
+	line = topIndex;
 	if (y < topIndexY) {
 		while (y < topIndexY && line > 0) {
 			y += renderer.getLineHeight(--line);
@@ -5534,9 +5567,12 @@ int getVerticalIncrement() {
 int getVerticalScrollOffset() {
 	if (verticalScrollOffset == -1) {
 		renderer.calculate(0, topIndex);
-		int height = 0;
-		for (int i = 0; i < topIndex; i++) {
-			height += renderer.getCachedLineHeight(i);
+		int height = renderer.getLinesHeight(0, topIndex);
+		if (height == -1) {
+			height = 0;
+			for (int i = 0; i < topIndex; i++) {
+				height += renderer.getCachedLineHeight(i);
+			}
 		}
 		height -= topIndexY;
 		verticalScrollOffset = height;
@@ -5843,9 +5879,11 @@ void insertBlockSelectionText(char key, int action) {
 	int left = rect.x;
 	int right = rect.width;
 	int[] trailing = new int[1];
-	int offset = 0, delta = 0;
+	int offset = 0, delta = 0, shift = 0;
 	String text = key != 0 ? new String(new char[] {key}) : "";
 	int length = text.length();
+	/* The offsets are in the text before the change, shift moves them behind the previous lines */
+	List<Event> events = new ArrayList<>(lastLine - firstLine + 1);
 	for (int lineIndex = firstLine; lineIndex <= lastLine; lineIndex++) {
 		String line = content.getLine(lineIndex);
 		int lineOffset = content.getOffsetAtLine(lineIndex);
@@ -5882,18 +5920,20 @@ void insertBlockSelectionText(char key, int action) {
 		if (outOfLine) {
 			if (line.length() >= delta) {
 				delta = line.length();
-				offset = lineEndOffset + length;
+				offset = lineEndOffset + shift + length;
 			}
 		} else {
-			offset = start + length;
+			offset = start + shift + length;
 			delta = content.getCharCount();
 		}
 		Event event = new Event();
 		event.text = text;
 		event.start = start;
 		event.end = end;
-		sendKeyEvent(event);
+		events.add(event);
+		shift += length - (end - start);
 	}
+	sendKeyEvents(events);
 	int x = getPointAtOffset(offset).x;
 	int verticalScrollOffset = getVerticalScrollOffset();
 	setBlockSelectionLocation(x, blockYAnchor - verticalScrollOffset, x, blockYLocation - verticalScrollOffset, false);
@@ -6583,8 +6623,14 @@ void handleTextChanged(TextChangedEvent event) {
 	// in some cases new text would be drawn in scroll source area even
 	// though the intent is to scroll it.
 	if (!(blockSelection && blockXLocation != -1)) {
-		updateSelection(lastTextChangeStart, lastTextChangeReplaceCharCount, lastTextChangeNewCharCount);
+		if (lastTextChangeRanges != null && lastTextChangeTexts != null) {
+			updateSelection(lastTextChangeRanges, lastTextChangeTexts);
+		} else {
+			updateSelection(lastTextChangeStart, lastTextChangeReplaceCharCount, lastTextChangeNewCharCount);
+		}
 	}
+	lastTextChangeRanges = null;
+	lastTextChangeTexts = null;
 	if (lastTextChangeReplaceLineCount > 0 || wordWrap || visualWrap) {
 		claimBottomFreeSpace();
 	}
@@ -6618,6 +6664,8 @@ void handleTextChanging(TextChangingEvent event) {
 	lastTextChangeNewCharCount = event.newCharCount;
 	lastTextChangeReplaceLineCount = event.replaceLineCount;
 	lastTextChangeReplaceCharCount = event.replaceCharCount;
+	lastTextChangeRanges = event.ranges;
+	lastTextChangeTexts = event.texts;
 	int lineIndex = content.getLineAtOffset(event.start);
 	int srcY = getLinePixel(lineIndex + event.replaceLineCount + 1);
 	int destY = getLinePixel(lineIndex + 1) + event.newLineCount * renderer.getLineHeight();
@@ -7128,7 +7176,7 @@ void initializeAccessible() {
 		public void getTextAttributes(AccessibleTextAttributeEvent e) {
 			StyledText st = StyledText.this;
 			int contentLength = st.getCharCount();
-			if (!isListening(ST.LineGetStyle) && st.renderer.styleCount == 0) {
+			if (!isListening(ST.LineGetStyle) && st.renderer.styleRanges.size() == 0) {
 				e.start = 0;
 				e.end = contentLength;
 				e.textStyle = new TextStyle(st.getFont(), st.foreground, st.background);
@@ -7616,25 +7664,7 @@ void modifyContent(Event event, boolean updateCaret) {
 		}
 		if (updateCaret) {
 			//Fix advancing flag for delete/backspace key on direction boundary
-			if (event.text.length() == 0) {
-				int lineIndex = content.getLineAtOffset(event.start);
-				int lineOffset = content.getOffsetAtLine(lineIndex);
-				TextLayout layout = renderer.getTextLayout(lineIndex);
-				int levelStart = layout.getLevel(event.start - lineOffset);
-				int lineIndexEnd = content.getLineAtOffset(event.end);
-				if (lineIndex != lineIndexEnd) {
-					renderer.disposeTextLayout(layout);
-					lineOffset = content.getOffsetAtLine(lineIndexEnd);
-					layout = renderer.getTextLayout(lineIndexEnd);
-				}
-				int levelEnd = layout.getLevel(event.end - lineOffset);
-				renderer.disposeTextLayout(layout);
-				if (levelStart != levelEnd) {
-					caretAlignment = PREVIOUS_OFFSET_TRAILING;
-				} else {
-					caretAlignment = OFFSET_LEADING;
-				}
-			}
+			if (event.text.length() == 0) updateCaretAlignment(event.start, event.end);
 		}
 		content.replaceTextRange(event.start, replacedLength, event.text);
 		// set the caret position prior to sending the modify event.
@@ -7656,6 +7686,100 @@ void modifyContent(Event event, boolean updateCaret) {
 		}
 	}
 }
+/**
+ * Sets the caret alignment for the deletion of the text between the offsets,
+ * depending on whether it crosses a direction boundary.
+ */
+void updateCaretAlignment(int start, int end) {
+	int lineIndex = content.getLineAtOffset(start);
+	int lineOffset = content.getOffsetAtLine(lineIndex);
+	TextLayout layout = renderer.getTextLayout(lineIndex);
+	int levelStart = layout.getLevel(start - lineOffset);
+	int lineIndexEnd = content.getLineAtOffset(end);
+	if (lineIndex != lineIndexEnd) {
+		renderer.disposeTextLayout(layout);
+		lineOffset = content.getOffsetAtLine(lineIndexEnd);
+		layout = renderer.getTextLayout(lineIndexEnd);
+	}
+	int levelEnd = layout.getLevel(end - lineOffset);
+	renderer.disposeTextLayout(layout);
+	if (levelStart != levelEnd) {
+		caretAlignment = PREVIOUS_OFFSET_TRAILING;
+	} else {
+		caretAlignment = OFFSET_LEADING;
+	}
+}
+/**
+ * Sends the verify event of each replacement and replaces the text of the
+ * events that are not vetoed with one change of the content. One modify
+ * event is sent for the text from the start of the first replacement to the
+ * end of the last one.
+ *
+ * @param events the text change events, in any order. Replacements that
+ *	overlap are merged.
+ * @param updateCaret whether or not the carets should be set behind
+ *	the new text
+ */
+void modifyContent(Event[] events, boolean updateCaret) {
+	List<Event> accepted = new ArrayList<>(events.length);
+	for (Event event : events) {
+		event.doit = true;
+		notifyListeners(SWT.Verify, event);
+		if (event.doit) accepted.add(event);
+	}
+	if (accepted.isEmpty()) return;
+	if (updateCaret) {
+		//Fix advancing flag for delete/backspace key on direction boundary, like each change on its own
+		for (Event event : accepted) {
+			if (event.text.length() == 0) updateCaretAlignment(event.start, event.end);
+		}
+	}
+	accepted.sort((event1, event2) -> event1.start - event2.start);
+	int[] ranges = new int[2 * accepted.size()];
+	String[] texts = new String[accepted.size()];
+	int count = 0;
+	for (Event event : accepted) {
+		int end = count > 0 ? ranges[2 * count - 2] + ranges[2 * count - 1] : -1;
+		if (event.start < end) {
+			ranges[2 * count - 1] = Math.max(end, event.end) - ranges[2 * count - 2];
+			texts[count - 1] += event.text;
+		} else {
+			ranges[2 * count] = event.start;
+			ranges[2 * count + 1] = event.end - event.start;
+			texts[count++] = event.text;
+		}
+	}
+	if (count < texts.length) {
+		ranges = Arrays.copyOf(ranges, 2 * count);
+		texts = Arrays.copyOf(texts, count);
+	}
+	int start = ranges[0], end = ranges[2 * count - 2] + ranges[2 * count - 1];
+	int newEnd = end;
+	for (int i = 0; i < count; i++) {
+		newEnd += texts[i].length() - ranges[2 * i + 1];
+	}
+	StyledTextEvent styledTextEvent = null;
+	if (isListening(ST.ExtendedModify)) {
+		styledTextEvent = new StyledTextEvent(content);
+		styledTextEvent.start = start;
+		styledTextEvent.end = newEnd;
+		styledTextEvent.text = content.getTextRange(start, end - start);
+	}
+	boolean setSelection = updateCaret && !(blockSelection && blockXLocation != -1);
+	int[] selectionRanges = setSelection ? mapSelectionRanges(ranges, texts, true) : null;
+	content.replaceTextRanges(ranges, texts);
+	if (setSelection) {
+		setSelection(selectionRanges, true, false);
+		showCaret();
+	}
+	Event event = new Event();
+	event.start = start;
+	event.end = newEnd;
+	notifyListeners(SWT.Modify, event);
+	if (styledTextEvent != null) {
+		notifyListeners(ST.ExtendedModify, styledTextEvent);
+	}
+}
 void paintObject(GC gc, int x, int y, int ascent, int descent, StyleRange style, Bullet bullet, int bulletIndex) {
 	if (isListening(ST.PaintObject)) {
 		StyledTextEvent event = new StyledTextEvent (content) ;
@@ -7717,6 +7841,7 @@ public void paste(){
 private void insertMultiSelectionText(String text) {
 	String[] blocks = text.split(PlatformLineDelimiter);
 	int[] ranges = getSelectionRanges();
+	List<Event> events = new ArrayList<>(ranges.length / 2);
 	for (int i = ranges.length / 2 - 1; i >= 0; i --) {
 		int offset = ranges[2 * i];
 		int length = ranges[2 * i + 1];
@@ -7725,8 +7850,9 @@ private void insertMultiSelectionText(String text) {
 		event.start = offset;
 		event.end = offset + length;
 		event.text = toPaste;
-		sendKeyEvent(event);
+		events.add(event);
 	}
+	sendKeyEvents(events);
 }
 
 private void pasteOnMiddleClick(Event event) {
@@ -7840,6 +7966,19 @@ public Runnable print(Printer printer, StyledTextPrintOptions options) {
  */
 @Override
 public void redraw() {
+	/*
+	 * A listener may have changed the styles of any line, also of the lines that are not shown,
+	 * so none of the cached layouts can be used again. The redraws of the renderer do not come here.
+	 */
+	if (isListening(ST.LineGetStyle) || isListening(ST.LineGetSegments)) renderer.styleVersion++;
+	redrawContent();
+}
+/**
+ * Redraws the whole widget and recalculates the content width of the
+ * visible lines, without dropping the cached layouts of the other lines.
+ * The renderer calls it when the sizes of the lines change.
+ */
+void redrawContent() {
 	super.redraw();
 	int itemCount = getPartialBottomIndex() - topIndex + 1;
 	renderer.reset(topIndex, itemCount);
@@ -7881,6 +8020,7 @@ public void redraw() {
 public void redraw(int x, int y, int width, int height, boolean all) {
 	super.redraw(x, y, width, height, all);
 	if (height > 0) {
+		/* Resetting the lines drops their cached layouts, which a listener may style differently now */
 		int firstLine = getLineIndex(y);
 		int lastLine = getLineIndex(y + height);
 		resetCache(firstLine, lastLine - firstLine + 1);
@@ -8287,6 +8427,79 @@ public void replaceTextRange(int start, int length, String text) {
 	event.text = text;
 	modifyContent(event, false);
 }
+/**
+ * Replaces several text ranges with new text in one change.
+ * <p>
+ * The ranges are pairs of start offset and length in the text before the
+ * change, sorted by their start offset. They must not overlap, a range may
+ * end where the next one starts. A verify event is sent for each range,
+ * the ranges that are not vetoed are replaced with one change of the
+ * content and one modify event is sent for the text from the start of the
+ * first range to the end of the last range.
+ * </p><p>
+ * All verify events are sent before the text changes. The offsets of every
+ * verify event are offsets in the text before the change, and a verify
+ * listener that reads the text does not see the replacement of any other
+ * range, unlike when the ranges are replaced one after the other with
+ * {@link #replaceTextRange(int, int, String)}.
+ * </p><p>
+ * The selection is changed for each range as described in
+ * {@link #replaceTextRange(int, int, String)}.
+ * </p>
+ *
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range. May be empty to delete text.
+ * @exception SWTException <ul>
+ *    <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+ *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+ * </ul>
+ * @exception IllegalArgumentException <ul>
+ *   <li>ERROR_INVALID_RANGE when a range is outside the valid range (0 &lt;= offset &lt;= getCharCount())</li>
+ *   <li>ERROR_INVALID_ARGUMENT when ranges does not have two values for each text, when the ranges
+ *      are not sorted or overlap, or when a start or end offset is inside a multi byte line delimiter</li>
+ *   <li>ERROR_NULL_ARGUMENT when ranges, texts or one of the texts is null</li>
+ * </ul>
+ * @see StyledTextContent#replaceTextRanges(int[], String[])
+ * @since 3.120
+ */
+public void replaceTextRanges(int[] ranges, String[] texts) {
+	checkWidget();
+	if (ranges == null || texts == null) {
+		SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	}
+	int count = texts.length;
+	if (ranges.length != 2 * count) {
+		SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+	}
+	if (count == 0) return;
+	int contentLength = getCharCount();
+	Event[] events = new Event[count];
+	int previousEnd = 0;
+	for (int i = 0; i < count; i++) {
+		int start = ranges[2 * i];
+		int end = start + ranges[2 * i + 1];
+		if (texts[i] == null) {
+			SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		}
+		if (start > end || start < 0 || end > contentLength) {
+			SWT.error(SWT.ERROR_INVALID_RANGE);
+		}
+		if (start < previousEnd) {
+			SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+		}
+		Event event = new Event();
+		event.start = start;
+		event.end = end;
+		event.text = texts[i];
+		events[i] = event;
+		previousEnd = end;
+	}
+	if (count == 1) {
+		modifyContent(events[0], false);
+	} else {
+		modifyContent(events, false);
+	}
+}
 /**
  * Resets the caret position, selection and scroll offsets. Recalculate
  * the content width and scroll bars. Redraw the widget.
@@ -8539,6 +8752,19 @@ void sendKeyEvent(Event event) {
 		modifyContent(event, true);
 	}
 }
+/**
+ * Sends the key events of the carets or of the lines of a block selection,
+ * the text of all of them is replaced with one change.
+ */
+void sendKeyEvents(List<Event> events) {
+	if (editable && !events.isEmpty()) {
+		if (events.size() == 1) {
+			modifyContent(events.get(0), true);
+		} else {
+			modifyContent(events.toArray(new Event[events.size()]), true);
+		}
+	}
+}
 /**
  * Returns a StyledTextEvent that can be used to request data such
  * as styles and background color for a line.
@@ -10642,6 +10868,7 @@ void setStyleRanges(int start, int length, int[] ranges, StyleRange[] styles, bo
 	StyleRange[] formerStyles = getStyleRanges(start, length);
 	int end = start + length;
 	final boolean wasFixedLineHeight = isFixedLineHeight();
+	boolean newStyleWithVariableHeight = false;
 	if (start > end || start < 0) {
 		SWT.error(SWT.ERROR_INVALID_RANGE);
 	}
@@ -10666,9 +10893,10 @@ void setStyleRanges(int start, int length, int[] ranges, StyleRange[] styles, bo
 			if (rangeLength < 0) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
 			if (!(0 <= rangeStart && rangeStart + rangeLength <= charCount)) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
 			if (lastOffset > rangeStart) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
-			hasStyleWithVariableHeight |= styles[i].isVariableHeight();
+			newStyleWithVariableHeight |= styles[i].isVariableHeight();
 			lastOffset = rangeStart + rangeLength;
 		}
+		hasStyleWithVariableHeight |= newStyleWithVariableHeight;
 	}
 	int rangeStart = start, rangeEnd = end;
 	if (styles != null && styles.length > 0) {
@@ -10700,11 +10928,14 @@ void setStyleRanges(int start, int length, int[] ranges, StyleRange[] styles, bo
 		renderer.setStyleRanges(ranges, styles);
 	}
 
-	// re-evaluate variable height with all styles (including new ones)
-	hasStyleWithVariableHeight = false;
-	for (StyleRange style : getStyleRanges(false)) {
-		hasStyleWithVariableHeight = style.isVariableHeight();
-		if (hasStyleWithVariableHeight) break;
+	// re-evaluate variable height with all styles (including new ones), unless
+	// a new style has a variable height or no style had one
+	if (!newStyleWithVariableHeight && hasStyleWithVariableHeight) {
+		hasStyleWithVariableHeight = false;
+		for (StyleRange style : getStyleRanges(false)) {
+			hasStyleWithVariableHeight = style.isVariableHeight();
+			if (hasStyleWithVariableHeight) break;
+		}
 	}
 
 	SortedSet<Integer> modifiedLines = computeModifiedLines(formerRanges, formerStyles, ranges, styles);
@@ -11314,22 +11545,7 @@ void updateSelection(int startOffset, int replacedLength, int newLength) {
 		if (isWordWrap()) setCaretLocations();
 		return;
 	}
-	// clear selection fragment before text change
-	Arrays.stream(selection)
-		.filter(sel -> sel.y > startOffset)
-		.filter(sel -> sel.x < startOffset)
-		.forEach(sel -> internalRedrawRange(sel.x, startOffset - sel.x));
-	Arrays.stream(selection)
-		.filter(sel -> sel.y > startOffset)
-		.filter(sel -> sel.y > startOffset + replacedLength && sel.x < startOffset + replacedLength)
-		.forEach(sel -> {
-			// clear selection fragment after text change.
-			// do this only when the selection is actually affected by the
-			// change. Selection is only affected if it intersects the change (1GDY217).
-			int netNewLength = newLength - replacedLength;
-			int redrawStart = startOffset + newLength;
-			internalRedrawRange(redrawStart, sel.y + netNewLength - redrawStart);
-		});
+	redrawSelectionFragments(startOffset, replacedLength, newLength);
 	setSelection(Arrays.stream(selection).map(sel -> {
 			if (sel.y <= startOffset) {
 				return sel;
@@ -11349,5 +11565,90 @@ void updateSelection(int startOffset, int replacedLength, int newLength) {
 		.toArray(), true, false);
 	setCaretLocations();
 }
+/**
+ * Updates the selection after a batch of replacements.
+ *
+ * @param ranges the start offset and length of each replaced range
+ * @param texts the text that replaced each range
+ */
+void updateSelection(int[] ranges, String[] texts) {
+	int count = texts.length;
+	int startOffset = ranges[0];
+	int endOffset = ranges[2 * count - 2] + ranges[2 * count - 1];
+	if (selection[selection.length - 1].y <= startOffset) {
+		// selection ends before text change
+		if (isWordWrap()) setCaretLocations();
+		return;
+	}
+	int newLength = endOffset - startOffset;
+	for (int i = 0; i < count; i++) {
+		newLength += texts[i].length() - ranges[2 * i + 1];
+	}
+	redrawSelectionFragments(startOffset, endOffset - startOffset, newLength);
+	setSelection(mapSelectionRanges(ranges, texts, false), true, false);
+	setCaretLocations();
+}
+/**
+ * Returns the selection ranges after a batch of replacements. A selection
+ * that intersects a replacement, or touches it when <code>touching</code> is
+ * set, becomes a caret behind the text of the last such replacement. The
+ * other selections move to keep the same text selected.
+ *
+ * @param ranges the start offset and length of each range, sorted
+ * @param texts the text that replaces each range
+ * @param touching whether a selection that only touches a replacement moves behind it
+ * @return the selection ranges, start offset and length pairs
+ */
+int[] mapSelectionRanges(int[] ranges, String[] texts, boolean touching) {
+	int count = texts.length;
+	int[] result = new int[2 * selection.length];
+	int index = 0, delta = 0;
+	for (int i = 0; i < selection.length; i++) {
+		Point sel = selection[i];
+		// the replacements before the selection move it
+		while (index < count) {
+			int start = ranges[2 * index], end = start + ranges[2 * index + 1];
+			if (touching ? end >= sel.x : end > sel.x || start >= sel.y) break;
+			delta += texts[index].length() - (end - start);
+			index++;
+		}
+		int caret = -1, shift = delta;
+		for (int j = index; j < count; j++) {
+			int start = ranges[2 * j], end = start + ranges[2 * j + 1];
+			if (touching ? start > sel.y : start >= sel.y) break;
+			caret = start + shift + texts[j].length();
+			shift += texts[j].length() - (end - start);
+		}
+		if (caret != -1) {
+			result[2 * i] = caret;
+		} else {
+			result[2 * i] = sel.x + delta;
+			result[2 * i + 1] = sel.y - sel.x;
+		}
+	}
+	return result;
+}
+/**
+ * Redraws the parts of the selection before and after a text change, where
+ * the selection is cleared when it intersects the change.
+ */
+void redrawSelectionFragments(int startOffset, int replacedLength, int newLength) {
+	// clear selection fragment before text change
+	Arrays.stream(selection)
+		.filter(sel -> sel.y > startOffset)
+		.filter(sel -> sel.x < startOffset)
+		.forEach(sel -> internalRedrawRange(sel.x, startOffset - sel.x));
+	Arrays.stream(selection)
+		.filter(sel -> sel.y > startOffset)
+		.filter(sel -> sel.y > startOffset + replacedLength && sel.x < startOffset + replacedLength)
+		.forEach(sel -> {
+			// clear selection fragment after text change.
+			// do this only when the selection is actually affected by the
+			// change. Selection is only affected if it intersects the change (1GDY217).
+			int netNewLength = newLength - replacedLength;
+			int redrawStart = startOffset + newLength;
+			internalRedrawRange(redrawStart, sel.y + netNewLength - redrawStart);
+		});
+}
 
 }
@@ -218,6 +218,45 @@ public void removeTextChangeListener(TextChangeListener listener);
  */
 public void replaceTextRange(int start, int replaceLength, String text);
 
+/**
+ * Replaces several ranges of the text with one change.
+ * <p>
+ * The ranges are pairs of start offset and length in the text before the
+ * change. They have to be sorted by their start offset and must not overlap,
+ * a range may end where the next one starts. <code>texts[i]</code> replaces
+ * the range <code>i</code>. Implementors that replace all ranges with one
+ * change send one <code>TextChangingEvent</code> and one
+ * <code>TextChangedEvent</code> to the TextChangeListeners. The
+ * <code>TextChangingEvent</code> describes the change of the text from the
+ * start of the first range to the end of the last range, as
+ * <code>replaceTextRange</code> would, and its <code>ranges</code> and
+ * <code>texts</code> hold the replacements.
+ * </p><p>
+ * The default implementation checks all ranges and then calls
+ * <code>replaceTextRange</code> for each range, from the last range to the
+ * first, so the text between the ranges is not replaced.
+ * </p>
+ *
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT when ranges, texts or one of the texts is null</li>
+ *    <li>ERROR_INVALID_ARGUMENT when ranges does not have two values for each text,
+ *      when the ranges are not sorted or overlap, or when the text change results
+ *      in a multi byte line delimiter being split or partially deleted</li>
+ *    <li>ERROR_INVALID_RANGE when a range is outside of the content</li>
+ * </ul>
+ * @see #replaceTextRange(int, int, String)
+ * @since 3.120
+ */
+public default void replaceTextRanges(int[] ranges, String[] texts) {
+	TextRanges.check(this, ranges, texts);
+	/* The offsets of a range do not change when the ranges after it are replaced */
+	for (int i = texts.length - 1; i >= 0; i--) {
+		replaceTextRange(ranges[2 * i], ranges[2 * i + 1], texts[i]);
+	}
+}
+
 /**
  * Set text to "text".
  * Implementors have to send a <code>TextChangedEvent</code> to the
@@ -20,7 +20,7 @@ import org.eclipse.swt.widgets.*;
  *
  */
 class StyledTextEvent extends Event {
-	// used by LineStyleEvent
+	// used by LineStyleEvent and TextChangingEvent
 	int[] ranges;
 	StyleRange[] styles;
 	int alignment;
@@ -38,6 +38,9 @@ class StyledTextEvent extends Event {
 	int newCharCount;
 	int replaceLineCount;
 	int newLineCount;
+	// used by TextChangingEvent
+	String[] texts;
+	int[] lineCounts;
 	// used by PaintObjectEvent
 	int x;
 	int y;
@@ -45,9 +45,12 @@ class StyledTextRenderer {
 
 	/* Line data */
 	int topIndex = -1;
-	TextLayout[] layouts;
+	TextLayoutCache layoutCache;
+	/* Incremented when a listener may have changed the styles of lines that were not reset */
+	int styleVersion;
 	int lineCount;
 	LineSizeInfo[] lineSizes;
+	LineHeights lineHeights = new LineHeights();
 	LineInfo[] lines;
 	int maxWidth;
 	int maxWidthLineIndex;
@@ -61,15 +64,13 @@ class StyledTextRenderer {
 	int[] redrawLines;
 
 	/* Style data */
-	int[] ranges;
-	int styleCount;
-	StyleRange[] styles;
+	StyleRangeList styleRanges = new StyleRangeList();
+	/* Hash table of the styles set without ranges, the styles that are similar share one instance */
 	StyleRange[] stylesSet;
 	int stylesSetCount = 0;
 	boolean hasLinks, fixedPitch;
 	final static int BULLET_MARGIN = 8;
 
-	final static boolean COMPACT_STYLES = true;
 	final static boolean MERGE_STYLES = true;
 
 	final static int GROW = 32;
@@ -180,6 +181,122 @@ class StyledTextRenderer {
 			}
 		}
 	}
+	/**
+	 * The sums of the heights of the lines, in a Fenwick tree, so that the
+	 * height of a range of lines and the line at a height are found in
+	 * logarithmic time. The lines whose height is not calculated count for
+	 * nothing, and the number of lines whose height is calculated is kept in
+	 * a second tree, to tell whether the sum of a range is exact.
+	 * <p>
+	 * When lines are inserted or removed only the nodes from the first changed
+	 * line on are forgotten, and they are built again when the sums are needed.
+	 * The nodes before that line only sum the lines before it, which did not move.
+	 * </p>
+	 */
+	static class LineHeights {
+		int size, valid;
+		int[] heights = new int[1];
+		int[] counts = new int[1];
+
+		/**
+		 * Builds the nodes of the lines from the first one that is not valid.
+		 */
+		void build(LineSizeInfo[] lineSizes, int lineCount) {
+			int start = Math.min(valid, lineCount);
+			if (heights.length <= lineCount) {
+				heights = Arrays.copyOf(heights, lineCount + GROW);
+				counts = Arrays.copyOf(counts, lineCount + GROW);
+			}
+			Arrays.fill(heights, start + 1, lineCount + 1, 0);
+			Arrays.fill(counts, start + 1, lineCount + 1, 0);
+			/* The valid nodes that are not complete are the ones that sum the lines before start */
+			for (int i = start; i > 0; i -= i & -i) {
+				int parent = i + (i & -i);
+				if (parent <= lineCount) {
+					heights[parent] += heights[i];
+					counts[parent] += counts[i];
+				}
+			}
+			for (int i = start; i < lineCount; i++) {
+				LineSizeInfo line = lineSizes[i];
+				if (line != null && !line.needsRecalculateHeight()) {
+					heights[i + 1] += line.height;
+					counts[i + 1]++;
+				}
+				int parent = (i + 1) + ((i + 1) & -(i + 1));
+				if (parent <= lineCount) {
+					heights[parent] += heights[i + 1];
+					counts[parent] += counts[i + 1];
+				}
+			}
+			size = valid = lineCount;
+		}
+
+		/**
+		 * Forgets the sums from the given line on.
+		 */
+		void invalidate(int lineIndex) {
+			valid = Math.max(0, Math.min(valid, lineIndex));
+		}
+
+		boolean isValid(int lineCount) {
+			return valid == lineCount && size == lineCount;
+		}
+
+		/**
+		 * Returns the number of lines before the given line whose height is calculated.
+		 */
+		int count(int lineIndex) {
+			int count = 0;
+			for (int i = lineIndex; i > 0; i -= i & -i) {
+				count += counts[i];
+			}
+			return count;
+		}
+
+		/**
+		 * Returns the number of lines whose heights sum to at most the given height,
+		 * that is the index of the line at the height.
+		 */
+		int find(int height) {
+			int lineIndex = 0;
+			for (int step = Integer.highestOneBit(Math.max(1, size)); step > 0; step >>= 1) {
+				int next = lineIndex + step;
+				if (next <= size && heights[next] <= height) {
+					lineIndex = next;
+					height -= heights[next];
+				}
+			}
+			return lineIndex;
+		}
+
+		boolean isCalculated(int startLine, int endLine) {
+			return count(endLine) - count(startLine) == endLine - startLine;
+		}
+
+		/**
+		 * Returns the sum of the heights of the lines before the given line.
+		 */
+		int sum(int lineIndex) {
+			int sum = 0;
+			for (int i = lineIndex; i > 0; i -= i & -i) {
+				sum += heights[i];
+			}
+			return sum;
+		}
+
+		void update(int lineIndex, int oldHeight, int newHeight) {
+			if (lineIndex >= size) return;
+			int height = Math.max(0, newHeight) - Math.max(0, oldHeight);
+			int count = (newHeight >= 0 ? 1 : 0) - (oldHeight >= 0 ? 1 : 0);
+			if (height == 0 && count == 0) return;
+			for (int i = lineIndex + 1; i <= size; i += i & -i) {
+				heights[i] += height;
+				counts[i] += count;
+			}
+		}
+	}
+
 	static int cap (TextLayout layout, int offset) {
 		if (layout == null) return offset;
 		return Math.min (layout.getText().length() -1, Math.max (0, offset));
@@ -190,101 +307,56 @@ StyledTextRenderer(Device device, StyledText styledText) {
 	this.styledText = styledText;
 }
 int addMerge(int[] mergeRanges, StyleRange[] mergeStyles, int mergeCount, int modifyStart, int modifyEnd) {
-	int rangeCount = styleCount << 1;
-	StyleRange endStyle = null;
-	int endStart = 0, endLength = 0;
-	if (modifyEnd < rangeCount) {
-		endStyle = styles[modifyEnd >> 1];
-		endStart = ranges[modifyEnd];
-		endLength = ranges[modifyEnd + 1];
-	}
-	int grow = mergeCount - (modifyEnd - modifyStart);
-	if (rangeCount + grow >= ranges.length) {
-		int[] tmpRanges = new int[ranges.length + grow + (GROW << 1)];
-		System.arraycopy(ranges, 0, tmpRanges, 0, modifyStart);
-		StyleRange[] tmpStyles = new StyleRange[styles.length + (grow >> 1) + GROW];
-		System.arraycopy(styles, 0, tmpStyles, 0, modifyStart >> 1);
-		if (rangeCount > modifyEnd) {
-			System.arraycopy(ranges, modifyEnd, tmpRanges, modifyStart + mergeCount, rangeCount - modifyEnd);
-			System.arraycopy(styles, modifyEnd >> 1, tmpStyles, (modifyStart + mergeCount) >> 1, styleCount - (modifyEnd >> 1));
-		}
-		ranges = tmpRanges;
-		styles = tmpStyles;
-	} else {
-		if (rangeCount > modifyEnd) {
-			System.arraycopy(ranges, modifyEnd, ranges, modifyStart + mergeCount, rangeCount - modifyEnd);
-			System.arraycopy(styles, modifyEnd >> 1, styles, (modifyStart + mergeCount) >> 1, styleCount - (modifyEnd >> 1));
-		}
-	}
-	if (MERGE_STYLES) {
-		int j = modifyStart;
-		for (int i = 0; i < mergeCount; i += 2) {
-			if (j > 0 && ranges[j - 2] + ranges[j - 1] == mergeRanges[i] && mergeStyles[i >> 1].similarTo(styles[(j - 2) >> 1])) {
-				ranges[j - 1] += mergeRanges[i + 1];
-			} else {
-				styles[j >> 1] = mergeStyles[i >> 1];
-				ranges[j++] = mergeRanges[i];
-				ranges[j++] = mergeRanges[i + 1];
-			}
-		}
-		if (endStyle != null && ranges[j - 2] + ranges[j - 1] == endStart && endStyle.similarTo(styles[(j - 2) >> 1])) {
-			ranges[j - 1] += endLength;
-			modifyEnd += 2;
-			mergeCount += 2;
-		}
-		if (rangeCount > modifyEnd) {
-			System.arraycopy(ranges, modifyStart + mergeCount, ranges, j, rangeCount - modifyEnd);
-			System.arraycopy(styles, (modifyStart + mergeCount) >> 1, styles, j >> 1, styleCount - (modifyEnd >> 1));
-		}
-		grow = (j - modifyStart) - (modifyEnd - modifyStart);
-	} else {
-		System.arraycopy(mergeRanges, 0, ranges, modifyStart, mergeCount);
-		System.arraycopy(mergeStyles, 0, styles, modifyStart >> 1, mergeCount >> 1);
-	}
-	styleCount += grow >> 1;
-	return grow;
-}
-int addMerge(StyleRange[] mergeStyles, int mergeCount, int modifyStart, int modifyEnd) {
-	int grow = mergeCount - (modifyEnd - modifyStart);
-	StyleRange endStyle = null;
-	if (modifyEnd < styleCount) endStyle = styles[modifyEnd];
-	if (styleCount + grow >= styles.length) {
-		StyleRange[] tmpStyles = new StyleRange[styles.length + grow + GROW];
-		System.arraycopy(styles, 0, tmpStyles, 0, modifyStart);
-		if (styleCount > modifyEnd) {
-			System.arraycopy(styles, modifyEnd, tmpStyles, modifyStart + mergeCount, styleCount - modifyEnd);
-		}
-		styles = tmpStyles;
-	} else {
-		if (styleCount > modifyEnd) {
-			System.arraycopy(styles, modifyEnd, styles, modifyStart + mergeCount, styleCount - modifyEnd);
-		}
-	}
-	if (MERGE_STYLES) {
-		int j = modifyStart;
-		for (int i = 0; i < mergeCount; i++) {
-			StyleRange newStyle = mergeStyles[i], style;
-			if (j > 0 && (style = styles[j - 1]).start + style.length == newStyle.start && newStyle.similarTo(style)) {
-				style.length += newStyle.length;
+	if (!MERGE_STYLES) {
+		styleRanges.replace(modifyStart, modifyEnd, mergeRanges, mergeStyles, mergeCount);
+		return mergeCount - (modifyEnd - modifyStart);
+	}
+	int i = 0;
+	int lastStart = 0, lastLength = 0;
+	StyleRange lastStyle = null;
+	if (modifyStart > 0) {
+		lastStart = styleRanges.getStart(modifyStart - 1);
+		lastLength = styleRanges.getLength(modifyStart - 1);
+		lastStyle = styleRanges.getStyle(modifyStart - 1);
+		int length = lastLength;
+		while (i < mergeCount && lastStart + lastLength == mergeRanges[i << 1] && mergeStyles[i].similarTo(lastStyle)) {
+			lastLength += mergeRanges[(i << 1) + 1];
+			i++;
+		}
+		if (lastLength != length) styleRanges.setLength(modifyStart - 1, lastLength);
+	}
+	int[] ranges = new int[(mergeCount - i) << 1];
+	StyleRange[] styles = new StyleRange[mergeCount - i];
+	int j = 0;
+	for (; i < mergeCount; i++) {
+		if (j > 0 && ranges[(j << 1) - 2] + ranges[(j << 1) - 1] == mergeRanges[i << 1] && mergeStyles[i].similarTo(styles[j - 1])) {
+			ranges[(j << 1) - 1] += mergeRanges[(i << 1) + 1];
+		} else {
+			styles[j] = mergeStyles[i];
+			ranges[j << 1] = mergeRanges[i << 1];
+			ranges[(j << 1) + 1] = mergeRanges[(i << 1) + 1];
+			j++;
+		}
+	}
+	if (j > 0) {
+		lastStart = ranges[(j << 1) - 2];
+		lastLength = ranges[(j << 1) - 1];
+		lastStyle = styles[j - 1];
+	}
+	if (lastStyle != null && modifyEnd < styleRanges.size()) {
+		StyleRange endStyle = styleRanges.getStyle(modifyEnd);
+		if (lastStart + lastLength == styleRanges.getStart(modifyEnd) && endStyle.similarTo(lastStyle)) {
+			int length = lastLength + styleRanges.getLength(modifyEnd);
+			if (j > 0) {
+				ranges[(j << 1) - 1] = length;
 			} else {
-				styles[j++] = newStyle;
+				styleRanges.setLength(modifyStart - 1, length);
 			}
-		}
-		StyleRange style = styles[j - 1];
-		if (endStyle != null && style.start + style.length == endStyle.start && endStyle.similarTo(style)) {
-			style.length += endStyle.length;
 			modifyEnd++;
-			mergeCount++;
-		}
-		if (styleCount > modifyEnd) {
-			System.arraycopy(styles, modifyStart + mergeCount, styles, j, styleCount - modifyEnd);
 		}
-		grow = (j - modifyStart) - (modifyEnd - modifyStart);
-	} else {
-		System.arraycopy(mergeStyles, 0, styles, modifyStart, mergeCount);
 	}
-	styleCount += grow;
-	return grow;
+	styleRanges.replace(modifyStart, modifyEnd, ranges, styles, j);
+	return j - (modifyEnd - modifyStart);
 }
 void calculate(int startLine, int lineCount) {
 	int endLine = startLine + lineCount;
@@ -298,7 +370,7 @@ void calculate(int startLine, int lineCount) {
 			TextLayout layout = getTextLayout(i);
 			Rectangle rect = layout.getBounds();
 			line.width = rect.width + hTrim;
-			line.height = rect.height;
+			setLineHeight(i, line, rect.height);
 			averageLineHeight += (line.height - Math.round(averageLineHeight)) / ++linesInAverageLineHeight;
 			disposeTextLayout(layout);
 		}
@@ -383,17 +455,7 @@ void clearLineStyle(int startLine, int count) {
 	}
 }
 void copyInto(StyledTextRenderer renderer) {
-	if (ranges != null) {
-		int[] newRanges = renderer.ranges = new int[styleCount << 1];
-		System.arraycopy(ranges, 0, newRanges, 0, newRanges.length);
-	}
-	if (styles != null) {
-		StyleRange[] newStyles = renderer.styles = new StyleRange[styleCount];
-		for (int i = 0; i < newStyles.length; i++) {
-			newStyles[i] = (StyleRange)styles[i].clone();
-		}
-		renderer.styleCount = styleCount;
-	}
+	renderer.styleRanges = styleRanges.copy();
 	if (lines != null) {
 		LineInfo[] newLines = renderer.lines = new LineInfo[lineCount];
 		for (int i = 0; i < newLines.length; i++) {
@@ -413,11 +475,7 @@ void dispose() {
 	styledText = null;
 }
 void disposeTextLayout (TextLayout layout) {
-	if (layouts != null) {
-		for (TextLayout l : layouts) {
-			if (l == layout) return;
-		}
-	}
+	if (layoutCache != null && layoutCache.contains(layout)) return;
 	layout.dispose();
 }
 void drawBullet(Bullet bullet, GC gc, int paintX, int paintY, int index, int lineAscent, int lineDescent) {
@@ -586,7 +644,11 @@ int getHeight () {
 	if (styledText.isFixedLineHeight()) {
 		return lineCount * defaultLineHeight + styledText.topMargin + styledText.bottomMargin;
 	}
-	int totalHeight = 0;
+	int totalHeight = getLinesHeight(0, lineCount);
+	if (totalHeight != -1) {
+		return totalHeight + styledText.topMargin + styledText.bottomMargin;
+	}
+	totalHeight = 0;
 	int width = styledText.getWrapWidth();
 	for (int i = 0; i < lineCount; i++) {
 		LineSizeInfo line = getLineSize(i);
@@ -628,16 +690,13 @@ boolean hasLink(int offset) {
 			}
 		}
 	}  else {
-		if (ranges != null) {
-			int rangeCount = styleCount << 1;
-			int index = getRangeIndex(offset, -1, rangeCount);
-			if (index >= rangeCount) return false;
-			int rangeStart = ranges[index];
-			int rangeLength = ranges[index + 1];
-			StyleRange rangeStyle = styles[index >> 1];
-			if (rangeStart <= offset && offset < rangeStart + rangeLength && rangeStyle.underline && rangeStyle.underlineStyle == SWT.UNDERLINE_LINK) {
-				return true;
-			}
+		int index = styleRanges.indexOf(offset);
+		if (index >= styleRanges.size()) return false;
+		int rangeStart = styleRanges.getStart(index);
+		int rangeLength = styleRanges.getLength(index);
+		StyleRange rangeStyle = styleRanges.getStyle(index);
+		if (rangeStart <= offset && offset < rangeStart + rangeLength && rangeStyle.underline && rangeStyle.underlineStyle == SWT.UNDERLINE_LINK) {
+			return true;
 		}
 	}
 	return false;
@@ -684,11 +743,58 @@ int getLineHeight(int lineIndex, boolean exact) {
 				return Math.round(averageLineHeight);
 			}
 		} else {
-			line.height = getLineHeight() + getLineSpacing(lineIndex) + getLineVerticalIndent(lineIndex);
+			setLineHeight(lineIndex, line, getLineHeight() + getLineSpacing(lineIndex) + getLineVerticalIndent(lineIndex));
 		}
 	}
 	return line.height;
 }
+LineHeights getLineHeights() {
+	if (!lineHeights.isValid(lineCount)) lineHeights.build(lineSizes, lineCount);
+	return lineHeights;
+}
+/**
+ * Returns the index of the line at the given distance from the top of
+ * <code>startLine</code>, in the range 0..lineCount - 1, or -1 when the
+ * heights of the lines in between are not all calculated.
+ */
+int getLineIndex(int startLine, int y) {
+	if (lineSizes == null || startLine < 0 || startLine >= lineCount) return -1;
+	LineHeights heights = getLineHeights();
+	int lineIndex = heights.find(heights.sum(startLine) + y);
+	lineIndex = Math.max(0, Math.min(lineCount - 1, lineIndex));
+	if (!heights.isCalculated(Math.min(startLine, lineIndex), Math.max(startLine, lineIndex) + 1)) return -1;
+	return lineIndex;
+}
+/**
+ * Returns the sum of the heights of the lines from <code>startLine</code>
+ * to <code>endLine</code>, exclusive, or -1 when the heights of these lines
+ * are not all calculated.
+ */
+int getLinesHeight(int startLine, int endLine) {
+	if (lineSizes == null || startLine < 0 || endLine > lineCount || startLine > endLine) return -1;
+	LineHeights heights = getLineHeights();
+	if (!heights.isCalculated(startLine, endLine)) return -1;
+	return heights.sum(endLine) - heights.sum(startLine);
+}
+/**
+ * Returns the first line, going down from <code>startLine</code> when
+ * <code>forward</code> is true and up otherwise, whose top is at or below
+ * the given distance from the top of <code>startLine</code>, or -1 when the
+ * heights of the lines that are scrolled are not all calculated.
+ */
+int getScrollLineIndex(int startLine, int delta, boolean forward) {
+	if (lineSizes == null || startLine < 0 || startLine > lineCount) return -1;
+	LineHeights heights = getLineHeights();
+	int lineIndex = heights.find(heights.sum(startLine) + delta - 1) + 1;
+	if (forward) {
+		lineIndex = Math.max(startLine, Math.min(lineCount, lineIndex));
+		if (!heights.isCalculated(startLine, lineIndex)) return -1;
+	} else {
+		lineIndex = Math.max(0, Math.min(startLine, lineIndex));
+		if (!heights.isCalculated(Math.max(0, lineIndex - 1), startLine)) return -1;
+	}
+	return lineIndex;
+}
 /**
  * Returns true if the given line can use the default line height and false
  * otherwise.
@@ -789,57 +895,17 @@ int[] getLineTabStops(int index, int[] defaultTabStops) {
 StyledTextLineSpacingProvider getLineSpacingProvider() {
 	return lineSpacingProvider;
 }
-int getRangeIndex(int offset, int low, int high) {
-	if (styleCount == 0) return 0;
-	if (ranges != null)  {
-		while (high - low > 2) {
-			int index = ((high + low) / 2) / 2 * 2;
-			int end = ranges[index] + ranges[index + 1];
-			if (end > offset) {
-				high = index;
-			} else {
-				low = index;
-			}
-		}
-	} else {
-		while (high - low > 1) {
-			int index = ((high + low) / 2);
-			int end = styles[index].start + styles[index].length;
-			if (end > offset) {
-				high = index;
-			} else {
-				low = index;
-			}
-		}
-	}
-	return high;
-}
 int[] getRanges(int start, int length) {
 	if (length == 0) return null;
-	int[] newRanges;
 	int end = start + length - 1;
-	if (ranges != null) {
-		int rangeCount = styleCount << 1;
-		int rangeStart = getRangeIndex(start, -1, rangeCount);
-		if (rangeStart >= rangeCount) return null;
-		if (ranges[rangeStart] > end) return null;
-		int rangeEnd = Math.min(rangeCount - 2, getRangeIndex(end, rangeStart - 1, rangeCount));
-		if (ranges[rangeEnd] > end) rangeEnd = Math.max(rangeStart, rangeEnd - 2);
-		newRanges = new int[rangeEnd - rangeStart + 2];
-		System.arraycopy(ranges, rangeStart, newRanges, 0, newRanges.length);
-	} else {
-		int rangeStart = getRangeIndex(start, -1, styleCount);
-		if (rangeStart >= styleCount) return null;
-		if (styles[rangeStart].start > end) return null;
-		int rangeEnd = Math.min(styleCount - 1, getRangeIndex(end, rangeStart - 1, styleCount));
-		if (styles[rangeEnd].start > end) rangeEnd = Math.max(rangeStart, rangeEnd - 1);
-		newRanges = new int[(rangeEnd - rangeStart + 1) << 1];
-		for (int i = rangeStart, j = 0; i <= rangeEnd; i++, j += 2) {
-			StyleRange style = styles[i];
-			newRanges[j] = style.start;
-			newRanges[j + 1] = style.length;
-		}
-	}
+	int styleCount = styleRanges.size();
+	int rangeStart = styleRanges.indexOf(start);
+	if (rangeStart >= styleCount) return null;
+	if (styleRanges.getStart(rangeStart) > end) return null;
+	int rangeEnd = Math.min(styleCount - 1, styleRanges.indexOf(end));
+	if (styleRanges.getStart(rangeEnd) > end) rangeEnd = Math.max(rangeStart, rangeEnd - 1);
+	int[] newRanges = new int[(rangeEnd - rangeStart + 1) << 1];
+	styleRanges.get(rangeStart, rangeEnd + 1, newRanges, null);
 	if (start > newRanges[0]) {
 		newRanges[1] = newRanges[0] + newRanges[1] - start;
 		newRanges[0] = start;
@@ -851,46 +917,33 @@ int[] getRanges(int start, int length) {
 }
 StyleRange[] getStyleRanges(int start, int length, boolean includeRanges) {
 	if (length == 0) return null;
-	StyleRange[] newStyles;
 	int end = start + length - 1;
-	if (ranges != null) {
-		int rangeCount = styleCount << 1;
-		int rangeStart = getRangeIndex(start, -1, rangeCount);
-		if (rangeStart >= rangeCount) return null;
-		if (ranges[rangeStart] > end) return null;
-		int rangeEnd = Math.min(rangeCount - 2, getRangeIndex(end, rangeStart - 1, rangeCount));
-		if (ranges[rangeEnd] > end) rangeEnd = Math.max(rangeStart, rangeEnd - 2);
-		newStyles = new StyleRange[((rangeEnd - rangeStart) >> 1) + 1];
-		if (includeRanges) {
-			for (int i = rangeStart, j = 0; i <= rangeEnd; i += 2, j++) {
-				newStyles[j] = (StyleRange)styles[i >> 1].clone();
-				newStyles[j].start = ranges[i];
-				newStyles[j].length = ranges[i + 1];
-			}
-		} else {
-			System.arraycopy(styles, rangeStart >> 1, newStyles, 0, newStyles.length);
+	int styleCount = styleRanges.size();
+	int rangeStart = styleRanges.indexOf(start);
+	if (rangeStart >= styleCount) return null;
+	if (styleRanges.getStart(rangeStart) > end) return null;
+	int rangeEnd = Math.min(styleCount - 1, styleRanges.indexOf(end));
+	if (styleRanges.getStart(rangeEnd) > end) rangeEnd = Math.max(rangeStart, rangeEnd - 1);
+	StyleRange[] newStyles = new StyleRange[rangeEnd - rangeStart + 1];
+	if (includeRanges) {
+		int[] ranges = new int[newStyles.length << 1];
+		styleRanges.get(rangeStart, rangeEnd + 1, ranges, newStyles);
+		for (int i = 0; i < newStyles.length; i++) {
+			newStyles[i] = (StyleRange)newStyles[i].clone();
+			newStyles[i].start = ranges[i << 1];
+			newStyles[i].length = ranges[(i << 1) + 1];
 		}
-	} else {
-		int rangeStart = getRangeIndex(start, -1, styleCount);
-		if (rangeStart >= styleCount) return null;
-		if (styles[rangeStart].start > end) return null;
-		int rangeEnd = Math.min(styleCount - 1, getRangeIndex(end, rangeStart - 1, styleCount));
-		if (styles[rangeEnd].start > end) rangeEnd = Math.max(rangeStart, rangeEnd - 1);
-		newStyles = new StyleRange[rangeEnd - rangeStart + 1];
-		System.arraycopy(styles, rangeStart, newStyles, 0, newStyles.length);
-	}
-	if (includeRanges || ranges == null) {
 		StyleRange style = newStyles[0];
 		if (start > style.start) {
-			newStyles[0] = style = (StyleRange)style.clone();
 			style.length = style.start + style.length - start;
 			style.start = start;
 		}
 		style = newStyles[newStyles.length - 1];
 		if (end < style.start + style.length - 1) {
-			newStyles[newStyles.length - 1] = style = (StyleRange)style.clone();
 			style.length = end - style.start + 1;
 		}
+	} else {
+		styleRanges.get(rangeStart, rangeEnd + 1, null, newStyles);
 	}
 	return newStyles;
 }
@@ -933,7 +986,7 @@ TextLayout getTextLayout(int lineIndex) {
 			lineSpacingComputing = true;
 			styledText.resetCache(lineIndex, 1);
 			styledText.setCaretLocations();
-			styledText.redraw();
+			styledText.redrawContent();
 		} finally {
 			lineSpacingComputing = false;
 		}
@@ -941,15 +994,11 @@ TextLayout getTextLayout(int lineIndex) {
 	return layout;
 }
 boolean isSameLineSpacing(int lineIndex, int newLineSpacing) {
-	if (layouts == null) {
+	if (layoutCache == null) {
 		return false;
 	}
-	int layoutIndex = lineIndex - topIndex;
-	if (0 <= layoutIndex && layoutIndex < layouts.length) {
-		TextLayout layout = layouts[layoutIndex];
-		return layout != null && !layout.isDisposed() && layout.getSpacing() == newLineSpacing;
-	}
-	return false;
+	TextLayout layout = layoutCache.get(lineIndex);
+	return layout != null && !layout.isDisposed() && layout.getSpacing() == newLineSpacing;
 }
 
 private static final class StyleEntry {
@@ -966,23 +1015,12 @@ private static final class StyleEntry {
 
 TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpacing) {
 	TextLayout layout = null;
+	boolean cached = false;
 	if (styledText != null) {
 		int topIndex = styledText.topIndex > 0 ? styledText.topIndex - 1 : 0;
-		if (layouts == null || topIndex != this.topIndex) {
-			TextLayout[] newLayouts = new TextLayout[CACHE_SIZE];
-			if (layouts != null) {
-				for (int i = 0; i < layouts.length; i++) {
-					if (layouts[i] != null) {
-						int layoutIndex = (i + this.topIndex) - topIndex;
-						if (0 <= layoutIndex && layoutIndex < newLayouts.length) {
-							newLayouts[layoutIndex] = layouts[i];
-						} else {
-							layouts[i].dispose();
-						}
-					}
-				}
-			}
-			if (bullets != null && bulletsIndices != null && topIndex != this.topIndex) {
+		if (layoutCache == null) layoutCache = new TextLayoutCache();
+		if (topIndex != this.topIndex) {
+			if (bullets != null && bulletsIndices != null && this.topIndex != -1) {
 				int delta = topIndex - this.topIndex;
 				if (delta > 0) {
 					if (delta < bullets.length) {
@@ -1001,25 +1039,28 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 				}
 			}
 			this.topIndex = topIndex;
-			layouts = newLayouts;
-		}
-		if (layouts != null) {
-			int layoutIndex = lineIndex - topIndex;
-			if (0 <= layoutIndex && layoutIndex < layouts.length) {
-				layout = layouts[layoutIndex];
-				if (layout != null) {
-					// Bug 520374: lineIndex can be >= linesSize.length
-					if(lineIndex < lineSizes.length && getLineSize(lineIndex).canLayout()) {
-						return layout;
-					}
-				} else {
-					layout = layouts[layoutIndex] = new TextLayout(device);
+		}
+		if (layoutCache.isEnabled()) {
+			TextLayoutCache.Entry entry = layoutCache.getEntry(lineIndex);
+			if (entry != null) layout = entry.layout;
+			// Bug 520374: lineIndex can be >= linesSize.length
+			if (layout != null && !entry.stale && entry.version == styleVersion && lineIndex < lineSizes.length && getLineSize(lineIndex).canLayout()) {
+				layoutCache.hits++;
+				/* The bullet of a LineStyleListener is kept with the layout, the listener is not asked again */
+				int index = lineIndex - topIndex;
+				if (bulletsIndices != null && 0 <= index && index < CACHE_SIZE) {
+					bullets[index] = entry.bullet;
+					bulletsIndices[index] = entry.bulletIndex;
 				}
+				return layout;
 			}
+			layoutCache.misses++;
+			cached = true;
 		}
 	}
 	if (layout == null) layout = new TextLayout(device);
 	String line = content.getLine(lineIndex);
+	TextLayoutCache.Entry entry = cached ? layoutCache.put(lineIndex, layout, line.length(), styleVersion) : null;
 	int lineOffset = content.getOffsetAtLine(lineIndex);
 	int[] segments = null;
 	char[] segmentChars = null;
@@ -1070,7 +1111,7 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 					if (styles[i].isVariableHeight()) {
 						styledText.hasStyleWithVariableHeight = true;
 						styledText.verticalScrollOffset = -1;
-						styledText.redraw();
+						styledText.redrawContent();
 						break;
 					}
 				}
@@ -1085,6 +1126,10 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 			bullets[index] = bullet;
 			bulletsIndices[index] = event.bulletIndex;
 		}
+		if (entry != null) {
+			entry.bullet = bullet;
+			entry.bulletIndex = event.bulletIndex;
+		}
 	} else {
 		if (lines != null) {
 			LineInfo info = lines[lineIndex];
@@ -1111,13 +1156,14 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 				}
 			}
 		}
-		ranges = this.ranges;
-		styles = this.styles;
-		styleCount = this.styleCount;
-		if (ranges != null) {
-			rangeStart = getRangeIndex(lineOffset, -1, styleCount << 1);
-		} else {
-			rangeStart = getRangeIndex(lineOffset, -1, styleCount);
+		if (styleRanges.size() > 0) {
+			/* The styles of the line, the loop below stops at the first one that starts after the line */
+			int first = styleRanges.indexOf(lineOffset);
+			int last = Math.min(styleRanges.size(), styleRanges.indexOf(lineOffset + line.length()) + 1);
+			styleCount = Math.max(0, last - first);
+			ranges = new int[styleCount << 1];
+			styles = new StyleRange[styleCount];
+			styleRanges.get(first, last, ranges, styles);
 		}
 	}
 	if (bullet != null) {
@@ -1280,11 +1326,11 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 			FontMetrics metrics = layout.getLineMetrics(index);
 			ascent = metrics.getAscent() + metrics.getLeading();
 			descent = metrics.getDescent();
-			if (layouts != null) {
-				for (TextLayout l : layouts) {
-					if (l != null && l != layout) {
-						l.setAscent(ascent);
-						l.setDescent(descent);
+			if (layoutCache != null) {
+				for (TextLayoutCache.Entry cachedEntry : layoutCache.entries.values()) {
+					if (cachedEntry.layout != layout) {
+						cachedEntry.layout.setAscent(ascent);
+						cachedEntry.layout.setDescent(descent);
 					}
 				}
 			}
@@ -1304,7 +1350,7 @@ TextLayout getTextLayout(int lineIndex, int orientation, int width, int lineSpac
 			if (styledText.isBidiCaret()) styledText.createCaretBitmaps();
 			styledText.caretDirection = SWT.NULL;
 			styledText.setCaretLocations();
-			styledText.redraw();
+			styledText.redrawContent();
 		}
 	}
 	return layout;
@@ -1313,19 +1359,17 @@ int getWidth() {
 	return maxWidth;
 }
 void reset() {
-	if (layouts != null) {
-		for (TextLayout layout : layouts) {
-			if (layout != null) layout.dispose();
-		}
-		layouts = null;
+	if (layoutCache != null) {
+		layoutCache.clear();
+		layoutCache = null;
 	}
 	topIndex = -1;
-	stylesSetCount = styleCount = lineCount = 0;
-	ranges = null;
-	styles = null;
+	stylesSetCount = lineCount = 0;
+	styleRanges = new StyleRangeList();
 	stylesSet = null;
 	lines = null;
 	lineSizes = null;
+	lineHeights.invalidate(0);
 	bullets = null;
 	bulletsIndices = null;
 	redrawLines = null;
@@ -1342,11 +1386,14 @@ void reset(int startLine, int lineCount) {
 }
 void reset(Set<Integer> lines) {
 	if (lines == null || lines.isEmpty()) return;
+	if (layoutCache != null) layoutCache.invalidate(lines);
 	int resetLineCount = 0;
 	for (Integer line : lines) {
 		if (line >= 0 || line < lineCount) {
 			resetLineCount++;
-			getLineSize(line.intValue()).resetSize();
+			LineSizeInfo lineSize = getLineSize(line.intValue());
+			lineHeights.update(line.intValue(), lineSize.height, LineSizeInfo.RESETED_SIZE);
+			lineSize.resetSize();
 		}
 	}
 	if (linesInAverageLineHeight > resetLineCount) {
@@ -1374,6 +1421,7 @@ void setContent(StyledTextContent content) {
 	this.content = content;
 	lineCount = content.getLineCount();
 	lineSizes = new LineSizeInfo[lineCount];
+	lineHeights.invalidate(0);
 	maxWidth = 0;
 	maxWidthLineIndex = -1;
 	reset(0, lineCount);
@@ -1468,6 +1516,10 @@ void setLineBullet(int startLine, int count, Bullet bullet) {
 		redrawLines = null;
 	}
 }
+void setLineHeight(int lineIndex, LineSizeInfo line, int height) {
+	lineHeights.update(lineIndex, line.height, height);
+	line.height = height;
+}
 void setLineIndent(int startLine, int count, int indent) {
 	if (lines == null) lines = new LineInfo[lineCount];
 	for (int i = startLine; i < startLine + count; i++) {
@@ -1489,7 +1541,7 @@ void setLineVerticalIndent(int lineIndex, int verticalLineIndent) {
 	lines[lineIndex].verticalIndent = verticalLineIndent;
 	LineSizeInfo info = getLineSize(lineIndex);
 	if (!info.needsRecalculateHeight()) {
-		info.height += delta;
+		setLineHeight(lineIndex, info, info.height + delta);
 	}
 }
 void setLineWrapIndent(int startLine, int count, int wrapIndent) {
@@ -1547,173 +1599,145 @@ void setLineSpacingProvider(StyledTextLineSpacingProvider lineSpacingProvider) {
 }
 void setStyleRanges (int[] newRanges, StyleRange[] newStyles) {
 	if (newStyles == null) {
-		stylesSetCount = styleCount = 0;
-		ranges = null;
-		styles = null;
+		stylesSetCount = 0;
+		styleRanges = new StyleRangeList();
 		stylesSet = null;
 		hasLinks = false;
 		return;
 	}
-	if (newRanges == null && COMPACT_STYLES) {
+	if (newRanges == null) {
 		newRanges = new int[newStyles.length << 1];
 		StyleRange[] tmpStyles = new StyleRange[newStyles.length];
-		if (stylesSet == null) stylesSet = new StyleRange[4];
 		for (int i = 0, j = 0; i < newStyles.length; i++) {
 			StyleRange newStyle = newStyles[i];
 			newRanges[j++] = newStyle.start;
 			newRanges[j++] = newStyle.length;
-			int index = 0;
-			while (index < stylesSetCount) {
-				if (stylesSet[index].similarTo(newStyle)) break;
-				index++;
-			}
-			if (index == stylesSetCount) {
-				if (stylesSetCount == stylesSet.length) {
-					StyleRange[] tmpStylesSet = new StyleRange[stylesSetCount + 4];
-					System.arraycopy(stylesSet, 0, tmpStylesSet, 0, stylesSetCount);
-					stylesSet = tmpStylesSet;
-				}
-				stylesSet[stylesSetCount++] = newStyle;
-			}
-			tmpStyles[i] = stylesSet[index];
+			tmpStyles[i] = getSharedStyle(newStyle);
 		}
 		newStyles = tmpStyles;
 	}
 
+	int styleCount = styleRanges.size();
 	if (styleCount == 0) {
-		if (newRanges != null) {
-			ranges = new int[newRanges.length];
-			System.arraycopy(newRanges, 0, ranges, 0, ranges.length);
-		}
-		styles = new StyleRange[newStyles.length];
-		System.arraycopy(newStyles, 0, styles, 0, styles.length);
-		styleCount = newStyles.length;
+		styleRanges.replace(0, 0, newRanges, newStyles, newStyles.length);
 		return;
 	}
-	if (newRanges != null && ranges == null) {
-		ranges = new int[styles.length << 1];
-		for (int i = 0, j = 0; i < styleCount; i++) {
-			ranges[j++] = styles[i].start;
-			ranges[j++] = styles[i].length;
-		}
+	int start = newRanges[0];
+	int modifyStart = styleRanges.indexOf(start), modifyEnd;
+	boolean insert = modifyStart == styleCount;
+	if (!insert) {
+		int end = newRanges[newRanges.length - 2] + newRanges[newRanges.length - 1];
+		modifyEnd = styleRanges.indexOf(end);
+		insert = modifyStart == modifyEnd && styleRanges.getStart(modifyStart) >= end;
 	}
-	if (newRanges == null && ranges != null) {
-		newRanges = new int[newStyles.length << 1];
-		for (int i = 0, j = 0; i < newStyles.length; i++) {
-			newRanges[j++] = newStyles[i].start;
-			newRanges[j++] = newStyles[i].length;
-		}
-	}
-	if (ranges != null) {
-		int rangeCount = styleCount << 1;
-		int start = newRanges[0];
-		int modifyStart = getRangeIndex(start, -1, rangeCount), modifyEnd;
-		boolean insert = modifyStart == rangeCount;
-		if (!insert) {
-			int end = newRanges[newRanges.length - 2] + newRanges[newRanges.length - 1];
-			modifyEnd = getRangeIndex(end, modifyStart - 1, rangeCount);
-			insert = modifyStart == modifyEnd && ranges[modifyStart] >= end;
-		}
-		if (insert) {
-			addMerge(newRanges, newStyles, newRanges.length, modifyStart, modifyStart);
-			return;
-		}
-		modifyEnd = modifyStart;
-		int[] mergeRanges = new int[6];
-		StyleRange[] mergeStyles = new StyleRange[3];
-		for (int i = 0; i < newRanges.length; i += 2) {
-			int newStart = newRanges[i];
-			int newEnd = newStart + newRanges[i + 1];
-			if (newStart == newEnd) continue;
-			int modifyLast = 0, mergeCount = 0;
-			while (modifyEnd < rangeCount) {
-				if (newStart >= ranges[modifyStart] + ranges[modifyStart + 1]) modifyStart += 2;
-				if (ranges[modifyEnd] + ranges[modifyEnd + 1] > newEnd) break;
-				modifyEnd += 2;
-			}
-			if (ranges[modifyStart] < newStart && newStart < ranges[modifyStart] + ranges[modifyStart + 1]) {
-				mergeStyles[mergeCount >> 1] = styles[modifyStart >> 1];
-				mergeRanges[mergeCount] = ranges[modifyStart];
-				mergeRanges[mergeCount + 1] = newStart - ranges[modifyStart];
-				mergeCount += 2;
-			}
-			mergeStyles[mergeCount >> 1] = newStyles[i >> 1];
-			mergeRanges[mergeCount] = newStart;
-			mergeRanges[mergeCount + 1] = newRanges[i + 1];
-			mergeCount += 2;
-			if (modifyEnd < rangeCount && ranges[modifyEnd] < newEnd && newEnd < ranges[modifyEnd] + ranges[modifyEnd + 1]) {
-				mergeStyles[mergeCount >> 1] = styles[modifyEnd >> 1];
-				mergeRanges[mergeCount] = newEnd;
-				mergeRanges[mergeCount + 1] = ranges[modifyEnd] + ranges[modifyEnd + 1] - newEnd;
-				mergeCount += 2;
-				modifyLast = 2;
-			}
-			int grow = addMerge(mergeRanges, mergeStyles, mergeCount, modifyStart, modifyEnd + modifyLast);
-			rangeCount += grow;
-			modifyStart = modifyEnd += grow;
+	if (insert) {
+		addMerge(newRanges, newStyles, newStyles.length, modifyStart, modifyStart);
+		return;
+	}
+	modifyEnd = modifyStart;
+	int[] mergeRanges = new int[6];
+	StyleRange[] mergeStyles = new StyleRange[3];
+	for (int i = 0; i < newRanges.length; i += 2) {
+		int newStart = newRanges[i];
+		int newEnd = newStart + newRanges[i + 1];
+		if (newStart == newEnd) continue;
+		int modifyLast = 0, mergeCount = 0;
+		while (modifyEnd < styleCount) {
+			if (newStart >= styleRanges.getStart(modifyStart) + styleRanges.getLength(modifyStart)) modifyStart++;
+			if (styleRanges.getStart(modifyEnd) + styleRanges.getLength(modifyEnd) > newEnd) break;
+			modifyEnd++;
 		}
-	} else {
-		int start = newStyles[0].start;
-		int modifyStart = getRangeIndex(start, -1, styleCount), modifyEnd;
-		boolean insert = modifyStart == styleCount;
-		if (!insert) {
-			int end = newStyles[newStyles.length - 1].start + newStyles[newStyles.length - 1].length;
-			modifyEnd = getRangeIndex(end, modifyStart - 1, styleCount);
-			insert = modifyStart == modifyEnd && styles[modifyStart].start >= end;
-		}
-		if (insert) {
-			addMerge(newStyles, newStyles.length, modifyStart, modifyStart);
-			return;
-		}
-		modifyEnd = modifyStart;
-		StyleRange[] mergeStyles = new StyleRange[3];
-		for (StyleRange newStyle : newStyles) {
-			StyleRange style;
-			int newStart = newStyle.start;
-			int newEnd = newStart + newStyle.length;
-			if (newStart == newEnd) continue;
-			int modifyLast = 0, mergeCount = 0;
-			while (modifyEnd < styleCount) {
-				if (newStart >= styles[modifyStart].start + styles[modifyStart].length) modifyStart++;
-				if (styles[modifyEnd].start + styles[modifyEnd].length > newEnd) break;
-				modifyEnd++;
+		if (modifyStart < styleCount) {
+			int rangeStart = styleRanges.getStart(modifyStart);
+			if (rangeStart < newStart && newStart < rangeStart + styleRanges.getLength(modifyStart)) {
+				mergeStyles[mergeCount] = styleRanges.getStyle(modifyStart);
+				mergeRanges[mergeCount << 1] = rangeStart;
+				mergeRanges[(mergeCount << 1) + 1] = newStart - rangeStart;
+				mergeCount++;
 			}
-			style = styles[modifyStart];
-			if (style.start < newStart && newStart < style.start + style.length) {
-				style = mergeStyles[mergeCount++] = (StyleRange)style.clone();
-				style.length = newStart - style.start;
+		}
+		mergeStyles[mergeCount] = newStyles[i >> 1];
+		mergeRanges[mergeCount << 1] = newStart;
+		mergeRanges[(mergeCount << 1) + 1] = newRanges[i + 1];
+		mergeCount++;
+		if (modifyEnd < styleCount) {
+			int rangeStart = styleRanges.getStart(modifyEnd), rangeEnd = rangeStart + styleRanges.getLength(modifyEnd);
+			if (rangeStart < newEnd && newEnd < rangeEnd) {
+				mergeStyles[mergeCount] = styleRanges.getStyle(modifyEnd);
+				mergeRanges[mergeCount << 1] = newEnd;
+				mergeRanges[(mergeCount << 1) + 1] = rangeEnd - newEnd;
+				mergeCount++;
+				modifyLast = 1;
 			}
-			mergeStyles[mergeCount++] = newStyle;
-			if (modifyEnd < styleCount) {
-				style = styles[modifyEnd];
-				if (style.start < newEnd && newEnd < style.start + style.length) {
-					style = mergeStyles[mergeCount++] = (StyleRange)style.clone();
-					style.length += style.start - newEnd;
-					style.start = newEnd;
-					modifyLast = 1;
-				}
+		}
+		int grow = addMerge(mergeRanges, mergeStyles, mergeCount, modifyStart, modifyEnd + modifyLast);
+		styleCount += grow;
+		modifyStart = modifyEnd += grow;
+	}
+}
+/**
+ * Returns the style set before that is similar to the given one, or adds
+ * the given one to the styles set and returns it.
+ */
+StyleRange getSharedStyle(StyleRange style) {
+	if (stylesSet == null) stylesSet = new StyleRange[16];
+	int mask = stylesSet.length - 1;
+	int hash = style.hashCode();
+	int index = (hash ^ (hash >>> 16)) & mask;
+	StyleRange sharedStyle;
+	while ((sharedStyle = stylesSet[index]) != null) {
+		if (sharedStyle.similarTo(style)) return sharedStyle;
+		index = (index + 1) & mask;
+	}
+	stylesSet[index] = style;
+	if (++stylesSetCount << 2 > stylesSet.length * 3) {
+		StyleRange[] oldStylesSet = stylesSet;
+		stylesSet = new StyleRange[oldStylesSet.length << 1];
+		mask = stylesSet.length - 1;
+		for (StyleRange oldStyle : oldStylesSet) {
+			if (oldStyle == null) continue;
+			hash = oldStyle.hashCode();
+			index = (hash ^ (hash >>> 16)) & mask;
+			while (stylesSet[index] != null) {
+				index = (index + 1) & mask;
 			}
-			int grow = addMerge(mergeStyles, mergeCount, modifyStart, modifyEnd + modifyLast);
-			modifyStart = modifyEnd += grow;
+			stylesSet[index] = oldStyle;
 		}
 	}
+	return style;
 }
 void textChanging(TextChangingEvent event) {
 	int start = event.start;
 	int newCharCount = event.newCharCount, replaceCharCount = event.replaceCharCount;
 	int newLineCount = event.newLineCount, replaceLineCount = event.replaceLineCount;
+	/* The styles and the line data between the replacements of a batch stay */
+	int[] ranges = event.ranges;
+	String[] texts = event.texts;
+	boolean batch = ranges != null && texts != null;
 
-	updateRanges(start, replaceCharCount, newCharCount);
+	if (batch) {
+		for (int i = texts.length - 1; i >= 0; i--) {
+			updateRanges(ranges[2 * i], ranges[2 * i + 1], texts[i].length());
+		}
+	} else {
+		updateRanges(start, replaceCharCount, newCharCount);
+	}
 
 	int startLine = content.getLineAtOffset(start);
-	if (replaceCharCount == content.getCharCount()) lines = null;
+	/* A batch replaces all text when its replacements leave no text in between */
+	boolean replaceAll = replaceCharCount == content.getCharCount();
+	for (int i = 1; batch && replaceAll && i < texts.length; i++) {
+		replaceAll = ranges[2 * i - 2] + ranges[2 * i - 1] == ranges[2 * i];
+	}
+	if (replaceAll) lines = null;
 	if (replaceLineCount == lineCount) {
 		lineCount = newLineCount;
 		lineSizes = new LineSizeInfo[lineCount];
+		lineHeights.invalidate(0);
 		reset(0, lineCount);
-	} else {
+	} else if (!batch || !updateLines(event)) {
+		/* A batch whose line counts do not add up is handled like a change of one range */
 		int startIndex = startLine + replaceLineCount + 1;
-		int endIndex = startLine + newLineCount + 1;
 		if(lineCount < startLine) {
 			SWT.error(SWT.ERROR_INVALID_RANGE, null, "bug 478020: lineCount < startLine: " + lineCount + ":" + startLine);
 		}
@@ -1721,11 +1745,6 @@ void textChanging(TextChangingEvent event) {
 			SWT.error(SWT.ERROR_INVALID_RANGE, null, "bug 478020: lineCount < startIndex: " + lineCount + ":" + startIndex);
 		}
 		int delta = newLineCount - replaceLineCount;
-		if (lineCount + delta > lineSizes.length) {
-			LineSizeInfo[] newLineSizes = new LineSizeInfo[lineCount + delta + GROW];
-			System.arraycopy(lineSizes, 0, newLineSizes, 0, lineCount);
-			lineSizes = newLineSizes;
-		}
 		if (lines != null) {
 			if (lineCount + delta > lines.length) {
 				LineInfo[] newLines = new LineInfo[lineCount + delta + GROW];
@@ -1733,62 +1752,12 @@ void textChanging(TextChangingEvent event) {
 				lines = newLines;
 			}
 		}
-		System.arraycopy(lineSizes, startIndex, lineSizes, endIndex, lineCount - startIndex);
-		for (int i = startLine; i < endIndex; i++) {
-			lineSizes[i] = null;
-		}
-		for (int i = lineCount + delta; i < lineCount; i++) {
-			lineSizes[i] = null;
-		}
-		if (layouts != null) {
-			int layoutStartLine = startLine - topIndex;
-			int layoutEndLine = layoutStartLine + replaceLineCount + 1;
-			for (int i = layoutStartLine; i < layoutEndLine; i++) {
-				if (0 <= i && i < layouts.length) {
-					if (layouts[i] != null) layouts[i].dispose();
-					layouts[i] = null;
-					if (bullets != null && bulletsIndices != null) bullets[i] = null;
-				}
-			}
-			if (delta > 0) {
-				for (int i = layouts.length - 1; i >= layoutEndLine; i--) {
-					if (0 <= i && i < layouts.length) {
-						endIndex = i + delta;
-						if (0 <= endIndex && endIndex < layouts.length) {
-							layouts[endIndex] = layouts[i];
-							layouts[i] = null;
-							if (bullets != null && bulletsIndices != null) {
-								bullets[endIndex] = bullets[i];
-								bulletsIndices[endIndex] = bulletsIndices[i];
-								bullets[i] = null;
-							}
-						} else {
-							if (layouts[i] != null) layouts[i].dispose();
-							layouts[i] = null;
-							if (bullets != null && bulletsIndices != null) bullets[i] = null;
-						}
-					}
-				}
-			} else if (delta < 0) {
-				for (int i = layoutEndLine; i < layouts.length; i++) {
-					if (0 <= i && i < layouts.length) {
-						endIndex = i + delta;
-						if (0 <= endIndex && endIndex < layouts.length) {
-							layouts[endIndex] = layouts[i];
-							layouts[i] = null;
-							if (bullets != null && bulletsIndices != null) {
-								bullets[endIndex] = bullets[i];
-								bulletsIndices[endIndex] = bulletsIndices[i];
-								bullets[i] = null;
-							}
-						} else {
-							if (layouts[i] != null) layouts[i].dispose();
-							layouts[i] = null;
-							if (bullets != null && bulletsIndices != null) bullets[i] = null;
-						}
-					}
-				}
-			}
+		replaceLineSizes(startLine, replaceLineCount, newLineCount, lineCount);
+		if (layoutCache != null) {
+			layoutCache.replaceLines(startLine, startLine + replaceLineCount + 1, delta);
+		}
+		if (bullets != null && bulletsIndices != null && topIndex != -1) {
+			moveLineBullets(startLine, replaceLineCount, delta);
 		}
 		if (replaceLineCount != 0 || newLineCount != 0) {
 			int startLineOffset = content.getOffsetAtLine(startLine);
@@ -1796,7 +1765,7 @@ void textChanging(TextChangingEvent event) {
 			updateBullets(startLine, replaceLineCount, newLineCount, true);
 			if (lines != null) {
 				startIndex = startLine + replaceLineCount;
-				endIndex = startLine + newLineCount;
+				int endIndex = startLine + newLineCount;
 				System.arraycopy(lines, startIndex, lines, endIndex, lineCount - startIndex);
 				for (int i = startLine; i < endIndex; i++) {
 					lines[i] = null;
@@ -1808,18 +1777,155 @@ void textChanging(TextChangingEvent event) {
 		}
 		lineCount += delta;
 		if (maxWidthLineIndex != -1 && startLine <= maxWidthLineIndex && maxWidthLineIndex <= startLine + replaceLineCount) {
-			maxWidth = 0;
-			maxWidthLineIndex = -1;
-			for (int i = 0; i < lineCount; i++) {
-				LineSizeInfo lineSize = getLineSize(i);
-				if (lineSize.width > maxWidth) {
-					maxWidth = lineSize.width;
-					maxWidthLineIndex = i;
+			calculateMaxWidth();
+		}
+	}
+}
+/**
+ * Finds the widest of the lines whose width is calculated.
+ */
+void calculateMaxWidth() {
+	maxWidth = 0;
+	maxWidthLineIndex = -1;
+	for (int i = 0; i < lineCount; i++) {
+		LineSizeInfo lineSize = getLineSize(i);
+		if (lineSize.width > maxWidth) {
+			maxWidth = lineSize.width;
+			maxWidthLineIndex = i;
+		}
+	}
+}
+/**
+ * Moves the bullets of a LineStyleListener, which are kept for the lines
+ * from <code>topIndex</code> on, when the lines after
+ * <code>startLine + replaceLineCount</code> move by <code>delta</code> lines.
+ */
+void moveLineBullets(int startLine, int replaceLineCount, int delta) {
+	int bulletStartLine = startLine - topIndex;
+	int bulletEndLine = bulletStartLine + replaceLineCount + 1;
+	for (int i = bulletStartLine; i < bulletEndLine; i++) {
+		if (0 <= i && i < bullets.length) bullets[i] = null;
+	}
+	if (delta > 0) {
+		for (int i = bullets.length - 1; i >= bulletEndLine; i--) {
+			if (0 <= i && i < bullets.length) {
+				int endIndex = i + delta;
+				if (0 <= endIndex && endIndex < bullets.length) {
+					bullets[endIndex] = bullets[i];
+					bulletsIndices[endIndex] = bulletsIndices[i];
 				}
+				bullets[i] = null;
+			}
+		}
+	} else if (delta < 0) {
+		for (int i = bulletEndLine; i < bullets.length; i++) {
+			if (0 <= i && i < bullets.length) {
+				int endIndex = i + delta;
+				if (0 <= endIndex && endIndex < bullets.length) {
+					bullets[endIndex] = bullets[i];
+					bulletsIndices[endIndex] = bulletsIndices[i];
+				}
+				bullets[i] = null;
 			}
 		}
 	}
 }
+/**
+ * Resets the sizes of the lines from <code>startLine</code> to
+ * <code>startLine + newLineCount</code> and moves the sizes of the lines
+ * after <code>startLine + replaceLineCount</code>, of <code>count</code>
+ * lines, behind them.
+ */
+void replaceLineSizes(int startLine, int replaceLineCount, int newLineCount, int count) {
+	int startIndex = startLine + replaceLineCount + 1;
+	int endIndex = startLine + newLineCount + 1;
+	int delta = newLineCount - replaceLineCount;
+	if (count + delta > lineSizes.length) {
+		LineSizeInfo[] newLineSizes = new LineSizeInfo[count + delta + GROW];
+		System.arraycopy(lineSizes, 0, newLineSizes, 0, count);
+		lineSizes = newLineSizes;
+	}
+	System.arraycopy(lineSizes, startIndex, lineSizes, endIndex, count - startIndex);
+	for (int i = startLine; i < endIndex; i++) {
+		if (delta == 0 && lineSizes[i] != null) {
+			lineHeights.update(i, lineSizes[i].height, LineSizeInfo.RESETED_SIZE);
+		}
+		lineSizes[i] = null;
+	}
+	/* The lines after the change moved, their sums are built again when needed */
+	if (delta != 0) lineHeights.invalidate(startLine);
+	for (int i = count + delta; i < count; i++) {
+		lineSizes[i] = null;
+	}
+}
+/**
+ * Updates the lines of each replacement of a batch, from the last replacement
+ * to the first: the sizes and the layouts of the replaced lines are reset, and
+ * the sizes, layouts, bullets and line data of the lines after the replacement
+ * are moved. The lines between the replacements are not reset. The line counts
+ * of the replacements are the ones of the content. Answers <code>false</code>
+ * and changes nothing if they do not add up to the line counts of the event.
+ */
+boolean updateLines(TextChangingEvent event) {
+	int[] ranges = event.ranges;
+	String[] texts = event.texts;
+	int[] lineCounts = event.lineCounts;
+	if (lineCounts == null) {
+		/* The content did not count the lines of each range */
+		lineCounts = new int[ranges.length];
+		for (int i = 0; i < texts.length; i++) {
+			int start = ranges[2 * i];
+			lineCounts[2 * i] = content.getLineAtOffset(start + ranges[2 * i + 1]) - content.getLineAtOffset(start);
+			lineCounts[2 * i + 1] = RopeContent.countLines(texts[i]);
+		}
+	}
+	int totalDelta = 0;
+	for (int i = 0; i < texts.length; i++) {
+		totalDelta += lineCounts[2 * i + 1] - lineCounts[2 * i];
+	}
+	if (totalDelta != event.newLineCount - event.replaceLineCount) return false;
+	boolean moveBullets = bullets != null && bulletsIndices != null && topIndex != -1;
+	boolean resetMaxWidth = false;
+	int count = lineCount;
+	for (int i = texts.length - 1; i >= 0; i--) {
+		int start = ranges[2 * i];
+		int startLine = content.getLineAtOffset(start);
+		int replaceLineCount = lineCounts[2 * i];
+		int newLineCount = lineCounts[2 * i + 1];
+		int delta = newLineCount - replaceLineCount;
+		replaceLineSizes(startLine, replaceLineCount, newLineCount, count);
+		if (layoutCache != null) {
+			layoutCache.replaceLines(startLine, startLine + replaceLineCount + 1, delta);
+		}
+		if (moveBullets) moveLineBullets(startLine, replaceLineCount, delta);
+		if (maxWidthLineIndex != -1 && startLine <= maxWidthLineIndex && maxWidthLineIndex <= startLine + replaceLineCount) {
+			resetMaxWidth = true;
+		}
+		if (replaceLineCount == 0 && newLineCount == 0) continue;
+		if (content.getOffsetAtLine(startLine) != start) startLine++;
+		updateBullets(startLine, replaceLineCount, newLineCount, true);
+		if (lines != null) {
+			if (count + delta > lines.length) {
+				LineInfo[] newLines = new LineInfo[count + delta + GROW];
+				System.arraycopy(lines, 0, newLines, 0, count);
+				lines = newLines;
+			}
+			int startIndex = startLine + replaceLineCount;
+			int endIndex = startLine + newLineCount;
+			System.arraycopy(lines, startIndex, lines, endIndex, count - startIndex);
+			for (int j = startLine; j < endIndex; j++) {
+				lines[j] = null;
+			}
+			for (int j = count + delta; j < count; j++) {
+				lines[j] = null;
+			}
+		}
+		count += delta;
+	}
+	lineCount = count;
+	if (resetMaxWidth) calculateMaxWidth();
+	return true;
+}
 void updateBullets(int startLine, int replaceLineCount, int newLineCount, boolean update) {
 	if (bullets == null) return;
 	if (bulletsIndices != null) return;
@@ -1854,106 +1960,38 @@ void updateBullets(int startLine, int replaceLineCount, int newLineCount, boolea
 	}
 }
 void updateRanges(int start, int replaceCharCount, int newCharCount) {
+	int styleCount = styleRanges.size();
 	if (styleCount == 0 || (replaceCharCount == 0 && newCharCount == 0)) return;
-	if (ranges != null) {
-		int rangeCount = styleCount << 1;
-		int modifyStart = getRangeIndex(start, -1, rangeCount);
-		if (modifyStart == rangeCount) return;
-		int end = start + replaceCharCount;
-		int modifyEnd = getRangeIndex(end, modifyStart - 1, rangeCount);
-		int offset = newCharCount - replaceCharCount;
-		if (modifyStart == modifyEnd && ranges[modifyStart] < start && end < ranges[modifyEnd] + ranges[modifyEnd + 1]) {
-			if (newCharCount == 0) {
-				ranges[modifyStart + 1] -= replaceCharCount;
-				modifyEnd += 2;
-			} else {
-				if (rangeCount + 2 > ranges.length) {
-					int[] newRanges = new int[ranges.length + (GROW << 1)];
-					System.arraycopy(ranges, 0, newRanges, 0, rangeCount);
-					ranges = newRanges;
-					StyleRange[] newStyles = new StyleRange[styles.length + GROW];
-					System.arraycopy(styles, 0, newStyles, 0, styleCount);
-					styles = newStyles;
-				}
-				System.arraycopy(ranges, modifyStart + 2, ranges, modifyStart + 4, rangeCount - (modifyStart + 2));
-				System.arraycopy(styles, (modifyStart + 2) >> 1, styles, (modifyStart + 4) >> 1, styleCount - ((modifyStart + 2) >> 1));
-				ranges[modifyStart + 3] = ranges[modifyStart] + ranges[modifyStart + 1] - end;
-				ranges[modifyStart + 2] = start + newCharCount;
-				ranges[modifyStart + 1] = start - ranges[modifyStart];
-				styles[(modifyStart >> 1) + 1] = styles[modifyStart >> 1];
-				rangeCount += 2;
-				styleCount++;
-				modifyEnd += 4;
-			}
-			if (offset != 0) {
-				for (int i = modifyEnd; i < rangeCount; i += 2) {
-					ranges[i] += offset;
-				}
-			}
+	int modifyStart = styleRanges.indexOf(start);
+	if (modifyStart == styleCount) return;
+	int end = start + replaceCharCount;
+	int modifyEnd = styleRanges.indexOf(end);
+	int offset = newCharCount - replaceCharCount;
+	int rangeStart = styleRanges.getStart(modifyStart), rangeLength = styleRanges.getLength(modifyStart);
+	if (modifyStart == modifyEnd && rangeStart < start && end < rangeStart + rangeLength) {
+		if (newCharCount == 0) {
+			styleRanges.setLength(modifyStart, rangeLength - replaceCharCount);
+			modifyEnd++;
 		} else {
-			if (ranges[modifyStart] < start && start < ranges[modifyStart] + ranges[modifyStart + 1]) {
-				ranges[modifyStart + 1] = start - ranges[modifyStart];
-				modifyStart += 2;
-			}
-			if (modifyEnd < rangeCount && ranges[modifyEnd] < end && end < ranges[modifyEnd] + ranges[modifyEnd + 1]) {
-				ranges[modifyEnd + 1] = ranges[modifyEnd] + ranges[modifyEnd + 1] - end;
-				ranges[modifyEnd] = end;
-			}
-			if (offset != 0) {
-				for (int i = modifyEnd; i < rangeCount; i += 2) {
-					ranges[i] += offset;
-				}
-			}
-			System.arraycopy(ranges, modifyEnd, ranges, modifyStart, rangeCount - modifyEnd);
-			System.arraycopy(styles, modifyEnd >> 1, styles, modifyStart >> 1, styleCount - (modifyEnd >> 1));
-			styleCount -= (modifyEnd - modifyStart) >> 1;
+			StyleRange style = styleRanges.getStyle(modifyStart);
+			int[] splitRanges = {rangeStart, start - rangeStart, start + newCharCount, rangeStart + rangeLength - end};
+			styleRanges.replace(modifyStart, modifyStart + 1, splitRanges, new StyleRange[] {style, style}, 2);
+			modifyEnd += 2;
 		}
+		styleRanges.shift(modifyEnd, offset);
 	} else {
-		int modifyStart = getRangeIndex(start, -1, styleCount);
-		if (modifyStart == styleCount) return;
-		int end = start + replaceCharCount;
-		int modifyEnd = getRangeIndex(end, modifyStart - 1, styleCount);
-		int offset = newCharCount - replaceCharCount;
-		if (modifyStart == modifyEnd && styles[modifyStart].start < start && end < styles[modifyEnd].start + styles[modifyEnd].length) {
-			if (newCharCount == 0) {
-				styles[modifyStart].length -= replaceCharCount;
-				modifyEnd++;
-			} else {
-				if (styleCount + 1 > styles.length) {
-					StyleRange[] newStyles = new StyleRange[styles.length + GROW];
-					System.arraycopy(styles, 0, newStyles, 0, styleCount);
-					styles = newStyles;
-				}
-				System.arraycopy(styles, modifyStart + 1, styles, modifyStart + 2, styleCount - (modifyStart + 1));
-				styles[modifyStart + 1] = (StyleRange)styles[modifyStart].clone();
-				styles[modifyStart + 1].length = styles[modifyStart].start + styles[modifyStart].length - end;
-				styles[modifyStart + 1].start = start + newCharCount;
-				styles[modifyStart].length = start - styles[modifyStart].start;
-				styleCount++;
-				modifyEnd += 2;
-			}
-			if (offset != 0) {
-				for (int i = modifyEnd; i < styleCount; i++) {
-					styles[i].start += offset;
-				}
-			}
-		} else {
-			if (styles[modifyStart].start < start && start < styles[modifyStart].start + styles[modifyStart].length) {
-				styles[modifyStart].length = start - styles[modifyStart].start;
-				modifyStart++;
-			}
-			if (modifyEnd < styleCount && styles[modifyEnd].start < end && end < styles[modifyEnd].start + styles[modifyEnd].length) {
-				styles[modifyEnd].length = styles[modifyEnd].start + styles[modifyEnd].length - end;
-				styles[modifyEnd].start = end;
-			}
-			if (offset != 0) {
-				for (int i = modifyEnd; i < styleCount; i++) {
-					styles[i].start += offset;
-				}
+		if (rangeStart < start && start < rangeStart + rangeLength) {
+			styleRanges.setLength(modifyStart, start - rangeStart);
+			modifyStart++;
+		}
+		if (modifyEnd < styleCount) {
+			int endStart = styleRanges.getStart(modifyEnd), endEnd = endStart + styleRanges.getLength(modifyEnd);
+			if (endStart < end && end < endEnd) {
+				styleRanges.setRange(modifyEnd, end, endEnd - end);
 			}
-			System.arraycopy(styles, modifyEnd, styles, modifyStart, styleCount - modifyEnd);
-			styleCount -= modifyEnd - modifyStart;
 		}
+		styleRanges.shift(modifyEnd, offset);
+		styleRanges.replace(modifyStart, modifyEnd, null, null, 0);
 	}
 }
 
@@ -48,6 +48,29 @@ public class TextChangingEvent extends TypedEvent {
 	 * Number of new lines that are going to be inserted
 	 */
 	public int newLineCount;
+	/**
+	 * Start offset and length of each range that is going to be replaced
+	 * when the change replaces several ranges, or <code>null</code>.
+	 * The fields above describe the change of the text from the start of
+	 * the first range to the end of the last range. The offsets of every
+	 * range are offsets in the text before the change, they are not moved
+	 * by the replacement of the ranges before it. <code>StyledText</code>
+	 * also sends the verify events of all ranges against that text.
+	 *
+	 * @see StyledTextContent#replaceTextRanges(int[], String[])
+	 * @since 3.120
+	 */
+	public int[] ranges;
+	/**
+	 * Text that is going to replace each range when the change replaces
+	 * several ranges, or <code>null</code>.
+	 *
+	 * @see StyledTextContent#replaceTextRanges(int[], String[])
+	 * @since 3.120
+	 */
+	public String[] texts;
+	/* The number of replaced and of new lines of each range, counted by the content, or null */
+	int[] lineCounts;
 
 	static final long serialVersionUID = 3257290210114352439L;
 
@@ -69,6 +92,9 @@ TextChangingEvent(StyledTextContent source, StyledTextEvent e) {
 	replaceLineCount = e.replaceLineCount;
 	newLineCount = e.newLineCount;
 	newText = e.text;
+	ranges = e.ranges;
+	texts = e.texts;
+	lineCounts = e.lineCounts;
 }
 
 }
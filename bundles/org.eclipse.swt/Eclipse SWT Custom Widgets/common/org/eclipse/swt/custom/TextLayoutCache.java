@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.*;
+
+import org.eclipse.swt.graphics.*;
+
+/**
+ * The text layouts of the lines of a StyledText, keyed by line index.
+ * <p>
+ * When the cache holds more layouts or more characters of text than its
+ * budget, the least recently used layouts are disposed. Layouts are not
+ * validated here: the renderer prepares a cached layout again when its
+ * line was reset, which marks the layout stale, or when the styles of any
+ * line may have changed since it was cached, which the renderer tracks
+ * with a style version.
+ * </p>
+ */
+class TextLayoutCache {
+
+	/**
+	 * System property that sets the maximum number of cached layouts of
+	 * a StyledText. A value of 0 disables the cache.
+	 */
+	static final String SIZE_PROPERTY = "org.eclipse.swt.custom.StyledText.layoutCacheSize"; //$NON-NLS-1$
+	/**
+	 * System property that sets the maximum number of characters of text
+	 * in the cached layouts of a StyledText.
+	 */
+	static final String CHARS_PROPERTY = "org.eclipse.swt.custom.StyledText.layoutCacheChars"; //$NON-NLS-1$
+	static final int DEFAULT_SIZE = 512;
+	static final int DEFAULT_CHARS = 256 * 1024;
+	/* The layouts in use by a caller are among the most recent, they are never evicted */
+	static final int MIN_SIZE = 8;
+
+	static class Entry {
+		final TextLayout layout;
+		final int length;
+		/* The style version of the renderer when the layout was prepared */
+		final int version;
+		/* The line was reset after the layout was prepared */
+		boolean stale;
+		/* The bullet that a LineStyleListener returned for the line */
+		Bullet bullet;
+		int bulletIndex = -1;
+
+		Entry(TextLayout layout, int length, int version) {
+			this.layout = layout;
+			this.length = length;
+			this.version = version;
+		}
+	}
+
+	final int maxSize, maxChars;
+	final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	int chars;
+	/* Counted by the renderer, a hit is a layout that did not have to be prepared again */
+	long hits, misses, evictions;
+
+TextLayoutCache() {
+	this(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE), Integer.getInteger(CHARS_PROPERTY, DEFAULT_CHARS));
+}
+TextLayoutCache(int maxSize, int maxChars) {
+	this.maxSize = maxSize;
+	this.maxChars = maxChars;
+}
+/**
+ * Disposes all layouts. The statistics are not reset.
+ */
+void clear() {
+	for (Entry entry : entries.values()) {
+		entry.layout.dispose();
+	}
+	entries.clear();
+	chars = 0;
+}
+boolean contains(TextLayout layout) {
+	for (Entry entry : entries.values()) {
+		if (entry.layout == layout) return true;
+	}
+	return false;
+}
+long getEvictions() {
+	return evictions;
+}
+long getHits() {
+	return hits;
+}
+long getMisses() {
+	return misses;
+}
+/**
+ * Returns the layout of the line, or <code>null</code> if it is not cached.
+ */
+TextLayout get(int lineIndex) {
+	Entry entry = entries.get(lineIndex);
+	return entry != null ? entry.layout : null;
+}
+/**
+ * Returns the cache entry of the line, or <code>null</code> if it is not cached.
+ */
+Entry getEntry(int lineIndex) {
+	return entries.get(lineIndex);
+}
+/**
+ * Marks the layouts of the given lines stale. The order in which the
+ * layouts were used does not change.
+ */
+void invalidate(Set<Integer> lines) {
+	for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+		if (lines.contains(entry.getKey())) entry.getValue().stale = true;
+	}
+}
+boolean isEnabled() {
+	return maxSize > 0;
+}
+/**
+ * Caches the layout of the line, which has <code>length</code> characters of
+ * text and is prepared with the given style version, and evicts the least
+ * recently used layouts that exceed the budget.
+ *
+ * @return the entry of the layout
+ */
+Entry put(int lineIndex, TextLayout layout, int length, int version) {
+	Entry entry = new Entry(layout, length, version);
+	Entry previous = entries.put(lineIndex, entry);
+	chars += length;
+	if (previous != null) {
+		chars -= previous.length;
+		if (previous.layout != layout) previous.layout.dispose();
+	}
+	Iterator<Entry> iterator = entries.values().iterator();
+	while ((entries.size() > maxSize || chars > maxChars) && entries.size() > MIN_SIZE) {
+		remove(iterator, iterator.next());
+		evictions++;
+	}
+	return entry;
+}
+/**
+ * Disposes the layouts of the lines in [<code>startLine</code>, <code>endLine</code>) and
+ * moves the layouts of the lines after it by <code>delta</code> lines.
+ */
+void replaceLines(int startLine, int endLine, int delta) {
+	if (entries.isEmpty()) return;
+	boolean moved = false;
+	Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+	while (iterator.hasNext()) {
+		Map.Entry<Integer, Entry> entry = iterator.next();
+		int lineIndex = entry.getKey();
+		if (startLine <= lineIndex && lineIndex < endLine) {
+			remove(iterator, entry.getValue());
+		} else if (lineIndex >= endLine && delta != 0) {
+			moved = true;
+		}
+	}
+	if (!moved) return;
+	/* Moving the keys in a copy keeps the access order */
+	LinkedHashMap<Integer, Entry> moves = new LinkedHashMap<>(entries);
+	entries.clear();
+	for (Map.Entry<Integer, Entry> entry : moves.entrySet()) {
+		int lineIndex = entry.getKey();
+		entries.put(lineIndex >= endLine ? lineIndex + delta : lineIndex, entry.getValue());
+	}
+}
+void remove(Iterator<?> iterator, Entry entry) {
+	chars -= entry.length;
+	entry.layout.dispose();
+	iterator.remove();
+}
+int size() {
+	return entries.size();
+}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import org.eclipse.swt.*;
+
+/**
+ * Helpers for the several ranges that <code>replaceTextRanges</code> replaces
+ * in one change, shared by <code>StyledTextContent</code> and its implementations.
+ */
+final class TextRanges {
+
+private TextRanges() {
+}
+/**
+ * Checks that the ranges are sorted, do not overlap and are inside the content,
+ * and that there is a text for each range.
+ *
+ * @param content the content
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range
+ * @see StyledTextContent#replaceTextRanges(int[], String[])
+ */
+static void check(StyledTextContent content, int[] ranges, String[] texts) {
+	if (ranges == null || texts == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	int count = texts.length;
+	if (ranges.length != 2 * count) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+	int charCount = content.getCharCount();
+	int end = 0;
+	for (int i = 0; i < count; i++) {
+		int start = ranges[2 * i], length = ranges[2 * i + 1];
+		if (texts[i] == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+		if (start < 0 || length < 0 || start > charCount - length) SWT.error(SWT.ERROR_INVALID_RANGE);
+		if (start < end) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+		end = start + length;
+	}
+}
+/**
+ * Returns the text that replaces the text from the start of the first range
+ * to the end of the last range, or <code>null</code> if there are no ranges.
+ *
+ * @param content the content
+ * @param ranges the start offset and length of each range to replace
+ * @param texts the text that replaces each range
+ * @return the replacement text
+ * @see StyledTextContent#replaceTextRanges(int[], String[])
+ */
+static String getReplacementText(StyledTextContent content, int[] ranges, String[] texts) {
+	check(content, ranges, texts);
+	int count = texts.length;
+	if (count == 0) return null;
+	StringBuilder buffer = new StringBuilder();
+	int end = ranges[0];
+	for (int i = 0; i < count; i++) {
+		int start = ranges[2 * i], length = ranges[2 * i + 1];
+		if (start > end) buffer.append(content.getTextRange(end, start - end));
+		buffer.append(texts[i]);
+		end = start + length;
+	}
+	return buffer.toString();
+}
+}
@@ -1332,7 +1332,8 @@ public ImageData getImageData(int zoom) {
 	} finally {
 		if (pool != null) pool.release();
 	}
-	return DPIUtil.autoScaleImageData (device, getImageData(100), zoom, 100);
+	Object provider = imageDataProvider != null ? imageDataProvider : imageFileNameProvider;
+	return DPIUtil.autoScaleImageData (device, provider, getImageData(100), zoom, 100);
 }
 
 /** Returns the best available representation. May be 100% or 200% iff there is an image provider. */
@@ -16,6 +16,7 @@ package org.eclipse.swt.graphics;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.*;
 
 import org.eclipse.swt.*;
 import org.eclipse.swt.internal.image.*;
@@ -106,6 +107,74 @@ public class ImageLoader {
 	 */
 	public int compression;
 
+	/**
+	 * The denominator of the scale factor applied while loading images.
+	 * <p>
+	 * Some formats can be decoded at a reduced resolution much faster than
+	 * at full size followed by scaling. JPEG images are decoded at 1/2, 1/4
+	 * or 1/8 of their size when this value is 2, 4 or 8, other values greater
+	 * than 1 are rounded down to the nearest of these. The size of the loaded
+	 * image data is the original size divided by this value, rounded up.
+	 * Formats that do not support scaled decoding ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is 1, which means no scaling.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public int scaleDenominator = 1;
+
+	/**
+	 * The number of rows in each band of a non-interlaced PNG image that is
+	 * reported to the listeners while the image is loaded.
+	 * <p>
+	 * When this value is greater than 0 and the loader has listeners, an
+	 * event is sent each time this many rows have been decoded. The image
+	 * data of the event only contains the rows of the band, and its
+	 * <code>y</code> field is the first row of the band in the image. The
+	 * last band may have fewer rows. Other formats ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is 0, which means that no band events are sent.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public int bandHeight;
+
+	/**
+	 * Whether large images may be decoded and encoded on several threads.
+	 * <p>
+	 * When this value is <code>true</code>, the parts of loading and saving
+	 * that do not depend on each other run in the common <code>ForkJoinPool</code>:
+	 * the inverse DCT, upsampling and color conversion of large baseline JPEG
+	 * images, the strips of large TIFF images, also when they are decoded by
+	 * <code>loadFrames</code>, and the compression of PNG images in chunks of
+	 * rows. The loaded image data is the same as when it is decoded on one
+	 * thread, and a loader with listeners decodes TIFF strips in order. A PNG image
+	 * that is saved this way also chooses the filter of each row, it is
+	 * usually smaller and loads to the same image data. Images that are
+	 * decoded by the platform ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is <code>false</code>, which means that images are only
+	 * decoded and encoded on the calling thread.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public boolean parallel;
+
+	/**
+	 * The throughput of the last save, in bytes of uncompressed image
+	 * data encoded per second. This is only reported by formats whose
+	 * encoder measures it (currently PNG), otherwise it is 0.
+	 *
+	 * @since 3.120
+	 */
+	public long saveThroughput;
+
 	/*
 	 * the set of ImageLoader event listeners, created on demand
 	 */
@@ -176,20 +245,114 @@ public ImageData[] load(InputStream stream) {
  */
 public ImageData[] load(String filename) {
 	if (filename == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
-	InputStream stream = null;
-	try {
-		stream = new FileInputStream(filename);
-		return load(stream);
-	} catch (IOException e) {
-		SWT.error(SWT.ERROR_IO, e);
-	} finally {
-		try {
-			if (stream != null) stream.close();
-		} catch (IOException e) {
-			// Ignore error
-		}
-	}
-	return null;
+	reset();
+	data = FileFormat.load(filename, this);
+	return data;
+}
+
+/**
+ * Opens the images of the specified input stream without decoding
+ * them all up front. The frames of an animated GIF and the pages of
+ * a TIFF are decoded when they are asked for, the images of other
+ * formats are loaded like <code>load(InputStream)</code> does. The
+ * stream is read as far as needed and is not closed, and a TIFF
+ * stream must stay open until the frames are closed. The
+ * <code>data</code> field of the receiver is not changed by loading
+ * a GIF or a TIFF.
+ *
+ * @param stream the input stream to load the images from
+ * @return the frames of the images in the specified input stream
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the stream is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the stream</li>
+ *    <li>ERROR_INVALID_IMAGE - if the image stream contains invalid data</li>
+ *    <li>ERROR_UNSUPPORTED_FORMAT - if the image stream contains an unrecognized format</li>
+ * </ul>
+ *
+ * @see ImageFrames
+ * @since 3.120
+ */
+public ImageFrames loadFrames(InputStream stream) {
+	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	return ImageFrames.load(stream, this);
+}
+
+/**
+ * Opens the images of the file with the specified name without
+ * decoding them all up front. The frames of an animated GIF and the
+ * pages of a TIFF are decoded when they are asked for, the images of
+ * other formats are loaded like <code>load(String)</code> does. A
+ * TIFF file is read in place and stays open until the frames are
+ * closed.
+ *
+ * @param filename the name of the file to load the images from
+ * @return the frames of the images in the specified file
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the file name is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the file</li>
+ *    <li>ERROR_INVALID_IMAGE - if the image file contains invalid data</li>
+ *    <li>ERROR_UNSUPPORTED_FORMAT - if the image file contains an unrecognized format</li>
+ * </ul>
+ *
+ * @see ImageFrames
+ * @since 3.120
+ */
+public ImageFrames loadFrames(String filename) {
+	if (filename == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	return ImageFrames.load(filename, this);
+}
+
+/**
+ * Registers a decoder for an image format that is recognized by the given
+ * signature, so that the <code>load</code> methods of all image loaders can
+ * load images of this format.
+ * <p>
+ * The signature is tested against the first 32 bytes of the stream, or fewer
+ * if the stream is shorter. Formats registered later are tested first, so
+ * they take precedence over earlier ones and over the built-in formats. When
+ * the signature matches, the decoder is called with the stream positioned at
+ * the start of the image and with the loader that loads it, and answers the
+ * loaded image data. Images of a registered format cannot be saved.
+ * </p><p>
+ * The registration applies to the whole application until it is removed with
+ * <code>unregisterFormat</code>.
+ * </p>
+ *
+ * @param signature the test of the first bytes of a stream
+ * @param decoder the function that loads the images of a matching stream
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the signature or the decoder is null</li>
+ * </ul>
+ *
+ * @see #unregisterFormat(BiFunction)
+ * @since 3.120
+ */
+public static void registerFormat(Predicate<byte[]> signature, BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	FileFormat.register(signature, decoder);
+}
+
+/**
+ * Removes the image formats that were registered with the given decoder.
+ *
+ * @param decoder the decoder that was registered
+ * @return <code>true</code> if a format was removed, and <code>false</code> otherwise
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the decoder is null</li>
+ * </ul>
+ *
+ * @see #registerFormat(Predicate, BiFunction)
+ * @since 3.120
+ */
+public static boolean unregisterFormat(BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	return FileFormat.unregister(decoder);
 }
 
 /**
@@ -224,6 +387,7 @@ public ImageData[] load(String filename) {
  */
 public void save(OutputStream stream, int format) {
 	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	saveThroughput = 0;
 	FileFormat.save(stream, format, this);
 }
 
@@ -134,6 +134,7 @@ public class Display extends Device {
 
 	/* Sync/Async Widget Communication */
 	Synchronizer synchronizer;
+	EventLoopMonitor monitor;
 	Consumer<RuntimeException> runtimeExceptionHandler = DefaultExceptionHandler.RUNTIME_EXCEPTION_HANDLER;
 	Consumer<Error> errorHandler = DefaultExceptionHandler.RUNTIME_ERROR_HANDLER;
 	Thread thread;
@@ -613,6 +614,45 @@ public void asyncExec (Runnable runnable) {
 	}
 }
 
+/**
+ * Causes the <code>run()</code> method of the runnable to
+ * be invoked by the user-interface thread at the next
+ * reasonable opportunity, like <code>asyncExec(Runnable)</code>,
+ * unless a runnable that was given with an equal key is still
+ * waiting to run. In that case the waiting runnable is replaced
+ * by this one, which runs once in its place. This collapses
+ * repeated requests for the same update, for example from a
+ * background job that reports progress, into a single runnable
+ * that sees the latest state.
+ * <p>
+ * Keys are compared with <code>equals()</code>. The number of
+ * runnables that replaced a waiting one is answered by
+ * <code>Synchronizer.getCoalescedCount()</code>.
+ * </p>
+ *
+ * @param key the key that identifies the update
+ * @param runnable code to run on the user-interface thread
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the key or the runnable is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see #asyncExec(Runnable)
+ * @see Synchronizer#getCoalescedCount()
+ *
+ * @since 3.120
+ */
+public void asyncExec (Object key, Runnable runnable) {
+	if (key == null || runnable == null) error (SWT.ERROR_NULL_ARGUMENT);
+	synchronized (Device.class) {
+		if (isDisposed ()) error (SWT.ERROR_DEVICE_DISPOSED);
+		synchronizer.asyncExec (key, runnable);
+	}
+}
+
 /**
  * Causes the system hardware to emit a short sound
  * (if it supports this capability).
@@ -1913,6 +1953,29 @@ public Synchronizer getSynchronizer () {
 	return synchronizer;
 }
 
+/**
+ * Returns the monitor that measures where the user-interface thread
+ * of the receiver spends its time. The receiver starts to measure the
+ * phases of its event loop when this method is called the first time,
+ * and stops when the monitor is disposed. A call after that answers a
+ * new monitor.
+ *
+ * @return the receiver's event loop monitor
+ *
+ * @exception SWTException <ul>
+ *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see EventLoopMonitor
+ * @since 3.120
+ */
+public EventLoopMonitor getEventLoopMonitor () {
+	checkDevice ();
+	if (monitor == null) monitor = new EventLoopMonitor (this);
+	return monitor;
+}
+
 /**
  * Returns the thread that has invoked <code>syncExec</code>
  * or null if no such runnable is currently being invoked by
@@ -3950,33 +4013,39 @@ boolean performKeyEquivalent(NSWindow window, NSEvent nsEvent) {
  */
 public boolean readAndDispatch () {
 	checkDevice ();
-	if (sendEventCount == 0 && loopCount == poolCount - 1 && Callback.getEntryCount () == 0) removePool ();
-	addPool ();
-	runSkin ();
-	runDeferredLayouts ();
-	loopCount++;
-	boolean events = false;
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DISPATCH);
 	try {
-		events |= runSettings ();
-		events |= runTimers ();
-		events |= runContexts ();
-		events |= runPopups ();
-		NSEvent event = application.nextEventMatchingMask(OS.NSAnyEventMask, null, OS.NSDefaultRunLoopMode, true);
-		if ((event != null) && (application != null)) {
-			events = true;
-			application.sendEvent(event);
-		}
-		events |= runPaint ();
-		events |= runDeferredEvents ();
-		if (!events) {
-			events = isDisposed () || runAsyncMessages (false);
+		if (sendEventCount == 0 && loopCount == poolCount - 1 && Callback.getEntryCount () == 0) removePool ();
+		addPool ();
+		runSkin ();
+		runDeferredLayouts ();
+		loopCount++;
+		boolean events = false;
+		try {
+			events |= runSettings ();
+			events |= runTimers ();
+			events |= runContexts ();
+			events |= runPopups ();
+			NSEvent event = application.nextEventMatchingMask(OS.NSAnyEventMask, null, OS.NSDefaultRunLoopMode, true);
+			if ((event != null) && (application != null)) {
+				events = true;
+				application.sendEvent(event);
+			}
+			events |= runPaint ();
+			events |= runDeferredEvents ();
+			if (!events) {
+				events = isDisposed () || runAsyncMessages (false);
+			}
+		} finally {
+			removePool ();
+			loopCount--;
+			if (sendEventCount == 0 && loopCount == poolCount && Callback.getEntryCount () == 0) addPool ();
 		}
+		return events;
 	} finally {
-		removePool ();
-		loopCount--;
-		if (sendEventCount == 0 && loopCount == poolCount && Callback.getEntryCount () == 0) addPool ();
+		if (monitor != null) monitor.end (EventLoopMonitor.DISPATCH, null);
 	}
-	return events;
 }
 
 static void register (Display display) {
@@ -4072,6 +4141,7 @@ protected void release () {
 		}
 		disposeList = null;
 
+		if (monitor != null) monitor.release ();
 		synchronizer.releaseSynchronizer ();
 		synchronizer = null;
 
@@ -4370,45 +4440,55 @@ boolean runContexts () {
 }
 
 boolean runDeferredEvents () {
+	if (eventQueue == null) return false;
 	boolean run = false;
-	/*
-	* Run deferred events.  This code is always
-	* called  in the Display's thread so it must
-	* be re-enterant need not be synchronized.
-	*/
-	while (eventQueue != null) {
-
-		/* Take an event off the queue */
-		Event event = eventQueue [0];
-		if (event == null) break;
-		int length = eventQueue.length;
-		System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
-		eventQueue [length] = null;
-
-		/* Run the event */
-		Widget widget = event.widget;
-		if (widget != null && !widget.isDisposed ()) {
-			Widget item = event.item;
-			if (item == null || !item.isDisposed ()) {
-				run = true;
-				widget.notifyListeners (event.type, event);
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_EVENTS);
+	try {
+		/*
+		* Run deferred events.  This code is always
+		* called  in the Display's thread so it must
+		* be re-enterant need not be synchronized.
+		*/
+		while (eventQueue != null) {
+
+			/* Take an event off the queue */
+			Event event = eventQueue [0];
+			if (event == null) break;
+			int length = eventQueue.length;
+			System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
+			eventQueue [length] = null;
+
+			/* Run the event */
+			Widget widget = event.widget;
+			if (widget != null && !widget.isDisposed ()) {
+				Widget item = event.item;
+				if (item == null || !item.isDisposed ()) {
+					run = true;
+					widget.notifyListeners (event.type, event);
+				}
 			}
+
+			/*
+			* At this point, the event queue could
+			* be null due to a recursive invokation
+			* when running the event.
+			*/
 		}
 
-		/*
-		* At this point, the event queue could
-		* be null due to a recursive invokation
-		* when running the event.
-		*/
+		/* Clear the queue */
+		eventQueue = null;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_EVENTS, null);
 	}
-
-	/* Clear the queue */
-	eventQueue = null;
 	return run;
 }
 
 boolean runDeferredLayouts () {
-	if (layoutDeferredCount != 0) {
+	if (layoutDeferredCount == 0) return false;
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_LAYOUTS);
+	try {
 		Composite[] temp = layoutDeferred;
 		int count = layoutDeferredCount;
 		layoutDeferred = null;
@@ -4417,9 +4497,10 @@ boolean runDeferredLayouts () {
 			Composite comp = temp[i];
 			if (!comp.isDisposed()) comp.setLayoutDeferred (false);
 		}
-		return true;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_LAYOUTS, null);
 	}
-	return false;
+	return true;
 }
 
 NSArray runLoopModes() {
@@ -4579,7 +4660,13 @@ boolean runTimers () {
 			timerList [i] = null;
 			if (runnable != null) {
 				result = true;
-				runnable.run ();
+				EventLoopMonitor monitor = this.monitor;
+				if (monitor != null) monitor.begin (EventLoopMonitor.TIMER_EXEC);
+				try {
+					runnable.run ();
+				} finally {
+					if (monitor != null) monitor.end (EventLoopMonitor.TIMER_EXEC, runnable);
+				}
 			}
 		}
 	}
@@ -4649,6 +4736,7 @@ public void sendPreExternalEventDispatchEvent () {
 	if (eventTable != null && eventTable.hooks (SWT.PreExternalEventDispatch)) {
 		sendEvent (SWT.PreExternalEventDispatch, null);
 	}
+	if (monitor != null) monitor.beginWait ();
 }
 
 /**
@@ -4657,6 +4745,7 @@ public void sendPreExternalEventDispatchEvent () {
  * @noreference This method is not intended to be referenced by clients.
  */
 public void sendPostExternalEventDispatchEvent () {
+	if (monitor != null) monitor.endWait ();
 	if (eventTable != null && eventTable.hooks (SWT.PostExternalEventDispatch)) {
 		sendEvent (SWT.PostExternalEventDispatch, null);
 	}
@@ -5353,12 +5442,16 @@ long timerProc (long id, long sel, long timerID) {
 				timerList [index] = null;
 				nsTimers [index] = null;
 				if (runnable != null) {
+					EventLoopMonitor monitor = this.monitor;
+					if (monitor != null) monitor.begin (EventLoopMonitor.TIMER_EXEC);
 					try {
 						runnable.run ();
 					} catch (RuntimeException exception) {
 						runtimeExceptionHandler.accept (exception);
 					} catch (Error exception) {
 						errorHandler.accept (exception);
+					} finally {
+						if (monitor != null) monitor.end (EventLoopMonitor.TIMER_EXEC, runnable);
 					}
 				}
 			} else {
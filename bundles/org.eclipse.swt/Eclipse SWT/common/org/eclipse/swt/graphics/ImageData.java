@@ -1902,6 +1902,13 @@ static void blit(int op,
 		(srcRedMask == destRedMask) && (srcGreenMask == destGreenMask) &&
 		(srcBlueMask == destBlueMask) && (srcAlphaMask == destAlphaMask)) {
 		/*** Fast blit (straight copy) ***/
+		if (srcWidth == destWidth && srcHeight == destHeight && !flipX) {
+			final int length = destWidth * sbpp;
+			for (int dy = destHeight; dy > 0; --dy, sp = spr += srcStride, dp = dpr += dpryi) {
+				System.arraycopy(srcData, sp, destData, dp, length);
+			}
+			return;
+		}
 		switch (sbpp) {
 			case 1:
 				for (int dy = destHeight, sfy = sfyi; dy > 0; --dy, sp = spr += (sfy >>> 16) * srcStride, sfy = (sfy & 0xffff) + sfyi, dp = dpr += dpryi) {
@@ -1974,6 +1981,40 @@ static void blit(int op,
 			return;
 		}
 	}
+	/*** Fast blit (byte shuffle) ***/
+	if (alphaMode == 0x10000 && sbpp >= 3 && dbpp >= 3) {
+		final int sr = getChannelByte(srcRedMask, srcDepth, srcOrder);
+		final int sg = getChannelByte(srcGreenMask, srcDepth, srcOrder);
+		final int sb = getChannelByte(srcBlueMask, srcDepth, srcOrder);
+		final int dr = getChannelByte(destRedMask, destDepth, destOrder);
+		final int dg = getChannelByte(destGreenMask, destDepth, destOrder);
+		final int db = getChannelByte(destBlueMask, destDepth, destOrder);
+		if (sr != -1 && sg != -1 && sb != -1 && dr != -1 && dg != -1 && db != -1 && dr != dg && dr != db && dg != db) {
+			// the unused byte of a 32 bit destination pixel is cleared
+			final int dz = (dbpp == 4) ? 6 - dr - dg - db : -1;
+			if (srcWidth == destWidth && srcHeight == destHeight) {
+				for (int dy = destHeight; dy > 0; --dy, sp = spr += srcStride, dp = dpr += dpryi) {
+					for (int dx = destWidth; dx > 0; --dx, sp += sbpp, dp += dprxi) {
+						destData[dp + dr] = srcData[sp + sr];
+						destData[dp + dg] = srcData[sp + sg];
+						destData[dp + db] = srcData[sp + sb];
+						if (dz != -1) destData[dp + dz] = 0;
+					}
+				}
+			} else {
+				for (int dy = destHeight, sfy = sfyi; dy > 0; --dy, sp = spr += (sfy >>> 16) * srcStride, sfy = (sfy & 0xffff) + sfyi, dp = dpr += dpryi) {
+					for (int dx = destWidth, sfx = sfxi; dx > 0; --dx, dp += dprxi, sfx = (sfx & 0xffff) + sfxi) {
+						destData[dp + dr] = srcData[sp + sr];
+						destData[dp + dg] = srcData[sp + sg];
+						destData[dp + db] = srcData[sp + sb];
+						if (dz != -1) destData[dp + dz] = 0;
+						sp += (sfx >>> 16) * sbpp;
+					}
+				}
+			}
+			return;
+		}
+	}
 
 	/*** Comprehensive blit (apply transformations) ***/
 	final int srcRedShift = getChannelShift(srcRedMask);
@@ -3487,6 +3528,27 @@ static int getChannelWidth(int mask, int shift) {
 	return i - shift;
 }
 
+/**
+ * Computes the offset of the byte holding a channel within a
+ * 24 or 32 bit pixel, or -1 if the channel does not occupy
+ * exactly one byte.
+ */
+static int getChannelByte(int mask, int depth, int order) {
+	final int index;
+	switch (mask) {
+		case 0xFF: index = 0; break;
+		case 0xFF00: index = 1; break;
+		case 0xFF0000: index = 2; break;
+		case 0xFF000000: index = 3; break;
+		default: return -1;
+	}
+	switch (depth) {
+		case 24: return index < 3 ? 2 - index : -1;
+		case 32: return order == MSB_FIRST ? 3 - index : index;
+	}
+	return -1;
+}
+
 /**
  * Extracts a field from packed RGB data given a mask for that field.
  */
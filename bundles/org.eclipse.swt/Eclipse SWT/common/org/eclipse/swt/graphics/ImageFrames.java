@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.graphics;
+
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.internal.image.*;
+
+/**
+ * Instances of this class give access to the images of a file
+ * or stream one at a time. They are created by the
+ * <code>loadFrames</code> methods of <code>ImageLoader</code>.
+ * <p>
+ * The frames of an animated GIF are decoded when they are asked
+ * for, and only the most recently used ones are kept, so the memory
+ * needed for an animation does not grow with its number of frames.
+ * The pages of a TIFF are indexed when the instance is created and
+ * each page is decoded when it is asked for. The images of other
+ * formats are decoded when the instance is created, like
+ * <code>ImageLoader.load</code> does.
+ * </p><p>
+ * Every call to <code>getFrame</code> answers a new image data, which
+ * the caller may modify. Instances must be closed when they are no longer
+ * needed. An instance created from the name of a TIFF file keeps the file
+ * open until then.
+ * </p>
+ *
+ * @see ImageLoader#loadFrames(InputStream)
+ * @see ImageLoader#loadFrames(String)
+ * @since 3.120
+ */
+public final class ImageFrames implements AutoCloseable {
+	GIFFrameLoader gifLoader;
+	TIFFPageLoader tiffLoader;
+	ImageData[] data;
+	boolean closed;
+	int logicalScreenWidth, logicalScreenHeight, backgroundPixel, repeatCount;
+
+ImageFrames(GIFFrameLoader gifLoader) {
+	this.gifLoader = gifLoader;
+	logicalScreenWidth = gifLoader.getLogicalScreenWidth();
+	logicalScreenHeight = gifLoader.getLogicalScreenHeight();
+	backgroundPixel = gifLoader.getBackgroundPixel();
+	repeatCount = gifLoader.getRepeatCount();
+}
+
+ImageFrames(TIFFPageLoader tiffLoader, ImageLoader loader) {
+	this.tiffLoader = tiffLoader;
+	tiffLoader.parallel = loader.parallel;
+	backgroundPixel = -1;
+	repeatCount = 1;
+}
+
+ImageFrames(ImageData[] data, ImageLoader loader) {
+	this.data = data;
+	logicalScreenWidth = loader.logicalScreenWidth;
+	logicalScreenHeight = loader.logicalScreenHeight;
+	backgroundPixel = loader.backgroundPixel;
+	repeatCount = loader.repeatCount;
+}
+
+/**
+ * Reads the start of the stream and answers the frames of the
+ * image it contains. The stream is not closed.
+ */
+static ImageFrames load(InputStream stream, ImageLoader loader) {
+	BufferedInputStream input = new BufferedInputStream(stream);
+	byte[] header = null;
+	try {
+		input.mark(FileFormat.HEADER_LENGTH);
+		header = readHeader(input);
+		input.reset();
+	} catch (IOException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	if (GIFFrameLoader.isFileFormat(header)) {
+		return new ImageFrames(new GIFFrameLoader(input));
+	}
+	if (TIFFPageLoader.isFileFormat(header)) {
+		return new ImageFrames(new TIFFPageLoader(input), loader);
+	}
+	return new ImageFrames(loader.load(input), loader);
+}
+
+/**
+ * Answers the frames of the image in the file with the given name.
+ */
+static ImageFrames load(String filename, ImageLoader loader) {
+	try (InputStream stream = new BufferedInputStream(Files.newInputStream(Paths.get(filename)))) {
+		stream.mark(FileFormat.HEADER_LENGTH);
+		byte[] header = readHeader(stream);
+		stream.reset();
+		if (GIFFrameLoader.isFileFormat(header)) return new ImageFrames(new GIFFrameLoader(stream));
+		/* The pages are read from the file in place */
+		if (TIFFPageLoader.isFileFormat(header)) return new ImageFrames(new TIFFPageLoader(filename), loader);
+	} catch (IOException | InvalidPathException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	return new ImageFrames(loader.load(filename), loader);
+}
+
+/**
+ * Reads up to <code>FileFormat.HEADER_LENGTH</code> bytes from the
+ * start of the stream.
+ */
+static byte[] readHeader(InputStream stream) throws IOException {
+	byte[] header = new byte[FileFormat.HEADER_LENGTH];
+	int count = 0;
+	while (count < header.length) {
+		int read = stream.read(header, count, header.length - count);
+		if (read <= 0) break;
+		count += read;
+	}
+	return count < header.length ? Arrays.copyOf(header, count) : header;
+}
+
+void checkOpen() {
+	if (closed) SWT.error(SWT.ERROR_IO);
+}
+
+/**
+ * Returns the number of frames.
+ *
+ * @return the number of frames
+ *
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if the receiver has been closed</li>
+ * </ul>
+ */
+public int getFrameCount() {
+	checkOpen();
+	if (gifLoader != null) return gifLoader.getFrameCount();
+	if (tiffLoader != null) return tiffLoader.getPageCount();
+	return data.length;
+}
+
+/**
+ * Returns a new image data that holds the frame at the given index.
+ *
+ * @param index the index of the frame
+ * @return the frame
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_RANGE - if the index is not between 0 and the number of frames - 1</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading the frame, or if the receiver has been closed</li>
+ *    <li>ERROR_INVALID_IMAGE - if the frame could not be decoded</li>
+ * </ul>
+ */
+public ImageData getFrame(int index) {
+	checkOpen();
+	if (gifLoader != null) return gifLoader.getFrame(index);
+	if (tiffLoader != null) return tiffLoader.getPage(index);
+	if (index < 0 || index >= data.length) SWT.error(SWT.ERROR_INVALID_RANGE);
+	return (ImageData) data[index].clone();
+}
+
+/**
+ * Returns the width of the logical screen the frames are drawn on.
+ *
+ * @return the width of the logical screen
+ *
+ * @see ImageLoader#logicalScreenWidth
+ */
+public int getLogicalScreenWidth() {
+	return logicalScreenWidth;
+}
+
+/**
+ * Returns the height of the logical screen the frames are drawn on.
+ *
+ * @return the height of the logical screen
+ *
+ * @see ImageLoader#logicalScreenHeight
+ */
+public int getLogicalScreenHeight() {
+	return logicalScreenHeight;
+}
+
+/**
+ * Returns the background pixel of the logical screen, or -1.
+ *
+ * @return the background pixel
+ *
+ * @see ImageLoader#backgroundPixel
+ */
+public int getBackgroundPixel() {
+	return backgroundPixel;
+}
+
+/**
+ * Returns the number of times the animation repeats, 0 means forever.
+ *
+ * @return the number of repeats
+ *
+ * @see ImageLoader#repeatCount
+ */
+public int getRepeatCount() {
+	return repeatCount;
+}
+
+/**
+ * Releases the frames and closes the file they are read from. The
+ * frames can no longer be read afterwards. Closing the receiver
+ * again has no effect.
+ */
+@Override
+public void close() {
+	if (tiffLoader != null) tiffLoader.close();
+	closed = true;
+	gifLoader = null;
+	tiffLoader = null;
+	data = null;
+}
+}
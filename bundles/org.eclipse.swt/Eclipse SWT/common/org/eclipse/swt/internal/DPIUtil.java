@@ -15,6 +15,7 @@ package org.eclipse.swt.internal;
 
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
+import org.eclipse.swt.internal.image.*;
 
 /**
  * This class hold common constants and utility functions w.r.t. to SWT high DPI
@@ -74,8 +75,8 @@ public class DPIUtil {
 	 * </ul>
 	 * The current default is to use "nearest", except on
 	 * GTK when the deviceZoom is not an integer multiple of 100%.
-	 * The smooth strategy currently doesn't work on Win32 and Cocoa, see
-	 * <a href="https://bugs.eclipse.org/493455">bug 493455</a>.
+	 * The smooth strategy resamples the image data in Java with a
+	 * bilinear filter, it doesn't need a device.
 	 */
 	private static final String SWT_AUTOSCALE_METHOD = "swt.autoScale.method";
 	static {
@@ -221,6 +222,17 @@ public static ImageData autoScaleImageData (Device device, final ImageData image
 	return autoScaleImageData(device, imageData, scaleFactor);
 }
 
+/**
+ * Auto-scale the image data of an ImageDataProvider or ImageFileNameProvider.
+ * The result is cached per provider, zoom and scale method in the default
+ * {@link ImageDataCache}, as long as the provider answers the same image data.
+ */
+public static ImageData autoScaleImageData (Device device, Object provider, final ImageData imageData, int targetZoom, int currentZoom) {
+	if (imageData == null || targetZoom == currentZoom || (device != null && !device.isAutoScalable())) return imageData;
+	int method = autoScaleMethod.ordinal ();
+	return ImageDataCache.getDefault ().get (provider, imageData, targetZoom, currentZoom, method, () -> autoScaleImageData (device, imageData, targetZoom, currentZoom));
+}
+
 private static ImageData autoScaleImageData (Device device, final ImageData imageData, float scaleFactor) {
 	// Guards are already implemented in callers: if (deviceZoom == 100 || imageData == null || scaleFactor == 1.0f) return imageData;
 	int width = imageData.width;
@@ -229,25 +241,7 @@ private static ImageData autoScaleImageData (Device device, final ImageData imag
 	int scaledHeight = Math.round ((float) height * scaleFactor);
 	switch (autoScaleMethod) {
 	case SMOOTH:
-		Image original = new Image (device, (ImageDataProvider) zoom -> imageData);
-
-		/* Create a 24 bit image data with alpha channel */
-		final ImageData resultData = new ImageData (scaledWidth, scaledHeight, 24, new PaletteData (0xFF, 0xFF00, 0xFF0000));
-		resultData.alphaData = new byte [scaledWidth * scaledHeight];
-
-		Image resultImage = new Image (device, (ImageDataProvider) zoom -> resultData);
-		GC gc = new GC (resultImage);
-		gc.setAntialias (SWT.ON);
-		gc.drawImage (original, 0, 0, DPIUtil.autoScaleDown (width), DPIUtil.autoScaleDown (height),
-				/* E.g. destWidth here is effectively DPIUtil.autoScaleDown (scaledWidth), but avoiding rounding errors.
-				 * Nevertheless, we still have some rounding errors due to the point-based API GC#drawImage(..).
-				 */
-				0, 0, Math.round (DPIUtil.autoScaleDown ((float) width * scaleFactor)), Math.round (DPIUtil.autoScaleDown ((float) height * scaleFactor)));
-		gc.dispose ();
-		original.dispose ();
-		ImageData result = resultImage.getImageData (DPIUtil.getDeviceZoom ());
-		resultImage.dispose ();
-		return result;
+		return ImageResampler.resample (imageData, Math.max (scaledWidth, 1), Math.max (scaledHeight, 1), ImageResampler.BILINEAR);
 	case NEAREST:
 	default:
 		return imageData.scaledTo (scaledWidth, scaledHeight);
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.internal;
+
+import java.lang.ref.*;
+import java.nio.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.eclipse.swt.graphics.*;
+
+/**
+ * A bounded cache of auto-scaled image data.
+ * <p>
+ * Entries are keyed by the provider the image data came from (an
+ * <code>ImageDataProvider</code> or <code>ImageFileNameProvider</code>),
+ * the target and source zoom and the scale method. Providers are held
+ * weakly, so the entries of a provider go away with it. When the total
+ * size of the cached pixel data exceeds the budget, the least recently
+ * used entries are evicted.
+ * </p><p>
+ * Each entry also holds a fingerprint of the source image data it was
+ * scaled from. A provider that answers different source data, for
+ * example a file that changed on disk, misses the cache instead of
+ * getting the image data scaled from its previous source data. A
+ * provider that answers the very same image data object again is taken
+ * to answer the same pixels, its hits skip the fingerprint.
+ * </p><p>
+ * Image data is mutable, so the cache stores its own copy and every
+ * call returns a fresh copy.
+ * </p>
+ */
+public final class ImageDataCache {
+
+	/**
+	 * System property that sets the budget of the default cache in bytes
+	 * of pixel, mask and alpha data. A value of 0 disables the cache.
+	 */
+	static final String BUDGET_PROPERTY = "org.eclipse.swt.internal.ImageDataCache.budget"; //$NON-NLS-1$
+	static final long DEFAULT_BUDGET = 16 * 1024 * 1024;
+
+	private static final ImageDataCache DEFAULT = new ImageDataCache(Long.getLong(BUDGET_PROPERTY, DEFAULT_BUDGET));
+
+	static final class Key extends WeakReference<Object> {
+		final int hash, targetZoom, sourceZoom, method;
+
+		Key(Object provider, int targetZoom, int sourceZoom, int method, ReferenceQueue<Object> queue) {
+			super(provider, queue);
+			this.targetZoom = targetZoom;
+			this.sourceZoom = sourceZoom;
+			this.method = method;
+			this.hash = ((System.identityHashCode(provider) * 31 + targetZoom) * 31 + sourceZoom) * 31 + method;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) return true;
+			if (!(object instanceof Key)) return false;
+			Key key = (Key) object;
+			Object provider = get();
+			return provider != null && provider == key.get() && targetZoom == key.targetZoom && sourceZoom == key.sourceZoom && method == key.method;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	static final class Entry {
+		final ImageData data;
+		final long source;
+		/* The source image data, to recognize it without its fingerprint */
+		final Reference<ImageData> sourceData;
+
+		Entry(ImageData data, long source, ImageData sourceData) {
+			this.data = data;
+			this.source = source;
+			this.sourceData = new WeakReference<>(sourceData);
+		}
+	}
+
+	final long budget;
+	final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+	final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	long size, hits, misses, evictions;
+
+/**
+ * Creates a cache that holds at most <code>budget</code> bytes of
+ * image data.
+ *
+ * @param budget the budget in bytes, 0 disables caching
+ */
+public ImageDataCache(long budget) {
+	this.budget = budget;
+}
+
+/**
+ * Returns the cache used by <code>DPIUtil</code>.
+ */
+public static ImageDataCache getDefault() {
+	return DEFAULT;
+}
+
+/**
+ * Returns a copy of the cached image data of the provider at the given
+ * zooms and scale method, if it was scaled from the same source image
+ * data. Otherwise the image data is computed by <code>scale</code> and
+ * cached.
+ *
+ * @param provider the provider of the source image data, or <code>null</code> to bypass the cache
+ * @param source the source image data that <code>scale</code> scales
+ * @param targetZoom the zoom of the result
+ * @param sourceZoom the zoom of the source image data
+ * @param method the scale method
+ * @param scale computes the scaled image data
+ * @return the scaled image data
+ */
+public ImageData get(Object provider, ImageData source, int targetZoom, int sourceZoom, int method, Supplier<ImageData> scale) {
+	if (provider == null || source == null || budget <= 0) return scale.get();
+	Entry entry;
+	synchronized (this) {
+		expungeStaleEntries();
+		entry = entries.get(new Key(provider, targetZoom, sourceZoom, method, null));
+	}
+	/* The data of an entry is never modified, it is copied outside of the lock */
+	if (entry != null && entry.sourceData.get() == source) return hit(entry);
+	long fingerprint = fingerprint(source);
+	if (entry != null && entry.source == fingerprint) return hit(entry);
+	synchronized (this) {
+		misses++;
+	}
+	/* Scale outside of the lock, concurrent misses for the same key are harmless */
+	ImageData data = scale.get();
+	if (data == null) return null;
+	long dataSize = sizeOf(data);
+	if (dataSize <= budget) {
+		synchronized (this) {
+			Entry previous = entries.put(new Key(provider, targetZoom, sourceZoom, method, queue), new Entry((ImageData) data.clone(), fingerprint, source));
+			size += dataSize;
+			if (previous != null) size -= sizeOf(previous.data);
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (size > budget && iterator.hasNext()) {
+				size -= sizeOf(iterator.next().data);
+				iterator.remove();
+				evictions++;
+			}
+		}
+	}
+	return data;
+}
+
+ImageData hit(Entry entry) {
+	synchronized (this) {
+		hits++;
+	}
+	return (ImageData) entry.data.clone();
+}
+
+void expungeStaleEntries() {
+	Reference<?> reference;
+	while ((reference = queue.poll()) != null) {
+		Entry entry = entries.remove(reference);
+		if (entry != null) size -= sizeOf(entry.data);
+	}
+}
+
+/**
+ * Returns a hash of the size, palette, transparency and pixel data of
+ * the image data.
+ */
+static long fingerprint(ImageData data) {
+	long hash = ((((long) data.width * 31 + data.height) * 31 + data.depth) * 31 + data.bytesPerLine) * 31 + data.transparentPixel;
+	hash = hash * 31 + data.alpha;
+	PaletteData palette = data.palette;
+	if (palette.isDirect) {
+		hash = ((hash * 31 + palette.redMask) * 31 + palette.greenMask) * 31 + palette.blueMask;
+	} else {
+		hash = hash * 31 + Arrays.hashCode(palette.colors);
+	}
+	hash = fingerprint(hash, data.data);
+	hash = fingerprint(hash, data.alphaData);
+	return fingerprint(hash, data.maskData);
+}
+
+static long fingerprint(long hash, byte[] bytes) {
+	if (bytes == null) return hash * 31;
+	/*
+	 * Eight bytes at a time. Every step is a bijection of the hash, so
+	 * image data that differs in a single word has a different fingerprint.
+	 */
+	hash ^= 0xcbf29ce484222325L;
+	ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	int words = bytes.length >>> 3;
+	for (int i = 0; i < words; i++) {
+		hash = Long.rotateLeft((hash ^ buffer.getLong(i << 3)) * 0x9e3779b97f4a7c15L, 29);
+	}
+	for (int i = words << 3; i < bytes.length; i++) {
+		hash = Long.rotateLeft((hash ^ (bytes[i] & 0xFF)) * 0x9e3779b97f4a7c15L, 29);
+	}
+	return hash * 31 + bytes.length;
+}
+
+static long sizeOf(ImageData data) {
+	long size = data.data.length;
+	if (data.alphaData != null) size += data.alphaData.length;
+	if (data.maskData != null) size += data.maskData.length;
+	return size;
+}
+
+/**
+ * Removes all entries. The statistics are not reset.
+ */
+public synchronized void clear() {
+	entries.clear();
+	size = 0;
+}
+
+/**
+ * Returns the budget of the cache in bytes.
+ */
+public long getBudget() {
+	return budget;
+}
+
+/**
+ * Returns the number of bytes of image data currently cached.
+ */
+public synchronized long getSize() {
+	expungeStaleEntries();
+	return size;
+}
+
+/**
+ * Returns the number of requests that were answered from the cache.
+ */
+public synchronized long getHits() {
+	return hits;
+}
+
+/**
+ * Returns the number of requests that had to scale the image data.
+ */
+public synchronized long getMisses() {
+	return misses;
+}
+
+/**
+ * Returns the number of entries that were evicted to stay within the budget.
+ */
+public synchronized long getEvictions() {
+	return evictions;
+}
+}
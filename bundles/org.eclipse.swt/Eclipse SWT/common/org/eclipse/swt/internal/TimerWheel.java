@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.internal;
+
+import java.util.*;
+
+import org.eclipse.swt.*;
+
+/**
+ * A hashed timer wheel that multiplexes the timers of a display onto
+ * a single platform timer.
+ * <p>
+ * Time is divided into ticks. A timer is kept in the slot of the tick
+ * it is due in, modulo the number of slots, so scheduling and canceling
+ * a timer takes constant time. Timers that are due in the same tick
+ * expire together, so a tick longer than one millisecond coalesces
+ * timers that are due close to each other into one wake up.
+ * </p><p>
+ * Timers are identified by their runnable, like in
+ * <code>Display.timerExec</code>. The caller asks for the delay of the
+ * next timer with {@link #getDelay(long)}, arms a platform timer for it,
+ * and when that timer fires calls {@link #advance(long)} and runs the
+ * runnables answered by {@link #poll()}. This class is not thread safe.
+ * </p>
+ */
+public final class TimerWheel {
+
+	/**
+	 * System property that sets the length of a tick in milliseconds.
+	 * Timers are never run early, so a longer tick delays a timer by
+	 * up to one tick to run it together with the others of the tick.
+	 */
+	public static final String TICK_PROPERTY = "org.eclipse.swt.internal.TimerWheel.tick"; //$NON-NLS-1$
+	static final int DEFAULT_TICK = 1;
+	static final int DEFAULT_SLOTS = 512;
+
+	static final int SCHEDULED = 0, DUE = 1, CANCELED = 2;
+
+	static final class Timer {
+		final Runnable runnable;
+		final long deadline, sequence;
+		Timer previous, next;
+		int state;
+
+		Timer(Runnable runnable, long deadline, long sequence) {
+			this.runnable = runnable;
+			this.deadline = deadline;
+			this.sequence = sequence;
+		}
+	}
+
+	final int tickMillis;
+	final Timer[] heads, tails;
+	final int mask;
+	final IdentityHashMap<Runnable, Timer> timers = new IdentityHashMap<>();
+	final ArrayDeque<Timer> due = new ArrayDeque<>();
+	/* Timers that were scheduled in a tick that has already expired */
+	final ArrayDeque<Timer> late = new ArrayDeque<>();
+	int dueCount, scheduledCount;
+	/* The last tick that expired and a lower bound of the next deadline */
+	long currentTick, nextTick = Long.MAX_VALUE;
+	long sequence;
+
+/**
+ * Creates a timer wheel with the tick given by the system property
+ * {@link #TICK_PROPERTY}.
+ *
+ * @param nowMillis the current time in milliseconds
+ */
+public TimerWheel(long nowMillis) {
+	this(nowMillis, Math.max(1, Integer.getInteger(TICK_PROPERTY, DEFAULT_TICK).intValue()), DEFAULT_SLOTS);
+}
+
+/**
+ * Creates a timer wheel.
+ *
+ * @param nowMillis the current time in milliseconds
+ * @param tickMillis the length of a tick in milliseconds
+ * @param slots the number of slots, a power of two
+ */
+public TimerWheel(long nowMillis, int tickMillis, int slots) {
+	if (tickMillis < 1 || slots < 1 || (slots & (slots - 1)) != 0) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+	this.tickMillis = tickMillis;
+	heads = new Timer[slots];
+	tails = new Timer[slots];
+	mask = slots - 1;
+	currentTick = Math.floorDiv(nowMillis, tickMillis);
+}
+
+/**
+ * Schedules the runnable to run at the given time. A timer of the
+ * runnable that has not run yet is canceled. A timer that is due in
+ * a tick that has already expired is due at once, its runnable is
+ * answered by {@link #poll()} after the next {@link #advance(long)}.
+ *
+ * @param runnable the runnable
+ * @param dueMillis the time in milliseconds at which the runnable is due
+ */
+public void schedule(Runnable runnable, long dueMillis) {
+	cancel(runnable);
+	/* Round up to the tick of the due time */
+	long deadline = -Math.floorDiv(-dueMillis, tickMillis);
+	Timer timer = new Timer(runnable, deadline, sequence++);
+	timers.put(runnable, timer);
+	if (deadline <= currentTick) {
+		/* The tick has already expired and is not visited again */
+		timer.state = DUE;
+		late.add(timer);
+		dueCount++;
+		return;
+	}
+	int slot = (int) (deadline & mask);
+	if (tails[slot] == null) {
+		heads[slot] = timer;
+	} else {
+		tails[slot].next = timer;
+		timer.previous = tails[slot];
+	}
+	tails[slot] = timer;
+	scheduledCount++;
+	if (deadline < nextTick) nextTick = deadline;
+}
+
+/**
+ * Cancels the timer of the runnable.
+ *
+ * @param runnable the runnable
+ * @return <code>true</code> if the runnable had a timer that has not run yet
+ */
+public boolean cancel(Runnable runnable) {
+	Timer timer = timers.remove(runnable);
+	if (timer == null) return false;
+	if (timer.state == DUE) {
+		/* The timer is skipped by poll() */
+		timer.state = CANCELED;
+		dueCount--;
+	} else {
+		unlink(timer);
+	}
+	return true;
+}
+
+void unlink(Timer timer) {
+	int slot = (int) (timer.deadline & mask);
+	if (timer.previous == null) {
+		heads[slot] = timer.next;
+	} else {
+		timer.previous.next = timer.next;
+	}
+	if (timer.next == null) {
+		tails[slot] = timer.previous;
+	} else {
+		timer.next.previous = timer.previous;
+	}
+	timer.previous = timer.next = null;
+	scheduledCount--;
+}
+
+/**
+ * Expires the timers that are due at the given time. Their runnables
+ * are answered by {@link #poll()} in the order of their due times.
+ *
+ * @param nowMillis the current time in milliseconds
+ */
+public void advance(long nowMillis) {
+	long nowTick = Math.floorDiv(nowMillis, tickMillis);
+	/* Late timers are due in a tick before the ones that expire now */
+	due.addAll(late);
+	late.clear();
+	if (nowTick <= currentTick) return;
+	List<Timer> expired = new ArrayList<>();
+	long ticks = Math.min(nowTick - currentTick, heads.length);
+	for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+		Timer timer = heads[(int) (tick & mask)];
+		while (timer != null) {
+			Timer next = timer.next;
+			if (timer.deadline <= nowTick) {
+				unlink(timer);
+				expired.add(timer);
+			}
+			timer = next;
+		}
+	}
+	/* Slots hold timers of several turns of the wheel, restore the order of their deadlines */
+	expired.sort((timer1, timer2) -> {
+		int result = Long.compare(timer1.deadline, timer2.deadline);
+		return result != 0 ? result : Long.compare(timer1.sequence, timer2.sequence);
+	});
+	for (Timer timer : expired) {
+		timer.state = DUE;
+		due.add(timer);
+	}
+	dueCount += expired.size();
+	currentTick = nowTick;
+	nextTick = findNextTick();
+}
+
+long findNextTick() {
+	if (scheduledCount == 0) return Long.MAX_VALUE;
+	for (long tick = currentTick + 1; tick <= currentTick + heads.length; tick++) {
+		for (Timer timer = heads[(int) (tick & mask)]; timer != null; timer = timer.next) {
+			if (timer.deadline == tick) return tick;
+		}
+	}
+	/* No timer is due within a turn of the wheel */
+	long result = Long.MAX_VALUE;
+	for (Timer timer : timers.values()) {
+		if (timer.state == SCHEDULED) result = Math.min(result, timer.deadline);
+	}
+	return result;
+}
+
+/**
+ * Removes and returns the runnable of the next timer that has expired.
+ *
+ * @return the runnable or <code>null</code> if no timer has expired
+ */
+public Runnable poll() {
+	Timer timer;
+	while ((timer = due.poll()) != null) {
+		if (timer.state == DUE) {
+			timers.remove(timer.runnable);
+			dueCount--;
+			return timer.runnable;
+		}
+	}
+	return null;
+}
+
+/**
+ * Returns the number of milliseconds until the next timer is due.
+ * The answer is 0 if a timer has expired and not been polled, and
+ * it may be early when the earliest timer has been canceled.
+ *
+ * @param nowMillis the current time in milliseconds
+ * @return the delay in milliseconds or -1 if there are no timers
+ */
+public int getDelay(long nowMillis) {
+	if (dueCount > 0) return 0;
+	if (scheduledCount == 0) return -1;
+	long delay = nextTick * tickMillis - nowMillis;
+	return (int) Math.max(0, Math.min(delay, Integer.MAX_VALUE));
+}
+
+/**
+ * Returns the number of timers that have not run yet.
+ */
+public int size() {
+	return timers.size();
+}
+}
@@ -15,6 +15,12 @@ package org.eclipse.swt.internal.image;
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
@@ -29,23 +35,152 @@ public abstract class FileFormat {
 	static final String FORMAT_SUFFIX = "FileFormat"; //$NON-NLS-1$
 	static final String[] FORMATS = {"WinBMP", "WinBMP", "GIF", "WinICO", "JPEG", "PNG", "TIFF", "OS2BMP"}; //$NON-NLS-1$//$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$//$NON-NLS-5$ //$NON-NLS-6$//$NON-NLS-7$//$NON-NLS-8$
 
+	/* Number of bytes at the start of a stream that are given to the signatures */
+	public static final int HEADER_LENGTH = 32;
+
+	/* Registered formats in the order in which their signatures are tested */
+	static final List<Registration> REGISTRY = new CopyOnWriteArrayList<>(Arrays.asList(
+		new Registration(WinBMPFileFormat::isFileFormat, WinBMPFileFormat::new),
+		new Registration(GIFFileFormat::isFileFormat, GIFFileFormat::new),
+		new Registration(WinICOFileFormat::isFileFormat, WinICOFileFormat::new),
+		new Registration(JPEGFileFormat::isFileFormat, JPEGFileFormat::new),
+		new Registration(PNGFileFormat::isFileFormat, PNGFileFormat::new),
+		new Registration(TIFFFileFormat::isFileFormat, TIFFFileFormat::new),
+		new Registration(OS2BMPFileFormat::isFileFormat, OS2BMPFileFormat::new)));
+
 	LEDataInputStream inputStream;
 	LEDataOutputStream outputStream;
 	ImageLoader loader;
 	int compression;
 
-static FileFormat getFileFormat (LEDataInputStream stream, String format) throws Exception {
-	Class<?> clazz = Class.forName(FORMAT_PACKAGE + '.' + format + FORMAT_SUFFIX);
-	FileFormat fileFormat = (FileFormat) clazz.getDeclaredConstructor().newInstance();
-	if (fileFormat.isFileFormat(stream)) return fileFormat;
-	return null;
+static final class Registration {
+	final Predicate<byte[]> signature;
+	final Supplier<? extends FileFormat> factory;
+	/* The decoder of a format registered by an application, or null for a built-in format */
+	final BiFunction<InputStream, ImageLoader, ImageData[]> decoder;
+
+	Registration(Predicate<byte[]> signature, Supplier<? extends FileFormat> factory) {
+		this.signature = signature;
+		this.factory = factory;
+		this.decoder = null;
+	}
+
+	Registration(Predicate<byte[]> signature, BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+		this.signature = signature;
+		this.factory = () -> new ExternalFileFormat(decoder);
+		this.decoder = decoder;
+	}
 }
 
 /**
- * Return whether or not the specified input stream
- * represents a supported file format.
+ * A format registered by an application, which decodes the stream
+ * with the given function and cannot be saved.
  */
-abstract boolean isFileFormat(LEDataInputStream stream);
+static final class ExternalFileFormat extends FileFormat {
+	final BiFunction<InputStream, ImageLoader, ImageData[]> decoder;
+
+	ExternalFileFormat(BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+		this.decoder = decoder;
+	}
+
+	@Override
+	ImageData[] loadFromByteStream() {
+		ImageData[] data = decoder.apply(inputStream, loader);
+		if (data == null || data.length == 0) SWT.error(SWT.ERROR_INVALID_IMAGE);
+		return data;
+	}
+
+	@Override
+	void unloadIntoByteStream(ImageLoader loader) {
+		SWT.error(SWT.ERROR_UNSUPPORTED_FORMAT);
+	}
+}
+
+/**
+ * Register an image format that is recognized by the given signature.
+ * <p>
+ * The signature is tested against the first <code>HEADER_LENGTH</code>
+ * bytes of the stream, or fewer if the stream is shorter. Formats
+ * registered later are tested first, so they take precedence over the
+ * built-in formats. When the signature matches, the decoder is called
+ * with the stream positioned at its start and the loader that is used
+ * to load it.
+ * </p>
+ */
+public static void register(Predicate<byte[]> signature, BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	if (signature == null || decoder == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	REGISTRY.add(0, new Registration(signature, decoder));
+}
+
+/**
+ * Remove the image formats that were registered with the given decoder.
+ * Answer whether a format was removed.
+ */
+public static boolean unregister(BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	if (decoder == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	return REGISTRY.removeIf(registration -> registration.decoder == decoder);
+}
+
+/**
+ * Answer whether the given image file contents start with the
+ * signature of a format registered by an application. This allows
+ * platforms that load images natively to hand these to the registry.
+ */
+public static boolean isRegisteredFormat(byte[] data) {
+	byte[] header = data.length > HEADER_LENGTH ? Arrays.copyOf(data, HEADER_LENGTH) : data;
+	for (Registration registration : REGISTRY) {
+		if (registration.signature.test(header)) return registration.decoder != null;
+	}
+	return false;
+}
+
+/**
+ * Read up to <code>HEADER_LENGTH</code> bytes from the start of the
+ * stream and push them back, so the stream is left unchanged.
+ */
+static byte[] readHeader (LEDataInputStream stream) throws IOException {
+	byte[] header = new byte[HEADER_LENGTH];
+	int count = 0;
+	while (count < header.length) {
+		int read = stream.read(header, count, header.length - count);
+		if (read <= 0) break;
+		count += read;
+	}
+	if (count < header.length) header = Arrays.copyOf(header, count);
+	stream.unread(header);
+	return header;
+}
+
+/**
+ * Read up to <code>HEADER_LENGTH</code> bytes from the start of the
+ * file open on the channel without moving its position.
+ */
+static byte[] readHeader (FileChannel channel) throws IOException {
+	ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+	while (buffer.hasRemaining()) {
+		if (channel.read(buffer, buffer.position()) <= 0) break;
+	}
+	return Arrays.copyOf(buffer.array(), buffer.position());
+}
+
+/**
+ * Read the header of the stream once and answer a new instance of the
+ * first registered format whose signature matches it, or null.
+ */
+static FileFormat getFileFormat (LEDataInputStream stream) throws IOException {
+	return getFileFormat(readHeader(stream));
+}
+
+/**
+ * Answer a new instance of the first registered format whose
+ * signature matches the header, or null.
+ */
+static FileFormat getFileFormat (byte[] header) {
+	for (Registration registration : REGISTRY) {
+		if (registration.signature.test(header)) return registration.factory.get();
+	}
+	return null;
+}
 
 abstract ImageData[] loadFromByteStream();
 
@@ -74,22 +209,42 @@ public ImageData[] loadFromStream(LEDataInputStream stream) {
 public static ImageData[] load(InputStream is, ImageLoader loader) {
 	FileFormat fileFormat = null;
 	LEDataInputStream stream = new LEDataInputStream(is);
-	for (int i = 1; i < FORMATS.length; i++) {
-		if (FORMATS[i] != null) {
-			try {
-				fileFormat = getFileFormat (stream, FORMATS[i]);
-				if (fileFormat != null) break;
-			} catch (ClassNotFoundException e) {
-				FORMATS[i] = null;
-			} catch (Exception e) {
-			}
-		}
+	try {
+		fileFormat = getFileFormat (stream);
+	} catch (IOException e) {
 	}
 	if (fileFormat == null) SWT.error(SWT.ERROR_UNSUPPORTED_FORMAT);
 	fileFormat.loader = loader;
 	return fileFormat.loadFromStream(stream);
 }
 
+/**
+ * Read the file open on the specified channel, and return the
+ * device independent image array represented by the file. Formats
+ * that do not need random access read it as a stream.
+ */
+ImageData[] loadFromChannel(FileChannel channel) throws IOException {
+	return loadFromStream(new LEDataInputStream(Channels.newInputStream(channel.position(0))));
+}
+
+/**
+ * Read the file with the specified name using the specified loader,
+ * and return the device independent image array represented by the file.
+ * Unlike loading from a stream, formats that seek in the file, such as
+ * TIFF, read it in place instead of buffering it in memory.
+ */
+public static ImageData[] load(String filename, ImageLoader loader) {
+	try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+		FileFormat fileFormat = getFileFormat(readHeader(channel));
+		if (fileFormat == null) SWT.error(SWT.ERROR_UNSUPPORTED_FORMAT);
+		fileFormat.loader = loader;
+		return fileFormat.loadFromChannel(channel);
+	} catch (IOException | InvalidPathException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	return null;
+}
+
 /**
  * Write the device independent image array stored in the specified loader
  * to the specified output stream using the specified file format.
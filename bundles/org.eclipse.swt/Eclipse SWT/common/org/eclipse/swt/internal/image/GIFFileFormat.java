@@ -50,16 +50,11 @@ public final class GIFFileFormat extends FileFormat {
 		return new PaletteData(colors);
 	}
 
-	@Override
-	boolean isFileFormat(LEDataInputStream stream) {
-		try {
-			byte[] signature = new byte[3];
-			stream.read(signature);
-			stream.unread(signature);
-			return signature[0] == 'G' && signature[1] == 'I' && signature[2] == 'F';
-		} catch (Exception e) {
-			return false;
-		}
+	/**
+	 * Answer whether the header starts with the GIF signature.
+	 */
+	static boolean isFileFormat(byte[] header) {
+		return header.length >= 3 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F';
 	}
 
 	/**
@@ -68,6 +63,45 @@ public final class GIFFileFormat extends FileFormat {
 	 */
 	@Override
 	ImageData[] loadFromByteStream() {
+		PaletteData palette = readLogicalScreen();
+
+		ImageData[] images = new ImageData[0];
+		int id = readID();
+		while (id != GIF_TRAILER_ID && id != -1) {
+			if (id == GIF_IMAGE_BLOCK_ID) {
+				ImageData image = readImageBlock(palette);
+				if (loader.hasListeners()) {
+					loader.notifyListeners(new ImageLoaderEvent(loader, image, 3, true));
+				}
+				ImageData[] oldImages = images;
+				images = new ImageData[oldImages.length + 1];
+				System.arraycopy(oldImages, 0, images, 0, oldImages.length);
+				images[images.length - 1] = image;
+			} else if (id == GIF_EXTENSION_BLOCK_ID) {
+				/* Read the extension block. Currently, only the
+				 * interesting parts of certain extensions are kept,
+				 * and the rest is discarded. In future, if we want
+				 * to keep extensions, they should be grouped with
+				 * the image data before which they appear.
+				 */
+				readExtension();
+			} else {
+				/* The GIF is not to spec, but try to salvage it
+				 * if we read at least one image. */
+				if (images.length > 0) break;
+				SWT.error(SWT.ERROR_INVALID_IMAGE);
+			}
+			id = readID(); // block terminator (0)
+			if (id == 0) id = readID(); // next block ID (unless we just read it)
+		}
+		return images;
+	}
+
+	/**
+	 * Read the header and the logical screen descriptor.
+	 * Return the global palette, or null if there is none.
+	 */
+	PaletteData readLogicalScreen() {
 		byte[] signature = new byte[3];
 		byte[] versionBytes = new byte[3];
 		byte[] block = new byte[7];
@@ -78,7 +112,8 @@ public final class GIFFileFormat extends FileFormat {
 
 			inputStream.read(versionBytes);
 
-			inputStream.read(block);
+			if (inputStream.read(block) != block.length)
+				SWT.error(SWT.ERROR_INVALID_IMAGE);
 		} catch (IOException e) {
 			SWT.error(SWT.ERROR_IO, e);
 		}
@@ -103,37 +138,7 @@ public final class GIFFileFormat extends FileFormat {
 			defaultDepth = bitsPerPixel;
 		}
 		loader.backgroundPixel = backgroundPixel;
-
-		ImageData[] images = new ImageData[0];
-		int id = readID();
-		while (id != GIF_TRAILER_ID && id != -1) {
-			if (id == GIF_IMAGE_BLOCK_ID) {
-				ImageData image = readImageBlock(palette);
-				if (loader.hasListeners()) {
-					loader.notifyListeners(new ImageLoaderEvent(loader, image, 3, true));
-				}
-				ImageData[] oldImages = images;
-				images = new ImageData[oldImages.length + 1];
-				System.arraycopy(oldImages, 0, images, 0, oldImages.length);
-				images[images.length - 1] = image;
-			} else if (id == GIF_EXTENSION_BLOCK_ID) {
-				/* Read the extension block. Currently, only the
-				 * interesting parts of certain extensions are kept,
-				 * and the rest is discarded. In future, if we want
-				 * to keep extensions, they should be grouped with
-				 * the image data before which they appear.
-				 */
-				readExtension();
-			} else {
-				/* The GIF is not to spec, but try to salvage it
-				 * if we read at least one image. */
-				if (images.length > 0) break;
-				SWT.error(SWT.ERROR_INVALID_IMAGE);
-			}
-			id = readID(); // block terminator (0)
-			if (id == 0) id = readID(); // next block ID (unless we just read it)
-		}
-		return images;
+		return palette;
 	}
 
 	/**
@@ -391,6 +396,46 @@ public final class GIFFileFormat extends FileFormat {
 		return image;
 	}
 
+	/**
+	 * Skip over the image block at the current position in the
+	 * input stream without decoding it. The transparent pixel is
+	 * updated in the same way as by readImageBlock, so the state
+	 * seen by the following blocks is the same.
+	 */
+	void skipImageBlock() {
+		byte[] block = new byte[9];
+		try {
+			if (inputStream.read(block) != block.length)
+				SWT.error(SWT.ERROR_INVALID_IMAGE);
+			byte bitField = block[8];
+			int depth = defaultDepth;
+			if ((bitField & 0x80) != 0) {
+				// Local palette.
+				depth = (bitField & 0x7) + 1;
+				byte[] palette = new byte[(1 << depth) * 3];
+				if (inputStream.read(palette) != palette.length)
+					SWT.error(SWT.ERROR_INVALID_IMAGE);
+			}
+			if (transparentPixel > 1 << depth) {
+				transparentPixel = -1;
+			}
+			// Initial code size.
+			if (inputStream.read() < 0)
+				SWT.error(SWT.ERROR_INVALID_IMAGE);
+			/* Data sub-blocks up to and including the block terminator.
+			 * A truncated block would move the offsets of the following
+			 * blocks, so it is reported like LZWCodec does. */
+			byte[] data = new byte[255];
+			int size;
+			while ((size = inputStream.read()) != 0) {
+				if (size < 0 || inputStream.read(data, 0, size) != size)
+					SWT.error(SWT.ERROR_INVALID_IMAGE);
+			}
+		} catch (IOException e) {
+			SWT.error(SWT.ERROR_IO, e);
+		}
+	}
+
 	/**
 	 * Read a palette from the input stream.
 	 */
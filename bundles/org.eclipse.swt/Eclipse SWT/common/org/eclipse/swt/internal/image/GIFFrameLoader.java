@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.internal.image;
+
+import java.io.*;
+import java.util.*;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.graphics.*;
+
+/**
+ * Decodes the frames of an animated GIF on demand.
+ * <p>
+ * The constructor keeps the compressed bytes of the file and walks its
+ * blocks once, recording where every frame starts together with the
+ * graphics control state that applies to it. Frames are decoded only when
+ * they are asked for, and the most recently used ones are kept, so the
+ * memory needed for an animation does not grow with its number of frames.
+ * </p><p>
+ * The decoded frames are identical to the ones returned by
+ * <code>ImageLoader.load</code>. Every call answers a copy of the cached
+ * frame, so callers may modify it.
+ * </p>
+ */
+public final class GIFFrameLoader {
+
+	/**
+	 * System property that sets the number of decoded frames kept by
+	 * every loader.
+	 */
+	static final String CACHE_SIZE_PROPERTY = "org.eclipse.swt.internal.image.GIFFrameLoader.cacheSize"; //$NON-NLS-1$
+	static final int DEFAULT_CACHE_SIZE = 8;
+
+	/** The graphics control state and offset of a frame */
+	static final class Frame {
+		final int offset, disposalMethod, delayTime, transparentPixel;
+
+		Frame(int offset, int disposalMethod, int delayTime, int transparentPixel) {
+			this.offset = offset;
+			this.disposalMethod = disposalMethod;
+			this.delayTime = delayTime;
+			this.transparentPixel = transparentPixel;
+		}
+	}
+
+	final byte[] bytes;
+	final Frame[] frames;
+	final PaletteData palette;
+	final int defaultDepth;
+	final int logicalScreenWidth, logicalScreenHeight, backgroundPixel, repeatCount;
+	final LinkedHashMap<Integer, ImageData> cache;
+
+/**
+ * Reads the given stream and records the frames of the GIF it contains.
+ * The stream is read to its end but not closed.
+ *
+ * @param stream the stream to read the GIF from
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the stream is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the stream</li>
+ *    <li>ERROR_INVALID_IMAGE - if the stream does not contain a valid GIF</li>
+ * </ul>
+ */
+public GIFFrameLoader(InputStream stream) {
+	this(stream, Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE).intValue());
+}
+
+GIFFrameLoader(InputStream stream, int cacheSize) {
+	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	byte[] bytes = null;
+	try {
+		bytes = stream.readAllBytes();
+	} catch (IOException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	this.bytes = bytes;
+	GIFFileFormat format = createFormat(0);
+	List<Frame> frames = new ArrayList<>();
+	PaletteData palette = null;
+	try {
+		palette = format.readLogicalScreen();
+		int id = format.readID();
+		while (id != GIFFileFormat.GIF_TRAILER_ID && id != -1) {
+			if (id == GIFFileFormat.GIF_IMAGE_BLOCK_ID) {
+				frames.add(new Frame(format.inputStream.getPosition(), format.disposalMethod, format.delayTime, format.transparentPixel));
+				format.skipImageBlock();
+			} else if (id == GIFFileFormat.GIF_EXTENSION_BLOCK_ID) {
+				format.readExtension();
+			} else {
+				/* Salvage the frames read so far, like GIFFileFormat */
+				if (frames.size() > 0) break;
+				SWT.error(SWT.ERROR_INVALID_IMAGE);
+			}
+			id = format.readID();
+			if (id == 0) id = format.readID();
+		}
+	} catch (SWTException e) {
+		throw e;
+	} catch (Exception e) {
+		SWT.error(SWT.ERROR_INVALID_IMAGE, e);
+	}
+	this.frames = frames.toArray(new Frame[frames.size()]);
+	this.palette = palette;
+	defaultDepth = format.defaultDepth;
+	logicalScreenWidth = format.loader.logicalScreenWidth;
+	logicalScreenHeight = format.loader.logicalScreenHeight;
+	backgroundPixel = format.loader.backgroundPixel;
+	repeatCount = format.loader.repeatCount;
+	cache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, ImageData> eldest) {
+			return size() > cacheSize;
+		}
+	};
+}
+
+/**
+ * Answers whether the given start of a file is the start of a GIF.
+ */
+public static boolean isFileFormat(byte[] header) {
+	return GIFFileFormat.isFileFormat(header);
+}
+
+GIFFileFormat createFormat(int offset) {
+	GIFFileFormat format = new GIFFileFormat();
+	format.loader = new ImageLoader();
+	format.inputStream = new LEDataInputStream(new ByteArrayInputStream(bytes, offset, bytes.length - offset));
+	return format;
+}
+
+/**
+ * Returns the number of frames.
+ */
+public int getFrameCount() {
+	return frames.length;
+}
+
+/**
+ * Returns a copy of the decoded frame at the given index.
+ *
+ * @param index the index of the frame
+ * @return the frame
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_RANGE - if the index is not between 0 and the number of frames - 1</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_INVALID_IMAGE - if the frame could not be decoded</li>
+ * </ul>
+ */
+public synchronized ImageData getFrame(int index) {
+	if (index < 0 || index >= frames.length) SWT.error(SWT.ERROR_INVALID_RANGE);
+	ImageData image = cache.get(index);
+	if (image == null) {
+		image = decodeFrame(frames[index]);
+		cache.put(index, image);
+	}
+	return (ImageData) image.clone();
+}
+
+ImageData decodeFrame(Frame frame) {
+	GIFFileFormat format = createFormat(frame.offset);
+	format.defaultDepth = defaultDepth;
+	format.disposalMethod = frame.disposalMethod;
+	format.delayTime = frame.delayTime;
+	format.transparentPixel = frame.transparentPixel;
+	try {
+		return format.readImageBlock(palette);
+	} catch (SWTException e) {
+		throw e;
+	} catch (Exception e) {
+		SWT.error(SWT.ERROR_INVALID_IMAGE, e);
+		return null;
+	}
+}
+
+/**
+ * Returns the width of the logical screen the frames are drawn on.
+ */
+public int getLogicalScreenWidth() {
+	return logicalScreenWidth;
+}
+
+/**
+ * Returns the height of the logical screen the frames are drawn on.
+ */
+public int getLogicalScreenHeight() {
+	return logicalScreenHeight;
+}
+
+/**
+ * Returns the background pixel of the logical screen, or -1.
+ */
+public int getBackgroundPixel() {
+	return backgroundPixel;
+}
+
+/**
+ * Returns the number of times the animation repeats, 0 means forever.
+ */
+public int getRepeatCount() {
+	return repeatCount;
+}
+}
@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.internal.image;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.graphics.*;
+
+/**
+ * Resamples <code>ImageData</code> to a different size in pure Java.
+ * <p>
+ * The image is filtered with two separable passes, first along the rows
+ * and then along the columns, using weight tables that are computed once
+ * per axis. When the image is reduced, the filter is widened by the scale
+ * factor so that every source pixel contributes to the result. Colors are
+ * filtered premultiplied by their alpha, so transparent pixels do not
+ * bleed into their neighbours.
+ * </p><p>
+ * The destination is processed in bands of rows. Large images are
+ * resampled concurrently in the common <code>ForkJoinPool</code>. The
+ * result does not depend on the number of threads.
+ * </p>
+ */
+public final class ImageResampler {
+
+	/** Box filter, averages the covered source pixels when reducing */
+	public static final int BOX = 0;
+
+	/** Bilinear (triangle) filter */
+	public static final int BILINEAR = 1;
+
+	/** Bicubic (Catmull-Rom) filter */
+	public static final int BICUBIC = 2;
+
+	/** Lanczos filter with three lobes */
+	public static final int LANCZOS3 = 3;
+
+	static final int PARALLEL_MIN_PIXELS = 512 * 512;
+	static final int BAND_HEIGHT = 64;
+
+	/**
+	 * The filter weights of one axis. Destination pixel <code>i</code>
+	 * is the weighted sum of <code>count[i]</code> source pixels starting
+	 * at <code>start[i]</code>, its weights are stored at
+	 * <code>i * taps</code>.
+	 */
+	static final class Weights {
+		final int[] start;
+		final int[] count;
+		final float[] weights;
+		final int taps;
+
+		Weights(int sourceSize, int destSize, int filter) {
+			double support = getSupport(filter);
+			double scale = (double) destSize / sourceSize;
+			double filterScale = Math.max(1, 1 / scale);
+			support *= filterScale;
+			taps = (int) Math.ceil(support) * 2 + 1;
+			start = new int[destSize];
+			count = new int[destSize];
+			weights = new float[destSize * taps];
+			double[] values = new double[taps];
+			for (int i = 0; i < destSize; i++) {
+				double center = (i + 0.5) / scale;
+				int min = Math.max((int) (center - support + 0.5), 0);
+				int max = Math.min((int) (center + support + 0.5), sourceSize);
+				int n = Math.min(max - min, taps);
+				double total = 0;
+				for (int j = 0; j < n; j++) {
+					values[j] = kernel(filter, (min + j - center + 0.5) / filterScale);
+					total += values[j];
+				}
+				if (total == 0) {
+					/* The kernel missed every sample, fall back to the nearest pixel */
+					min = Math.min((int) center, sourceSize - 1);
+					n = 1;
+					values[0] = total = 1;
+				}
+				start[i] = min;
+				count[i] = n;
+				for (int j = 0; j < n; j++) {
+					weights[i * taps + j] = (float) (values[j] / total);
+				}
+			}
+		}
+	}
+
+ImageResampler() {
+}
+
+static double getSupport(int filter) {
+	switch (filter) {
+		case BOX: return 0.5;
+		case BILINEAR: return 1;
+		case BICUBIC: return 2;
+		case LANCZOS3: return 3;
+	}
+	SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+	return 0;
+}
+
+static double kernel(int filter, double x) {
+	if (x < 0) x = -x;
+	switch (filter) {
+		case BOX:
+			return x < 0.5 ? 1 : (x == 0.5 ? 0.5 : 0);
+		case BILINEAR:
+			return x < 1 ? 1 - x : 0;
+		case BICUBIC:
+			/* Catmull-Rom, a = -0.5 */
+			if (x < 1) return (1.5 * x - 2.5) * x * x + 1;
+			if (x < 2) return ((-0.5 * x + 2.5) * x - 4) * x + 2;
+			return 0;
+		case LANCZOS3:
+			if (x == 0) return 1;
+			if (x >= 3) return 0;
+			double px = Math.PI * x;
+			return 3 * Math.sin(px) * Math.sin(px / 3) / (px * px);
+	}
+	return 0;
+}
+
+/**
+ * Returns a new image data of the given size that holds the source
+ * image resampled with the given filter.
+ * <p>
+ * The result is a 24 bit direct image. If the source has an alpha
+ * channel, a transparency mask or a transparent pixel, the result
+ * has alpha data. A global alpha value is copied to the result.
+ * </p>
+ *
+ * @param source the image data to resample
+ * @param width the width of the result
+ * @param height the height of the result
+ * @param filter one of BOX, BILINEAR, BICUBIC or LANCZOS3
+ * @return the resampled image data
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the source is null</li>
+ *    <li>ERROR_INVALID_ARGUMENT - if the width or height is not positive, or the filter is not valid</li>
+ * </ul>
+ */
+public static ImageData resample(ImageData source, int width, int height, int filter) {
+	if (source == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	if (width <= 0 || height <= 0) SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+	getSupport(filter);
+	Weights horizontal = new Weights(source.width, width, filter);
+	Weights vertical = new Weights(source.height, height, filter);
+	int transparencyType = source.getTransparencyType();
+	boolean hasAlpha = source.alphaData != null || transparencyType == SWT.TRANSPARENCY_MASK || transparencyType == SWT.TRANSPARENCY_PIXEL;
+	ImageData mask = source.alphaData == null && hasAlpha ? source.getTransparencyMask() : null;
+	ImageData dest = new ImageData(width, height, 24, new PaletteData(0xFF, 0xFF00, 0xFF0000));
+	if (hasAlpha) dest.alphaData = new byte[width * height];
+	if (source.alphaData == null && source.alpha != -1) dest.alpha = source.alpha;
+	int[] lookup = null;
+	if (!source.palette.isDirect) {
+		RGB[] rgbs = source.palette.getRGBs();
+		lookup = new int[1 << Math.min(source.depth, 8)];
+		for (int i = 0; i < rgbs.length && i < lookup.length; i++) {
+			if (rgbs[i] != null) lookup[i] = (rgbs[i].red << 16) | (rgbs[i].green << 8) | rgbs[i].blue;
+		}
+	}
+	int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+	if (bandCount > 1 && ForkJoinPool.getCommonPoolParallelism() > 1 && (long) width * height >= PARALLEL_MIN_PIXELS) {
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(bandCount);
+		for (int band = 0; band < bandCount; band++) {
+			final int startRow = band * BAND_HEIGHT, endRow = Math.min(startRow + BAND_HEIGHT, height);
+			final int[] palette = lookup;
+			tasks.add(ForkJoinTask.adapt(() -> resampleBand(source, mask, palette, hasAlpha, horizontal, vertical, dest, startRow, endRow)));
+		}
+		ForkJoinTask.invokeAll(tasks);
+	} else {
+		for (int startRow = 0; startRow < height; startRow += BAND_HEIGHT) {
+			resampleBand(source, mask, lookup, hasAlpha, horizontal, vertical, dest, startRow, Math.min(startRow + BAND_HEIGHT, height));
+		}
+	}
+	return dest;
+}
+
+/**
+ * Resamples the destination rows from startRow to endRow. The source
+ * rows they depend on are filtered horizontally into a band buffer of
+ * premultiplied RGBA values first, then every destination row is
+ * filtered vertically from that buffer.
+ */
+static void resampleBand(ImageData source, ImageData mask, int[] lookup, boolean hasAlpha, Weights horizontal, Weights vertical, ImageData dest, int startRow, int endRow) {
+	int firstRow = vertical.start[startRow];
+	int lastRow = firstRow;
+	for (int y = startRow; y < endRow; y++) {
+		lastRow = Math.max(lastRow, vertical.start[y] + vertical.count[y]);
+	}
+	int sourceWidth = source.width, destWidth = dest.width;
+	int[] pixels = new int[sourceWidth];
+	byte[] maskPixels = mask != null ? new byte[sourceWidth] : null;
+	float[] row = new float[sourceWidth * 4];
+	float[] band = new float[(lastRow - firstRow) * destWidth * 4];
+	PaletteData palette = source.palette;
+	int redMask = palette.redMask, greenMask = palette.greenMask, blueMask = palette.blueMask;
+	int redShift = palette.redShift, greenShift = palette.greenShift, blueShift = palette.blueShift;
+
+	/* Horizontal pass */
+	for (int y = firstRow, offset = 0; y < lastRow; y++) {
+		source.getPixels(0, y, sourceWidth, pixels, 0);
+		if (maskPixels != null) mask.getPixels(0, y, sourceWidth, maskPixels, 0);
+		for (int x = 0, i = 0; x < sourceWidth; x++, i += 4) {
+			int pixel = pixels[x], r, g, b;
+			if (lookup != null) {
+				int rgb = lookup[pixel];
+				r = (rgb >> 16) & 0xFF;
+				g = (rgb >> 8) & 0xFF;
+				b = rgb & 0xFF;
+			} else {
+				r = pixel & redMask;
+				r = (redShift < 0) ? r >>> -redShift : r << redShift;
+				g = pixel & greenMask;
+				g = (greenShift < 0) ? g >>> -greenShift : g << greenShift;
+				b = pixel & blueMask;
+				b = (blueShift < 0) ? b >>> -blueShift : b << blueShift;
+			}
+			int a = 255;
+			if (source.alphaData != null) {
+				a = source.alphaData[y * sourceWidth + x] & 0xFF;
+			} else if (maskPixels != null) {
+				a = maskPixels[x] != 0 ? 255 : 0;
+			}
+			float alpha = a / 255f;
+			row[i] = r * alpha;
+			row[i + 1] = g * alpha;
+			row[i + 2] = b * alpha;
+			row[i + 3] = a;
+		}
+		for (int x = 0; x < destWidth; x++, offset += 4) {
+			int s = horizontal.start[x] * 4, w = x * horizontal.taps, n = horizontal.count[x];
+			float r = 0, g = 0, b = 0, a = 0;
+			for (int j = 0; j < n; j++, s += 4) {
+				float weight = horizontal.weights[w + j];
+				r += row[s] * weight;
+				g += row[s + 1] * weight;
+				b += row[s + 2] * weight;
+				a += row[s + 3] * weight;
+			}
+			band[offset] = r;
+			band[offset + 1] = g;
+			band[offset + 2] = b;
+			band[offset + 3] = a;
+		}
+	}
+
+	/* Vertical pass */
+	byte[] data = dest.data;
+	byte[] alphaData = dest.alphaData;
+	int bytesPerLine = dest.bytesPerLine, stride = destWidth * 4;
+	for (int y = startRow; y < endRow; y++) {
+		int w = y * vertical.taps, n = vertical.count[y];
+		int rowOffset = (vertical.start[y] - firstRow) * stride;
+		for (int x = 0, dp = y * bytesPerLine, ap = y * destWidth; x < destWidth; x++, dp += 3, ap++) {
+			float r = 0, g = 0, b = 0, a = 0;
+			for (int j = 0, s = rowOffset + x * 4; j < n; j++, s += stride) {
+				float weight = vertical.weights[w + j];
+				r += band[s] * weight;
+				g += band[s + 1] * weight;
+				b += band[s + 2] * weight;
+				a += band[s + 3] * weight;
+			}
+			int alpha = clamp(a, 255);
+			if (hasAlpha) {
+				alphaData[ap] = (byte) alpha;
+				if (alpha == 0) {
+					r = g = b = 0;
+				} else {
+					float scale = 255f / alpha;
+					r *= scale;
+					g *= scale;
+					b *= scale;
+				}
+			}
+			/* The palette stores blue in the first and red in the last byte */
+			data[dp] = (byte) clamp(b, 255);
+			data[dp + 1] = (byte) clamp(g, 255);
+			data[dp + 2] = (byte) clamp(r, 255);
+		}
+	}
+}
+
+static int clamp(float value, int max) {
+	int result = Math.round(value);
+	return result < 0 ? 0 : (result > max ? max : result);
+}
+}
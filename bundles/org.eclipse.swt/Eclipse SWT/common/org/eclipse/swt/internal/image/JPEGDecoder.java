@@ -18,6 +18,8 @@
 package org.eclipse.swt.internal.image;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
@@ -201,6 +203,9 @@ public class JPEGDecoder {
 	static final int INPUT_CONSUME_INPUT = 0;
 	static final int COEF_CONSUME_INPUT = 1;
 
+	/* Parallel decoding, when the loader allows it, is used only for images at least this large */
+	static final int PARALLEL_MIN_PIXELS = 512 * 512;
+
 	static int extend_test[] =	 /* entry n is 2**(n-1) */
 	{
 		0, 0x0001, 0x0002, 0x0004, 0x0008, 0x0010, 0x0020, 0x0040, 0x0080,
@@ -1804,18 +1809,18 @@ public class JPEGDecoder {
 				/* Select the proper IDCT routine for this component's scaling */
 				switch (compptr.DCT_scaled_size) {
 //					#ifdef IDCT_SCALING_SUPPORTED
-//					case 1:
+					case 1:
 //						method_ptr = jpeg_idct_1x1;
-//						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
-//						break;
-//					case 2:
+						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
+						break;
+					case 2:
 //						method_ptr = jpeg_idct_2x2;
-//						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
-//						break;
-//					case 4:
+						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
+						break;
+					case 4:
 //						method_ptr = jpeg_idct_4x4;
-//						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
-//						break;
+						method = JDCT_ISLOW;	/* jidctred uses islow-style table */
+						break;
 //					#endif
 					case DCTSIZE:
 						switch (cinfo.dct_method) {
@@ -2379,8 +2384,8 @@ static void jpeg_calc_output_dimensions (jpeg_decompress_struct cinfo)
 /* Do computations that are needed before master selection phase */
 {
 //#ifdef IDCT_SCALING_SUPPORTED
-//	int ci;
-//	jpeg_component_info compptr;
+	int ci;
+	jpeg_component_info compptr;
 //#endif
 
 	/* Prevent application from calling me at wrong times */
@@ -2389,74 +2394,74 @@ static void jpeg_calc_output_dimensions (jpeg_decompress_struct cinfo)
 //		ERREXIT1(cinfo, JERR_BAD_STATE, cinfo.global_state);
 
 //#ifdef IDCT_SCALING_SUPPORTED
-//
-//	/* Compute actual output image dimensions and DCT scaling choices. */
-//	if (cinfo.scale_num * 8 <= cinfo.scale_denom) {
-//		/* Provide 1/8 scaling */
-//		cinfo.output_width = (int)
-//			jdiv_round_up(cinfo.image_width, 8L);
-//		cinfo.output_height = (int)
-//			jdiv_round_up(cinfo.image_height, 8L);
-//		cinfo.min_DCT_scaled_size = 1;
-//	} else if (cinfo.scale_num * 4 <= cinfo.scale_denom) {
-//		/* Provide 1/4 scaling */
-//		cinfo.output_width = (int)
-//			jdiv_round_up(cinfo.image_width, 4L);
-//		cinfo.output_height = (int)
-//			jdiv_round_up(cinfo.image_height, 4L);
-//		cinfo.min_DCT_scaled_size = 2;
-//	} else if (cinfo.scale_num * 2 <= cinfo.scale_denom) {
-//		/* Provide 1/2 scaling */
-//		cinfo.output_width = (int)
-//			jdiv_round_up(cinfo.image_width, 2L);
-//		cinfo.output_height = (int)
-//			jdiv_round_up(cinfo.image_height, 2L);
-//		cinfo.min_DCT_scaled_size = 4;
-//	} else {
-//		/* Provide 1/1 scaling */
-//		cinfo.output_width = cinfo.image_width;
-//		cinfo.output_height = cinfo.image_height;
-//		cinfo.min_DCT_scaled_size = DCTSIZE;
-//	}
-//	/* In selecting the actual DCT scaling for each component, we try to
-//	 * scale up the chroma components via IDCT scaling rather than upsampling.
-//	 * This saves time if the upsampler gets to use 1:1 scaling.
-//	 * Note this code assumes that the supported DCT scalings are powers of 2.
-//	 */
-//	for (ci = 0; ci < cinfo.num_components; ci++) {
-//		compptr = cinfo.comp_info[ci];
-//		int ssize = cinfo.min_DCT_scaled_size;
-//		while (ssize < DCTSIZE &&
-//			(compptr.h_samp_factor * ssize * 2 <= cinfo.max_h_samp_factor * cinfo.min_DCT_scaled_size) &&
-//			(compptr.v_samp_factor * ssize * 2 <= cinfo.max_v_samp_factor * cinfo.min_DCT_scaled_size))
-//		{
-//			ssize = ssize * 2;
-//		}
-//		compptr.DCT_scaled_size = ssize;
-//	}
-//
-//	/* Recompute downsampled dimensions of components;
-//	 * application needs to know these if using raw downsampled data.
-//	 */
-//	for (ci = 0; ci < cinfo.num_components; ci++) {
-//		compptr = cinfo.comp_info[ci];
-//		/* Size in samples, after IDCT scaling */
-//		compptr.downsampled_width = (int)
-//			jdiv_round_up((long) cinfo.image_width * (long) (compptr.h_samp_factor * compptr.DCT_scaled_size),
-//				(cinfo.max_h_samp_factor * DCTSIZE));
-//		compptr.downsampled_height = (int)
-//			jdiv_round_up((long) cinfo.image_height * (long) (compptr.v_samp_factor * compptr.DCT_scaled_size),
-//				(cinfo.max_v_samp_factor * DCTSIZE));
-//	}
-//
-//#else /* !IDCT_SCALING_SUPPORTED */
 
-	/* Hardwire it to "no scaling" */
-	cinfo.output_width = cinfo.image_width;
-	cinfo.output_height = cinfo.image_height;
-	/* jdinput.c has already initialized DCT_scaled_size to DCTSIZE,
-	 * and has computed unscaled downsampled_width and downsampled_height.
+	/* Compute actual output image dimensions and DCT scaling choices. */
+	if (cinfo.scale_num * 8 <= cinfo.scale_denom) {
+		/* Provide 1/8 scaling */
+		cinfo.output_width = (int)
+			jdiv_round_up(cinfo.image_width, 8L);
+		cinfo.output_height = (int)
+			jdiv_round_up(cinfo.image_height, 8L);
+		cinfo.min_DCT_scaled_size = 1;
+	} else if (cinfo.scale_num * 4 <= cinfo.scale_denom) {
+		/* Provide 1/4 scaling */
+		cinfo.output_width = (int)
+			jdiv_round_up(cinfo.image_width, 4L);
+		cinfo.output_height = (int)
+			jdiv_round_up(cinfo.image_height, 4L);
+		cinfo.min_DCT_scaled_size = 2;
+	} else if (cinfo.scale_num * 2 <= cinfo.scale_denom) {
+		/* Provide 1/2 scaling */
+		cinfo.output_width = (int)
+			jdiv_round_up(cinfo.image_width, 2L);
+		cinfo.output_height = (int)
+			jdiv_round_up(cinfo.image_height, 2L);
+		cinfo.min_DCT_scaled_size = 4;
+	} else {
+		/* Provide 1/1 scaling */
+		cinfo.output_width = cinfo.image_width;
+		cinfo.output_height = cinfo.image_height;
+		cinfo.min_DCT_scaled_size = DCTSIZE;
+	}
+	/* In selecting the actual DCT scaling for each component, we try to
+	 * scale up the chroma components via IDCT scaling rather than upsampling.
+	 * This saves time if the upsampler gets to use 1:1 scaling.
+	 * Note this code assumes that the supported DCT scalings are powers of 2.
 	 */
+	for (ci = 0; ci < cinfo.num_components; ci++) {
+		compptr = cinfo.comp_info[ci];
+		int ssize = cinfo.min_DCT_scaled_size;
+		while (ssize < DCTSIZE &&
+			(compptr.h_samp_factor * ssize * 2 <= cinfo.max_h_samp_factor * cinfo.min_DCT_scaled_size) &&
+			(compptr.v_samp_factor * ssize * 2 <= cinfo.max_v_samp_factor * cinfo.min_DCT_scaled_size))
+		{
+			ssize = ssize * 2;
+		}
+		compptr.DCT_scaled_size = ssize;
+	}
+
+	/* Recompute downsampled dimensions of components;
+	 * application needs to know these if using raw downsampled data.
+	 */
+	for (ci = 0; ci < cinfo.num_components; ci++) {
+		compptr = cinfo.comp_info[ci];
+		/* Size in samples, after IDCT scaling */
+		compptr.downsampled_width = (int)
+			jdiv_round_up((long) cinfo.image_width * (long) (compptr.h_samp_factor * compptr.DCT_scaled_size),
+				(cinfo.max_h_samp_factor * DCTSIZE));
+		compptr.downsampled_height = (int)
+			jdiv_round_up((long) cinfo.image_height * (long) (compptr.v_samp_factor * compptr.DCT_scaled_size),
+				(cinfo.max_v_samp_factor * DCTSIZE));
+	}
+
+//#else /* !IDCT_SCALING_SUPPORTED */
+
+//	/* Hardwire it to "no scaling" */
+//	cinfo.output_width = cinfo.image_width;
+//	cinfo.output_height = cinfo.image_height;
+//	/* jdinput.c has already initialized DCT_scaled_size to DCTSIZE,
+//	 * and has computed unscaled downsampled_width and downsampled_height.
+//	 */
 
 //#endif /* IDCT_SCALING_SUPPORTED */
 
@@ -2933,7 +2938,7 @@ static final int PASS1_BITS = 2;
 static final int RANGE_MASK =(MAXJSAMPLE * 4 + 3);
 static void jpeg_idct_islow (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
 	short[] coef_block,
-	byte[][] output_buf, int output_buf_offset, int output_col)
+	byte[][] output_buf, int output_buf_offset, int output_col, int[] workspace)
 {
 	int tmp0, tmp1, tmp2, tmp3;
 	int tmp10, tmp11, tmp12, tmp13;
@@ -2945,7 +2950,6 @@ static void jpeg_idct_islow (jpeg_decompress_struct cinfo, jpeg_component_info c
 	byte[] range_limit = cinfo.sample_range_limit;
 	int range_limit_offset = cinfo.sample_range_limit_offset + CENTERJSAMPLE;
 	int ctr;
-	int[] workspace = cinfo.workspace;	/* buffers data between passes */
 //	SHIFT_TEMPS
 
 	/* Pass 1: process columns from input, store into work array. */
@@ -3184,6 +3188,276 @@ static void jpeg_idct_islow (jpeg_decompress_struct cinfo, jpeg_component_info c
 	}
 }
 
+/* Equivalent of idct.inverse_DCT[ci]: select the routine matching the component's DCT scaling */
+static void inverse_DCT (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
+	short[] coef_block,
+	byte[][] output_buf, int output_buf_offset, int output_col, int[] workspace)
+{
+	switch (compptr.DCT_scaled_size) {
+		case 1: jpeg_idct_1x1(cinfo, compptr, coef_block, output_buf, output_buf_offset, output_col); break;
+		case 2: jpeg_idct_2x2(cinfo, compptr, coef_block, output_buf, output_buf_offset, output_col, workspace); break;
+		case 4: jpeg_idct_4x4(cinfo, compptr, coef_block, output_buf, output_buf_offset, output_col, workspace); break;
+		default: jpeg_idct_islow(cinfo, compptr, coef_block, output_buf, output_buf_offset, output_col, workspace); break;
+	}
+}
+
+/*
+ * Inverse-DCT routines that produce reduced-size output:
+ * either 4x4, 2x2, or 1x1 pixels from an 8x8 DCT block (jidctred.c).
+ *
+ * The implementation is based on the Loeffler, Ligtenberg and Moschytz (LL&M)
+ * algorithm used in jpeg_idct_islow.  We simply replace each 8-to-8 1-D IDCT
+ * step with an 8-to-4 step that produces the four averages of two adjacent
+ * outputs (or an 8-to-2 step producing two averages of four outputs, for 2x2
+ * output).  These steps were derived by computing the corresponding values at
+ * the end of the normal LL&M code, then simplifying as much as possible.
+ *
+ * 1x1 is trivial: just take the DC coefficient divided by 8.
+ */
+static void jpeg_idct_4x4 (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
+	short[] coef_block,
+	byte[][] output_buf, int output_buf_offset, int output_col, int[] workspace)
+{
+	int tmp0, tmp2, tmp10, tmp12;
+	int z1, z2, z3, z4;
+	short[] inptr = coef_block;
+	int[] quantptr = compptr.dct_table;
+	int[] wsptr = workspace;
+	byte[] outptr;
+	byte[] range_limit = cinfo.sample_range_limit;
+	int range_limit_offset = cinfo.sample_range_limit_offset + CENTERJSAMPLE;
+	int ctr;
+
+	/* Pass 1: process columns from input, store into work array. */
+
+	int inptr_offset = 0, quantptr_offset = 0, wsptr_offset = 0;
+	for (ctr = DCTSIZE; ctr > 0; ctr--, inptr_offset++, quantptr_offset++, wsptr_offset++) {
+		/* Don't bother to process column 4, because second pass won't use it */
+		if (ctr == DCTSIZE-4)
+			continue;
+		if (inptr[DCTSIZE*1+inptr_offset] == 0 && inptr[DCTSIZE*2+inptr_offset] == 0 &&
+			inptr[DCTSIZE*3+inptr_offset] == 0 && inptr[DCTSIZE*5+inptr_offset] == 0 &&
+			inptr[DCTSIZE*6+inptr_offset] == 0 && inptr[DCTSIZE*7+inptr_offset] == 0)
+		{
+			/* AC terms all zero; we need not examine term 4 for 4x4 output */
+			int dcval = ((inptr[DCTSIZE*0+inptr_offset]) * quantptr[DCTSIZE*0+quantptr_offset]) << PASS1_BITS;
+
+			wsptr[DCTSIZE*0+wsptr_offset] = dcval;
+			wsptr[DCTSIZE*1+wsptr_offset] = dcval;
+			wsptr[DCTSIZE*2+wsptr_offset] = dcval;
+			wsptr[DCTSIZE*3+wsptr_offset] = dcval;
+			continue;
+		}
+
+		/* Even part */
+
+		tmp0 = ((inptr[DCTSIZE*0+inptr_offset]) * quantptr[DCTSIZE*0+quantptr_offset]);
+		tmp0 <<= (CONST_BITS+1);
+
+		z2 = ((inptr[DCTSIZE*2+inptr_offset]) * quantptr[DCTSIZE*2+quantptr_offset]);
+		z3 = ((inptr[DCTSIZE*6+inptr_offset]) * quantptr[DCTSIZE*6+quantptr_offset]);
+
+		tmp2 = (z2 * 15137/*FIX_1_847759065*/) + (z3 * - 6270/*FIX_0_765366865*/);
+
+		tmp10 = tmp0 + tmp2;
+		tmp12 = tmp0 - tmp2;
+
+		/* Odd part */
+
+		z1 = ((inptr[DCTSIZE*7+inptr_offset]) * quantptr[DCTSIZE*7+quantptr_offset]);
+		z2 = ((inptr[DCTSIZE*5+inptr_offset]) * quantptr[DCTSIZE*5+quantptr_offset]);
+		z3 = ((inptr[DCTSIZE*3+inptr_offset]) * quantptr[DCTSIZE*3+quantptr_offset]);
+		z4 = ((inptr[DCTSIZE*1+inptr_offset]) * quantptr[DCTSIZE*1+quantptr_offset]);
+
+		tmp0 = (z1 * - 1730/*FIX_0_211164243*/) /* sqrt(2) * (c3-c1) */
+			+ (z2 * 11893/*FIX_1_451774981*/) /* sqrt(2) * (c3+c7) */
+			+ (z3 * - 17799/*FIX_2_172734803*/) /* sqrt(2) * (-c1-c5) */
+			+ (z4 * 8697/*FIX_1_061594337*/); /* sqrt(2) * (c5+c7) */
+
+		tmp2 = (z1 * - 4176/*FIX_0_509795579*/) /* sqrt(2) * (c7-c5) */
+			+ (z2 * - 4926/*FIX_0_601344887*/) /* sqrt(2) * (c5-c1) */
+			+ (z3 * 7373/*FIX_0_899976223*/) /* sqrt(2) * (c3+c7) */
+			+ (z4 * 20995/*FIX_2_562915447*/); /* sqrt(2) * (c1+c3) */
+
+		/* Final output stage */
+
+		wsptr[DCTSIZE*0+wsptr_offset] = (((tmp10 + tmp2) + (1 << ((CONST_BITS-PASS1_BITS+1)-1))) >> (CONST_BITS-PASS1_BITS+1));
+		wsptr[DCTSIZE*3+wsptr_offset] = (((tmp10 - tmp2) + (1 << ((CONST_BITS-PASS1_BITS+1)-1))) >> (CONST_BITS-PASS1_BITS+1));
+		wsptr[DCTSIZE*1+wsptr_offset] = (((tmp12 + tmp0) + (1 << ((CONST_BITS-PASS1_BITS+1)-1))) >> (CONST_BITS-PASS1_BITS+1));
+		wsptr[DCTSIZE*2+wsptr_offset] = (((tmp12 - tmp0) + (1 << ((CONST_BITS-PASS1_BITS+1)-1))) >> (CONST_BITS-PASS1_BITS+1));
+	}
+
+	/* Pass 2: process 4 rows from work array, store into output array. */
+
+	int outptr_offset;
+	wsptr_offset = 0;
+	for (ctr = 0; ctr < 4; ctr++, wsptr_offset += DCTSIZE) {
+		outptr = output_buf[ctr+output_buf_offset];
+		outptr_offset = output_col;
+
+		if (wsptr[1+wsptr_offset] == 0 && wsptr[2+wsptr_offset] == 0 && wsptr[3+wsptr_offset] == 0 &&
+			wsptr[5+wsptr_offset] == 0 && wsptr[6+wsptr_offset] == 0 && wsptr[7+wsptr_offset] == 0)
+		{
+			/* AC terms all zero */
+			byte dcval = range_limit[range_limit_offset + ((((wsptr[0+wsptr_offset]) + (1 << ((PASS1_BITS+3)-1))) >> PASS1_BITS+3)
+					& RANGE_MASK)];
+
+			outptr[0+outptr_offset] = dcval;
+			outptr[1+outptr_offset] = dcval;
+			outptr[2+outptr_offset] = dcval;
+			outptr[3+outptr_offset] = dcval;
+			continue;
+		}
+
+		/* Even part */
+
+		tmp0 = wsptr[0+wsptr_offset] << (CONST_BITS+1);
+
+		tmp2 = (wsptr[2+wsptr_offset] * 15137/*FIX_1_847759065*/)
+			+ (wsptr[6+wsptr_offset] * - 6270/*FIX_0_765366865*/);
+
+		tmp10 = tmp0 + tmp2;
+		tmp12 = tmp0 - tmp2;
+
+		/* Odd part */
+
+		z1 = wsptr[7+wsptr_offset];
+		z2 = wsptr[5+wsptr_offset];
+		z3 = wsptr[3+wsptr_offset];
+		z4 = wsptr[1+wsptr_offset];
+
+		tmp0 = (z1 * - 1730/*FIX_0_211164243*/) /* sqrt(2) * (c3-c1) */
+			+ (z2 * 11893/*FIX_1_451774981*/) /* sqrt(2) * (c3+c7) */
+			+ (z3 * - 17799/*FIX_2_172734803*/) /* sqrt(2) * (-c1-c5) */
+			+ (z4 * 8697/*FIX_1_061594337*/); /* sqrt(2) * (c5+c7) */
+
+		tmp2 = (z1 * - 4176/*FIX_0_509795579*/) /* sqrt(2) * (c7-c5) */
+			+ (z2 * - 4926/*FIX_0_601344887*/) /* sqrt(2) * (c5-c1) */
+			+ (z3 * 7373/*FIX_0_899976223*/) /* sqrt(2) * (c3+c7) */
+			+ (z4 * 20995/*FIX_2_562915447*/); /* sqrt(2) * (c1+c3) */
+
+		/* Final output stage */
+
+		outptr[0+outptr_offset] = range_limit[range_limit_offset + ((((tmp10 + tmp2) + (1 << ((CONST_BITS+PASS1_BITS+3+1)-1))) >>
+									CONST_BITS+PASS1_BITS+3+1)
+					& RANGE_MASK)];
+		outptr[3+outptr_offset] = range_limit[range_limit_offset + ((((tmp10 - tmp2) + (1 << ((CONST_BITS+PASS1_BITS+3+1)-1))) >>
+									CONST_BITS+PASS1_BITS+3+1)
+					& RANGE_MASK)];
+		outptr[1+outptr_offset] = range_limit[range_limit_offset + ((((tmp12 + tmp0) + (1 << ((CONST_BITS+PASS1_BITS+3+1)-1))) >>
+									CONST_BITS+PASS1_BITS+3+1)
+					& RANGE_MASK)];
+		outptr[2+outptr_offset] = range_limit[range_limit_offset + ((((tmp12 - tmp0) + (1 << ((CONST_BITS+PASS1_BITS+3+1)-1))) >>
+									CONST_BITS+PASS1_BITS+3+1)
+					& RANGE_MASK)];
+	}
+}
+
+static void jpeg_idct_2x2 (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
+	short[] coef_block,
+	byte[][] output_buf, int output_buf_offset, int output_col, int[] workspace)
+{
+	int tmp0, tmp10, z1;
+	short[] inptr = coef_block;
+	int[] quantptr = compptr.dct_table;
+	int[] wsptr = workspace;
+	byte[] outptr;
+	byte[] range_limit = cinfo.sample_range_limit;
+	int range_limit_offset = cinfo.sample_range_limit_offset + CENTERJSAMPLE;
+	int ctr;
+
+	/* Pass 1: process columns from input, store into work array. */
+
+	int inptr_offset = 0, quantptr_offset = 0, wsptr_offset = 0;
+	for (ctr = DCTSIZE; ctr > 0; ctr--, inptr_offset++, quantptr_offset++, wsptr_offset++) {
+		/* Don't bother to process columns 2,4,6 */
+		if (ctr == DCTSIZE-2 || ctr == DCTSIZE-4 || ctr == DCTSIZE-6)
+			continue;
+		if (inptr[DCTSIZE*1+inptr_offset] == 0 && inptr[DCTSIZE*3+inptr_offset] == 0 &&
+			inptr[DCTSIZE*5+inptr_offset] == 0 && inptr[DCTSIZE*7+inptr_offset] == 0)
+		{
+			/* AC terms all zero; we need not examine terms 2,4,6 for 2x2 output */
+			int dcval = ((inptr[DCTSIZE*0+inptr_offset]) * quantptr[DCTSIZE*0+quantptr_offset]) << PASS1_BITS;
+
+			wsptr[DCTSIZE*0+wsptr_offset] = dcval;
+			wsptr[DCTSIZE*1+wsptr_offset] = dcval;
+			continue;
+		}
+
+		/* Even part */
+
+		z1 = ((inptr[DCTSIZE*0+inptr_offset]) * quantptr[DCTSIZE*0+quantptr_offset]);
+		tmp10 = z1 << (CONST_BITS+2);
+
+		/* Odd part */
+
+		z1 = ((inptr[DCTSIZE*7+inptr_offset]) * quantptr[DCTSIZE*7+quantptr_offset]);
+		tmp0 = (z1 * - 5906/*FIX_0_720959822*/); /* sqrt(2) * (c7-c5+c3-c1) */
+		z1 = ((inptr[DCTSIZE*5+inptr_offset]) * quantptr[DCTSIZE*5+quantptr_offset]);
+		tmp0 += (z1 * 6967/*FIX_0_850430095*/); /* sqrt(2) * (-c1+c3+c5+c7) */
+		z1 = ((inptr[DCTSIZE*3+inptr_offset]) * quantptr[DCTSIZE*3+quantptr_offset]);
+		tmp0 += (z1 * - 10426/*FIX_1_272758580*/); /* sqrt(2) * (-c1+c3-c5-c7) */
+		z1 = ((inptr[DCTSIZE*1+inptr_offset]) * quantptr[DCTSIZE*1+quantptr_offset]);
+		tmp0 += (z1 * 29692/*FIX_3_624509785*/); /* sqrt(2) * (c1+c3+c5+c7) */
+
+		/* Final output stage */
+
+		wsptr[DCTSIZE*0+wsptr_offset] = (((tmp10 + tmp0) + (1 << ((CONST_BITS-PASS1_BITS+2)-1))) >> (CONST_BITS-PASS1_BITS+2));
+		wsptr[DCTSIZE*1+wsptr_offset] = (((tmp10 - tmp0) + (1 << ((CONST_BITS-PASS1_BITS+2)-1))) >> (CONST_BITS-PASS1_BITS+2));
+	}
+
+	/* Pass 2: process 2 rows from work array, store into output array. */
+
+	int outptr_offset;
+	wsptr_offset = 0;
+	for (ctr = 0; ctr < 2; ctr++, wsptr_offset += DCTSIZE) {
+		outptr = output_buf[ctr+output_buf_offset];
+		outptr_offset = output_col;
+
+		if (wsptr[1+wsptr_offset] == 0 && wsptr[3+wsptr_offset] == 0 && wsptr[5+wsptr_offset] == 0 && wsptr[7+wsptr_offset] == 0) {
+			/* AC terms all zero */
+			byte dcval = range_limit[range_limit_offset + ((((wsptr[0+wsptr_offset]) + (1 << ((PASS1_BITS+3)-1))) >> PASS1_BITS+3)
+					& RANGE_MASK)];
+
+			outptr[0+outptr_offset] = dcval;
+			outptr[1+outptr_offset] = dcval;
+			continue;
+		}
+
+		/* Even part */
+
+		tmp10 = wsptr[0+wsptr_offset] << (CONST_BITS+2);
+
+		/* Odd part */
+
+		tmp0 = (wsptr[7+wsptr_offset] * - 5906/*FIX_0_720959822*/) /* sqrt(2) * (c7-c5+c3-c1) */
+			+ (wsptr[5+wsptr_offset] * 6967/*FIX_0_850430095*/) /* sqrt(2) * (-c1+c3+c5+c7) */
+			+ (wsptr[3+wsptr_offset] * - 10426/*FIX_1_272758580*/) /* sqrt(2) * (-c1+c3-c5-c7) */
+			+ (wsptr[1+wsptr_offset] * 29692/*FIX_3_624509785*/); /* sqrt(2) * (c1+c3+c5+c7) */
+
+		/* Final output stage */
+
+		outptr[0+outptr_offset] = range_limit[range_limit_offset + ((((tmp10 + tmp0) + (1 << ((CONST_BITS+PASS1_BITS+3+2)-1))) >>
+									CONST_BITS+PASS1_BITS+3+2)
+					& RANGE_MASK)];
+		outptr[1+outptr_offset] = range_limit[range_limit_offset + ((((tmp10 - tmp0) + (1 << ((CONST_BITS+PASS1_BITS+3+2)-1))) >>
+									CONST_BITS+PASS1_BITS+3+2)
+					& RANGE_MASK)];
+	}
+}
+
+static void jpeg_idct_1x1 (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
+	short[] coef_block,
+	byte[][] output_buf, int output_buf_offset, int output_col)
+{
+	/* We hardly need an inverse DCT routine for this: just take the
+	 * average pixel value, which is one-eighth of the DC coefficient.
+	 */
+	int dcval = coef_block[0] * compptr.dct_table[0];
+	dcval = (dcval + (1 << (3-1))) >> 3;
+	output_buf[output_buf_offset][output_col] = cinfo.sample_range_limit[cinfo.sample_range_limit_offset + CENTERJSAMPLE + (dcval & RANGE_MASK)];
+}
+
 static void upsample (jpeg_decompress_struct cinfo,
 	byte[][][] input_buf, int[] input_buf_offset, int[] in_row_group_ctr,
 	int in_row_groups_avail,
@@ -3805,7 +4079,7 @@ static int decompress_onepass (jpeg_decompress_struct cinfo, byte[][][] output_b
 					if (cinfo.input_iMCU_row < last_iMCU_row ||	yoffset+yindex < compptr.last_row_height) {
 						output_col = start_col;
 						for (xindex = 0; xindex < useful_width; xindex++) {
-							jpeg_idct_islow(cinfo, compptr, coef.MCU_buffer[blkn+xindex], output_ptr, output_ptr_offset, output_col);
+							inverse_DCT(cinfo, compptr, coef.MCU_buffer[blkn+xindex], output_ptr, output_ptr_offset, output_col, cinfo.workspace);
 							output_col += compptr.DCT_scaled_size;
 						}
 					}
@@ -4024,7 +4298,7 @@ static int decompress_smooth_data (jpeg_decompress_struct cinfo, byte[][][] outp
 					workspace[2] = (short) pred;
 				}
 				/* OK, do the IDCT */
-				jpeg_idct_islow(cinfo, compptr, workspace, output_ptr, output_ptr_offset, output_col);
+				inverse_DCT(cinfo, compptr, workspace, output_ptr, output_ptr_offset, output_col, cinfo.workspace);
 				/* Advance for next column */
 				DC1 = DC2; DC2 = DC3;
 				DC4 = DC5; DC5 = DC6;
@@ -4088,7 +4362,7 @@ static int decompress_data (jpeg_decompress_struct cinfo, byte[][][] output_buf,
 			int buffer_ptr_offset = 0;
 			output_col = 0;
 			for (block_num = 0; block_num < compptr.width_in_blocks; block_num++) {
-				jpeg_idct_islow(cinfo, compptr, buffer_ptr[buffer_ptr_offset], output_ptr, output_ptr_offset, output_col);
+				inverse_DCT(cinfo, compptr, buffer_ptr[buffer_ptr_offset], output_ptr, output_ptr_offset, output_col, cinfo.workspace);
 
 				buffer_ptr_offset++;
 				output_col += compptr.DCT_scaled_size;
@@ -4294,6 +4568,166 @@ static void process_data_simple_main (jpeg_decompress_struct cinfo, byte[][] out
 	}
 }
 
+static boolean use_parallel_decompress (jpeg_decompress_struct cinfo) {
+	/* Only single-scan images that are decoded straight through can be split into bands */
+	if (cinfo.buffered_image || cinfo.coef.decompress_data != DECOMPRESS_ONEPASS) return false;
+	if (cinfo.raw_data_out || cinfo.quantize_colors || cinfo.master.using_merged_upsample) return false;
+	return (long) cinfo.output_width * cinfo.output_height >= PARALLEL_MIN_PIXELS;
+}
+
+/*
+ * Decode a single-scan image into the row-padded data array using the common
+ * ForkJoinPool.  Entropy decoding is inherently serial and stays on the calling
+ * thread, but as soon as an iMCU row of coefficients is available its inverse
+ * DCT is handed to the pool, so it overlaps with decoding of the following rows.
+ * The component planes are kept for the whole image, which allows upsampling and
+ * color conversion to be split into independent bands of row groups once all
+ * rows are available.  The top and bottom edge rows are duplicated exactly like
+ * the context main controller does, so the output is identical to the output
+ * of jpeg_read_scanlines.
+ */
+static void jpeg_read_image_parallel (jpeg_decompress_struct cinfo, byte[] data, int row_stride) {
+	jpeg_d_coef_controller coef = cinfo.coef;
+	int num_components = cinfo.num_components;
+	int total_iMCU_rows = cinfo.total_iMCU_rows;
+	int ci, yoffset, yindex, xindex, blkn, MCU_col_num, start_col;
+	jpeg_component_info compptr;
+
+	/* Allocate a full-height sample plane for each needed component, with a spare row above and below */
+	byte[][][] planes = new byte[num_components][][];
+	for (ci = 0; ci < num_components; ci++) {
+		compptr = cinfo.comp_info[ci];
+		if (! compptr.component_needed) continue;
+		int rows = total_iMCU_rows * compptr.v_samp_factor * compptr.DCT_scaled_size;
+		byte[][] plane = planes[ci] = new byte[rows + 2][];
+		for (int row = 1; row <= rows; row++) {
+			plane[row] = new byte[compptr.width_in_blocks * compptr.DCT_scaled_size];
+		}
+	}
+
+	ForkJoinPool pool = ForkJoinPool.commonPool();
+	/*
+	 * Each pending task holds the coefficients of its iMCU row.  Only a bounded
+	 * window of them is kept in flight, so the coefficients of the whole image
+	 * are never reachable at the same time.
+	 */
+	int window = Math.max(2, pool.getParallelism() * 2);
+	ArrayDeque<ForkJoinTask<?>> pending = new ArrayDeque<>(window);
+	try {
+		while (cinfo.input_iMCU_row < total_iMCU_rows) {
+			/* Entropy decode one iMCU row into a fresh (and therefore zeroed) coefficient buffer */
+			short[][][][] row_coefs = new short[num_components][][][];
+			for (ci = 0; ci < cinfo.comps_in_scan; ci++) {
+				compptr = cinfo.cur_comp_info[ci];
+				row_coefs[compptr.component_index] = new short[compptr.v_samp_factor][cinfo.MCUs_per_row * compptr.MCU_width][DCTSIZE2];
+			}
+			for (yoffset = 0; yoffset < coef.MCU_rows_per_iMCU_row; yoffset++) {
+				for (MCU_col_num = 0; MCU_col_num < cinfo.MCUs_per_row; MCU_col_num++) {
+					/* Construct list of pointers to DCT blocks belonging to this MCU */
+					blkn = 0;
+					for (ci = 0; ci < cinfo.comps_in_scan; ci++) {
+						compptr = cinfo.cur_comp_info[ci];
+						start_col = MCU_col_num * compptr.MCU_width;
+						for (yindex = 0; yindex < compptr.MCU_height; yindex++) {
+							short[][] buffer_ptr = row_coefs[compptr.component_index][yindex+yoffset];
+							for (xindex = 0; xindex < compptr.MCU_width; xindex++) {
+								coef.MCU_buffer[blkn++] = buffer_ptr[start_col+xindex];
+							}
+						}
+					}
+					/* The input is a blocking stream, so the decoder can never be asked to suspend */
+					if (! cinfo.entropy.decode_mcu (cinfo, coef.MCU_buffer)) error();
+				}
+			}
+			int iMCU_row = cinfo.input_iMCU_row;
+			if (pending.size() == window) pending.removeFirst().join();
+			pending.addLast(pool.submit(() -> inverse_DCT_row(cinfo, iMCU_row, row_coefs, planes)));
+			if (++(cinfo.input_iMCU_row) < total_iMCU_rows) {
+				coef.start_iMCU_row(cinfo);
+			}
+		}
+		finish_input_pass (cinfo);
+		while (!pending.isEmpty()) pending.removeFirst().join();
+	} finally {
+		for (ForkJoinTask<?> task : pending) task.cancel(false);
+	}
+	cinfo.output_iMCU_row = total_iMCU_rows;
+
+	/* Duplicate the first and the last real sample row into the context rows */
+	for (ci = 0; ci < num_components; ci++) {
+		byte[][] plane = planes[ci];
+		if (plane == null) continue;
+		int rows_left = cinfo.comp_info[ci].downsampled_height;
+		plane[0] = plane[1];
+		for (int row = rows_left + 1; row < plane.length; row++) {
+			plane[row] = plane[rows_left];
+		}
+	}
+
+	/* Upsample and color convert bands of row groups directly into the image data */
+	int row_groups = (cinfo.output_height + cinfo.max_v_samp_factor - 1) / cinfo.max_v_samp_factor;
+	int bands = Math.min(row_groups, pool.getParallelism() * 4);
+	List<ForkJoinTask<?>> tasks = new ArrayList<>(bands);
+	for (int band = 0; band < bands; band++) {
+		int first_group = (int) ((long) row_groups * band / bands);
+		int end_group = (int) ((long) row_groups * (band + 1) / bands);
+		tasks.add(ForkJoinTask.adapt(() -> upsample_band(cinfo, planes, first_group, end_group, data, row_stride)));
+	}
+	ForkJoinTask.invokeAll(tasks);
+	cinfo.output_scanline = cinfo.output_height;
+}
+
+static void inverse_DCT_row (jpeg_decompress_struct cinfo, int iMCU_row, short[][][][] row_coefs, byte[][][] planes) {
+	int[] workspace = new int[DCTSIZE2];
+	for (int ci = 0; ci < cinfo.num_components; ci++) {
+		jpeg_component_info compptr = cinfo.comp_info[ci];
+		short[][][] coefs = row_coefs[ci];
+		if (coefs == null || planes[ci] == null) continue;
+		/* Count non-dummy DCT block rows in this iMCU row */
+		int block_rows = compptr.v_samp_factor;
+		if (iMCU_row == cinfo.total_iMCU_rows - 1) {
+			block_rows = compptr.height_in_blocks % compptr.v_samp_factor;
+			if (block_rows == 0) block_rows = compptr.v_samp_factor;
+		}
+		int output_ptr_offset = 1 + iMCU_row * compptr.v_samp_factor * compptr.DCT_scaled_size;
+		for (int block_row = 0; block_row < block_rows; block_row++) {
+			short[][] buffer_ptr = coefs[block_row];
+			int output_col = 0;
+			for (int block_num = 0; block_num < compptr.width_in_blocks; block_num++) {
+				inverse_DCT(cinfo, compptr, buffer_ptr[block_num], planes[ci], output_ptr_offset, output_col, workspace);
+				output_col += compptr.DCT_scaled_size;
+			}
+			output_ptr_offset += compptr.DCT_scaled_size;
+		}
+	}
+}
+
+static void upsample_band (jpeg_decompress_struct cinfo, byte[][][] planes, int first_group, int end_group, byte[] data, int row_stride) {
+	jpeg_upsampler upsample = cinfo.upsample;
+	int num_components = cinfo.num_components;
+	int max_v_samp_factor = cinfo.max_v_samp_factor;
+	byte[][][] color_buf = new byte[num_components][][];
+	int[] color_buf_offset = new int[num_components];
+	for (int ci = 0; ci < num_components; ci++) {
+		if (upsample.color_buf[ci] != null) {
+			color_buf[ci] = new byte[max_v_samp_factor][upsample.color_buf[ci][0].length];
+		}
+	}
+	byte[][] output_buf = new byte[max_v_samp_factor][row_stride];
+	for (int group = first_group; group < end_group; group++) {
+		for (int ci = 0; ci < num_components; ci++) {
+			int offset = 1 + group * upsample.rowgroup_height[ci];
+			upsample_component(cinfo, cinfo.comp_info[ci], planes[ci], offset, color_buf, color_buf_offset, ci);
+		}
+		int first_row = group * max_v_samp_factor;
+		int num_rows = Math.min(max_v_samp_factor, cinfo.output_height - first_row);
+		color_convert(cinfo, color_buf, color_buf_offset, 0, output_buf, 0, num_rows);
+		for (int row = 0; row < num_rows; row++) {
+			System.arraycopy(output_buf[row], 0, data, (first_row + row) * row_stride, row_stride);
+		}
+	}
+}
+
 static int jpeg_read_scanlines (jpeg_decompress_struct cinfo, byte[][] scanlines, int max_lines) {
 
 	if (cinfo.global_state != DSTATE_SCANNING)
@@ -4749,15 +5183,7 @@ static void sep_upsample (jpeg_decompress_struct cinfo, byte[][][] input_buf, in
 			 * to color_buf[ci], so that fullsize_upsample can change it.
 			 */
 			int offset = input_buf_offset[ci] + (in_row_group_ctr[0] * upsample.rowgroup_height[ci]);
-			switch (upsample.methods[ci]) {
-				case NOOP_UPSAMPLE: noop_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case FULLSIZE_UPSAMPLE: fullsize_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case H2V1_FANCY_UPSAMPLE: h2v1_fancy_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case H2V1_UPSAMPLE: h2v1_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case H2V2_FANCY_UPSAMPLE: h2v2_fancy_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case H2V2_UPSAMPLE: h2v2_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-				case INT_UPSAMPLE: int_upsample(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci); break;
-			}
+			upsample_component(cinfo, compptr, input_buf[ci], offset, upsample.color_buf, upsample.color_buf_offset, ci);
 		}
 		upsample.next_row_out = 0;
 	}
@@ -4776,13 +5202,7 @@ static void sep_upsample (jpeg_decompress_struct cinfo, byte[][][] input_buf, in
 	if (num_rows > out_rows_avail)
 		num_rows = out_rows_avail;
 
-	switch (cinfo.cconvert.color_convert) {
-		case NULL_CONVERT: null_convert (cinfo, upsample.color_buf, upsample.color_buf_offset, upsample.next_row_out, output_buf, out_row_ctr[0], num_rows); break;
-		case GRAYSCALE_CONVERT: grayscale_convert (cinfo, upsample.color_buf, upsample.color_buf_offset, upsample.next_row_out, output_buf, out_row_ctr[0], num_rows); break;
-		case YCC_RGB_CONVERT: ycc_rgb_convert (cinfo, upsample.color_buf, upsample.color_buf_offset, upsample.next_row_out, output_buf, out_row_ctr[0], num_rows); break;
-		case GRAY_RGB_CONVERT: gray_rgb_convert (cinfo, upsample.color_buf, upsample.color_buf_offset, upsample.next_row_out, output_buf, out_row_ctr[0], num_rows); break;
-		case YCCK_CMYK_CONVERT: error(); break;
-	}
+	color_convert(cinfo, upsample.color_buf, upsample.color_buf_offset, upsample.next_row_out, output_buf, out_row_ctr[0], num_rows);
 
 	/* Adjust counts */
 	out_row_ctr[0] += num_rows;
@@ -4794,6 +5214,33 @@ static void sep_upsample (jpeg_decompress_struct cinfo, byte[][][] input_buf, in
 	}
 }
 
+static void upsample_component (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
+	byte[][] input_data, int input_data_offset, byte[][][] output_data_ptr, int[] output_data_offset, int output_data_index)
+{
+	switch (cinfo.upsample.methods[output_data_index]) {
+		case NOOP_UPSAMPLE: noop_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case FULLSIZE_UPSAMPLE: fullsize_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case H2V1_FANCY_UPSAMPLE: h2v1_fancy_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case H2V1_UPSAMPLE: h2v1_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case H2V2_FANCY_UPSAMPLE: h2v2_fancy_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case H2V2_UPSAMPLE: h2v2_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+		case INT_UPSAMPLE: int_upsample(cinfo, compptr, input_data, input_data_offset, output_data_ptr, output_data_offset, output_data_index); break;
+	}
+}
+
+static void color_convert (jpeg_decompress_struct cinfo,
+	byte[][][] input_buf, int[] input_buf_offset, int input_row,
+	byte[][] output_buf, int output_buf_offset, int num_rows)
+{
+	switch (cinfo.cconvert.color_convert) {
+		case NULL_CONVERT: null_convert (cinfo, input_buf, input_buf_offset, input_row, output_buf, output_buf_offset, num_rows); break;
+		case GRAYSCALE_CONVERT: grayscale_convert (cinfo, input_buf, input_buf_offset, input_row, output_buf, output_buf_offset, num_rows); break;
+		case YCC_RGB_CONVERT: ycc_rgb_convert (cinfo, input_buf, input_buf_offset, input_row, output_buf, output_buf_offset, num_rows); break;
+		case GRAY_RGB_CONVERT: gray_rgb_convert (cinfo, input_buf, input_buf_offset, input_row, output_buf, output_buf_offset, num_rows); break;
+		case YCCK_CMYK_CONVERT: error(); break;
+	}
+}
+
 static void noop_upsample (jpeg_decompress_struct cinfo, jpeg_component_info compptr,
 	 byte[][] input_data, int input_data_offset, byte[][][] output_data_ptr, int[] output_data_offset, int output_data_index)
 {
@@ -6314,6 +6761,7 @@ static ImageData[] loadFromByteStream(InputStream inputStream, ImageLoader loade
 	cinfo.inputStream = inputStream;
 	jpeg_create_decompress(cinfo);
 	jpeg_read_header(cinfo, true);
+	cinfo.scale_denom = loader.scaleDenominator;
 	cinfo.buffered_image = cinfo.progressive_mode && loader.hasListeners();
 	jpeg_start_decompress(cinfo);
 	PaletteData palette = null;
@@ -6351,6 +6799,8 @@ static ImageData[] loadFromByteStream(InputStream inputStream, ImageLoader loade
 			jpeg_finish_output(cinfo);
 			loader.notifyListeners(new ImageLoaderEvent(loader, (ImageData)imageData.clone(), incrementCount, done = jpeg_input_complete(cinfo)));
 		} while (!done);
+	} else if (loader.parallel && use_parallel_decompress(cinfo)) {
+		jpeg_read_image_parallel(cinfo, data, row_stride);
 	} else {
 		while (cinfo.output_scanline < cinfo.output_height) {
 			int offset = row_stride * cinfo.output_scanline;
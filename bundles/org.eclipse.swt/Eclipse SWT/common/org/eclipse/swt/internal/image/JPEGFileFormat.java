@@ -1362,15 +1362,11 @@ void inverseDCT(int[] dataUnit) {
 		}
 	}
 }
-@Override
-boolean isFileFormat(LEDataInputStream stream) {
-	try {
-		JPEGStartOfImage soi = new JPEGStartOfImage(stream);
-		stream.unread(soi.reference);
-		return soi.verify();  // we no longer check for appN
-	} catch (Exception e) {
-		return false;
-	}
+/**
+ * Answer whether the header starts with the JPEG start of image marker.
+ */
+static boolean isFileFormat(byte[] header) {
+	return header.length >= 2 && ((header[0] & 0xFF) << 8 | (header[1] & 0xFF)) == SOI;  // we no longer check for appN
 }
 boolean isZeroInColumn(int[] dataUnit, int col) {
 	return dataUnit[col + 8] == 0 && dataUnit[col + 16] == 0
@@ -23,17 +23,13 @@ public final class OS2BMPFileFormat extends FileFormat {
 	static final int BMPHeaderFixedSize = 12;
 	int width, height, bitCount;
 
-@Override
-boolean isFileFormat(LEDataInputStream stream) {
-	try {
-		byte[] header = new byte[18];
-		stream.read(header);
-		stream.unread(header);
-		int infoHeaderSize = (header[14] & 0xFF) | ((header[15] & 0xFF) << 8) | ((header[16] & 0xFF) << 16) | ((header[17] & 0xFF) << 24);
-		return header[0] == 0x42 && header[1] == 0x4D && infoHeaderSize == BMPHeaderFixedSize;
-	} catch (Exception e) {
-		return false;
-	}
+/**
+ * Answer whether the header is the start of an OS/2 BMP file.
+ */
+static boolean isFileFormat(byte[] header) {
+	if (header.length < 18) return false;
+	int infoHeaderSize = (header[14] & 0xFF) | ((header[15] & 0xFF) << 8) | ((header[16] & 0xFF) << 16) | ((header[17] & 0xFF) << 24);
+	return header[0] == 0x42 && header[1] == 0x4D && infoHeaderSize == BMPHeaderFixedSize;
 }
 byte[] loadData(byte[] infoHeader) {
 	int stride = (width * bitCount + 7) / 8;
@@ -51,15 +51,14 @@ ImageData[] loadFromByteStream() {
 		headerChunk = chunkReader.getIhdrChunk();
 		int width = headerChunk.getWidth(), height = headerChunk.getHeight();
 		if (width <= 0 || height <= 0) SWT.error(SWT.ERROR_INVALID_IMAGE);
-		int imageSize = getAlignedBytesPerRow() * height;
-		data = new byte[imageSize];
+		// The image data allocates its own buffer, which non-interlaced images are decoded into directly
 		imageData = ImageData.internal_new(
 			width,
 			height,
 			headerChunk.getSwtBitsPerPixel(),
 			new PaletteData(0, 0, 0),
 			4,
-			data,
+			null,
 			0,
 			null,
 			null,
@@ -151,24 +150,20 @@ void unloadIntoByteStream(ImageLoader loader) {
 	PngEncoder encoder = new PngEncoder(loader);
 	encoder.encode(outputStream);
 }
-@Override
-boolean isFileFormat(LEDataInputStream stream) {
-	try {
-		byte[] signature = new byte[SIGNATURE_LENGTH];
-		stream.read(signature);
-		stream.unread(signature);
-		if ((signature[0] & 0xFF) != 137) return false; //137
-		if ((signature[1] & 0xFF) != 80) return false; //P
-		if ((signature[2] & 0xFF) != 78) return false; //N
-		if ((signature[3] & 0xFF) != 71) return false; //G
-		if ((signature[4] & 0xFF) != 13) return false; //<RETURN>
-		if ((signature[5] & 0xFF) != 10) return false; //<LINEFEED>
-		if ((signature[6] & 0xFF) != 26) return false; //<CTRL/Z>
-		if ((signature[7] & 0xFF) != 10) return false; //<LINEFEED>
-		return true;
-	} catch (Exception e) {
-		return false;
-	}
+/**
+ * Answer whether the header starts with the PNG signature.
+ */
+static boolean isFileFormat(byte[] header) {
+	if (header.length < SIGNATURE_LENGTH) return false;
+	if ((header[0] & 0xFF) != 137) return false; //137
+	if ((header[1] & 0xFF) != 80) return false; //P
+	if ((header[2] & 0xFF) != 78) return false; //N
+	if ((header[3] & 0xFF) != 71) return false; //G
+	if ((header[4] & 0xFF) != 13) return false; //<RETURN>
+	if ((header[5] & 0xFF) != 10) return false; //<LINEFEED>
+	if ((header[6] & 0xFF) != 26) return false; //<CTRL/Z>
+	if ((header[7] & 0xFF) != 10) return false; //<LINEFEED>
+	return true;
 }
 /**
  * SWT does not support 16-bit depths. If this image uses
@@ -447,6 +442,7 @@ void readInterlaceFrame(
  * data stream.
  */
 void readInterlacedImage(InputStream inputStream) throws IOException {
+	data = new byte[getAlignedBytesPerRow() * headerChunk.getHeight()];
 	readInterlaceFrame(inputStream, 8, 8, 0, 0, 0);
 	readInterlaceFrame(inputStream, 8, 8, 0, 4, 1);
 	readInterlaceFrame(inputStream, 8, 4, 4, 0, 2);
@@ -471,17 +467,25 @@ void fireInterlacedFrameEvent(int frameCount) {
 /**
  * Read the pixel data for a non-interlaced image from the
  * data stream.
- * Update the imageData to reflect the new data.
+ * Each row is unfiltered and converted straight into the
+ * imageData, so the inflated image is never held in memory
+ * as a whole.
  */
 void readNonInterlacedImage(InputStream inputStream) throws IOException {
-	int dataOffset = 0;
-	int alignedBytesPerRow = getAlignedBytesPerRow();
 	int bytesPerRow = getBytesPerRow();
 	byte[] row1 = new byte[bytesPerRow];
 	byte[] row2 = new byte[bytesPerRow];
 	byte[] currentRow = row1;
 	byte[] lastRow = row2;
+	/*
+	* If the image uses 16-bit depth, each row is converted
+	* to an 8-bit depth row before it is stored.
+	*/
+	byte[] pixelRow = headerChunk.getBitDepth() > 8 ? new byte[bytesPerRow / 2] : null;
+	createAlphaData();
 	int height = headerChunk.getHeight();
+	int bandHeight = loader.hasListeners() ? loader.bandHeight : 0;
+	int bandStart = 0, bandCount = 0;
 	for (int row = 0; row < height; row++) {
 		byte filterType = (byte)inputStream.read();
 		int read = 0;
@@ -489,12 +493,118 @@ void readNonInterlacedImage(InputStream inputStream) throws IOException {
 			read += inputStream.read(currentRow, read, bytesPerRow - read);
 		}
 		filterRow(currentRow, lastRow, filterType);
-		System.arraycopy(currentRow, 0, data, dataOffset, bytesPerRow);
-		dataOffset += alignedBytesPerRow;
+		if (pixelRow != null) {
+			compress16BitDepthTo8BitDepth(currentRow, 0, pixelRow, 0, pixelRow.length);
+			setRowValues(pixelRow, row);
+		} else {
+			setRowValues(currentRow, row);
+		}
+		if (bandHeight > 0 && (row + 1 - bandStart == bandHeight || row + 1 == height)) {
+			fireBandEvent(bandStart, row + 1 - bandStart, bandCount++);
+			bandStart = row + 1;
+		}
 		currentRow = (currentRow == row1) ? row2 : row1;
 		lastRow = (lastRow == row1) ? row2 : row1;
 	}
-	setImageDataValues(data, imageData);
+}
+/**
+ * Allocate the alpha data for images with an alpha channel
+ * or with more than one transparent palette entry.
+ */
+void createAlphaData() {
+	switch (headerChunk.getColorType()) {
+		case PngIhdrChunk.COLOR_TYPE_GRAYSCALE_WITH_ALPHA:
+		case PngIhdrChunk.COLOR_TYPE_RGB_WITH_ALPHA:
+			imageData.alphaData = new byte[imageData.width * imageData.height];
+			break;
+		case PngIhdrChunk.COLOR_TYPE_PALETTE:
+			if (alphaPalette != null) imageData.alphaData = new byte[imageData.width * imageData.height];
+			break;
+	}
+}
+/**
+ * Store one unfiltered row of pixels into the imageData,
+ * applying the same conversions as setPixelData().
+ * Note: This method assumes that the bit depth of the
+ * row has already been restricted to 8 or less.
+ */
+void setRowValues(byte[] row, int y) {
+	int width = imageData.width;
+	byte[] rgbData = imageData.data;
+	byte[] alphaData = imageData.alphaData;
+	int destIndex = imageData.bytesPerLine * y;
+	int destAlphaIndex = width * y;
+	switch (headerChunk.getColorType()) {
+		case PngIhdrChunk.COLOR_TYPE_GRAYSCALE_WITH_ALPHA:
+			for (int x = 0, srcIndex = 0; x < width; x++) {
+				byte grey = row[srcIndex];
+				rgbData[destIndex + 0] = grey;
+				rgbData[destIndex + 1] = grey;
+				rgbData[destIndex + 2] = grey;
+				alphaData[destAlphaIndex++] = row[srcIndex + 1];
+				srcIndex += 2;
+				destIndex += 3;
+			}
+			break;
+		case PngIhdrChunk.COLOR_TYPE_RGB_WITH_ALPHA:
+			for (int x = 0, srcIndex = 0; x < width; x++) {
+				rgbData[destIndex + 0] = row[srcIndex + 0];
+				rgbData[destIndex + 1] = row[srcIndex + 1];
+				rgbData[destIndex + 2] = row[srcIndex + 2];
+				alphaData[destAlphaIndex++] = row[srcIndex + 3];
+				srcIndex += 4;
+				destIndex += 3;
+			}
+			break;
+		case PngIhdrChunk.COLOR_TYPE_PALETTE:
+			System.arraycopy(row, 0, rgbData, destIndex, row.length);
+			if (alphaData != null) {
+				imageData.getPixels(0, y, width, alphaData, destAlphaIndex);
+				for (int i = destAlphaIndex; i < destAlphaIndex + width; i++) {
+					alphaData[i] = alphaPalette[alphaData[i] & 0xFF];
+				}
+			}
+			break;
+		case PngIhdrChunk.COLOR_TYPE_RGB:
+		default:
+			System.arraycopy(row, 0, rgbData, destIndex, row.length);
+			break;
+	}
+}
+/**
+ * Fire an event to let listeners know that a band of rows
+ * of a non-interlaced image has been loaded. The event image
+ * data only contains the rows of the band, and its y field
+ * is the first row of the band in the image.
+ */
+void fireBandEvent(int startRow, int rows, int bandCount) {
+	int bytesPerLine = imageData.bytesPerLine;
+	byte[] bandData = new byte[bytesPerLine * rows];
+	System.arraycopy(imageData.data, bytesPerLine * startRow, bandData, 0, bandData.length);
+	byte[] bandAlphaData = null;
+	if (imageData.alphaData != null) {
+		bandAlphaData = new byte[imageData.width * rows];
+		System.arraycopy(imageData.alphaData, imageData.width * startRow, bandAlphaData, 0, bandAlphaData.length);
+	}
+	ImageData band = ImageData.internal_new(
+		imageData.width,
+		rows,
+		imageData.depth,
+		imageData.palette,
+		imageData.scanlinePad,
+		bandData,
+		0,
+		null,
+		bandAlphaData,
+		-1,
+		imageData.transparentPixel,
+		SWT.IMAGE_PNG,
+		0,
+		startRow,
+		0,
+		0);
+	boolean finalBand = startRow + rows == imageData.height;
+	loader.notifyListeners(new ImageLoaderEvent(loader, band, bandCount, finalBand));
 }
 /**
  * SWT does not support 16-bit depth color formats.
@@ -14,6 +14,8 @@
 package org.eclipse.swt.internal.image;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import org.eclipse.swt.*;
@@ -33,6 +35,17 @@ final class PngEncoder extends Object {
 	static final int BEST_COMPRESSION = 9;
 	static final int DEFAULT_COMPRESSION = -1;
 
+	/* The chunks of rows that are filtered and compressed in parallel, when the loader allows it */
+	static final int CHUNK_SIZE = 128 * 1024;
+	static final int WINDOW_SIZE = 32 * 1024;
+	static final int ADLER_BASE = 65521;
+
+	static final int FILTER_NONE = 0;
+	static final int FILTER_SUB = 1;
+	static final int FILTER_UP = 2;
+	static final int FILTER_AVERAGE = 3;
+	static final int FILTER_PAETH = 4;
+
 	ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
 	PngChunk chunk;
 
@@ -41,6 +54,7 @@ final class PngEncoder extends Object {
 	int transparencyType;
 
 	int width, height, bitDepth, colorType;
+	int bytesPerPixel, bytesPerRow;
 
 	int compressionMethod = 0;
 	int filterMethod = 0;
@@ -70,6 +84,9 @@ public PngEncoder(ImageLoader loader) {
 
 	if (!(colorType == 2 || colorType == 3 || colorType == 6)) SWT.error(SWT.ERROR_INVALID_IMAGE);
 
+	this.bytesPerPixel = colorType == 6 ? 4 : colorType == 2 ? 3 : 1;
+	this.bytesPerRow = width * bytesPerPixel;
+
 }
 
 void writeShort(ByteArrayOutputStream baos, int theShort) {
@@ -233,101 +250,298 @@ void writeTransparency() {
 
 }
 
-void writeImageData() throws IOException {
+int getLevel() {
 
-	ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-	OutputStream os = null;
 	switch (loader.compression) {
-	case 0:
-		os = new DeflaterOutputStream(baos, new Deflater(NO_COMPRESSION));
-		break;
-	case 1:
-		os = new DeflaterOutputStream(baos, new Deflater(BEST_SPEED));
-		break;
-	case 3:
-		os = new DeflaterOutputStream(baos, new Deflater(BEST_COMPRESSION));
-		break;
-	default:
-		os = new DeflaterOutputStream(baos, new Deflater(DEFAULT_COMPRESSION));
-		break;
+		case 0: return NO_COMPRESSION;
+		case 1: return BEST_SPEED;
+		case 3: return BEST_COMPRESSION;
+		default: return DEFAULT_COMPRESSION;
 	}
 
-	if (colorType == 3) {
+}
 
-		byte[] lineData = new byte[width];
+/*
+ * Convert the pixels of row y into PNG samples. The lineData and
+ * alphaData arrays are scratch buffers of the image width, alphaData
+ * is only needed when the color type has an alpha channel.
+ */
+void getLineBytes(int y, byte[] lineBytes, int[] lineData, byte[] alphaData) {
 
-		for (int y = 0; y < height; y++) {
+	if (colorType == 3) {
 
-			int filter = 0;
-			os.write(filter);
+		data.getPixels(0, y, width, lineBytes, 0);
+		return;
 
-			data.getPixels(0, y, width, lineData, 0);
+	}
 
-			os.write(lineData);
+	int redMask = data.palette.redMask;
+	int redShift = data.palette.redShift;
+	int greenMask = data.palette.greenMask;
+	int greenShift = data.palette.greenShift;
+	int blueShift = data.palette.blueShift;
+	int blueMask = data.palette.blueMask;
 
-		}
+	data.getPixels(0, y, width, lineData, 0);
 
+	if (colorType == 6) {
+		data.getAlphas(0, y, width, alphaData, 0);
 	}
 
-	else {
+	int offset = 0;
+	for (int x = 0; x < lineData.length; x++) {
+
+		int pixel = lineData[x];
+
+		int r = pixel & redMask;
+		lineBytes[offset++] = (byte) ((redShift < 0) ? r >>> -redShift
+				: r << redShift);
+		int g = pixel & greenMask;
+		lineBytes[offset++] = (byte) ((greenShift < 0) ? g >>> -greenShift
+				: g << greenShift);
+		int b = pixel & blueMask;
+		lineBytes[offset++] = (byte) ((blueShift < 0) ? b >>> -blueShift
+				: b << blueShift);
 
-		int[] lineData = new int[width];
-		byte[] alphaData = null;
 		if (colorType == 6) {
-			alphaData = new byte[width];
+			lineBytes[offset++] = alphaData[x];
 		}
 
-		int redMask = data.palette.redMask;
-		int redShift = data.palette.redShift;
-		int greenMask = data.palette.greenMask;
-		int greenShift = data.palette.greenShift;
-		int blueShift = data.palette.blueShift;
-		int blueMask = data.palette.blueMask;
+	}
+
+}
 
-		byte[] lineBytes = new byte[width * (colorType == 6 ? 4 : 3)];
+void writeImageData() throws IOException {
 
-		for (int y = 0; y < height; y++) {
+	if (loader.parallel) {
+		writeImageDataParallel();
+		return;
+	}
+
+	ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+	OutputStream os = new DeflaterOutputStream(baos, new Deflater(getLevel()));
+
+	byte[] lineBytes = new byte[bytesPerRow];
+	int[] lineData = new int[width];
+	byte[] alphaData = new byte[width];
+
+	for (int y = 0; y < height; y++) {
+
+		int filter = 0;
+		os.write(filter);
+
+		getLineBytes(y, lineBytes, lineData, alphaData);
+
+		os.write(lineBytes);
+
+	}
+
+	os.flush();
+	os.close();
+
+	writeChunk(TAG_IDAT, baos.toByteArray());
+
+}
+
+/*
+ * Compress the image data the way pigz does: the rows are split into
+ * chunks of about CHUNK_SIZE bytes that are filtered and deflated on the
+ * common ForkJoinPool. Every chunk is primed with the last WINDOW_SIZE
+ * bytes of the previous chunk as preset dictionary and ends with a sync
+ * flush, so the raw deflate streams can simply be concatenated. The zlib
+ * header and the combined Adler-32 checksum are added around them.
+ */
+void writeImageDataParallel() throws IOException {
+
+	int level = getLevel();
+	int filteredRowLength = bytesPerRow + 1;
+	int chunkRows = Math.max(1, CHUNK_SIZE / filteredRowLength);
+	int chunkCount = (height + chunkRows - 1) / chunkRows;
+
+	List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(chunkCount);
+	int[] adlers = new int[chunkCount];
+	for (int chunk = 0; chunk < chunkCount; chunk++) {
+
+		int index = chunk;
+		int startRow = chunk * chunkRows;
+		int endRow = Math.min(height, startRow + chunkRows);
+		tasks.add(ForkJoinTask.adapt(() -> deflateRows(index, startRow, endRow, level, adlers)));
+
+	}
+	ForkJoinTask.invokeAll(tasks);
+
+	ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
 
-			int filter = 0;
-			os.write(filter);
+	/* zlib header: deflate with a 32K window, the level hint and the check bits */
+	baos.write(0x78);
+	baos.write(level == NO_COMPRESSION || level == BEST_SPEED ? 0x01 : level == BEST_COMPRESSION ? 0xDA : 0x9C);
 
-			data.getPixels(0, y, width, lineData, 0);
+	int adler = 1;
+	for (int chunk = 0; chunk < chunkCount; chunk++) {
+
+		byte[] compressed = tasks.get(chunk).join();
+		baos.write(compressed, 0, compressed.length);
+		int rows = Math.min(height, (chunk + 1) * chunkRows) - chunk * chunkRows;
+		adler = combineAdler32(adler, adlers[chunk], (long) rows * filteredRowLength);
+
+	}
+	writeInt(baos, adler);
+
+	writeChunk(TAG_IDAT, baos.toByteArray());
+
+}
+
+byte[] deflateRows(int chunk, int startRow, int endRow, int level, int[] adlers) {
+
+	int filteredRowLength = bytesPerRow + 1;
+	int[] lineData = new int[width];
+	byte[] alphaData = new byte[width];
+	byte[] previous = new byte[bytesPerRow];
+	byte[] current = new byte[bytesPerRow];
+	byte[] filtered = new byte[filteredRowLength];
+	byte[] candidate = new byte[filteredRowLength];
+
+	Deflater deflater = new Deflater(level, true);
+	if (colorType != 3) deflater.setStrategy(Deflater.FILTERED);
+	try {
+
+		/* Filter enough rows of the previous chunk to rebuild its deflate window */
+		int firstRow = startRow;
+		if (startRow > 0) {
+
+			int windowRows = Math.min(startRow, (WINDOW_SIZE + filteredRowLength - 1) / filteredRowLength);
+			firstRow = startRow - windowRows;
+			byte[] dictionary = new byte[windowRows * filteredRowLength];
+			if (firstRow > 0) getLineBytes(firstRow - 1, previous, lineData, alphaData);
+			for (int y = firstRow; y < startRow; y++) {
+
+				getLineBytes(y, current, lineData, alphaData);
+				filterRow(current, previous, filtered, candidate);
+				System.arraycopy(filtered, 0, dictionary, (y - firstRow) * filteredRowLength, filteredRowLength);
+				byte[] temp = previous; previous = current; current = temp;
 
-			if (colorType == 6) {
-				data.getAlphas(0, y, width, alphaData, 0);
 			}
+			int length = Math.min(WINDOW_SIZE, dictionary.length);
+			deflater.setDictionary(dictionary, dictionary.length - length, length);
 
-			int offset = 0;
-			for (int x = 0; x < lineData.length; x++) {
+		}
 
-				int pixel = lineData[x];
+		byte[] rows = new byte[(endRow - startRow) * filteredRowLength];
+		for (int y = startRow; y < endRow; y++) {
 
-				int r = pixel & redMask;
-				lineBytes[offset++] = (byte) ((redShift < 0) ? r >>> -redShift
-						: r << redShift);
-				int g = pixel & greenMask;
-				lineBytes[offset++] = (byte) ((greenShift < 0) ? g >>> -greenShift
-						: g << greenShift);
-				int b = pixel & blueMask;
-				lineBytes[offset++] = (byte) ((blueShift < 0) ? b >>> -blueShift
-						: b << blueShift);
+			getLineBytes(y, current, lineData, alphaData);
+			filterRow(current, previous, filtered, candidate);
+			System.arraycopy(filtered, 0, rows, (y - startRow) * filteredRowLength, filteredRowLength);
+			byte[] temp = previous; previous = current; current = temp;
 
-				if (colorType == 6) {
-					lineBytes[offset++] = alphaData[x];
-				}
+		}
+
+		Adler32 checksum = new Adler32();
+		checksum.update(rows, 0, rows.length);
+		adlers[chunk] = (int) checksum.getValue();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(rows.length / 2 + 64);
+		byte[] buffer = new byte[8192];
+		deflater.setInput(rows);
+		boolean last = endRow == height;
+		if (last) deflater.finish();
+		int count;
+		do {
+			count = deflater.deflate(buffer, 0, buffer.length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+			out.write(buffer, 0, count);
+		} while (last ? !deflater.finished() : count == buffer.length || !deflater.needsInput());
+		return out.toByteArray();
+
+	} finally {
+
+		deflater.end();
 
+	}
+
+}
+
+/*
+ * Filter a row into the given array, including the leading filter type
+ * byte. Palette images are not filtered, as recommended by the PNG
+ * specification. Otherwise every filter is tried and the one with the
+ * minimum sum of absolute differences (taken as signed bytes) wins.
+ * The candidate array is scratch space of the same length as filtered.
+ */
+void filterRow(byte[] row, byte[] previous, byte[] filtered, byte[] candidate) {
+
+	filtered[0] = FILTER_NONE;
+	System.arraycopy(row, 0, filtered, 1, row.length);
+	if (colorType == 3) return;
+
+	long bestSum = sumOfAbsolutes(filtered);
+	for (int filter = FILTER_SUB; filter <= FILTER_PAETH; filter++) {
+
+		candidate[0] = (byte) filter;
+		for (int i = 0; i < row.length; i++) {
+
+			int current = row[i] & 0xFF;
+			int left = i >= bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+			int above = previous[i] & 0xFF;
+			int predictor;
+			switch (filter) {
+				case FILTER_SUB:
+					predictor = left;
+					break;
+				case FILTER_UP:
+					predictor = above;
+					break;
+				case FILTER_AVERAGE:
+					predictor = (left + above) >> 1;
+					break;
+				default:
+					int aboveLeft = i >= bytesPerPixel ? previous[i - bytesPerPixel] & 0xFF : 0;
+					int p = left + above - aboveLeft;
+					int pa = Math.abs(p - left);
+					int pb = Math.abs(p - above);
+					int pc = Math.abs(p - aboveLeft);
+					predictor = (pa <= pb && pa <= pc) ? left : (pb <= pc) ? above : aboveLeft;
+					break;
 			}
+			candidate[i + 1] = (byte) (current - predictor);
 
-			os.write(lineBytes);
+		}
 
+		long sum = sumOfAbsolutes(candidate);
+		if (sum < bestSum) {
+			bestSum = sum;
+			System.arraycopy(candidate, 0, filtered, 0, filtered.length);
 		}
 
 	}
 
-	os.flush();
-	os.close();
+}
 
-	writeChunk(TAG_IDAT, baos.toByteArray());
+static long sumOfAbsolutes(byte[] filtered) {
+
+	long sum = 0;
+	for (int i = 1; i < filtered.length; i++) {
+		sum += Math.abs(filtered[i]);
+	}
+	return sum;
+
+}
+
+/*
+ * Combine the Adler-32 checksum of two consecutive blocks of data,
+ * given the length of the second block (adler32_combine in zlib).
+ */
+static int combineAdler32(int adler1, int adler2, long length2) {
+
+	long rem = length2 % ADLER_BASE;
+	long sum1 = adler1 & 0xFFFF;
+	long sum2 = (rem * sum1) % ADLER_BASE;
+	sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+	sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + ADLER_BASE - rem;
+	if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+	if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+	if (sum2 >= ((long) ADLER_BASE << 1)) sum2 -= ((long) ADLER_BASE << 1);
+	if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+	return (int) (sum1 | (sum2 << 16));
 
 }
 
@@ -357,7 +571,10 @@ public void encode(LEDataOutputStream outputStream) {
 			writeTransparency();
 		}
 
+		long start = System.nanoTime();
 		writeImageData();
+		long elapsed = Math.max(1, System.nanoTime() - start);
+		loader.saveThroughput = (long) ((double) height * bytesPerRow * 1000000000L / elapsed);
 		writeEnd();
 
 		outputStream.write(bytes.toByteArray());
@@ -17,6 +17,8 @@ package org.eclipse.swt.internal.image;
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 final class TIFFDirectory {
 
@@ -88,6 +90,9 @@ final class TIFFDirectory {
 
 	static final int IFD_ENTRY_SIZE = 12;
 
+	/* Strips of smaller images are decoded serially even when the loader is parallel */
+	static final int PARALLEL_MIN_PIXELS = 512 * 512;
+
 public TIFFDirectory(TIFFRandomFileAccess file, boolean isLittleEndian, ImageLoader loader) {
 	this.file = file;
 	this.isLittleEndian = isLittleEndian;
@@ -154,35 +159,91 @@ void getEntryValue(int type, byte[] buffer, int index, int[] values) throws IOEx
 
 void decodePixels(ImageData image) throws IOException {
 	/* Each row is byte aligned */
-	byte[] imageData = new byte[(imageWidth * depth + 7) / 8 * imageLength];
+	int rowByteSize = (imageWidth * depth + 7) / 8;
+	int length = stripOffsets.length;
+	byte[][] strips = null;
+	if (length > 1 && loader.parallel && !loader.hasListeners() && (long) imageWidth * imageLength >= PARALLEL_MIN_PIXELS) {
+		strips = new byte[length][];
+		for (int i = 0; i < length; i++) {
+			strips[i] = readStrip(i);
+		}
+		byte[] imageData = new byte[rowByteSize * imageLength];
+		if (decodeStrips(strips, imageData, rowByteSize)) {
+			image.data = imageData;
+			return;
+		}
+	}
+	byte[] imageData = new byte[rowByteSize * imageLength];
 	image.data = imageData;
 	int destIndex = 0;
-	int length = stripOffsets.length;
 	for (int i = 0; i < length; i++) {
 		/* Read a strip */
-		byte[] data = new byte[stripByteCounts[i]];
-		file.seek(stripOffsets[i]);
-		file.read(data);
-		if (compression == COMPRESSION_NONE) {
-			System.arraycopy(data, 0, imageData, destIndex, data.length);
-			destIndex += data.length;
-		} else if (compression == COMPRESSION_PACKBITS) {
-			destIndex += decodePackBits(data, imageData, destIndex);
-		} else if (compression == COMPRESSION_CCITT_3_1 || compression == 3) {
-			TIFFModifiedHuffmanCodec codec = new TIFFModifiedHuffmanCodec();
-			int nRows = rowsPerStrip;
-			if (i == length -1) {
-				int n = imageLength % rowsPerStrip;
-				if (n != 0) nRows = n;
-			}
-			destIndex += codec.decode(data, imageData, destIndex, imageWidth, nRows);
-		}
+		byte[] data = strips != null ? strips[i] : readStrip(i);
+		destIndex += decodeStrip(i, data, imageData, destIndex);
 		if (loader.hasListeners()) {
 			loader.notifyListeners(new ImageLoaderEvent(loader, image, i, i == length - 1));
 		}
 	}
 }
 
+/**
+ * Decode the strips concurrently, every strip into the rows it
+ * covers. Answer false if a strip does not decode to exactly
+ * those rows, in which case the strips are decoded one after
+ * the other like in a file that does not follow the spec.
+ */
+boolean decodeStrips(byte[][] strips, byte[] imageData, int rowByteSize) {
+	int length = strips.length;
+	long stripSize = (long) rowsPerStrip * rowByteSize;
+	int[] sizes = new int[length];
+	int[] counts = new int[length];
+	List<ForkJoinTask<?>> tasks = new ArrayList<>(length);
+	for (int i = 0; i < length; i++) {
+		long offset = i * stripSize;
+		if (offset >= imageData.length) return false;
+		sizes[i] = (int) Math.min(stripSize, imageData.length - offset);
+		final int index = i, destIndex = (int) offset;
+		tasks.add(ForkJoinTask.adapt(() -> {
+			counts[index] = decodeStrip(index, strips[index], imageData, destIndex);
+		}));
+	}
+	try {
+		ForkJoinTask.invokeAll(tasks);
+	} catch (RuntimeException e) {
+		return false;
+	}
+	return Arrays.equals(sizes, counts);
+}
+
+byte[] readStrip(int index) throws IOException {
+	byte[] data = new byte[stripByteCounts[index]];
+	file.seek(stripOffsets[index]);
+	file.read(data);
+	return data;
+}
+
+/**
+ * Decode the strip at the given index into the image data at
+ * destIndex and answer the number of bytes written.
+ */
+int decodeStrip(int index, byte[] data, byte[] imageData, int destIndex) {
+	if (compression == COMPRESSION_NONE) {
+		System.arraycopy(data, 0, imageData, destIndex, data.length);
+		return data.length;
+	} else if (compression == COMPRESSION_PACKBITS) {
+		return decodePackBits(data, imageData, destIndex);
+	} else if (compression == COMPRESSION_CCITT_3_1 || compression == 3) {
+		TIFFModifiedHuffmanCodec codec = new TIFFModifiedHuffmanCodec();
+		int nRows = rowsPerStrip;
+		if (index == stripOffsets.length - 1) {
+			int n = imageLength % rowsPerStrip;
+			if (n != 0) nRows = n;
+		}
+		return codec.decode(data, imageData, destIndex, imageWidth, nRows);
+	}
+	return 0;
+}
+
 PaletteData getColorMap() throws IOException {
 	int numColors = 1 << bitsPerSample[0];
 	/* R, G, B entries are 16 bit wide (2 bytes) */
@@ -17,6 +17,7 @@ package org.eclipse.swt.internal.image;
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
 import java.io.*;
+import java.nio.channels.*;
 
 /**
  * Baseline TIFF decoder revision 6.0
@@ -24,29 +25,45 @@ import java.io.*;
  */
 public final class TIFFFileFormat extends FileFormat {
 
-@Override
-boolean isFileFormat(LEDataInputStream stream) {
-	try {
-		byte[] header = new byte[4];
-		stream.read(header);
-		stream.unread(header);
-		if (header[0] != header[1]) return false;
-		if (!(header[0] == 0x49 && header[2] == 42 && header[3] == 0) &&
-			!(header[0] == 0x4d && header[2] == 0 && header[3] == 42)) {
-			return false;
-		}
-		return true;
-	} catch (Exception e) {
+/**
+ * Answer whether the header is the start of a little or big endian TIFF file.
+ */
+static boolean isFileFormat(byte[] header) {
+	if (header.length < 4) return false;
+	if (header[0] != header[1]) return false;
+	if (!(header[0] == 0x49 && header[2] == 42 && header[3] == 0) &&
+		!(header[0] == 0x4d && header[2] == 0 && header[3] == 42)) {
 		return false;
 	}
+	return true;
 }
 
 @Override
 ImageData[] loadFromByteStream() {
+	return loadFromFile(new TIFFRandomFileAccess(inputStream));
+}
+
+/**
+ * Read the pages of the file open on the channel. The directories
+ * and strips are read where they are, without buffering the
+ * bytes in between.
+ */
+@Override
+ImageData[] loadFromChannel(FileChannel channel) {
+	try {
+		return loadFromFile(new TIFFRandomFileAccess(channel));
+	} catch (SWTException e) {
+		throw e;
+	} catch (Exception e) {
+		SWT.error(SWT.ERROR_INVALID_IMAGE, e);
+		return null;
+	}
+}
+
+ImageData[] loadFromFile(TIFFRandomFileAccess file) {
 	byte[] header = new byte[8];
 	boolean isLittleEndian;
 	ImageData[] images = new ImageData[0];
-	TIFFRandomFileAccess file = new TIFFRandomFileAccess(inputStream);
 	try {
 		file.read(header);
 		if (header[0] != header[1]) SWT.error(SWT.ERROR_INVALID_IMAGE);
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.internal.image;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.eclipse.swt.*;
+import org.eclipse.swt.graphics.*;
+
+/**
+ * Decodes the pages of a multi-page TIFF on demand.
+ * <p>
+ * The constructor follows the chain of image file directories and only
+ * reads the entry count and the offset of the next directory of every
+ * page. A page is parsed and decoded when it is asked for, so showing
+ * the first page of a long document does not decode the others.
+ * </p><p>
+ * A loader created from a file name reads the file in place and must be
+ * closed. A loader created from a stream buffers the bytes it has read
+ * so far, like <code>ImageLoader</code>.
+ * </p>
+ */
+public final class TIFFPageLoader implements Closeable {
+
+	final FileChannel channel;
+	final TIFFRandomFileAccess file;
+	final boolean isLittleEndian;
+	final int[] offsets;
+
+	/**
+	 * Whether the strips of a large page may be decoded on several
+	 * threads, like <code>ImageLoader.parallel</code>.
+	 */
+	public boolean parallel;
+
+/**
+ * Opens the file with the given name and indexes its pages.
+ *
+ * @param filename the name of the TIFF file
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the file name is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the file</li>
+ *    <li>ERROR_INVALID_IMAGE - if the file is not a valid TIFF</li>
+ * </ul>
+ */
+public TIFFPageLoader(String filename) {
+	if (filename == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	FileChannel channel = null;
+	try {
+		channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+	} catch (IOException | InvalidPathException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	this.channel = channel;
+	file = new TIFFRandomFileAccess(channel);
+	boolean success = false;
+	try {
+		isLittleEndian = readHeader();
+		offsets = readOffsets();
+		success = true;
+	} finally {
+		if (!success) close();
+	}
+}
+
+/**
+ * Reads the given stream as far as needed to index its pages. The
+ * stream is not closed.
+ *
+ * @param stream the stream to read the TIFF from
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the stream is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the stream</li>
+ *    <li>ERROR_INVALID_IMAGE - if the stream does not contain a valid TIFF</li>
+ * </ul>
+ */
+public TIFFPageLoader(InputStream stream) {
+	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	channel = null;
+	file = new TIFFRandomFileAccess(new LEDataInputStream(stream));
+	isLittleEndian = readHeader();
+	offsets = readOffsets();
+}
+
+boolean readHeader() {
+	byte[] header = new byte[8];
+	try {
+		file.read(header);
+	} catch (IOException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	if (!TIFFFileFormat.isFileFormat(header)) SWT.error(SWT.ERROR_INVALID_IMAGE);
+	return header[0] == 0x49;
+}
+
+/**
+ * Follow the chain of directories and answer their offsets. A
+ * chain that loops back to a directory it has already visited
+ * ends there.
+ */
+int[] readOffsets() {
+	TIFFDirectory directory = new TIFFDirectory(file, isLittleEndian, null);
+	List<Integer> offsets = new ArrayList<>();
+	Set<Integer> visited = new HashSet<>();
+	try {
+		byte[] buffer = new byte[4];
+		file.seek(4);
+		file.read(buffer);
+		int offset = directory.toInt(buffer, 0, TIFFDirectory.TYPE_LONG);
+		while (offset != 0 && visited.add(offset)) {
+			offsets.add(offset);
+			file.seek(offset);
+			file.read(buffer);
+			int numberEntries = directory.toInt(buffer, 0, TIFFDirectory.TYPE_SHORT);
+			file.seek(offset + 2 + TIFFDirectory.IFD_ENTRY_SIZE * numberEntries);
+			file.read(buffer);
+			offset = directory.toInt(buffer, 0, TIFFDirectory.TYPE_LONG);
+		}
+	} catch (IOException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	}
+	int[] result = new int[offsets.size()];
+	for (int i = 0; i < result.length; i++) {
+		result[i] = offsets.get(i);
+	}
+	return result;
+}
+
+/**
+ * Answers whether the given start of a file is the start of a TIFF.
+ */
+public static boolean isFileFormat(byte[] header) {
+	return TIFFFileFormat.isFileFormat(header);
+}
+
+/**
+ * Returns the number of pages.
+ */
+public int getPageCount() {
+	return offsets.length;
+}
+
+/**
+ * Decodes and returns the page at the given index. Every call answers
+ * a new image data.
+ *
+ * @param index the index of the page
+ * @return the page
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_RANGE - if the index is not between 0 and the number of pages - 1</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading the page</li>
+ *    <li>ERROR_INVALID_IMAGE - if the page could not be decoded</li>
+ * </ul>
+ */
+public synchronized ImageData getPage(int index) {
+	if (index < 0 || index >= offsets.length) SWT.error(SWT.ERROR_INVALID_RANGE);
+	try {
+		file.seek(offsets[index]);
+		ImageLoader loader = new ImageLoader();
+		loader.parallel = parallel;
+		TIFFDirectory directory = new TIFFDirectory(file, isLittleEndian, loader);
+		return directory.read(new int[1]);
+	} catch (IOException e) {
+		SWT.error(SWT.ERROR_IO, e);
+	} catch (SWTException e) {
+		throw e;
+	} catch (Exception e) {
+		SWT.error(SWT.ERROR_INVALID_IMAGE, e);
+	}
+	return null;
+}
+
+/**
+ * Closes the file of a loader that was created from a file name.
+ */
+@Override
+public void close() {
+	if (channel == null) return;
+	try {
+		channel.close();
+	} catch (IOException e) {
+		// Ignore error
+	}
+}
+}
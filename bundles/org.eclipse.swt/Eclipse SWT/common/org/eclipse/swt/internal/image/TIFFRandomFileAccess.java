@@ -14,10 +14,13 @@
 package org.eclipse.swt.internal.image;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 
 final class TIFFRandomFileAccess {
 
 	LEDataInputStream inputStream;
+	FileChannel channel;
 	int start, current, next;
 	byte[][] buffers;
 
@@ -30,10 +33,19 @@ public TIFFRandomFileAccess(LEDataInputStream stream) {
 	buffers = new byte[LIST_SIZE][];
 }
 
+/**
+ * Read the file open on the given channel with positional reads,
+ * so seeking forward does not have to store the skipped bytes.
+ */
+public TIFFRandomFileAccess(FileChannel channel) {
+	this.channel = channel;
+}
+
 void seek(int pos) throws IOException {
 	if (pos == current) return;
 	if (pos < start) throw new IOException();
 	current = pos;
+	if (channel != null) return;
 	if (current > next) {
 		int n = current - next;
 		/* store required bytes */
@@ -56,6 +68,14 @@ void seek(int pos) throws IOException {
 }
 
 void read(byte b[]) throws IOException {
+	if (channel != null) {
+		ByteBuffer buffer = ByteBuffer.wrap(b);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, (long) current + buffer.position()) < 0) throw new EOFException();
+		}
+		current += b.length;
+		return;
+	}
 	int size = b.length;
 	int nCached = Math.min(size, next - current);
 	int nMissing = size - next + current;
@@ -53,16 +53,11 @@ int iconSize(ImageData i) {
 	int paletteSize = i.palette.colors != null ? i.palette.colors.length * 4 : 0;
 	return WinBMPFileFormat.BMPHeaderFixedSize + paletteSize + dataSize;
 }
-@Override
-boolean isFileFormat(LEDataInputStream stream) {
-	try {
-		byte[] header = new byte[4];
-		stream.read(header);
-		stream.unread(header);
-		return header[0] == 0 && header[1] == 0 && header[2] == 1 && header[3] == 0;
-	} catch (Exception e) {
-		return false;
-	}
+/**
+ * Answer whether the header is the start of a Windows icon file.
+ */
+static boolean isFileFormat(byte[] header) {
+	return header.length >= 4 && header[0] == 0 && header[1] == 0 && header[2] == 1 && header[3] == 0;
 }
 boolean isValidIcon(ImageData i) {
 	switch (i.depth) {
@@ -130,8 +125,8 @@ ImageData[] loadFromByteStream() {
  */
 ImageData loadIcon(int[] iconHeader) {
 	try {
-		FileFormat png = getFileFormat(inputStream, "PNG");
-		if (png != null) {
+		if (PNGFileFormat.isFileFormat(readHeader(inputStream))) {
+			FileFormat png = new PNGFileFormat();
 			png.loader = this.loader;
 			return png.loadFromStream(inputStream)[0];
 		}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.widgets;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+* The JDK Flight Recorder events of the event loop monitor. This class
+* is only loaded when the jdk.jfr module is available. The imports are
+* explicit because Event and Label are also widgets.
+*/
+class EventLoopEvents {
+
+	@Name("org.eclipse.swt.EventLoop")
+	@Label("SWT Event Loop Phase")
+	@Category("SWT")
+	@Description("Time spent by the user-interface thread in a phase of the event loop")
+	@StackTrace(false)
+	static class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Runnable Class")
+		String runnableClass;
+
+		@Label("Elapsed")
+		@Timespan
+		long elapsed;
+	}
+
+	@Name("org.eclipse.swt.Freeze")
+	@Label("SWT User-Interface Freeze")
+	@Category("SWT")
+	@Description("The user-interface thread did not return to the event loop in time")
+	@StackTrace(false)
+	static class FreezeEvent extends Event {
+		@Label("Stalled")
+		@Timespan
+		long stalled;
+
+		/* Not stackTrace, which is the name of an implicit field */
+		@Label("User-Interface Thread Stack")
+		String stack;
+	}
+
+/*
+* Registering the events initializes the recorder, which takes long
+* enough to show up in the measurements, so nothing is recorded until
+* a recording has initialized it.
+*/
+static boolean isRecording () {
+	return FlightRecorder.isInitialized ();
+}
+
+static void commitPhase (String phase, String runnableClass, long elapsed) {
+	if (!isRecording ()) return;
+	PhaseEvent event = new PhaseEvent ();
+	if (!event.isEnabled ()) return;
+	event.phase = phase;
+	event.runnableClass = runnableClass;
+	event.elapsed = elapsed;
+	event.commit ();
+}
+
+static void commitFreeze (long stalled, StackTraceElement [] stack) {
+	if (!isRecording ()) return;
+	FreezeEvent event = new FreezeEvent ();
+	if (!event.isEnabled ()) return;
+	StringBuilder builder = new StringBuilder ();
+	for (StackTraceElement element : stack) {
+		builder.append (element).append ('\n');
+	}
+	event.stalled = stalled;
+	event.stack = builder.toString ();
+	event.commit ();
+}
+}
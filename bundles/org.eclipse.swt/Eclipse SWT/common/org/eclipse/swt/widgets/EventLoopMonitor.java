@@ -0,0 +1,454 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.widgets;
+
+
+import java.util.*;
+import java.util.function.*;
+
+import org.eclipse.swt.*;
+
+/**
+ * Instances of this class measure where the user-interface
+ * thread of a display spends its time.
+ * <p>
+ * The time of every phase of the event loop, like dispatching an
+ * event in <code>readAndDispatch()</code> or running a runnable given
+ * to <code>asyncExec()</code> or <code>timerExec()</code>, is recorded
+ * in a histogram for the phase, and the time of runnables also in a
+ * histogram for their class. The time that a phase spends in nested
+ * event loops, for example while a modal dialog is open, is not part
+ * of its time. While the JDK Flight Recorder is recording, every phase
+ * that takes a millisecond or more is also recorded as an
+ * <code>org.eclipse.swt.EventLoop</code> event.
+ * </p><p>
+ * The monitor can also watch the user-interface thread and capture its
+ * stack when it has not returned to the event loop for longer than a
+ * threshold. The thread is not considered frozen while it waits for
+ * events in <code>sleep()</code> or in a native event loop, between
+ * <code>sendPreExternalEventDispatchEvent()</code> and
+ * <code>sendPostExternalEventDispatchEvent()</code>.
+ * </p><p>
+ * A display measures nothing until its monitor is asked for with
+ * {@link Display#getEventLoopMonitor()}, and stops measuring when the
+ * monitor is disposed.
+ * </p>
+ *
+ * @see Display#getEventLoopMonitor()
+ * @since 3.120
+ */
+public final class EventLoopMonitor {
+
+	/**
+	 * The phase that reads and dispatches an event in <code>readAndDispatch()</code>.
+	 */
+	public static final int DISPATCH = 0;
+
+	/**
+	 * The phase that runs a runnable given to <code>asyncExec()</code> or <code>syncExec()</code>.
+	 */
+	public static final int ASYNC_EXEC = 1;
+
+	/**
+	 * The phase that runs a runnable given to <code>timerExec()</code>.
+	 */
+	public static final int TIMER_EXEC = 2;
+
+	/**
+	 * The phase that sends the events that were posted while handling an event.
+	 */
+	public static final int DEFERRED_EVENTS = 3;
+
+	/**
+	 * The phase that runs the layouts that were deferred with <code>Composite.setLayoutDeferred()</code>.
+	 */
+	public static final int DEFERRED_LAYOUTS = 4;
+
+	static final String [] PHASE_NAMES = {"dispatch", "asyncExec", "timerExec", "deferredEvents", "deferredLayouts"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	static final int BUCKET_COUNT = 32;
+
+	/* The kind of a frame that waits for events in a native event loop */
+	static final int WAIT = -1;
+
+	/**
+	 * System property that enables the freeze watchdog of every display
+	 * with the given threshold in milliseconds. The stacks are printed
+	 * to <code>System.err</code>.
+	 */
+	static final String FREEZE_THRESHOLD_PROPERTY = "org.eclipse.swt.widgets.EventLoopMonitor.freezeThreshold"; //$NON-NLS-1$
+
+	/* Shorter phases are only counted in the histograms */
+	static final long JFR_THRESHOLD = 1000000;
+	static final boolean JFR;
+	static {
+		boolean jfr;
+		try {
+			Class.forName ("jdk.jfr.Event"); //$NON-NLS-1$
+			jfr = true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			jfr = false;
+		}
+		JFR = jfr;
+	}
+
+	final Display display;
+	final Thread thread;
+	final Statistics [] phases = new Statistics [PHASE_NAMES.length];
+	final Map<String, Statistics> runnables = new HashMap<> ();
+
+	/*
+	* The frames of the phases that are running on the user-interface
+	* thread, innermost last. The nested time of a frame is the time it
+	* spent in nested event loops.
+	*/
+	int [] frameKinds = new int [8];
+	long [] frameStarts = new long [8], frameNested = new long [8];
+	int depth;
+
+	/* Written by the user-interface thread and read by the watchdog */
+	volatile boolean busy;
+	volatile long progressTime, progressCount;
+
+	volatile Thread watchdog;
+	volatile int freezeThreshold;
+	volatile Consumer<StackTraceElement []> freezeHandler;
+	volatile long freezeCount;
+	boolean disposed;
+
+	/**
+	 * Instances of this class hold the number of runs of a phase or
+	 * runnable class, their total and maximum time, and a histogram of
+	 * their times.
+	 *
+	 * @since 3.120
+	 */
+	public static final class Statistics {
+		long count, totalTime, maxTime;
+		long [] histogram = new long [BUCKET_COUNT];
+
+	Statistics () {
+	}
+
+	void add (long time) {
+		count++;
+		totalTime += time;
+		if (time > maxTime) maxTime = time;
+		long micros = time / 1000;
+		int bucket = micros < 2 ? 0 : 63 - Long.numberOfLeadingZeros (micros);
+		histogram [Math.min (bucket, BUCKET_COUNT - 1)]++;
+	}
+
+	Statistics copy () {
+		Statistics result = new Statistics ();
+		result.count = count;
+		result.totalTime = totalTime;
+		result.maxTime = maxTime;
+		result.histogram = histogram.clone ();
+		return result;
+	}
+
+	/**
+	 * Returns the number of runs.
+	 *
+	 * @return the number of runs
+	 */
+	public long getCount () {
+		return count;
+	}
+
+	/**
+	 * Returns the total time of the runs in nanoseconds.
+	 *
+	 * @return the total time
+	 */
+	public long getTotalTime () {
+		return totalTime;
+	}
+
+	/**
+	 * Returns the time of the longest run in nanoseconds.
+	 *
+	 * @return the maximum time
+	 */
+	public long getMaxTime () {
+		return maxTime;
+	}
+
+	/**
+	 * Returns the histogram of the times of the runs. The element at
+	 * index <code>i</code> counts the runs that took at least
+	 * <code>2^i</code> and less than <code>2^(i+1)</code> microseconds.
+	 * The first element also counts shorter runs and the last element
+	 * also counts longer runs.
+	 *
+	 * @return the histogram
+	 */
+	public long [] getHistogram () {
+		return histogram.clone ();
+	}
+	}
+
+EventLoopMonitor (Display display) {
+	this.display = display;
+	this.thread = display.thread;
+	for (int i=0; i<phases.length; i++) {
+		phases [i] = new Statistics ();
+	}
+	int threshold = Integer.getInteger (FREEZE_THRESHOLD_PROPERTY, 0).intValue ();
+	if (threshold > 0) setFreezeThreshold (threshold, null);
+}
+
+void push (int kind) {
+	if (depth == frameKinds.length) {
+		frameKinds = Arrays.copyOf (frameKinds, depth * 2);
+		frameStarts = Arrays.copyOf (frameStarts, depth * 2);
+		frameNested = Arrays.copyOf (frameNested, depth * 2);
+	}
+	long now = System.nanoTime ();
+	frameKinds [depth] = kind;
+	frameStarts [depth] = now;
+	frameNested [depth] = 0;
+	depth++;
+	progress (now);
+}
+
+/* Answer the elapsed time of the innermost frame, without its nested event loops */
+long pop () {
+	long now = System.nanoTime ();
+	depth--;
+	long elapsed = now - frameStarts [depth];
+	long nested = frameNested [depth];
+	if (depth > 0) {
+		int kind = frameKinds [depth];
+		frameNested [depth - 1] += kind == DISPATCH || kind == WAIT ? elapsed : nested;
+	}
+	progress (now);
+	return elapsed - nested;
+}
+
+void progress (long now) {
+	busy = depth > 0 && frameKinds [depth - 1] != WAIT;
+	progressTime = now;
+	progressCount++;
+}
+
+/*
+* Called by the user-interface thread before a phase starts. Every
+* call must be followed by a call to end().
+*/
+void begin (int phase) {
+	push (phase);
+}
+
+void end (int phase, Object runnable) {
+	/* Discard waits that did not end, for example because of an exception */
+	while (depth > 0 && frameKinds [depth - 1] == WAIT) pop ();
+	if (depth == 0) return;
+	long time = pop ();
+	String className = runnable != null ? runnable.getClass ().getName () : null;
+	synchronized (this) {
+		phases [phase].add (time);
+		if (className != null) {
+			runnables.computeIfAbsent (className, key -> new Statistics ()).add (time);
+		}
+	}
+	if (JFR && time >= JFR_THRESHOLD) EventLoopEvents.commitPhase (PHASE_NAMES [phase], className, time);
+}
+
+void beginWait () {
+	push (WAIT);
+}
+
+void endWait () {
+	if (depth > 0 && frameKinds [depth - 1] == WAIT) pop ();
+}
+
+/**
+ * Returns the statistics of the given phase.
+ *
+ * @param phase the phase, one of <code>DISPATCH</code>, <code>ASYNC_EXEC</code>,
+ * <code>TIMER_EXEC</code>, <code>DEFERRED_EVENTS</code> or <code>DEFERRED_LAYOUTS</code>
+ * @return a copy of the statistics of the phase
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_ARGUMENT - if the phase is not one of the phases above</li>
+ * </ul>
+ */
+public synchronized Statistics getStatistics (int phase) {
+	if (phase < 0 || phase >= phases.length) SWT.error (SWT.ERROR_INVALID_ARGUMENT);
+	return phases [phase].copy ();
+}
+
+/**
+ * Returns the statistics of the runnables given to <code>asyncExec()</code>,
+ * <code>syncExec()</code> and <code>timerExec()</code> by the name of
+ * their class.
+ *
+ * @return a copy of the statistics of the runnables
+ */
+public synchronized Map<String, Statistics> getRunnableStatistics () {
+	Map<String, Statistics> result = new HashMap<> ();
+	runnables.forEach ((className, statistics) -> result.put (className, statistics.copy ()));
+	return result;
+}
+
+/**
+ * Clears the statistics of all phases and runnables.
+ */
+public synchronized void reset () {
+	for (int i=0; i<phases.length; i++) {
+		phases [i] = new Statistics ();
+	}
+	runnables.clear ();
+}
+
+/**
+ * Sets the time after which the user-interface thread is considered
+ * frozen when it has not returned to the event loop. A watchdog thread
+ * then captures the stack of the user-interface thread and passes it
+ * to the handler, once per freeze. A threshold of 0 stops the watchdog.
+ * <p>
+ * The handler runs on the watchdog thread. When it is <code>null</code>,
+ * the stack is printed to <code>System.err</code>. While the JDK Flight
+ * Recorder is recording, every freeze is also recorded as an
+ * <code>org.eclipse.swt.Freeze</code> event.
+ * </p>
+ *
+ * @param milliseconds the threshold in milliseconds or 0
+ * @param handler the handler of the captured stacks or <code>null</code>
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_INVALID_ARGUMENT - if the threshold is negative</li>
+ * </ul>
+ */
+public synchronized void setFreezeThreshold (int milliseconds, Consumer<StackTraceElement []> handler) {
+	if (milliseconds < 0) SWT.error (SWT.ERROR_INVALID_ARGUMENT);
+	freezeThreshold = milliseconds;
+	freezeHandler = handler;
+	Thread oldWatchdog = watchdog;
+	watchdog = null;
+	if (oldWatchdog != null) oldWatchdog.interrupt ();
+	if (milliseconds > 0) {
+		Thread newWatchdog = new Thread (this::watch, "SWT Event Loop Watchdog"); //$NON-NLS-1$
+		newWatchdog.setDaemon (true);
+		watchdog = newWatchdog;
+		newWatchdog.start ();
+	}
+}
+
+/**
+ * Returns the freeze threshold in milliseconds, or 0 if the watchdog
+ * is not running.
+ *
+ * @return the freeze threshold
+ */
+public int getFreezeThreshold () {
+	return freezeThreshold;
+}
+
+/**
+ * Returns the number of freezes that the watchdog has detected.
+ *
+ * @return the number of freezes
+ */
+public long getFreezeCount () {
+	return freezeCount;
+}
+
+void watch () {
+	long reportedCount = -1;
+	while (watchdog == Thread.currentThread ()) {
+		long threshold = freezeThreshold * 1000000L;
+		try {
+			Thread.sleep (Math.max (10, freezeThreshold / 4));
+		} catch (InterruptedException e) {
+			continue;
+		}
+		long count = progressCount;
+		if (!busy || count == reportedCount) continue;
+		long stalled = System.nanoTime () - progressTime;
+		if (stalled < threshold) continue;
+		StackTraceElement [] stack = thread.getStackTrace ();
+		/* The thread may have returned to the event loop while its stack was captured */
+		if (count != progressCount) continue;
+		reportedCount = count;
+		freezeCount++;
+		if (JFR) EventLoopEvents.commitFreeze (stalled, stack);
+		Consumer<StackTraceElement []> handler = freezeHandler;
+		if (handler != null) {
+			try {
+				handler.accept (stack);
+			} catch (RuntimeException e) {
+				reportFailure (e);
+			}
+		} else {
+			StringBuilder builder = new StringBuilder ();
+			builder.append ("SWT: the user-interface thread has not responded for ").append (stalled / 1000000).append (" ms\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (StackTraceElement element : stack) {
+				builder.append ("\tat ").append (element).append ('\n'); //$NON-NLS-1$
+			}
+			System.err.print (builder);
+		}
+	}
+}
+
+/*
+* Hand a failure of the freeze handler to the runtime exception handler
+* of the display on the user-interface thread, like the failure of a
+* runnable given to asyncExec().
+*/
+void reportFailure (RuntimeException exception) {
+	try {
+		display.asyncExec (() -> {
+			throw exception;
+		});
+	} catch (SWTException e) {
+		/* The display has been disposed */
+	}
+}
+
+/**
+ * Stops measuring the event loop of the display and stops the freeze
+ * watchdog. The statistics measured so far can still be read. A later
+ * call to {@link Display#getEventLoopMonitor()} answers a new monitor,
+ * which starts to measure again.
+ *
+ * @exception SWTException <ul>
+ *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the display</li>
+ * </ul>
+ */
+public void dispose () {
+	if (thread != Thread.currentThread ()) SWT.error (SWT.ERROR_THREAD_INVALID_ACCESS);
+	if (display.monitor == this) display.monitor = null;
+	release ();
+}
+
+/**
+ * Returns <code>true</code> if the monitor has been disposed,
+ * and <code>false</code> otherwise.
+ *
+ * @return <code>true</code> when the monitor is disposed and <code>false</code> otherwise
+ */
+public boolean isDisposed () {
+	return disposed;
+}
+
+void release () {
+	disposed = true;
+	Thread oldWatchdog = watchdog;
+	watchdog = null;
+	freezeThreshold = 0;
+	if (oldWatchdog != null) oldWatchdog.interrupt ();
+}
+}
@@ -14,6 +14,8 @@
 package org.eclipse.swt.widgets;
 
 
+import java.util.*;
+
 import org.eclipse.swt.*;
 import org.eclipse.swt.internal.*;
 
@@ -22,26 +24,51 @@ import org.eclipse.swt.internal.*;
  * look up mechanism that maps an event type
  * to a listener.  Multiple listeners for the
  * same event type are supported.
+ * <p>
+ * The hooked event types are kept sorted, each with the
+ * listeners for that type, so looking up the listeners of
+ * an event does not depend on the listeners for other types.
+ * </p>
  */
 
 class EventTable {
+	/* The hooked event types in ascending order and their listeners */
 	int [] types;
-	Listener [] listeners;
+	Bucket [] buckets;
+	int count;
 	int level;
 	static final int GROW_SIZE = 4;
 
+	/*
+	* The listeners of one event type in the order they were hooked.
+	* Listeners that are unhooked while an event is sent leave a null
+	* slot that is compacted when the outermost sendEvent() returns.
+	* Until then size does not shrink, so a listener that is hooked
+	* while an event is sent is called by the sends that are running.
+	*/
+	static final class Bucket {
+		Listener [] listeners = new Listener [GROW_SIZE];
+		int size;
+	}
+
+Bucket getBucket (int eventType) {
+	if (types == null) return null;
+	int index = Arrays.binarySearch (types, 0, count, eventType);
+	return index >= 0 ? buckets [index] : null;
+}
+
 public Listener [] getListeners (int eventType) {
-	if (types == null) return new Listener [0];
+	Bucket bucket = getBucket (eventType);
+	if (bucket == null) return new Listener [0];
 	int count = 0;
-	for (int type : types) {
-		if (type == eventType) count++;
+	for (int i=0; i<bucket.size; i++) {
+		if (bucket.listeners [i] != null) count++;
 	}
-	if (count == 0) return new Listener [0];
 	Listener [] result = new Listener [count];
 	count = 0;
-	for (int i=0; i<types.length; i++) {
-		if (types [i] == eventType) {
-			result [count++] = listeners [i];
+	for (int i=0; i<bucket.size; i++) {
+		if (bucket.listeners [i] != null) {
+			result [count++] = bucket.listeners [i];
 		}
 	}
 	return result;
@@ -49,97 +76,133 @@ public Listener [] getListeners (int eventType) {
 
 public void hook (int eventType, Listener listener) {
 	if (types == null) types = new int [GROW_SIZE];
-	if (listeners == null) listeners = new Listener [GROW_SIZE];
-	int length = types.length, index = length - 1;
-	while (index >= 0) {
-		if (types [index] != 0) break;
-		--index;
+	if (buckets == null) buckets = new Bucket [GROW_SIZE];
+	int index = Arrays.binarySearch (types, 0, count, eventType);
+	if (index < 0) {
+		index = -index - 1;
+		if (count == types.length) {
+			int [] newTypes = new int [count + GROW_SIZE];
+			System.arraycopy (types, 0, newTypes, 0, count);
+			types = newTypes;
+			Bucket [] newBuckets = new Bucket [count + GROW_SIZE];
+			System.arraycopy (buckets, 0, newBuckets, 0, count);
+			buckets = newBuckets;
+		}
+		System.arraycopy (types, index, types, index + 1, count - index);
+		System.arraycopy (buckets, index, buckets, index + 1, count - index);
+		types [index] = eventType;
+		buckets [index] = new Bucket ();
+		count++;
 	}
-	index++;
-	if (index == length) {
-		int [] newTypes = new int [length + GROW_SIZE];
-		System.arraycopy (types, 0, newTypes, 0, length);
-		types = newTypes;
+	Bucket bucket = buckets [index];
+	int length = bucket.listeners.length;
+	if (bucket.size == length) {
 		Listener [] newListeners = new Listener [length + GROW_SIZE];
-		System.arraycopy (listeners, 0, newListeners, 0, length);
-		listeners = newListeners;
+		System.arraycopy (bucket.listeners, 0, newListeners, 0, length);
+		bucket.listeners = newListeners;
 	}
-	types [index] = eventType;
-	listeners [index] = listener;
+	bucket.listeners [bucket.size++] = listener;
 }
 
 public boolean hooks (int eventType) {
-	if (types == null) return false;
-	for (int type : types) {
-		if (type == eventType) return true;
+	Bucket bucket = getBucket (eventType);
+	if (bucket == null) return false;
+	for (int i=0; i<bucket.size; i++) {
+		if (bucket.listeners [i] != null) return true;
 	}
 	return false;
 }
 
 public void sendEvent (Event event) {
-	if (types == null) return;
+	Bucket bucket = getBucket (event.type);
+	if (bucket == null) return;
 	level += level >= 0 ? 1 : -1;
 	try (ExceptionStash exceptions = new ExceptionStash ()) {
-		for (int i=0; i<types.length; i++) {
+		/* Listeners hooked by a listener may grow the bucket */
+		for (int i=0; i<bucket.size; i++) {
 			if (event.type == SWT.None) return;
-			if (types [i] == event.type) {
-				Listener listener = listeners [i];
-				if (listener != null) {
-					try {
-						listener.handleEvent (event);
-					} catch (Error | RuntimeException ex) {
-						exceptions.stash (ex);
-					}
+			Listener listener = bucket.listeners [i];
+			if (listener != null) {
+				try {
+					listener.handleEvent (event);
+				} catch (Error | RuntimeException ex) {
+					exceptions.stash (ex);
 				}
 			}
 		}
 	} finally {
 		boolean compact = level < 0;
 		level -= level >= 0 ? 1 : -1;
-		if (compact && level == 0) {
-			int index = 0;
-			for (int i=0; i<types.length; i++) {
-				if (types [i] != 0) {
-					types [index] = types [i];
-					listeners [index] = listeners [i];
-					index++;
-				}
-			}
-			for (int i=index; i<types.length; i++) {
-				types [i] = 0;
-				listeners [i] = null;
+		if (compact && level == 0) compact ();
+	}
+}
+
+void compact () {
+	int index = 0;
+	for (int i=0; i<count; i++) {
+		Bucket bucket = buckets [i];
+		int size = 0;
+		for (int j=0; j<bucket.size; j++) {
+			if (bucket.listeners [j] != null) {
+				bucket.listeners [size++] = bucket.listeners [j];
 			}
 		}
+		for (int j=size; j<bucket.size; j++) {
+			bucket.listeners [j] = null;
+		}
+		bucket.size = size;
+		if (size != 0) {
+			types [index] = types [i];
+			buckets [index] = bucket;
+			index++;
+		}
+	}
+	for (int i=index; i<count; i++) {
+		types [i] = 0;
+		buckets [i] = null;
 	}
+	count = index;
 }
 
 public int size () {
-	if (types == null) return 0;
-	int count = 0;
-	for (int type : types) {
-		if (type != 0) count++;
+	int size = 0;
+	for (int i=0; i<count; i++) {
+		Bucket bucket = buckets [i];
+		for (int j=0; j<bucket.size; j++) {
+			if (bucket.listeners [j] != null) size++;
+		}
 	}
-	return count;
+	return size;
 }
 
-void remove (int index) {
+void remove (int index, int listenerIndex) {
+	Bucket bucket = buckets [index];
 	if (level == 0) {
-		int end = types.length - 1;
-		System.arraycopy (types, index + 1, types, index, end - index);
-		System.arraycopy (listeners, index + 1, listeners, index, end - index);
-		index = end;
+		int end = bucket.size - 1;
+		System.arraycopy (bucket.listeners, listenerIndex + 1, bucket.listeners, listenerIndex, end - listenerIndex);
+		bucket.listeners [end] = null;
+		bucket.size = end;
+		if (end == 0) {
+			System.arraycopy (types, index + 1, types, index, count - index - 1);
+			System.arraycopy (buckets, index + 1, buckets, index, count - index - 1);
+			count--;
+			types [count] = 0;
+			buckets [count] = null;
+		}
 	} else {
 		if (level > 0) level = -level;
+		bucket.listeners [listenerIndex] = null;
 	}
-	types [index] = 0;
-	listeners [index] = null;
 }
 
 public void unhook (int eventType, Listener listener) {
 	if (types == null) return;
-	for (int i=0; i<types.length; i++) {
-		if (types [i] == eventType && listeners [i] == listener) {
-			remove (i);
+	int index = Arrays.binarySearch (types, 0, count, eventType);
+	if (index < 0) return;
+	Bucket bucket = buckets [index];
+	for (int i=0; i<bucket.size; i++) {
+		if (bucket.listeners [i] == listener) {
+			remove (index, i);
 			return;
 		}
 	}
@@ -147,14 +210,15 @@ public void unhook (int eventType, Listener listener) {
 
 public void unhook (int eventType, SWTEventListener listener) {
 	if (types == null) return;
-	for (int i=0; i<types.length; i++) {
-		if (types [i] == eventType) {
-			if (listeners [i] instanceof TypedListener) {
-				TypedListener typedListener = (TypedListener) listeners [i];
-				if (typedListener.getEventListener () == listener) {
-					remove (i);
-					return;
-				}
+	int index = Arrays.binarySearch (types, 0, count, eventType);
+	if (index < 0) return;
+	Bucket bucket = buckets [index];
+	for (int i=0; i<bucket.size; i++) {
+		if (bucket.listeners [i] instanceof TypedListener) {
+			TypedListener typedListener = (TypedListener) bucket.listeners [i];
+			if (typedListener.getEventListener () == listener) {
+				remove (index, i);
+				return;
 			}
 		}
 	}
@@ -13,6 +13,10 @@
  *******************************************************************************/
 package org.eclipse.swt.widgets;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
 import org.eclipse.swt.*;
 import org.eclipse.swt.graphics.*;
 
@@ -36,17 +40,48 @@ import org.eclipse.swt.graphics.*;
  */
 public class Synchronizer {
 	Display display;
-	int messageCount;
-	RunnableLock [] messages;
-	Object messageLock = new Object ();
+	/*
+	* The queue is a lock-free linked deque, so that threads posting
+	* messages do not contend with the user-interface thread and both
+	* adding and removing a message take constant time. The count is
+	* kept separately because the size of the deque is linear. It is
+	* incremented after a message is added and decremented after one
+	* is removed, so it never claims a message that is not there yet.
+	*/
+	ConcurrentLinkedDeque<RunnableLock> messages = new ConcurrentLinkedDeque<> ();
+	AtomicInteger messageCount = new AtomicInteger ();
+	/* The runnables of asyncExec with a key that wait to run, by key */
+	ConcurrentHashMap<Object, KeyedRunnable> pendingByKey = new ConcurrentHashMap<> ();
+	AtomicLong coalescedCount = new AtomicLong ();
 	Thread syncThread;
-	static final int GROW_SIZE = 4;
-	static final int MESSAGE_LIMIT = 64;
 
 	//TEMPORARY CODE
 	static final boolean IS_COCOA = "cocoa".equals (SWT.getPlatform ());
 	static final boolean IS_GTK = "gtk".equals (SWT.getPlatform ());
 
+/*
+* The runnable that asyncExec with a key queues. The runnable it runs
+* is replaced while it waits, and it removes the entry of its key from
+* the map that holds it before it runs.
+*/
+static final class KeyedRunnable implements Runnable {
+	final Object key;
+	volatile Runnable runnable;
+	volatile Map<Object, KeyedRunnable> pending;
+
+	KeyedRunnable (Object key, Runnable runnable, Map<Object, KeyedRunnable> pending) {
+		this.key = key;
+		this.runnable = runnable;
+		this.pending = pending;
+	}
+
+	@Override
+	public void run () {
+		pending.remove (key, this);
+		runnable.run ();
+	}
+}
+
 /**
  * Constructs a new instance of this class.
  *
@@ -63,15 +98,18 @@ public Synchronizer (Display display) {
  * @param toReceiveTheEvents the synchronizer that will receive the events
  */
 void moveAllEventsTo (Synchronizer toReceiveTheEvents) {
-	RunnableLock[] oldMessages;
-	int oldMessageCount;
-	synchronized (messageLock) {
-		oldMessages = messages;
-		messages = null;
-		oldMessageCount = messageCount;
-		messageCount = 0;
+	ArrayList<RunnableLock> oldMessages = new ArrayList<> ();
+	RunnableLock lock;
+	while ((lock = removeFirst ()) != null) {
+		oldMessages.add (lock);
 	}
-	toReceiveTheEvents.addFirst(oldMessages, oldMessageCount);
+	/* The moved runnables of asyncExec with a key stay replaceable */
+	pendingByKey.forEach ((key, runnable) -> {
+		if (pendingByKey.remove (key, runnable) && toReceiveTheEvents.pendingByKey.putIfAbsent (key, runnable) == null) {
+			runnable.pending = toReceiveTheEvents.pendingByKey;
+		}
+	});
+	toReceiveTheEvents.addFirst(oldMessages.toArray (new RunnableLock [oldMessages.size ()]), oldMessages.size ());
 }
 
 /**
@@ -85,39 +123,21 @@ void addFirst (RunnableLock[] toAdd, int numToAdd) {
 	if (numToAdd <= 0) {
 		return;
 	}
-	boolean wake = false;
-	synchronized (messageLock) {
-		int nextSize = messageCount + Math.max(numToAdd, GROW_SIZE);
-		if (messages == null)
-			messages = new RunnableLock[nextSize];
-		if (messages.length < messageCount + numToAdd) {
-			RunnableLock[] newMessages = new RunnableLock[nextSize];
-			System.arraycopy(messages, 0, newMessages, numToAdd, messageCount);
-			messages = newMessages;
-		} else {
-			System.arraycopy(messages, 0, messages, numToAdd, messageCount);
-		}
-		System.arraycopy(toAdd, 0, messages, 0, numToAdd);
-		wake = (messageCount == 0);
-		messageCount += numToAdd;
+	/*
+	* The events are added one at a time from the last one. This is
+	* only called from the user-interface thread, which is the only
+	* thread that removes messages, so none of them can run early.
+	*/
+	for (int i = numToAdd - 1; i >= 0; i--) {
+		messages.addFirst (toAdd [i]);
 	}
-	if (wake)
+	if (messageCount.getAndAdd (numToAdd) == 0)
 		display.wakeThread();
 }
 
 void addLast (RunnableLock lock) {
-	boolean wake = false;
-	synchronized (messageLock) {
-		if (messages == null) messages = new RunnableLock [GROW_SIZE];
-		if (messageCount == messages.length) {
-			RunnableLock[] newMessages = new RunnableLock [messageCount + GROW_SIZE];
-			System.arraycopy (messages, 0, newMessages, 0, messageCount);
-			messages = newMessages;
-		}
-		messages [messageCount++] = lock;
-		wake = messageCount == 1;
-	}
-	if (wake) display.wakeThread ();
+	messages.addLast (lock);
+	if (messageCount.getAndIncrement () == 0) display.wakeThread ();
 }
 
 /**
@@ -142,30 +162,74 @@ protected void asyncExec (Runnable runnable) {
 	addLast (new RunnableLock (runnable));
 }
 
-int getMessageCount () {
-	synchronized (messageLock) {
-		return messageCount;
+/**
+ * Causes the <code>run()</code> method of the runnable to
+ * be invoked by the user-interface thread at the next
+ * reasonable opportunity, like <code>asyncExec(Runnable)</code>.
+ * If a runnable that was given with an equal key has not
+ * started to run yet, it is replaced by this runnable, which
+ * runs in its place in the queue instead of being added.
+ * Otherwise a runnable that runs it is given to
+ * <code>asyncExec(Runnable)</code>, so subclasses that
+ * override that method also see the runnables with a key.
+ *
+ * @param key the key of the runnable
+ * @param runnable code to run on the user-interface thread.
+ *
+ * @see #asyncExec(Runnable)
+ * @see #getCoalescedCount()
+ *
+ * @since 3.120
+ */
+protected void asyncExec (Object key, Runnable runnable) {
+	KeyedRunnable newRunnable = new KeyedRunnable (key, runnable, pendingByKey);
+	/*
+	* The runnable of a waiting KeyedRunnable is replaced while holding
+	* the entry of its key, which the KeyedRunnable removes before it
+	* runs. So a runnable is either replaced before the KeyedRunnable
+	* runs or queued in a new one.
+	*/
+	KeyedRunnable pending = pendingByKey.compute (key, (k, pendingRunnable) -> {
+		if (pendingRunnable == null) return newRunnable;
+		pendingRunnable.runnable = runnable;
+		return pendingRunnable;
+	});
+	if (pending == newRunnable) {
+		asyncExec (pending);
+	} else {
+		coalescedCount.incrementAndGet ();
 	}
 }
 
+/**
+ * Returns the number of runnables given to <code>asyncExec(Object, Runnable)</code>
+ * that replaced a pending runnable with an equal key instead of
+ * being queued.
+ *
+ * @return the number of coalesced runnables
+ *
+ * @since 3.120
+ */
+public long getCoalescedCount () {
+	return coalescedCount.get ();
+}
+
+int getMessageCount () {
+	/* The count is negative while a message is removed before it is counted */
+	return Math.max (0, messageCount.get ());
+}
+
 void releaseSynchronizer () {
 	display = null;
 	messages = null;
-	messageLock = null;
+	pendingByKey = null;
 	syncThread = null;
 }
 
 RunnableLock removeFirst () {
-	synchronized (messageLock) {
-		if (messageCount == 0) return null;
-		RunnableLock lock = messages [0];
-		System.arraycopy (messages, 1, messages, 0, --messageCount);
-		messages [messageCount] = null;
-		if (messageCount == 0) {
-			if (messages.length > MESSAGE_LIMIT) messages = null;
-		}
-		return lock;
-	}
+	RunnableLock lock = messages.pollFirst ();
+	if (lock != null) messageCount.decrementAndGet ();
+	return lock;
 }
 
 boolean runAsyncMessages () {
@@ -181,12 +245,21 @@ boolean runAsyncMessages (boolean all) {
 		synchronized (lock) {
 			syncThread = lock.thread;
 			display.sendPreEvent(SWT.None);
+			/* Messages without a runnable only wake the thread */
+			Runnable runnable = lock.runnable;
+			EventLoopMonitor monitor = runnable != null ? display.monitor : null;
+			if (monitor != null) monitor.begin (EventLoopMonitor.ASYNC_EXEC);
 			try {
 				lock.run (display);
 			} catch (Throwable t) {
 				lock.throwable = t;
 				SWT.error (SWT.ERROR_FAILED_EXEC, t);
 			} finally {
+				if (monitor != null) {
+					/* The runnable that asyncExec with a key ran, it is no longer replaced once it runs */
+					if (runnable instanceof KeyedRunnable) runnable = ((KeyedRunnable) runnable).runnable;
+					monitor.end (EventLoopMonitor.ASYNC_EXEC, runnable);
+				}
 				if (display != null && !display.isDisposed()) {
 					display.sendPostEvent(SWT.None);
 				}
@@ -615,8 +615,7 @@ public Image(Device device, ImageFileNameProvider imageFileNameProvider) {
 			init(data);
 		}
 	} else {
-		ImageData imageData = new ImageData (filename);
-		ImageData resizedData = DPIUtil.autoScaleUp (device, imageData);
+		ImageData resizedData = DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (filename), currentDeviceZoom, 100);
 		init(resizedData);
 	}
 	init ();
@@ -660,7 +659,7 @@ public Image(Device device, ImageDataProvider imageDataProvider) {
 	if (found[0]) {
 		init (data);
 	} else {
-		ImageData resizedData = DPIUtil.autoScaleUp (device, data);
+		ImageData resizedData = DPIUtil.autoScaleImageData (device, imageDataProvider, data, currentDeviceZoom, 100);
 		init (resizedData);
 	}
 	init ();
@@ -709,8 +708,7 @@ boolean refreshImageForZoom () {
 			if (!found[0]) {
 				/* Release current native resources */
 				destroy ();
-				ImageData imageData = new ImageData (filename);
-				ImageData resizedData = DPIUtil.autoScaleUp (device, imageData);
+				ImageData resizedData = DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (filename), deviceZoomLevel, 100);
 				init(resizedData);
 				init ();
 				refreshed = true;
@@ -733,7 +731,7 @@ boolean refreshImageForZoom () {
 			if (!found[0]) {
 				/* Release current native resources */
 				destroy ();
-				ImageData resizedData = DPIUtil.autoScaleImageData(device, data, deviceZoomLevel, 100);
+				ImageData resizedData = DPIUtil.autoScaleImageData(device, imageDataProvider, data, deviceZoomLevel, 100);
 				init(resizedData);
 				init();
 				refreshed = true;
@@ -1130,7 +1128,7 @@ public ImageData getImageData (int zoom) {
 			return data;
 		}
 		// AutoScale the image at 100% zoom
-		return DPIUtil.autoScaleImageData (device, data, zoom, 100);
+		return DPIUtil.autoScaleImageData (device, imageDataProvider, data, zoom, 100);
 	} else if (imageFileNameProvider != null) {
 		boolean[] found = new boolean[1];
 		String fileName = DPIUtil.validateAndGetImagePathAtZoom (imageFileNameProvider, zoom, found);
@@ -1139,7 +1137,7 @@ public ImageData getImageData (int zoom) {
 			return new ImageData (fileName);
 		}
 		// AutoScale the image at 100% zoom
-		return DPIUtil.autoScaleImageData (device, new ImageData (fileName), zoom, 100);
+		return DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (fileName), zoom, 100);
 	} else {
 		return DPIUtil.autoScaleImageData (device, getImageDataAtCurrentZoom (), zoom, currentDeviceZoom);
 	}
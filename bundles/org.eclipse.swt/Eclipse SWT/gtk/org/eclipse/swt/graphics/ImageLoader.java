@@ -17,6 +17,7 @@ package org.eclipse.swt.graphics;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.*;
 import java.util.List;
 
 import org.eclipse.swt.*;
@@ -111,6 +112,74 @@ public class ImageLoader {
 	 */
 	public int compression;
 
+	/**
+	 * The denominator of the scale factor applied while loading images.
+	 * <p>
+	 * Some formats can be decoded at a reduced resolution much faster than
+	 * at full size followed by scaling. JPEG images are decoded at 1/2, 1/4
+	 * or 1/8 of their size when this value is 2, 4 or 8, other values greater
+	 * than 1 are rounded down to the nearest of these. The size of the loaded
+	 * image data is the original size divided by this value, rounded up.
+	 * Formats that do not support scaled decoding ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is 1, which means no scaling.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public int scaleDenominator = 1;
+
+	/**
+	 * The number of rows in each band of a non-interlaced PNG image that is
+	 * reported to the listeners while the image is loaded.
+	 * <p>
+	 * When this value is greater than 0 and the loader has listeners, an
+	 * event is sent each time this many rows have been decoded. The image
+	 * data of the event only contains the rows of the band, and its
+	 * <code>y</code> field is the first row of the band in the image. The
+	 * last band may have fewer rows. Other formats ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is 0, which means that no band events are sent.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public int bandHeight;
+
+	/**
+	 * Whether large images may be decoded and encoded on several threads.
+	 * <p>
+	 * When this value is <code>true</code>, the parts of loading and saving
+	 * that do not depend on each other run in the common <code>ForkJoinPool</code>:
+	 * the inverse DCT, upsampling and color conversion of large baseline JPEG
+	 * images, the strips of large TIFF images, also when they are decoded by
+	 * <code>loadFrames</code>, and the compression of PNG images in chunks of
+	 * rows. The loaded image data is the same as when it is decoded on one
+	 * thread, and a loader with listeners decodes TIFF strips in order. A PNG image
+	 * that is saved this way also chooses the filter of each row, it is
+	 * usually smaller and loads to the same image data. Images that are
+	 * decoded by the platform ignore this value.
+	 * </p><p>
+	 * Unlike the other fields, this value is not reset when loading. The
+	 * default is <code>false</code>, which means that images are only
+	 * decoded and encoded on the calling thread.
+	 * </p>
+	 *
+	 * @since 3.120
+	 */
+	public boolean parallel;
+
+	/**
+	 * The throughput of the last save, in bytes of uncompressed image
+	 * data encoded per second. This is only reported by formats whose
+	 * encoder measures it (currently PNG), otherwise it is 0.
+	 *
+	 * @since 3.120
+	 */
+	public long saveThroughput;
+
 	/**
 	 * If the 29th byte of the PNG file is not zero, then it is interlaced.
 	 */
@@ -177,6 +246,90 @@ boolean isInterlacedPNG(byte [] imageAsByteArray) {
 	return imageAsByteArray.length > PNG_INTERLACE_METHOD_OFFSET && imageAsByteArray[PNG_INTERLACE_METHOD_OFFSET] != 0;
 }
 
+/**
+ * Return true if the image is a non-interlaced PNG file.
+ * This is used to report the bands of rows to the listeners
+ * with the Java decoder.
+ * @param imageAsByteArray
+ * @return true iff the image starts with the PNG signature and is not interlaced
+ */
+boolean isNonInterlacedPNG(byte [] imageAsByteArray) {
+	byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	if (imageAsByteArray.length <= PNG_INTERLACE_METHOD_OFFSET) return false;
+	for (int i = 0; i < signature.length; i++) {
+		if (imageAsByteArray[i] != signature[i]) return false;
+	}
+	return !isInterlacedPNG(imageAsByteArray);
+}
+
+/**
+ * Return true if the image is a JPEG file.
+ * This is used to decode scaled JPEG images with the Java decoder.
+ * @param imageAsByteArray
+ * @return true iff the image starts with the JPEG SOI marker
+ */
+boolean isJPEG(byte [] imageAsByteArray) {
+	return imageAsByteArray.length > 1 && (imageAsByteArray[0] & 0xFF) == 0xFF && (imageAsByteArray[1] & 0xFF) == 0xD8;
+}
+
+/**
+ * Return true if the image is a progressive JPEG file.
+ * This is used to report each scan of a progressive JPEG
+ * to the listeners with the Java decoder.
+ * @param imageAsByteArray
+ * @return true iff the first frame header of the JPEG is progressive
+ */
+boolean isProgressiveJPEG(byte [] imageAsByteArray) {
+	if (!isJPEG(imageAsByteArray)) return false;
+	int offset = 2;
+	while (offset + 3 < imageAsByteArray.length) {
+		if ((imageAsByteArray[offset] & 0xFF) != 0xFF) return false;
+		int marker = imageAsByteArray[offset + 1] & 0xFF;
+		if (marker == 0xFF) {
+			offset++;
+			continue;
+		}
+		if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+			return marker == 0xC2 || marker == 0xC6 || marker == 0xCA || marker == 0xCE;
+		}
+		if (marker == 0xD9 || marker == 0xDA) return false;
+		offset += 2 + (((imageAsByteArray[offset + 2] & 0xFF) << 8) | (imageAsByteArray[offset + 3] & 0xFF));
+	}
+	return false;
+}
+
+/**
+ * Return true if the listeners are told about the parts of the image
+ * while it is decoded. These are the scans of a progressive JPEG and
+ * the bands of <code>bandHeight</code> rows of a non interlaced PNG.
+ * GdkPixbufLoader only reports the whole image, so these images are
+ * decoded by the Java decoders.
+ * @param imageAsByteArray
+ * @return true iff there are listeners and the image is decoded in parts
+ */
+boolean isProgressive(byte [] imageAsByteArray) {
+	if (!hasListeners()) return false;
+	if (isProgressiveJPEG(imageAsByteArray)) return true;
+	return bandHeight > 0 && isNonInterlacedPNG(imageAsByteArray);
+}
+
+/**
+ * Return true if GdkPixbufLoader can decode the image the way the
+ * receiver is set up. The Java decoders are used for JPEG images that
+ * are decoded at a reduced size, which GdkPixbufLoader cannot do, for
+ * images that are reported to the listeners in parts, and for the
+ * formats added with <code>registerFormat</code>. All other images,
+ * such as GIF, BMP, ICO, TIFF, interlaced PNG and JPEG at full size,
+ * are decoded by GdkPixbufLoader.
+ * @param imageAsByteArray
+ * @return true iff GdkPixbufLoader decodes the image
+ */
+boolean canUseNativeLoader(byte [] imageAsByteArray) {
+	if (scaleDenominator > 1 && isJPEG(imageAsByteArray)) return false;
+	if (isProgressive(imageAsByteArray)) return false;
+	return !FileFormat.isRegisteredFormat(imageAsByteArray);
+}
+
 ImageData [] getImageDataArrayFromStream(InputStream stream) {
 	long loader = GDK.gdk_pixbuf_loader_new();
 	List<ImageData> imgDataList = new ArrayList<>();
@@ -187,6 +340,12 @@ ImageData [] getImageDataArrayFromStream(InputStream stream) {
 		baos.flush();
 		byte[] data_buffer = baos.toByteArray();
 		if (data_buffer.length == 0) SWT.error(SWT.ERROR_UNSUPPORTED_FORMAT);	// empty stream
+		if (!canUseNativeLoader(data_buffer)) {
+			// the Java decoders read the image, see canUseNativeLoader
+			OS.g_object_unref(loader);
+			stream.close();
+			return FileFormat.load(new ByteArrayInputStream(data_buffer), this);
+		}
 
 		// 2) Copy byte array to C memory, write to GdkPixbufLoader
 		long buffer_ptr = OS.g_malloc(data_buffer.length);
@@ -312,6 +471,111 @@ public ImageData[] load(String filename) {
 	return null;
 }
 
+/**
+ * Opens the images of the specified input stream without decoding
+ * them all up front. The frames of an animated GIF and the pages of
+ * a TIFF are decoded when they are asked for, the images of other
+ * formats are loaded like <code>load(InputStream)</code> does. The
+ * stream is read as far as needed and is not closed, and a TIFF
+ * stream must stay open until the frames are closed. The
+ * <code>data</code> field of the receiver is not changed by loading
+ * a GIF or a TIFF.
+ *
+ * @param stream the input stream to load the images from
+ * @return the frames of the images in the specified input stream
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the stream is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the stream</li>
+ *    <li>ERROR_INVALID_IMAGE - if the image stream contains invalid data</li>
+ *    <li>ERROR_UNSUPPORTED_FORMAT - if the image stream contains an unrecognized format</li>
+ * </ul>
+ *
+ * @see ImageFrames
+ * @since 3.120
+ */
+public ImageFrames loadFrames(InputStream stream) {
+	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	return ImageFrames.load(stream, this);
+}
+
+/**
+ * Opens the images of the file with the specified name without
+ * decoding them all up front. The frames of an animated GIF and the
+ * pages of a TIFF are decoded when they are asked for, the images of
+ * other formats are loaded like <code>load(String)</code> does. A
+ * TIFF file is read in place and stays open until the frames are
+ * closed.
+ *
+ * @param filename the name of the file to load the images from
+ * @return the frames of the images in the specified file
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the file name is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_IO - if an IO error occurs while reading from the file</li>
+ *    <li>ERROR_INVALID_IMAGE - if the image file contains invalid data</li>
+ *    <li>ERROR_UNSUPPORTED_FORMAT - if the image file contains an unrecognized format</li>
+ * </ul>
+ *
+ * @see ImageFrames
+ * @since 3.120
+ */
+public ImageFrames loadFrames(String filename) {
+	if (filename == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	return ImageFrames.load(filename, this);
+}
+
+/**
+ * Registers a decoder for an image format that is recognized by the given
+ * signature, so that the <code>load</code> methods of all image loaders can
+ * load images of this format.
+ * <p>
+ * The signature is tested against the first 32 bytes of the stream, or fewer
+ * if the stream is shorter. Formats registered later are tested first, so
+ * they take precedence over earlier ones and over the built-in formats. When
+ * the signature matches, the decoder is called with the stream positioned at
+ * the start of the image and with the loader that loads it, and answers the
+ * loaded image data. Images of a registered format cannot be saved.
+ * </p><p>
+ * The registration applies to the whole application until it is removed with
+ * <code>unregisterFormat</code>.
+ * </p>
+ *
+ * @param signature the test of the first bytes of a stream
+ * @param decoder the function that loads the images of a matching stream
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the signature or the decoder is null</li>
+ * </ul>
+ *
+ * @see #unregisterFormat(BiFunction)
+ * @since 3.120
+ */
+public static void registerFormat(Predicate<byte[]> signature, BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	FileFormat.register(signature, decoder);
+}
+
+/**
+ * Removes the image formats that were registered with the given decoder.
+ *
+ * @param decoder the decoder that was registered
+ * @return <code>true</code> if a format was removed, and <code>false</code> otherwise
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the decoder is null</li>
+ * </ul>
+ *
+ * @see #registerFormat(Predicate, BiFunction)
+ * @since 3.120
+ */
+public static boolean unregisterFormat(BiFunction<InputStream, ImageLoader, ImageData[]> decoder) {
+	return FileFormat.unregister(decoder);
+}
+
 /**
  * Load GdkPixbuf directly using gdk_pixbuf_new_from_file,
  * without FileInputStream.
@@ -469,6 +733,7 @@ static long gdk_pixbuf_new_from_file(String filename) {
  */
 public void save(OutputStream stream, int format) {
 	if (stream == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
+	saveThroughput = 0;
 	if (format == -1) SWT.error(SWT.ERROR_UNSUPPORTED_FORMAT);
 	if (this.data == null) SWT.error(SWT.ERROR_NULL_ARGUMENT);
 	ImageData imgData = this.data [0];
@@ -193,6 +193,7 @@ public class Display extends Device {
 
 	/* Sync/Async Widget Communication */
 	Synchronizer synchronizer = new Synchronizer (this);
+	EventLoopMonitor monitor;
 	Consumer<RuntimeException> runtimeExceptionHandler = DefaultExceptionHandler.RUNTIME_EXCEPTION_HANDLER;
 	Consumer<Error> errorHandler = DefaultExceptionHandler.RUNTIME_ERROR_HANDLER;
 	Thread thread;
@@ -231,8 +232,10 @@ public class Display extends Device {
 	TrayItem currentTrayItem;
 
 	/* Timers */
-	int [] timerIds;
-	Runnable [] timerList;
+	/* Timers, multiplexed onto a single GLib source */
+	TimerWheel timerWheel;
+	int timerId;
+	long timerDeadline;
 	Callback timerCallback;
 	long timerProc;
 	Callback windowTimerCallback;
@@ -724,6 +727,22 @@ void addIdleProc() {
 	}
 }
 
+/*
+* Add the idle proc again if it is needed but was removed, so that
+* a runnable posted from another thread is run.
+*/
+void restoreIdleProc () {
+	synchronized (idleLock) {
+		if (idleNeeded && idleHandle == 0) {
+			if (GTK.GTK4) {
+				idleHandle = OS.g_idle_add (idleProc, 0);
+			} else {
+				idleHandle = GDK.gdk_threads_add_idle (idleProc, 0);
+			}
+		}
+	}
+}
+
 /**
  * Adds the listener to the collection of listeners who will
  * be notified when an event of the given type occurs. The event
@@ -915,20 +934,51 @@ void addWidget (long handle, Widget widget) {
 public void asyncExec (Runnable runnable) {
 	synchronized (Device.class) {
 		if (isDisposed ()) error (SWT.ERROR_DEVICE_DISPOSED);
-		synchronized (idleLock) {
-			if (idleNeeded && idleHandle == 0) {
-				if (GTK.GTK4) {
-					idleHandle = OS.g_idle_add (idleProc, 0);
-				} else {
-					idleHandle = GDK.gdk_threads_add_idle (idleProc, 0);
-				}
-
-			}
-		}
+		restoreIdleProc ();
 		synchronizer.asyncExec (runnable);
 	}
 }
 
+/**
+ * Causes the <code>run()</code> method of the runnable to
+ * be invoked by the user-interface thread at the next
+ * reasonable opportunity, like <code>asyncExec(Runnable)</code>,
+ * unless a runnable that was given with an equal key is still
+ * waiting to run. In that case the waiting runnable is replaced
+ * by this one, which runs once in its place. This collapses
+ * repeated requests for the same update, for example from a
+ * background job that reports progress, into a single runnable
+ * that sees the latest state.
+ * <p>
+ * Keys are compared with <code>equals()</code>. The number of
+ * runnables that replaced a waiting one is answered by
+ * <code>Synchronizer.getCoalescedCount()</code>.
+ * </p>
+ *
+ * @param key the key that identifies the update
+ * @param runnable code to run on the user-interface thread
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the key or the runnable is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see #asyncExec(Runnable)
+ * @see Synchronizer#getCoalescedCount()
+ *
+ * @since 3.120
+ */
+public void asyncExec (Object key, Runnable runnable) {
+	if (key == null || runnable == null) error (SWT.ERROR_NULL_ARGUMENT);
+	synchronized (Device.class) {
+		if (isDisposed ()) error (SWT.ERROR_DEVICE_DISPOSED);
+		restoreIdleProc ();
+		synchronizer.asyncExec (key, runnable);
+	}
+}
+
 /**
  * Causes the system hardware to emit a short sound
  * (if it supports this capability).
@@ -2833,6 +2883,29 @@ public Synchronizer getSynchronizer () {
 	return synchronizer;
 }
 
+/**
+ * Returns the monitor that measures where the user-interface thread
+ * of the receiver spends its time. The receiver starts to measure the
+ * phases of its event loop when this method is called the first time,
+ * and stops when the monitor is disposed. A call after that answers a
+ * new monitor.
+ *
+ * @return the receiver's event loop monitor
+ *
+ * @exception SWTException <ul>
+ *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see EventLoopMonitor
+ * @since 3.120
+ */
+public EventLoopMonitor getEventLoopMonitor () {
+	checkDevice ();
+	if (monitor == null) monitor = new EventLoopMonitor (this);
+	return monitor;
+}
+
 /**
  * Returns the thread that has invoked <code>syncExec</code>
  * or null if no such runnable is currently being invoked by
@@ -4517,23 +4590,29 @@ void putGdkEvents () {
  */
 public boolean readAndDispatch () {
 	checkDevice ();
-	runSkin ();
-	runDeferredLayouts ();
-	boolean events = false;
-	events |= runSettings ();
-	events |= runPopups ();
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DISPATCH);
+	try {
+		runSkin ();
+		runDeferredLayouts ();
+		boolean events = false;
+		events |= runSettings ();
+		events |= runPopups ();
 
-	if (GTK.GTK4) {
-		events |= OS.g_main_context_iteration (0, false);
-	} else {
-		events |= GTK3.gtk_events_pending ();
-		GTK3.gtk_main_iteration_do (false);
-	}
-	if (events) {
-		runDeferredEvents ();
-		return true;
+		if (GTK.GTK4) {
+			events |= OS.g_main_context_iteration (0, false);
+		} else {
+			events |= GTK3.gtk_events_pending ();
+			GTK3.gtk_main_iteration_do (false);
+		}
+		if (events) {
+			runDeferredEvents ();
+			return true;
+		}
+		return isDisposed () || runAsyncMessages (false);
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DISPATCH, null);
 	}
-	return isDisposed () || runAsyncMessages (false);
 }
 
 static void register (Display display) {
@@ -4620,6 +4699,7 @@ protected void release () {
 		}
 		disposeList = null;
 
+		if (monitor != null) monitor.release ();
 		synchronizer.releaseSynchronizer ();
 		synchronizer = null;
 		releaseSessionManager ();
@@ -4750,13 +4830,9 @@ void releaseDisplay () {
 	if (shellMapProcClosure != 0) OS.g_closure_unref (shellMapProcClosure);
 
 	/* Dispose the timer callback */
-	if (timerIds != null) {
-		for (int i=0; i<timerIds.length; i++) {
-			if (timerIds [i] != 0) OS.g_source_remove (timerIds [i]);
-		}
-	}
-	timerIds = null;
-	timerList = null;
+	if (timerId != 0) OS.g_source_remove (timerId);
+	timerId = 0;
+	timerWheel = null;
 	timerProc = 0;
 	timerCallback.dispose ();
 	timerCallback = null;
@@ -5057,45 +5133,55 @@ boolean runAsyncMessages (boolean all) {
 }
 
 boolean runDeferredEvents () {
+	if (eventQueue == null) return false;
 	boolean run = false;
-	/*
-	* Run deferred events.  This code is always
-	* called in the Display's thread so it must
-	* be re-enterant but need not be synchronized.
-	*/
-	while (eventQueue != null) {
-
-		/* Take an event off the queue */
-		Event event = eventQueue [0];
-		if (event == null) break;
-		int length = eventQueue.length;
-		System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
-		eventQueue [length] = null;
-
-		/* Run the event */
-		Widget widget = event.widget;
-		if (widget != null && !widget.isDisposed ()) {
-			Widget item = event.item;
-			if (item == null || !item.isDisposed ()) {
-				run = true;
-				widget.sendEvent (event);
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_EVENTS);
+	try {
+		/*
+		* Run deferred events.  This code is always
+		* called in the Display's thread so it must
+		* be re-enterant but need not be synchronized.
+		*/
+		while (eventQueue != null) {
+
+			/* Take an event off the queue */
+			Event event = eventQueue [0];
+			if (event == null) break;
+			int length = eventQueue.length;
+			System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
+			eventQueue [length] = null;
+
+			/* Run the event */
+			Widget widget = event.widget;
+			if (widget != null && !widget.isDisposed ()) {
+				Widget item = event.item;
+				if (item == null || !item.isDisposed ()) {
+					run = true;
+					widget.sendEvent (event);
+				}
 			}
+
+			/*
+			* At this point, the event queue could
+			* be null due to a recursive invokation
+			* when running the event.
+			*/
 		}
 
-		/*
-		* At this point, the event queue could
-		* be null due to a recursive invokation
-		* when running the event.
-		*/
+		/* Clear the queue */
+		eventQueue = null;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_EVENTS, null);
 	}
-
-	/* Clear the queue */
-	eventQueue = null;
 	return run;
 }
 
 boolean runDeferredLayouts () {
-	if (layoutDeferredCount != 0) {
+	if (layoutDeferredCount == 0) return false;
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_LAYOUTS);
+	try {
 		Composite[] temp = layoutDeferred;
 		int count = layoutDeferredCount;
 		layoutDeferred = null;
@@ -5105,9 +5191,10 @@ boolean runDeferredLayouts () {
 			if (!comp.isDisposed()) comp.setLayoutDeferred (false);
 		}
 		update ();
-		return true;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_LAYOUTS, null);
 	}
-	return false;
+	return true;
 }
 
 boolean runPopups () {
@@ -5693,63 +5780,69 @@ public boolean sleep () {
 public void timerExec (int milliseconds, Runnable runnable) {
 	checkDevice ();
 	if (runnable == null) error (SWT.ERROR_NULL_ARGUMENT);
-	if (timerList == null) timerList = new Runnable [4];
-	if (timerIds == null) timerIds = new int [4];
-	int index = 0;
-	while (index < timerList.length) {
-		if (timerList [index] == runnable) break;
-		index++;
-	}
-	if (index != timerList.length) {
-		OS.g_source_remove (timerIds [index]);
-		timerList [index] = null;
-		timerIds [index] = 0;
-		if (milliseconds < 0) return;
-	} else {
+	long now = System.nanoTime () / 1000000;
+	if (timerWheel == null) {
 		if (milliseconds < 0) return;
-		index = 0;
-		while (index < timerList.length) {
-			if (timerList [index] == null) break;
-			index++;
-		}
-		if (index == timerList.length) {
-			Runnable [] newTimerList = new Runnable [timerList.length + 4];
-			System.arraycopy (timerList, 0, newTimerList, 0, timerList.length);
-			timerList = newTimerList;
-			int [] newTimerIds = new int [timerIds.length + 4];
-			System.arraycopy (timerIds, 0, newTimerIds, 0, timerIds.length);
-			timerIds = newTimerIds;
-		}
+		timerWheel = new TimerWheel (now);
 	}
-	int timerId;
-	if (GTK.GTK4) {
-		timerId = OS.g_timeout_add (milliseconds, timerProc, index);
+	if (milliseconds < 0) {
+		timerWheel.cancel (runnable);
 	} else {
-		timerId = GDK.gdk_threads_add_timeout (milliseconds, timerProc, index);
+		timerWheel.schedule (runnable, now + milliseconds);
+	}
+	updateTimer (now);
+}
+
+/*
+* Arm the timer source for the next timer of the wheel. A source that
+* fires earlier is kept, it is cheaper to wake up for nothing than to
+* replace the source whenever the earliest timer is canceled.
+*/
+void updateTimer (long now) {
+	int delay = timerWheel.getDelay (now);
+	if (delay < 0) {
+		if (timerId != 0) OS.g_source_remove (timerId);
+		timerId = 0;
+		return;
 	}
 	if (timerId != 0) {
-		timerIds [index] = timerId;
-		timerList [index] = runnable;
+		if (timerDeadline <= now + delay) return;
+		OS.g_source_remove (timerId);
+	}
+	if (GTK.GTK4) {
+		timerId = OS.g_timeout_add (delay, timerProc, 0);
+	} else {
+		timerId = GDK.gdk_threads_add_timeout (delay, timerProc, 0);
 	}
+	timerDeadline = now + delay;
 }
 
 long timerProc (long i) {
-	if (timerList == null) return 0;
-	int index = (int)i;
-	if (0 <= index && index < timerList.length) {
-		Runnable runnable = timerList [index];
-		timerList [index] = null;
-		timerIds [index] = 0;
-		if (runnable != null) {
-			try {
-				runnable.run ();
-			} catch (RuntimeException exception) {
-				runtimeExceptionHandler.accept (exception);
-			} catch (Error exception) {
-				errorHandler.accept (exception);
-			}
+	timerId = 0;
+	if (timerWheel == null) return 0;
+	timerWheel.advance (System.nanoTime () / 1000000);
+	Runnable runnable;
+	while ((runnable = timerWheel.poll ()) != null) {
+		/*
+		* Arm the source before running the runnable, so that the
+		* remaining timers run in a nested event loop, like when every
+		* timer had its own source.
+		*/
+		updateTimer (System.nanoTime () / 1000000);
+		EventLoopMonitor monitor = this.monitor;
+		if (monitor != null) monitor.begin (EventLoopMonitor.TIMER_EXEC);
+		try {
+			runnable.run ();
+		} catch (RuntimeException exception) {
+			runtimeExceptionHandler.accept (exception);
+		} catch (Error exception) {
+			errorHandler.accept (exception);
+		} finally {
+			if (monitor != null) monitor.end (EventLoopMonitor.TIMER_EXEC, runnable);
 		}
+		if (timerWheel == null) return 0;
 	}
+	updateTimer (System.nanoTime () / 1000000);
 	return 0;
 }
 
@@ -5886,6 +5979,7 @@ public void sendPreExternalEventDispatchEvent () {
 	if (eventTable != null && eventTable.hooks (SWT.PreExternalEventDispatch)) {
 		sendEvent (SWT.PreExternalEventDispatch, null);
 	}
+	if (monitor != null) monitor.beginWait ();
 }
 
 /**
@@ -5894,6 +5988,7 @@ public void sendPreExternalEventDispatchEvent () {
  * @noreference This method is not intended to be referenced by clients.
  */
 public void sendPostExternalEventDispatchEvent () {
+	if (monitor != null) monitor.endWait ();
 	if (eventTable != null && eventTable.hooks (SWT.PostExternalEventDispatch)) {
 		sendEvent (SWT.PostExternalEventDispatch, null);
 	}
@@ -5954,15 +6049,7 @@ public void syncExec (Runnable runnable) {
 	synchronized (Device.class) {
 		if (isDisposed ()) error (SWT.ERROR_DEVICE_DISPOSED);
 		synchronizer = this.synchronizer;
-		synchronized (idleLock) {
-			if (idleNeeded && idleHandle == 0) {
-				if (GTK.GTK4) {
-					idleHandle = OS.g_idle_add (idleProc, 0);
-				} else {
-					idleHandle = GDK.gdk_threads_add_idle (idleProc, 0);
-				}
-			}
-		}
+		restoreIdleProc ();
 	}
 	synchronizer.syncExec (runnable);
 }
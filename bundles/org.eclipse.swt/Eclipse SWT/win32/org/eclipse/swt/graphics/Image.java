@@ -674,7 +674,7 @@ public Image(Device device, ImageFileNameProvider imageFileNameProvider) {
 		initNative (fileName);
 		if (this.handle == 0) init(new ImageData (fileName));
 	} else {
-		ImageData resizedData = DPIUtil.autoScaleUp (device, new ImageData (fileName));
+		ImageData resizedData = DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (fileName), currentDeviceZoom, 100);
 		init(resizedData);
 	}
 	init();
@@ -718,7 +718,7 @@ public Image(Device device, ImageDataProvider imageDataProvider) {
 	if (found[0]) {
 		init(data);
 	} else {
-		ImageData resizedData = DPIUtil.autoScaleUp(device, data);
+		ImageData resizedData = DPIUtil.autoScaleImageData (device, imageDataProvider, data, currentDeviceZoom, 100);
 		init (resizedData);
 	}
 	init();
@@ -748,7 +748,7 @@ boolean refreshImageForZoom () {
 			if (!found[0]) {
 				/* Release current native resources */
 				destroy ();
-				ImageData resizedData = DPIUtil.autoScaleUp (device, new ImageData (filename));
+				ImageData resizedData = DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (filename), deviceZoomLevel, 100);
 				init(resizedData);
 				init ();
 				refreshed = true;
@@ -770,7 +770,7 @@ boolean refreshImageForZoom () {
 			if (!found[0]) {
 				/* Release current native resources */
 				destroy ();
-				ImageData resizedData = DPIUtil.autoScaleUp (device, data);
+				ImageData resizedData = DPIUtil.autoScaleImageData (device, imageDataProvider, data, deviceZoomLevel, 100);
 				init(resizedData);
 				init();
 				refreshed = true;
@@ -1359,7 +1359,7 @@ public ImageData getImageData (int zoom) {
 			return data;
 		}
 		// AutoScale the image at 100% zoom
-		return DPIUtil.autoScaleImageData (device, data, zoom, 100);
+		return DPIUtil.autoScaleImageData (device, imageDataProvider, data, zoom, 100);
 	} else if (imageFileNameProvider != null) {
 		boolean[] found = new boolean[1];
 		String fileName = DPIUtil.validateAndGetImagePathAtZoom (imageFileNameProvider, zoom, found);
@@ -1368,7 +1368,7 @@ public ImageData getImageData (int zoom) {
 			return new ImageData (fileName);
 		}
 		// AutoScale the image at 100% zoom
-		return DPIUtil.autoScaleImageData (device, new ImageData (fileName), zoom, 100);
+		return DPIUtil.autoScaleImageData (device, imageFileNameProvider, new ImageData (fileName), zoom, 100);
 	} else {
 		return DPIUtil.autoScaleImageData (device, getImageDataAtCurrentZoom (), zoom, currentDeviceZoom);
 	}
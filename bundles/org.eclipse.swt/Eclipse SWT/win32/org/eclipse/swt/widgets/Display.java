@@ -312,6 +312,7 @@ public class Display extends Device {
 
 	/* Sync/Async Widget Communication */
 	Synchronizer synchronizer = new Synchronizer (this);
+	EventLoopMonitor monitor;
 	Consumer<RuntimeException> runtimeExceptionHandler = DefaultExceptionHandler.RUNTIME_EXCEPTION_HANDLER;
 	Consumer<Error> errorHandler = DefaultExceptionHandler.RUNTIME_ERROR_HANDLER;
 	boolean runMessagesInIdle = false, runMessagesInMessageProc = true;
@@ -795,6 +796,45 @@ public void asyncExec (Runnable runnable) {
 	}
 }
 
+/**
+ * Causes the <code>run()</code> method of the runnable to
+ * be invoked by the user-interface thread at the next
+ * reasonable opportunity, like <code>asyncExec(Runnable)</code>,
+ * unless a runnable that was given with an equal key is still
+ * waiting to run. In that case the waiting runnable is replaced
+ * by this one, which runs once in its place. This collapses
+ * repeated requests for the same update, for example from a
+ * background job that reports progress, into a single runnable
+ * that sees the latest state.
+ * <p>
+ * Keys are compared with <code>equals()</code>. The number of
+ * runnables that replaced a waiting one is answered by
+ * <code>Synchronizer.getCoalescedCount()</code>.
+ * </p>
+ *
+ * @param key the key that identifies the update
+ * @param runnable code to run on the user-interface thread
+ *
+ * @exception IllegalArgumentException <ul>
+ *    <li>ERROR_NULL_ARGUMENT - if the key or the runnable is null</li>
+ * </ul>
+ * @exception SWTException <ul>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see #asyncExec(Runnable)
+ * @see Synchronizer#getCoalescedCount()
+ *
+ * @since 3.120
+ */
+public void asyncExec (Object key, Runnable runnable) {
+	if (key == null || runnable == null) error (SWT.ERROR_NULL_ARGUMENT);
+	synchronized (Device.class) {
+		if (isDisposed ()) error (SWT.ERROR_DEVICE_DISPOSED);
+		synchronizer.asyncExec (key, runnable);
+	}
+}
+
 /**
  * Causes the system hardware to emit a short sound
  * (if it supports this capability).
@@ -2296,6 +2336,29 @@ public Synchronizer getSynchronizer () {
 	return synchronizer;
 }
 
+/**
+ * Returns the monitor that measures where the user-interface thread
+ * of the receiver spends its time. The receiver starts to measure the
+ * phases of its event loop when this method is called the first time,
+ * and stops when the monitor is disposed. A call after that answers a
+ * new monitor.
+ *
+ * @return the receiver's event loop monitor
+ *
+ * @exception SWTException <ul>
+ *    <li>ERROR_THREAD_INVALID_ACCESS - if not called from the thread that created the receiver</li>
+ *    <li>ERROR_DEVICE_DISPOSED - if the receiver has been disposed</li>
+ * </ul>
+ *
+ * @see EventLoopMonitor
+ * @since 3.120
+ */
+public EventLoopMonitor getEventLoopMonitor () {
+	checkDevice ();
+	if (monitor == null) monitor = new EventLoopMonitor (this);
+	return monitor;
+}
+
 /**
  * Returns the thread that has invoked <code>syncExec</code>
  * or null if no such runnable is currently being invoked by
@@ -3642,20 +3705,26 @@ void postEvent (Event event) {
  */
 public boolean readAndDispatch () {
 	checkDevice ();
-	lpStartupInfo = null;
-	drawMenuBars ();
-	runSkin ();
-	runDeferredLayouts ();
-	runPopups ();
-	if (OS.PeekMessage (msg, 0, 0, 0, OS.PM_REMOVE)) {
-		if (!filterMessage (msg)) {
-			OS.TranslateMessage (msg);
-			OS.DispatchMessage (msg);
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DISPATCH);
+	try {
+		lpStartupInfo = null;
+		drawMenuBars ();
+		runSkin ();
+		runDeferredLayouts ();
+		runPopups ();
+		if (OS.PeekMessage (msg, 0, 0, 0, OS.PM_REMOVE)) {
+			if (!filterMessage (msg)) {
+				OS.TranslateMessage (msg);
+				OS.DispatchMessage (msg);
+			}
+			runDeferredEvents ();
+			return true;
 		}
-		runDeferredEvents ();
-		return true;
+		return isDisposed () || runAsyncMessages (false);
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DISPATCH, null);
 	}
-	return isDisposed () || runAsyncMessages (false);
 }
 
 static void register (Display display) {
@@ -3749,6 +3818,7 @@ protected void release () {
 		}
 		disposeList = null;
 
+		if (monitor != null) monitor.release ();
 		synchronizer.releaseSynchronizer ();
 		synchronizer = null;
 		releaseDisplay ();
@@ -4054,45 +4124,55 @@ boolean runAsyncMessages (boolean all) {
 }
 
 boolean runDeferredEvents () {
+	if (eventQueue == null) return false;
 	boolean run = false;
-	/*
-	* Run deferred events.  This code is always
-	* called in the Display's thread so it must
-	* be re-enterant but need not be synchronized.
-	*/
-	while (eventQueue != null) {
-
-		/* Take an event off the queue */
-		Event event = eventQueue [0];
-		if (event == null) break;
-		int length = eventQueue.length;
-		System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
-		eventQueue [length] = null;
-
-		/* Run the event */
-		Widget widget = event.widget;
-		if (widget != null && !widget.isDisposed ()) {
-			Widget item = event.item;
-			if (item == null || !item.isDisposed ()) {
-				run = true;
-				widget.sendEvent (event);
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_EVENTS);
+	try {
+		/*
+		* Run deferred events.  This code is always
+		* called in the Display's thread so it must
+		* be re-enterant but need not be synchronized.
+		*/
+		while (eventQueue != null) {
+
+			/* Take an event off the queue */
+			Event event = eventQueue [0];
+			if (event == null) break;
+			int length = eventQueue.length;
+			System.arraycopy (eventQueue, 1, eventQueue, 0, --length);
+			eventQueue [length] = null;
+
+			/* Run the event */
+			Widget widget = event.widget;
+			if (widget != null && !widget.isDisposed ()) {
+				Widget item = event.item;
+				if (item == null || !item.isDisposed ()) {
+					run = true;
+					widget.sendEvent (event);
+				}
 			}
+
+			/*
+			* At this point, the event queue could
+			* be null due to a recursive invocation
+			* when running the event.
+			*/
 		}
 
-		/*
-		* At this point, the event queue could
-		* be null due to a recursive invocation
-		* when running the event.
-		*/
+		/* Clear the queue */
+		eventQueue = null;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_EVENTS, null);
 	}
-
-	/* Clear the queue */
-	eventQueue = null;
 	return run;
 }
 
 boolean runDeferredLayouts () {
-	if (layoutDeferredCount != 0) {
+	if (layoutDeferredCount == 0) return false;
+	EventLoopMonitor monitor = this.monitor;
+	if (monitor != null) monitor.begin (EventLoopMonitor.DEFERRED_LAYOUTS);
+	try {
 		Composite[] temp = layoutDeferred;
 		int count = layoutDeferredCount;
 		layoutDeferred = null;
@@ -4101,9 +4181,10 @@ boolean runDeferredLayouts () {
 			Composite comp = temp[i];
 			if (!comp.isDisposed()) comp.setLayoutDeferred (false);
 		}
-		return true;
+	} finally {
+		if (monitor != null) monitor.end (EventLoopMonitor.DEFERRED_LAYOUTS, null);
 	}
-	return false;
+	return true;
 }
 
 boolean runPopups () {
@@ -4172,12 +4253,16 @@ boolean runTimer (long id) {
 				Runnable runnable = timerList [index];
 				timerList [index] = null;
 				if (runnable != null) {
+					EventLoopMonitor monitor = this.monitor;
+					if (monitor != null) monitor.begin (EventLoopMonitor.TIMER_EXEC);
 					try {
 						runnable.run ();
 					} catch (RuntimeException exception) {
 						runtimeExceptionHandler.accept (exception);
 					} catch (Error exception) {
 						errorHandler.accept (exception);
+					} finally {
+						if (monitor != null) monitor.end (EventLoopMonitor.TIMER_EXEC, runnable);
 					}
 				}
 				return true;
@@ -4297,6 +4382,7 @@ public void sendPreExternalEventDispatchEvent () {
 	if (eventTable != null && eventTable.hooks (SWT.PreExternalEventDispatch)) {
 		sendEvent (SWT.PreExternalEventDispatch, null);
 	}
+	if (monitor != null) monitor.beginWait ();
 }
 
 /**
@@ -4305,6 +4391,7 @@ public void sendPreExternalEventDispatchEvent () {
  * @noreference This method is not intended to be referenced by clients.
  */
 public void sendPostExternalEventDispatchEvent () {
+	if (monitor != null) monitor.endWait ();
 	if (eventTable != null && eventTable.hooks (SWT.PostExternalEventDispatch)) {
 		sendEvent (SWT.PostExternalEventDispatch, null);
 	}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.Random;
+
+/**
+ * The documents and edits of the <code>StyledText</code> benchmarks. The
+ * documents look like Java source, with lines of 40 characters on average,
+ * and are generated from a fixed seed so every run measures the same text.
+ */
+final class SampleText {
+
+	/** The token that a global replace replaces, in about one line of eight */
+	static final String TOKEN = "counter";
+	static final String REPLACEMENT = "total";
+
+	/** What typing inserts one character at a time */
+	static final String WORD = "value ";
+
+	static final String[] LINES = {
+		"import java.util.List;",
+		"public class Example {",
+		"private int counter = 0;",
+		"/**",
+		" * Answers the number of elements that match.",
+		" */",
+		"public int count(List<String> elements) {",
+		"for (String element : elements) {",
+		"if (element.startsWith(\"a\")) counter++;",
+		"}",
+		"return counter;",
+		"// TODO remove once the cache is gone",
+		"String message = \"The value is \" + value;",
+		"System.out.println(message);",
+		"throw new IllegalStateException();",
+		"",
+	};
+
+	/** A pasted block of a few kilobytes and lines */
+	static final String CLIPBOARD = generate(4096, 42);
+
+private SampleText() {
+}
+
+static String generate(int length) {
+	return generate(length, 0);
+}
+
+static String generate(int length, long seed) {
+	StringBuilder builder = new StringBuilder(length + 128);
+	Random random = new Random(seed);
+	while (builder.length() < length) {
+		for (int i = random.nextInt(4); i > 0; i--) builder.append('\t');
+		builder.append(LINES[random.nextInt(LINES.length)]);
+		builder.append('\n');
+	}
+	builder.setLength(length);
+	return builder.toString();
+}
+
+/**
+ * Answers the offsets of the occurrences of the token in the text.
+ */
+static int[] occurrences(String text, String token) {
+	int count = 0;
+	for (int index = text.indexOf(token); index != -1; index = text.indexOf(token, index + token.length())) {
+		count++;
+	}
+	int[] result = new int[count];
+	count = 0;
+	for (int index = text.indexOf(token); index != -1; index = text.indexOf(token, index + token.length())) {
+		result[count++] = index;
+	}
+	return result;
+}
+
+/**
+ * Answers random numbers between 0 and the bound, exclusive, to look
+ * up without spending the time of the random generator in the benchmark.
+ */
+static int[] randoms(int count, int bound, long seed) {
+	Random random = new Random(seed);
+	int[] result = new int[count];
+	for (int i = 0; i < count; i++) {
+		result[i] = random.nextInt(bound);
+	}
+	return result;
+}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Edits and queries the content of a <code>StyledText</code> the way the
+ * widget does.
+ * <p>
+ * The edits are traces that leave the document as they found it, so the
+ * size of the document does not drift during a run: typing inserts a word
+ * one character at a time and deletes it with backspace, paste inserts a
+ * block and removes it again, and a global replace replaces a token at
+ * every occurrence and replaces it back on the next invocation.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class StyledTextContentBenchmark {
+
+	static final int RANDOMS = 4096;
+	/** Typing jumps to another place of the document after that many words */
+	static final int WORDS_IN_PLACE = 64;
+
+	@Param({"100000", "1000000", "10000000"})
+	public int size;
+
+	@Param({"DefaultContent", "RopeContent"})
+	public String implementation;
+
+	StyledTextContent content;
+	int[] offsets, lines, occurrences;
+	int next, words, caret;
+	boolean replaced;
+
+@Setup
+public void setUp() {
+	String text = SampleText.generate(size);
+	content = createContent();
+	content.setText(text);
+	offsets = SampleText.randoms(RANDOMS, size - SampleText.CLIPBOARD.length(), 1);
+	lines = SampleText.randoms(RANDOMS, content.getLineCount(), 2);
+	occurrences = SampleText.occurrences(text, SampleText.TOKEN);
+}
+
+StyledTextContent createContent() {
+	switch (implementation) {
+		case "RopeContent": return new RopeContent();
+		default: return new DefaultContent();
+	}
+}
+
+int nextOffset() {
+	return offsets[next++ & (RANDOMS - 1)];
+}
+
+@Benchmark
+public int getLineAtOffset() {
+	return content.getLineAtOffset(nextOffset());
+}
+
+@Benchmark
+public int getOffsetAtLine() {
+	return content.getOffsetAtLine(lines[next++ & (RANDOMS - 1)]);
+}
+
+@Benchmark
+public String getLine() {
+	return content.getLine(lines[next++ & (RANDOMS - 1)]);
+}
+
+@Benchmark
+public String getTextRange() {
+	return content.getTextRange(nextOffset(), 80);
+}
+
+@Benchmark
+@OperationsPerInvocation(12)
+public int typing() {
+	if (words++ % WORDS_IN_PLACE == 0) caret = nextOffset();
+	String word = SampleText.WORD;
+	for (int i = 0; i < word.length(); i++) {
+		content.replaceTextRange(caret + i, 0, word.substring(i, i + 1));
+	}
+	for (int i = word.length() - 1; i >= 0; i--) {
+		content.replaceTextRange(caret + i, 1, "");
+	}
+	/* The next word is typed on the next line */
+	caret += 41;
+	if (caret > size) caret = 0;
+	return content.getCharCount();
+}
+
+@Benchmark
+@OperationsPerInvocation(2)
+public int paste() {
+	int offset = nextOffset();
+	content.replaceTextRange(offset, 0, SampleText.CLIPBOARD);
+	content.replaceTextRange(offset, SampleText.CLIPBOARD.length(), "");
+	return content.getCharCount();
+}
+
+/*
+ * Each replace of DefaultContent moves the gap and the line index, so a
+ * global replace of a large document takes seconds.
+ */
+@Benchmark
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public int replaceAll() {
+	String from = replaced ? SampleText.REPLACEMENT : SampleText.TOKEN;
+	String to = replaced ? SampleText.TOKEN : SampleText.REPLACEMENT;
+	/* The occurrences before the one being replaced have been replaced already */
+	int shift = to.length() - SampleText.TOKEN.length();
+	for (int i = 0; i < occurrences.length; i++) {
+		content.replaceTextRange(occurrences[i] + i * shift, from.length(), to);
+	}
+	replaced = !replaced;
+	return content.getCharCount();
+}
+
+/*
+ * The same global replace as one batch of replacements.
+ */
+@Benchmark
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public int replaceAllBatched() {
+	String from = replaced ? SampleText.REPLACEMENT : SampleText.TOKEN;
+	String to = replaced ? SampleText.TOKEN : SampleText.REPLACEMENT;
+	/* The ranges are offsets in the content before the batch */
+	int shift = from.length() - SampleText.TOKEN.length();
+	int[] ranges = new int[occurrences.length * 2];
+	String[] texts = new String[occurrences.length];
+	for (int i = 0; i < occurrences.length; i++) {
+		ranges[2 * i] = occurrences[i] + i * shift;
+		ranges[2 * i + 1] = from.length();
+		texts[i] = to;
+	}
+	content.replaceTextRanges(ranges, texts);
+	replaced = !replaced;
+	return content.getCharCount();
+}
+}
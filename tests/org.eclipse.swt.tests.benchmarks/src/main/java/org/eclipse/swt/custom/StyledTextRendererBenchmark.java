@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.custom;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.SWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updates and queries the styles of a <code>StyledTextRenderer</code> the
+ * way <code>StyledText</code> does, without a widget.
+ * <p>
+ * The document is highlighted like source code, with a token of
+ * {@link #TOKEN_LENGTH} characters every {@link #TOKEN_SPACING} characters.
+ * Highlighting replaces the styles of a window of the document the way
+ * <code>StyledText.setStyleRanges(int, int, int[], StyleRange[])</code>
+ * does, alternating between two sets of tokens so that every replace
+ * changes the styles. Typing inserts and deletes a character between two
+ * tokens, which moves the styles after it.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class StyledTextRendererBenchmark {
+
+	static final int RANDOMS = 4096;
+	static final int TOKEN_SPACING = 8, TOKEN_LENGTH = 5;
+	/** The number of characters that highlighting replaces the styles of */
+	static final int WINDOW = 4096;
+
+	@Param({"100000", "1000000", "10000000"})
+	public int size;
+
+	StyledTextRenderer renderer;
+	StyleRange[] palette;
+	int[] offsets;
+	int next;
+	boolean shifted;
+
+@Setup
+public void setUp() {
+	palette = new StyleRange[] {
+		new StyleRange(0, 0, null, null, SWT.BOLD),
+		new StyleRange(0, 0, null, null, SWT.ITALIC),
+		new StyleRange(0, 0, null, null, SWT.BOLD | SWT.ITALIC),
+		new StyleRange(0, 0, null, null, SWT.NORMAL),
+	};
+	palette[3].underline = true;
+	renderer = new StyledTextRenderer(null, null);
+	int count = size / TOKEN_SPACING;
+	int[] ranges = new int[count << 1];
+	StyleRange[] styles = new StyleRange[count];
+	tokens(ranges, styles, 0, 0);
+	renderer.setStyleRanges(ranges, styles);
+	/* Windows start on a token so that the tokens of typing stay between tokens */
+	offsets = SampleText.randoms(RANDOMS, (size - WINDOW) / TOKEN_SPACING, 1);
+	for (int i = 0; i < offsets.length; i++) {
+		offsets[i] *= TOKEN_SPACING;
+	}
+}
+
+void tokens(int[] ranges, StyleRange[] styles, int start, int shift) {
+	for (int i = 0; i < styles.length; i++) {
+		ranges[i << 1] = start + i * TOKEN_SPACING + shift;
+		ranges[(i << 1) + 1] = TOKEN_LENGTH;
+		styles[i] = palette[(i + shift) % palette.length];
+	}
+}
+
+int nextOffset() {
+	return offsets[next++ & (RANDOMS - 1)];
+}
+
+@Benchmark
+public int getRangeIndex() {
+	return renderer.styleRanges.indexOf(nextOffset());
+}
+
+@Benchmark
+public StyleRange[] getStyleRanges() {
+	return renderer.getStyleRanges(nextOffset(), 80, true);
+}
+
+@Benchmark
+public int replaceStyles() {
+	int start = nextOffset();
+	/* The tokens are shifted by one character every other time so that the styles change */
+	int shift = shifted ? 0 : 1;
+	shifted = !shifted;
+	int count = (WINDOW - shift - TOKEN_LENGTH) / TOKEN_SPACING + 1;
+	int[] ranges = new int[count << 1];
+	StyleRange[] styles = new StyleRange[count];
+	tokens(ranges, styles, start, shift);
+	/* What StyledText.setStyleRanges() does to the renderer */
+	renderer.getRanges(start, WINDOW);
+	renderer.getStyleRanges(start, WINDOW, false);
+	renderer.updateRanges(start, WINDOW, WINDOW);
+	renderer.setStyleRanges(ranges, styles);
+	return renderer.styleRanges.size();
+}
+
+@Benchmark
+@OperationsPerInvocation(2)
+public int typing() {
+	/* Between the token at the offset and the next one */
+	int offset = nextOffset() + TOKEN_LENGTH + 1;
+	renderer.updateRanges(offset, 0, 1);
+	renderer.updateRanges(offset, 1, 0);
+	return renderer.styleRanges.size();
+}
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks with the JMH command line and reports the allocation
+ * rate (<code>gc.alloc.rate.norm</code>) and the peak heap usage
+ * (<code>mem.peak.heap</code>) along with the score. Do not pass these
+ * profilers again with <code>-prof</code>.
+ */
+public class Benchmarks {
+
+public static void main(String[] args) throws Exception {
+	Options options = new OptionsBuilder()
+		.parent(new CommandLineOptions(args))
+		.addProfiler(GCProfiler.class)
+		.addProfiler(PeakMemoryProfiler.class)
+		.build();
+	new Runner(options).run();
+}
+}
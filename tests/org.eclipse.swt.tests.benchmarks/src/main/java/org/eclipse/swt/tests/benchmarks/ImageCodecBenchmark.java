@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.internal.image.FileFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes and encodes every image format that SWT implements in Java.
+ * <p>
+ * The codecs are called through <code>FileFormat</code>, which is what
+ * <code>ImageLoader.load</code> and <code>save</code> do on Windows and
+ * macOS. On GTK the loader hands most formats to GdkPixbuf, so going
+ * through it would not measure the codecs and would need a display.
+ * An image is saved in the format it was loaded from.
+ * </p>
+ *
+ * @see SampleImages
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ImageCodecBenchmark {
+
+	@Param({
+		"target.jpg",
+		"targetProgressive.jpg",
+		"eclipse.png",
+		"transparent.png",
+		"target.gif",
+		"target.bmp",
+		"Bug576334_32bpp_BMP_Colors.bmp",
+		"generated.jpg",
+		"generatedProgressive.jpg",
+		"generated.png",
+		"generatedInterlaced.png",
+		"generatedAnimated.gif",
+		"generatedRLE.bmp",
+		"generated.ico",
+		"generated.tif",
+	})
+	public String image;
+
+	byte[] bytes;
+	ImageLoader decoded;
+	int format;
+
+@Setup
+public void setUp() throws IOException {
+	bytes = SampleImages.read(image);
+	decoded = new ImageLoader();
+	decoded.data = FileFormat.load(new ByteArrayInputStream(bytes), decoded);
+	format = decoded.data[0].type;
+}
+
+@Benchmark
+public ImageData[] load() {
+	return FileFormat.load(new ByteArrayInputStream(bytes), new ImageLoader());
+}
+
+@Benchmark
+public ByteArrayOutputStream save() {
+	ByteArrayOutputStream stream = new ByteArrayOutputStream(bytes.length);
+	FileFormat.save(stream, format, decoded);
+	return stream;
+}
+
+public static void main(String[] args) throws Exception {
+	Benchmarks.main(new String[] {ImageCodecBenchmark.class.getName()});
+}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.internal.ImageDataCache;
+import org.eclipse.swt.internal.image.ImageResampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scales image data to 200% through an <code>ImageDataCache</code>, the way
+ * <code>DPIUtil</code> scales the image data of a provider.
+ * <p>
+ * A hit gets the source image data object that the result was cached for,
+ * as a provider that keeps its image data does. A copy hit gets an equal
+ * copy of it, as a provider that loads its image data again does, which
+ * the cache recognizes by its fingerprint. A miss empties the cache first,
+ * and <code>scale</code> scales without the cache.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class ImageDataCacheBenchmark {
+
+	static final int TARGET_ZOOM = 200, SOURCE_ZOOM = 100;
+
+	@Param({"16", "128", "512"})
+	public int size;
+
+	/** The scale method of <code>DPIUtil</code>, <code>nearest</code> or <code>smooth</code> */
+	@Param({"nearest", "smooth"})
+	public String method;
+
+	final Object provider = new Object();
+	ImageDataCache cache;
+	ImageData source, copy;
+	Supplier<ImageData> scale;
+
+@Setup
+public void setUp() {
+	source = new ImageData(size, size, 32, new PaletteData(0xff00, 0xff0000, 0xff000000));
+	for (int y = 0; y < size; y++) {
+		for (int x = 0; x < size; x++) {
+			source.setPixel(x, y, (x * 0x10305 + y * 0x30501) & 0xffffff00);
+		}
+	}
+	copy = (ImageData) source.clone();
+	int scaledSize = size * TARGET_ZOOM / SOURCE_ZOOM;
+	scale = "smooth".equals(method)
+		? () -> ImageResampler.resample(source, scaledSize, scaledSize, ImageResampler.BILINEAR)
+		: () -> source.scaledTo(scaledSize, scaledSize);
+	cache = new ImageDataCache(64 * 1024 * 1024);
+	cache.get(provider, source, TARGET_ZOOM, SOURCE_ZOOM, 0, scale);
+}
+
+@Benchmark
+public ImageData hit() {
+	return cache.get(provider, source, TARGET_ZOOM, SOURCE_ZOOM, 0, scale);
+}
+
+@Benchmark
+public ImageData copyHit() {
+	return cache.get(provider, copy, TARGET_ZOOM, SOURCE_ZOOM, 0, scale);
+}
+
+@Benchmark
+public ImageData miss() {
+	cache.clear();
+	return cache.get(provider, source, TARGET_ZOOM, SOURCE_ZOOM, 0, scale);
+}
+
+@Benchmark
+public ImageData scale() {
+	return scale.get();
+}
+
+public static void main(String[] args) throws Exception {
+	Benchmarks.main(new String[] {ImageDataCacheBenchmark.class.getName()});
+}
+}
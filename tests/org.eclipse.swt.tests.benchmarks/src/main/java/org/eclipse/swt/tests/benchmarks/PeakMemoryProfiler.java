@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage of every iteration as <code>mem.peak.heap</code>.
+ * <p>
+ * The peaks of the heap memory pools are reset before the iteration and
+ * added up after it. The pools do not peak at the same time, so the sum
+ * is an upper bound that also depends on when the collector runs, and is
+ * meant to compare runs with the same heap settings. Use it with
+ * <code>-prof org.eclipse.swt.tests.benchmarks.PeakMemoryProfiler</code>.
+ * </p>
+ */
+public class PeakMemoryProfiler implements InternalProfiler {
+
+@Override
+public String getDescription() {
+	return "Peak heap usage of the iterations";
+}
+
+@Override
+public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+	for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+		if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+	}
+}
+
+@Override
+public Collection<? extends Result> afterIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+	long peak = 0;
+	for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+		if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+	}
+	return Collections.singletonList(new ScalarResult("mem.peak.heap", peak / (1024.0 * 1024.0), "MB", AggregationPolicy.MAX));
+}
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.internal.image.FileFormat;
+
+/**
+ * The images the codec benchmarks decode and encode.
+ * <p>
+ * The images of the test data are small icons. The generated images are
+ * large and cover the variants the test data does not have: progressive
+ * JPEG and interlaced PNG are written by <code>javax.imageio</code>, the
+ * other formats by SWT itself. The pixels are generated from a fixed seed
+ * so every run measures the same bytes.
+ * </p>
+ */
+final class SampleImages {
+
+	static final String GENERATED = "generated";
+	static final int WIDTH = 2048, HEIGHT = 1536;
+	static final int FRAME_WIDTH = 640, FRAME_HEIGHT = 480, FRAMES = 16;
+	static final int ICON_SIZE = 256;
+
+private SampleImages() {
+}
+
+/**
+ * Answers the bytes of the image with the given name, either a file of
+ * the test data or, if the name starts with "generated", an image that
+ * is generated.
+ */
+static byte[] read(String name) throws IOException {
+	switch (name) {
+		case GENERATED + ".jpg": return writeImageIO(photo(WIDTH, HEIGHT), "jpeg", false);
+		case GENERATED + "Progressive.jpg": return writeImageIO(photo(WIDTH, HEIGHT), "jpeg", true);
+		case GENERATED + ".png": return writeImageIO(photo(WIDTH, HEIGHT), "png", false);
+		case GENERATED + "Interlaced.png": return writeImageIO(photo(WIDTH, HEIGHT), "png", true);
+		case GENERATED + "Animated.gif": return write(SWT.IMAGE_GIF, animation());
+		case GENERATED + "RLE.bmp": return write(SWT.IMAGE_BMP_RLE, indexed(WIDTH, HEIGHT, 0));
+		case GENERATED + ".ico": return write(SWT.IMAGE_ICO, photo(ICON_SIZE, ICON_SIZE));
+		case GENERATED + ".tif": return write(SWT.IMAGE_TIFF, photo(WIDTH, HEIGHT));
+	}
+	if (name.startsWith(GENERATED)) throw new IllegalArgumentException(name);
+	try (InputStream stream = SampleImages.class.getResourceAsStream("/data/" + name)) {
+		if (stream == null) throw new FileNotFoundException(name);
+		return stream.readAllBytes();
+	}
+}
+
+/**
+ * A 24 bit image with smooth gradients and some noise, which compresses
+ * about as well as a photograph.
+ */
+static ImageData photo(int width, int height) {
+	/* TIFF can only write images with a scanline pad of 1 */
+	PaletteData palette = new PaletteData(0xFF0000, 0xFF00, 0xFF);
+	ImageData data = new ImageData(width, height, 24, palette, 1, new byte[width * height * 3]);
+	Random random = new Random(0);
+	int[] pixels = new int[width];
+	for (int y = 0; y < height; y++) {
+		for (int x = 0; x < width; x++) {
+			int red = Math.min(255, x * 240 / width + random.nextInt(16));
+			int green = Math.min(255, y * 240 / height + random.nextInt(16));
+			int blue = (int) (120 + 120 * Math.sin((x + 2 * y) / 97.0)) + random.nextInt(16);
+			pixels[x] = red << 16 | green << 8 | blue;
+		}
+		data.setPixels(0, y, width, pixels, 0);
+	}
+	return data;
+}
+
+/**
+ * An 8 bit image of tiles with some noise, so it has the long runs that
+ * RLE and LZW are good at.
+ */
+static ImageData indexed(int width, int height, int phase) {
+	RGB[] rgbs = new RGB[256];
+	for (int i = 0; i < rgbs.length; i++) {
+		rgbs[i] = new RGB(i, (i * 7) & 0xFF, 255 - i);
+	}
+	ImageData data = new ImageData(width, height, 8, new PaletteData(rgbs));
+	Random random = new Random(phase);
+	byte[] pixels = new byte[width];
+	for (int y = 0; y < height; y++) {
+		for (int x = 0; x < width; x++) {
+			int pixel = ((x + phase * 8) / 32 + y / 32 * 3) & 0xFF;
+			if (random.nextInt(64) == 0) pixel = random.nextInt(256);
+			pixels[x] = (byte) pixel;
+		}
+		data.setPixels(0, y, width, pixels, 0);
+	}
+	return data;
+}
+
+static ImageLoader animation() {
+	ImageData[] frames = new ImageData[FRAMES];
+	for (int i = 0; i < frames.length; i++) {
+		frames[i] = indexed(FRAME_WIDTH, FRAME_HEIGHT, i);
+		frames[i].delayTime = 4;
+		frames[i].disposalMethod = SWT.DM_FILL_NONE;
+	}
+	ImageLoader loader = new ImageLoader();
+	loader.data = frames;
+	loader.logicalScreenWidth = FRAME_WIDTH;
+	loader.logicalScreenHeight = FRAME_HEIGHT;
+	loader.repeatCount = 0;
+	return loader;
+}
+
+static byte[] write(int format, ImageData data) {
+	ImageLoader loader = new ImageLoader();
+	loader.data = new ImageData[] {data};
+	return write(format, loader);
+}
+
+/*
+ * The codecs are called directly, because ImageLoader uses the platform
+ * image library instead of them on GTK.
+ */
+static byte[] write(int format, ImageLoader loader) {
+	ByteArrayOutputStream stream = new ByteArrayOutputStream();
+	FileFormat.save(stream, format, loader);
+	return stream.toByteArray();
+}
+
+static byte[] writeImageIO(ImageData data, String format, boolean progressive) throws IOException {
+	BufferedImage image = new BufferedImage(data.width, data.height, BufferedImage.TYPE_INT_RGB);
+	int[] pixels = new int[data.width];
+	for (int y = 0; y < data.height; y++) {
+		data.getPixels(0, y, data.width, pixels, 0);
+		image.setRGB(0, y, data.width, 1, pixels, 0, data.width);
+	}
+	ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+	ImageWriteParam param = writer.getDefaultWriteParam();
+	/* Progressive is interlaced for PNG */
+	param.setProgressiveMode(progressive ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+	try (ImageOutputStream stream = ImageIO.createImageOutputStream(bytes)) {
+		writer.setOutput(stream);
+		writer.write(null, new IIOImage(image, null, null), param);
+	} finally {
+		writer.dispose();
+	}
+	return bytes.toByteArray();
+}
+}
@@ -25,6 +25,8 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeFalse;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,6 +38,7 @@ import java.util.stream.IntStream;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.BidiSegmentListener;
+import org.eclipse.swt.custom.Bullet;
 import org.eclipse.swt.custom.CaretListener;
 import org.eclipse.swt.custom.ExtendedModifyListener;
 import org.eclipse.swt.custom.LineBackgroundListener;
@@ -1280,6 +1283,40 @@ void test_getLinePixel(StyledText text) {
 	assertEquals(lineHeight, text.getLinePixel(10));
 }
 
+@Test
+public void test_getLinePixel_variableLineHeights() {
+	int lineHeight = text.getLineHeight();
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < 1000; i++) {
+		buffer.append("Line").append(i).append('\n');
+	}
+	text.setText(buffer.toString());
+	text.setSize(400, lineHeight * 10);
+	for (int i = 0; i < text.getLineCount(); i += 7) {
+		text.setLineVerticalIndent(i, i % 5);
+	}
+	text.setTopIndex(900);
+	int top = text.getLinePixel(0);
+	for (int i = 0; i < text.getLineCount(); i++) {
+		int pixel = text.getLinePixel(i);
+		int height = lineHeight + (i % 7 == 0 ? i % 5 : 0);
+		assertEquals(pixel, text.getLinePixel(i + 1) - height);
+		assertEquals(i, text.getLineIndex(pixel));
+		assertEquals(i, text.getLineIndex(pixel + height - 1));
+	}
+	assertEquals(-top, text.getTopPixel());
+
+	/* Changes of the line heights and of the lines update the pixels */
+	text.setLineVerticalIndent(950, 20);
+	assertEquals(text.getLinePixel(950) + lineHeight + 20, text.getLinePixel(951));
+	text.replaceTextRange(text.getOffsetAtLine(10), 0, "Inserted\n");
+	assertEquals(text.getLinePixel(951) + lineHeight + 20, text.getLinePixel(952));
+	assertEquals(951, text.getLineIndex(text.getLinePixel(951) + lineHeight + 19));
+	text.replaceTextRange(text.getOffsetAtLine(10), text.getLine(10).length() + 1, "");
+	assertEquals(950, text.getLineIndex(text.getLinePixel(950) + lineHeight + 19));
+	assertEquals(951, text.getLineIndex(text.getLinePixel(950) + lineHeight + 20));
+}
+
 @Test
 public void test_getLocationAtOffsetI(){
 	// copy from StyledText, has to match value used by StyledText
@@ -1973,6 +2010,55 @@ public void test_getStyleRanges_Bug549110() {
 	text.selectAll();
 }
 @Test
+public void test_getStyleRanges_manyStyles() {
+	// more styles than fit in a few leaves of the style storage of the renderer
+	int count = 20000;
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < count; i++) {
+		buffer.append("word ");
+	}
+	text.setText(buffer.toString());
+	RGB[] colors = {RED, GREEN, BLUE};
+	int[] ranges = new int[count << 1];
+	StyleRange[] styles = new StyleRange[count];
+	for (int i = 0; i < count; i++) {
+		ranges[i << 1] = i * 5;
+		ranges[(i << 1) + 1] = 4;
+		styles[i] = getStyle(0, 0, colors[i % colors.length], null);
+	}
+	text.setStyleRanges(ranges, styles);
+	assertEquals(count, text.getStyleRanges().length);
+	assertEquals(getStyle(5 * 12345, 1, RED, null), text.getStyleRangeAtOffset(5 * 12345));
+	assertEquals(null, text.getStyleRangeAtOffset(5 * 12345 + 4));
+
+	// typing between the styles moves the styles after it
+	for (int i = 0; i < 100; i++) {
+		text.replaceTextRange(5 * 10000 + 4, 0, "x");
+	}
+	assertEquals(getStyle(5 * 10000, 1, GREEN, null), text.getStyleRangeAtOffset(5 * 10000));
+	assertEquals(getStyle(5 * 10001 + 100, 1, BLUE, null), text.getStyleRangeAtOffset(5 * 10001 + 100));
+	assertEquals(getStyle(5 * (count - 1) + 100, 1, GREEN, null), text.getStyleRangeAtOffset(5 * (count - 1) + 100));
+	assertEquals(count, text.getStyleRanges().length);
+
+	// deleting text deletes the styles in it
+	text.replaceTextRange(5 * 100 + 2, 5 * 5000, "");
+	StyleRange[] result = text.getStyleRanges();
+	assertEquals(count - 4999, result.length);
+	assertEquals(getStyle(5 * 100, 2, GREEN, null), result[100]);
+	assertEquals(getStyle(5 * 100 + 2, 2, RED, null), result[101]);
+	for (int i = 1; i < result.length; i++) {
+		assertTrue(result[i - 1].start + result[i - 1].length <= result[i].start);
+	}
+
+	// replacing the styles of a window keeps the styles around it
+	text.replaceStyleRanges(5 * 1000, 5 * 1000, new StyleRange[] {getStyle(5 * 1000, 5 * 1000, RED, null)});
+	result = text.getStyleRanges();
+	assertEquals(count - 4999 - 1000 + 1, result.length);
+	assertEquals(getStyle(5 * 1000 - 5, 4, BLUE, null), result[1000]);
+	assertEquals(getStyle(5 * 1000, 5 * 1000, RED, null), result[1001]);
+	assertEquals(getStyle(5 * 2000, 4, GREEN, null), result[1002]);
+}
+@Test
 public void test_getTabs() {
 	text.setTabs(1);
 	assertEquals(":a:", 1, text.getTabs());
@@ -3290,6 +3376,49 @@ public void test_replaceTextRangeIILjava_lang_String(){
 	text.removeSelectionListener(selectionListener);
 }
 
+@Test
+public void test_replaceTextRanges$I$Ljava_lang_String() {
+	text.setText("one two three four");
+	text.setStyleRange(new StyleRange(8, 5, null, null, SWT.BOLD));
+	text.setSelectionRanges(new int[] {4, 3, 16, 0});
+	int[] modifyCount = new int[1];
+	String[] replacedText = new String[1];
+	ModifyListener modifyListener = event -> modifyCount[0]++;
+	ExtendedModifyListener extendedModifyListener = event -> replacedText[0] = event.replacedText;
+	text.addModifyListener(modifyListener);
+	text.addExtendedModifyListener(extendedModifyListener);
+
+	// one change for all ranges
+	text.replaceTextRanges(new int[] {0, 3, 4, 3, 15, 0}, new String[] {"1", "2", "-"});
+	assertEquals("1 2 three f-our", text.getText());
+	assertEquals(1, modifyCount[0]);
+	assertEquals("one two three f", replacedText[0]);
+	// the styles between the ranges are kept
+	StyleRange[] styles = text.getStyleRanges();
+	assertEquals(1, styles.length);
+	assertEquals(4, styles[0].start);
+	assertEquals(5, styles[0].length);
+	// the selection that intersects a range becomes a caret behind its new text
+	assertArrayEquals(new int[] {3, 0, 13, 0}, text.getSelectionRanges());
+
+	// a vetoed range is not replaced
+	VerifyListener verifyListener = event -> event.doit = event.start != 0;
+	text.addVerifyListener(verifyListener);
+	text.replaceTextRanges(new int[] {0, 1, 2, 1}, new String[] {"one", "two"});
+	assertEquals("1 two three f-our", text.getText());
+	assertEquals(2, modifyCount[0]);
+	text.removeVerifyListener(verifyListener);
+
+	text.removeModifyListener(modifyListener);
+	text.removeExtendedModifyListener(extendedModifyListener);
+
+	assertThrows(IllegalArgumentException.class, () -> text.replaceTextRanges(new int[] {0, 2, 1, 1}, new String[] {"a", "b"}));
+	assertThrows(IllegalArgumentException.class, () -> text.replaceTextRanges(new int[] {0, 1}, new String[] {"a", "b"}));
+	assertThrows(IllegalArgumentException.class, () -> text.replaceTextRanges(new int[] {0, text.getCharCount() + 1}, new String[] {"a"}));
+	assertThrows(IllegalArgumentException.class, () -> text.replaceTextRanges(new int[] {0, 1}, new String[] {null}));
+	assertEquals("1 two three f-our", text.getText());
+}
+
 @Test
 public void test_selectAll() {
 	String line = "Line1\rLine2";
@@ -4873,6 +5002,190 @@ public void test_setTopIndexI(){
 	assertEquals(":i:", 0 , text.getTopIndex());
 }
 
+@Test
+public void test_setTopIndexI_editLinesOutOfView() {
+	int lineHeight = text.getLineHeight();
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < 3000; i++) {
+		for (int j = 0; j <= i % 30; j++) buffer.append('x');
+		buffer.append('\n');
+	}
+	text.setText(buffer.toString());
+	text.setSize(400, lineHeight * 10);
+
+	/* The layouts of the lines that were shown stay cached while the lines change out of view */
+	int[] topIndices = {0, 2000, 1000, 2000};
+	for (int topIndex : topIndices) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+		}
+	}
+	text.replaceTextRange(text.getOffsetAtLine(5), 0, "Inserted\n");
+	text.replaceTextRange(text.getOffsetAtLine(1003), text.getLine(1003).length() + 1, "");
+	text.setStyleRange(new StyleRange(text.getOffsetAtLine(7), 4, null, null, SWT.BOLD));
+	text.setLineIndent(1005, 1, 20);
+
+	StyledText reference = new StyledText(shell, SWT.NULL);
+	reference.setText(text.getText());
+	reference.setSize(400, lineHeight * 10);
+	reference.setStyleRange(new StyleRange(text.getOffsetAtLine(7), 4, null, null, SWT.BOLD));
+	reference.setLineIndent(1005, 1, 20);
+	for (int topIndex : topIndices) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			int start = text.getOffsetAtLine(i), end = text.getOffsetAtLine(i + 1) - 1;
+			Rectangle bounds = text.getTextBounds(start, end), expected = reference.getTextBounds(start, end);
+			assertEquals("line " + i, expected.x, bounds.x);
+			assertEquals("line " + i, expected.width, bounds.width);
+			assertEquals("line " + i, expected.height, bounds.height);
+		}
+	}
+	reference.dispose();
+}
+
+@Test
+public void test_setTopIndexI_layoutCacheHits() {
+	int lineHeight = text.getLineHeight();
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < 3000; i++) {
+		buffer.append("line ").append(i).append('\n');
+	}
+	text.setText(buffer.toString());
+	text.setSize(400, lineHeight * 10);
+	for (int topIndex : new int[] {0, 2000}) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+		}
+	}
+	/* Only the layout of the line whose style changed is prepared again */
+	text.setStyleRange(new StyleRange(text.getOffsetAtLine(5), 4, null, null, SWT.BOLD));
+
+	text.setTopIndex(2000);
+	long hits = reflection_getLayoutCacheStatistic(text, "getHits");
+	long misses = reflection_getLayoutCacheStatistic(text, "getMisses");
+	for (int i = 2000; i < 2010; i++) {
+		text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+	}
+	assertEquals("scrolling back to cached lines", hits + 10, reflection_getLayoutCacheStatistic(text, "getHits"));
+	assertEquals("scrolling back to cached lines", misses, reflection_getLayoutCacheStatistic(text, "getMisses"));
+
+	text.setTopIndex(0);
+	hits = reflection_getLayoutCacheStatistic(text, "getHits");
+	misses = reflection_getLayoutCacheStatistic(text, "getMisses");
+	for (int i = 0; i < 10; i++) {
+		text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+	}
+	assertEquals("scrolling back to a restyled line", hits + 9, reflection_getLayoutCacheStatistic(text, "getHits"));
+	assertEquals("scrolling back to a restyled line", misses + 1, reflection_getLayoutCacheStatistic(text, "getMisses"));
+}
+
+@Test
+public void test_setTopIndexI_layoutCacheHitsLineStyleListener() {
+	int lineHeight = text.getLineHeight();
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < 3000; i++) {
+		buffer.append("line ").append(i).append('\n');
+	}
+	text.setText(buffer.toString());
+	text.setSize(400, lineHeight * 10);
+	StyleRange bulletStyle = new StyleRange();
+	bulletStyle.metrics = new GlyphMetrics(0, 0, 40);
+	Bullet bullet = new Bullet(ST.BULLET_NUMBER, bulletStyle);
+	int[] calls = {0};
+	LineStyleListener listener = event -> {
+		calls[0]++;
+		event.bullet = bullet;
+		event.bulletIndex = text.getLineAtOffset(event.lineOffset);
+	};
+	text.addLineStyleListener(listener);
+	for (int topIndex : new int[] {0, 2000}) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+		}
+	}
+
+	/* The layouts and bullets of the lines far from the top index are still cached */
+	text.setTopIndex(0);
+	long hits = reflection_getLayoutCacheStatistic(text, "getHits");
+	long misses = reflection_getLayoutCacheStatistic(text, "getMisses");
+	calls[0] = 0;
+	for (int i = 0; i < 10; i++) {
+		text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1);
+	}
+	assertEquals("scrolling back to cached lines", hits + 10, reflection_getLayoutCacheStatistic(text, "getHits"));
+	assertEquals("scrolling back to cached lines", misses, reflection_getLayoutCacheStatistic(text, "getMisses"));
+	assertEquals("the listener is not asked again for cached lines", 0, calls[0]);
+	text.removeLineStyleListener(listener);
+}
+
+private static long reflection_getLayoutCacheStatistic(StyledText text, String methodName) {
+	try {
+		Field rendererField = StyledText.class.getDeclaredField("renderer");
+		rendererField.setAccessible(true);
+		Object renderer = rendererField.get(text);
+		Field cacheField = renderer.getClass().getDeclaredField("layoutCache");
+		cacheField.setAccessible(true);
+		Object cache = cacheField.get(renderer);
+		Method method = cache.getClass().getDeclaredMethod(methodName);
+		method.setAccessible(true);
+		return ((Long) method.invoke(cache)).longValue();
+	} catch (ReflectiveOperationException e) {
+		throw new AssertionError("reflection call to TextLayoutCache." + methodName + "() failed", e);
+	}
+}
+
+@Test
+public void test_setTopIndexI_lineStyleListenerOutOfView() {
+	int lineHeight = text.getLineHeight();
+	StringBuilder buffer = new StringBuilder();
+	for (int i = 0; i < 3000; i++) {
+		buffer.append("line ").append(i).append('\n');
+	}
+	text.setText(buffer.toString());
+	text.setSize(400, lineHeight * 10);
+	int[] glyphWidth = {0};
+	LineStyleListener listener = event -> {
+		if (glyphWidth[0] == 0) return;
+		StyleRange style = new StyleRange(event.lineOffset, 1, null, null);
+		style.metrics = new GlyphMetrics(0, 0, glyphWidth[0]);
+		event.styles = new StyleRange[] {style};
+	};
+	text.addLineStyleListener(listener);
+
+	/* Lay out lines that are then scrolled out of view */
+	int[] topIndices = {0, 2000};
+	int[] widths = new int[10];
+	for (int topIndex : topIndices) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			widths[i - topIndex] = text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1).width;
+		}
+	}
+
+	/* The listener changes its styles, and a redraw is the only notification */
+	glyphWidth[0] = 100;
+	text.redraw();
+	for (int topIndex : topIndices) {
+		text.setTopIndex(topIndex);
+		for (int i = topIndex; i < topIndex + 10; i++) {
+			int width = text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i)).width;
+			assertTrue("line " + i + " must be laid out with the new styles", width >= 100);
+		}
+	}
+
+	glyphWidth[0] = 0;
+	text.redraw(0, 0, 400, lineHeight * 10, false);
+	text.setTopIndex(0);
+	for (int i = 0; i < 10; i++) {
+		int width = text.getTextBounds(text.getOffsetAtLine(i), text.getOffsetAtLine(i + 1) - 1).width;
+		assertEquals("line " + i, widths[i], width);
+	}
+	text.removeLineStyleListener(listener);
+}
+
 @Test
 public void test_setTopPixelI(){
 	int lineHeight = text.getLineHeight();
@@ -16,13 +16,29 @@ package org.eclipse.swt.tests.junit;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.FileContent;
+import org.eclipse.swt.custom.RopeContent;
+import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.custom.StyledTextContent;
 import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.junit.Before;
 import org.junit.Test;
@@ -81,6 +97,60 @@ public class Test_org_eclipse_swt_custom_StyledTextContent {
 			textContent = text;
 		}
 	}
+	/* Records the replacements of a content that does not implement replaceTextRanges */
+	static class DelegatingContent implements StyledTextContent {
+		final StyledTextContent delegate;
+		final List<String> replacements = new ArrayList<>();
+
+		DelegatingContent(StyledTextContent delegate) {
+			this.delegate = delegate;
+		}
+		@Override
+		public void addTextChangeListener(TextChangeListener listener){
+			delegate.addTextChangeListener(listener);
+		}
+		@Override
+		public int getCharCount() {
+			return delegate.getCharCount();
+		}
+		@Override
+		public String getLine(int lineIndex) {
+			return delegate.getLine(lineIndex);
+		}
+		@Override
+		public int getLineAtOffset(int offset) {
+			return delegate.getLineAtOffset(offset);
+		}
+		@Override
+		public int getLineCount() {
+			return delegate.getLineCount();
+		}
+		@Override
+		public String getLineDelimiter() {
+			return delegate.getLineDelimiter();
+		}
+		@Override
+		public int getOffsetAtLine(int lineIndex) {
+			return delegate.getOffsetAtLine(lineIndex);
+		}
+		@Override
+		public String getTextRange(int start, int length) {
+			return delegate.getTextRange(start, length);
+		}
+		@Override
+		public void removeTextChangeListener(TextChangeListener listener) {
+			delegate.removeTextChangeListener(listener);
+		}
+		@Override
+		public void replaceTextRange(int start, int replaceLength, String text) {
+			replacements.add(start + ":" + replaceLength + ":" + text);
+			delegate.replaceTextRange(start, replaceLength, text);
+		}
+		@Override
+		public void setText(String text) {
+			delegate.setText(text);
+		}
+	}
 	StyledTextContent content = new ContentImplementation();
 	Shell shell;
 	StyledText styledText;
@@ -143,4 +213,164 @@ public void test_setTextLjava_lang_String() {
 	assertEquals(":i:", "test2", styledText.getText());
 }
 
+@Test
+public void test_replaceTextRanges$I$Ljava_lang_String_defaultImplementation() {
+	DelegatingContent delegating = new DelegatingContent(new StyledText(shell, SWT.MULTI).getContent());
+	styledText.setContent(delegating);
+	styledText.setText("one two\nthree four");
+	styledText.setStyleRange(new StyleRange(8, 5, null, null, SWT.BOLD));
+	styledText.replaceTextRanges(new int[] {0, 3, 4, 3, 15, 0}, new String[] {"1", "2\n", "-"});
+	assertEquals("1 2\n\nthree f-our", styledText.getText());
+	/* Each range is replaced on its own, from the last one to the first */
+	assertEquals(Arrays.asList("15:0:-", "4:3:2\n", "0:3:1"), delegating.replacements);
+	/* The text between the ranges is not replaced, so it keeps its style */
+	StyleRange[] styles = styledText.getStyleRanges();
+	assertEquals(1, styles.length);
+	assertEquals(5, styles[0].start);
+	assertEquals(5, styles[0].length);
+	assertEquals(3, styledText.getLineCount());
+
+	/* Nothing is replaced when one of the ranges is not valid */
+	assertThrows(IllegalArgumentException.class, () -> delegating.replaceTextRanges(new int[] {0, 1, 2, 100}, new String[] {"a", "b"}));
+	assertThrows(IllegalArgumentException.class, () -> delegating.replaceTextRanges(new int[] {2, 1, 0, 1}, new String[] {"a", "b"}));
+	assertEquals(3, delegating.replacements.size());
+	assertEquals("1 2\n\nthree f-our", styledText.getText());
+}
+
+@Test
+public void test_RopeContent() {
+	StyledText expected = new StyledText(shell, SWT.MULTI);
+	styledText.setContent(new RopeContent());
+	StringBuilder builder = new StringBuilder();
+	for (int i = 0; builder.length() < 100000; i++) {
+		builder.append("line ").append(i).append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\n" : "\r");
+	}
+	String text = builder.toString();
+	expected.setText(text);
+	styledText.setText(text);
+	/* Edits at the start, in the middle and at the end, that span many chunks */
+	int[][] edits = {{0, 0}, {50000, 0}, {50000, 20000}, {3, 40000}, {expected.getCharCount(), 0}, {6, 1}};
+	for (int[] edit : edits) {
+		int start = Math.min(edit[0], expected.getCharCount());
+		String newText = "edit\r\n" + start + "\n";
+		expected.replaceTextRange(start, Math.min(edit[1], expected.getCharCount() - start), newText);
+		styledText.replaceTextRange(start, Math.min(edit[1], styledText.getCharCount() - start), newText);
+		assertEquals(expected.getText(), styledText.getText());
+		assertEquals(expected.getLineCount(), styledText.getLineCount());
+		for (int line = 0; line < expected.getLineCount(); line++) {
+			assertEquals(expected.getOffsetAtLine(line), styledText.getOffsetAtLine(line));
+			assertEquals(expected.getLine(line), styledText.getLine(line));
+		}
+		for (int offset = 0; offset <= expected.getCharCount(); offset += 97) {
+			assertEquals(expected.getLineAtOffset(offset), styledText.getLineAtOffset(offset));
+		}
+	}
+}
+
+@Test
+public void test_FileContent() throws Exception {
+	StringBuilder builder = new StringBuilder();
+	for (int i = 0; builder.length() < 300000; i++) {
+		builder.append("line \u00e9 ").append(i).append(i % 3 == 0 ? "\r\n" : i % 3 == 1 ? "\n" : "\r");
+	}
+	String text = builder.toString();
+	Path file = Files.createTempFile("swt", ".log");
+	Display display = shell.getDisplay();
+	try {
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		FileContent mapped = new FileContent(display, file.toString(), StandardCharsets.UTF_8, false);
+		try {
+			styledText.setContent(mapped);
+			/* The content grows as the indexer publishes the lines */
+			long timeout = System.currentTimeMillis() + 10000;
+			while (styledText.getCharCount() < text.length() && System.currentTimeMillis() < timeout) {
+				if (!display.readAndDispatch()) Thread.sleep(10);
+			}
+			StyledText expected = new StyledText(shell, SWT.MULTI);
+			expected.setText(text);
+			assertEquals(expected.getCharCount(), styledText.getCharCount());
+			assertEquals(expected.getLineCount(), styledText.getLineCount());
+			for (int line = 0; line < expected.getLineCount(); line += 7) {
+				assertEquals(expected.getOffsetAtLine(line), styledText.getOffsetAtLine(line));
+				assertEquals(expected.getLine(line), styledText.getLine(line));
+			}
+			for (int offset = 0; offset <= expected.getCharCount(); offset += 97) {
+				assertEquals(expected.getLineAtOffset(offset), styledText.getLineAtOffset(offset));
+			}
+			assertEquals(text.substring(150000, 160000), styledText.getTextRange(150000, 10000));
+			assertThrows(IllegalArgumentException.class, () -> mapped.replaceTextRange(0, 0, "text"));
+		} finally {
+			mapped.dispose();
+		}
+		/* A disposed content does not keep the file open, so it can be deleted at once, also on Windows */
+		Files.delete(file);
+	} finally {
+		Files.deleteIfExists(file);
+	}
+}
+
+@Test
+public void test_FileContent_follow() throws Exception {
+	String text = "first line\nsecond line\n";
+	String appended = "third line\nfourth \u00e9 line\n";
+	Path file = Files.createTempFile("swt", ".log");
+	Display display = shell.getDisplay();
+	try {
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		FileContent content = new FileContent(display, file.toString(), StandardCharsets.UTF_8, true);
+		List<TextChangingEvent> changing = new ArrayList<>();
+		int[] changed = new int[1];
+		content.addTextChangeListener(new TextChangeListener() {
+			@Override
+			public void textChanging(TextChangingEvent event) {
+				/* An append starts at the end of the text before the change */
+				assertEquals(content.getCharCount(), event.start);
+				changing.add(event);
+			}
+			@Override
+			public void textChanged(TextChangedEvent event) {
+				changed[0]++;
+			}
+			@Override
+			public void textSet(TextChangedEvent event) {
+				fail("The text of a followed file is only appended to");
+			}
+		});
+		try {
+			long timeout = System.currentTimeMillis() + 10000;
+			while (content.getCharCount() < text.length() && System.currentTimeMillis() < timeout) {
+				if (!display.readAndDispatch()) Thread.sleep(10);
+			}
+			assertEquals(text, content.getTextRange(0, content.getCharCount()));
+			int events = changing.size();
+			assertTrue(events > 0);
+
+			/* What is written to the file after it was indexed is appended */
+			Files.write(file, appended.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+			timeout = System.currentTimeMillis() + 10000;
+			while (content.getCharCount() < text.length() + appended.length() && System.currentTimeMillis() < timeout) {
+				if (!display.readAndDispatch()) Thread.sleep(10);
+			}
+			assertEquals(text + appended, content.getTextRange(0, content.getCharCount()));
+			assertEquals(5, content.getLineCount());
+			assertEquals("fourth \u00e9 line", content.getLine(3));
+			assertTrue(changing.size() > events);
+			assertEquals(changing.size(), changed[0]);
+			int newCharCount = 0, newLineCount = 0;
+			for (TextChangingEvent event : changing.subList(events, changing.size())) {
+				assertEquals(0, event.replaceCharCount);
+				assertEquals(0, event.replaceLineCount);
+				newCharCount += event.newCharCount;
+				newLineCount += event.newLineCount;
+			}
+			assertEquals(appended.length(), newCharCount);
+			assertEquals(2, newLineCount);
+		} finally {
+			content.dispose();
+		}
+	} finally {
+		Files.deleteIfExists(file);
+	}
+}
+
 }
@@ -16,9 +16,11 @@ package org.eclipse.swt.tests.junit;
 
 
 import static org.eclipse.swt.tests.junit.SwtTestUtil.assertSWTProblem;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -41,6 +43,7 @@ import org.eclipse.swt.graphics.PaletteData;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.internal.DPIUtil;
+import org.eclipse.swt.internal.ImageDataCache;
 import org.eclipse.swt.widgets.Display;
 import org.junit.Before;
 import org.junit.Test;
@@ -811,6 +814,56 @@ public void test_getImageData_200() {
 	getImageData_int(200);
 }
 
+@Test
+public void test_getImageData_autoScaleCache() {
+	ImageDataProvider provider = zoom -> zoom == 100 ? new ImageData(16, 16, 24, new PaletteData(0xff0000, 0xff00, 0xff)) : null;
+	Image image = new Image(display, provider);
+	try {
+		ImageDataCache cache = ImageDataCache.getDefault();
+		ImageData first = image.getImageData(300);
+		long hits = cache.getHits();
+		ImageData second = image.getImageData(300);
+		assertEquals(":a: Scaled image data must be served from the cache", hits + 1, cache.getHits());
+		assertEquals(":b:", first.width, second.width);
+		assertEquals(":c:", first.height, second.height);
+		assertArrayEquals(":d:", first.data, second.data);
+		assertNotSame(":e: Cached image data must be copied", first.data, second.data);
+	} finally {
+		image.dispose();
+	}
+}
+
+@Test
+public void test_getImageData_autoScaleCacheSourceChanged() {
+	int[] color = {0xff0000};
+	ImageDataProvider provider = zoom -> {
+		if (zoom != 100) return null;
+		ImageData data = new ImageData(16, 16, 24, new PaletteData(0xff0000, 0xff00, 0xff));
+		for (int y = 0; y < data.height; y++) {
+			for (int x = 0; x < data.width; x++) {
+				data.setPixel(x, y, color[0]);
+			}
+		}
+		return data;
+	};
+	Image image = new Image(display, provider);
+	try {
+		ImageDataCache cache = ImageDataCache.getDefault();
+		ImageData first = image.getImageData(300);
+		assertEquals(":a:", 0xff0000, first.getPixel(0, 0));
+		long hits = cache.getHits();
+		assertEquals(":b: Equal source data must be served from the cache", 0xff0000, image.getImageData(300).getPixel(0, 0));
+		assertEquals(":c:", hits + 1, cache.getHits());
+		color[0] = 0xff;
+		long misses = cache.getMisses();
+		ImageData changed = image.getImageData(300);
+		assertEquals(":d: Changed source data must be scaled again", misses + 1, cache.getMisses());
+		assertEquals(":e:", 0xff, changed.getPixel(0, 0));
+	} finally {
+		image.dispose();
+	}
+}
+
 void getImageData_int(int zoom) {
 	Rectangle bounds = new Rectangle(0, 0, 10, 20);
 	Image image = new Image(display, bounds.width, bounds.height);
@@ -25,6 +25,8 @@ import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
@@ -32,6 +34,7 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
 import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.internal.image.ImageResampler;
 import org.eclipse.swt.widgets.Display;
 import org.junit.Before;
 import org.junit.Test;
@@ -779,6 +782,139 @@ public void test_scaledToII() {
 	assertArrayEquals(":d:", expectedPixelData, scaledPixelData);
 }
 
+@Test
+public void test_scaledToII_directPalette() {
+	final int width = 5, height = 3;
+	for (int depth : new int[] {24, 32}) {
+		PaletteData palette = depth == 24 ? new PaletteData(0xFF, 0xFF00, 0xFF0000) : new PaletteData(0xFF000000, 0xFF0000, 0xFF00);
+		ImageData source = new ImageData(width, height, depth, palette);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				source.setPixel(x, y, palette.getPixel(new RGB(x * 50, y * 100, 255 - x * y * 10)));
+			}
+		}
+
+		ImageData copy = source.scaledTo(width, height);
+		ImageData flipped = source.scaledTo(-width, -height);
+		ImageData doubled = source.scaledTo(width * 2, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				assertEquals(":a:" + depth, source.getPixel(x, y), copy.getPixel(x, y));
+				assertEquals(":b:" + depth, source.getPixel(x, y), flipped.getPixel(width - 1 - x, height - 1 - y));
+			}
+		}
+		assertEquals(":c:" + depth, source.getPixel(0, 0), doubled.getPixel(0, 0));
+		assertEquals(":d:" + depth, source.getPixel(width - 1, height - 1), doubled.getPixel(width * 2 - 1, height - 1));
+	}
+}
+
+@Test
+public void test_resample_ImageResampler() {
+	int[] filters = {ImageResampler.BOX, ImageResampler.BILINEAR, ImageResampler.BICUBIC, ImageResampler.LANCZOS3};
+	RGB color = new RGB(200, 100, 30);
+	PaletteData palette = new PaletteData(0xFF000000, 0xFF0000, 0xFF00);
+	ImageData opaque = new ImageData(17, 9, 32, palette);
+	for (int y = 0; y < opaque.height; y++) {
+		for (int x = 0; x < opaque.width; x++) {
+			opaque.setPixel(x, y, palette.getPixel(color));
+		}
+	}
+	/* Left half opaque red, right half transparent green */
+	ImageData transparent = new ImageData(8, 8, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+	transparent.alphaData = new byte[64];
+	for (int y = 0; y < transparent.height; y++) {
+		for (int x = 0; x < transparent.width; x++) {
+			transparent.setPixel(x, y, x < 4 ? 0xFF0000 : 0x00FF00);
+			transparent.alphaData[y * 8 + x] = (byte) (x < 4 ? 255 : 0);
+		}
+	}
+	for (int filter : filters) {
+		for (int[] size : new int[][] {{5, 3}, {17, 9}, {40, 20}}) {
+			ImageData scaled = ImageResampler.resample(opaque, size[0], size[1], filter);
+			assertEquals(":a:", size[0], scaled.width);
+			assertEquals(":b:", size[1], scaled.height);
+			assertNull(":c:", scaled.alphaData);
+			for (int y = 0; y < scaled.height; y++) {
+				for (int x = 0; x < scaled.width; x++) {
+					assertEquals(":d:", color, scaled.palette.getRGB(scaled.getPixel(x, y)));
+				}
+			}
+		}
+		ImageData scaled = ImageResampler.resample(transparent, 24, 5, filter);
+		for (int y = 0; y < scaled.height; y++) {
+			for (int x = 0; x < scaled.width; x++) {
+				assertEquals("Transparent pixels must not bleed into their neighbours", 0, scaled.palette.getRGB(scaled.getPixel(x, y)).green);
+			}
+		}
+	}
+	try {
+		ImageResampler.resample(opaque, 0, 1, ImageResampler.BOX);
+		fail("No exception thrown for width == 0");
+	} catch (IllegalArgumentException e) {
+		assertSWTProblem("Incorrect exception thrown for width == 0", SWT.ERROR_INVALID_ARGUMENT, e);
+	}
+}
+
+@Test
+public void test_blit_directPaletteByteShuffle() {
+	// converting between direct palettes whose channels are whole bytes takes the byte shuffle of blit, which scaledTo never does
+	final int LSB_FIRST = 0, MSB_FIRST = 1;
+	int[][] formats = {
+		{24, MSB_FIRST, 0xFF, 0xFF00, 0xFF0000},
+		{24, MSB_FIRST, 0xFF0000, 0xFF00, 0xFF},
+		{32, MSB_FIRST, 0xFF000000, 0xFF0000, 0xFF00},
+		{32, MSB_FIRST, 0xFF00, 0xFF0000, 0xFF000000},
+		{32, MSB_FIRST, 0xFF0000, 0xFF00, 0xFF},
+		{32, LSB_FIRST, 0xFF0000, 0xFF00, 0xFF},
+		{32, LSB_FIRST, 0xFF, 0xFF00, 0xFF0000},
+	};
+	// destination width, height, flipX and flipY: a copy, a flipped copy, an enlarged and a reduced image
+	int[][] sizes = {{7, 5, 0, 0}, {7, 5, 1, 1}, {13, 9, 0, 0}, {4, 3, 1, 0}};
+	final int width = 7, height = 5;
+
+	// the source pixel of each destination pixel is the one that scaledTo picks with a straight copy
+	ImageData indices = new ImageData(width, height, 32, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+	for (int y = 0; y < height; y++) {
+		for (int x = 0; x < width; x++) {
+			indices.setPixel(x, y, y * width + x);
+		}
+	}
+
+	for (int[] src : formats) {
+		int srcBpp = src[0] / 8, srcStride = width * srcBpp;
+		byte[] srcData = new byte[srcStride * height];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				RGB rgb = new RGB(x * 37 % 256, y * 53 % 256, (x * y * 29 + 7) % 256);
+				putPixel(srcData, y * srcStride + x * srcBpp, src[0], src[1], toPixel(rgb, src));
+			}
+		}
+		for (int[] dest : formats) {
+			for (int[] size : sizes) {
+				int destWidth = size[0], destHeight = size[1];
+				boolean flipX = size[2] != 0, flipY = size[3] != 0;
+				int destBpp = dest[0] / 8, destStride = destWidth * destBpp;
+				byte[] destData = new byte[destStride * destHeight];
+				// the unused byte of a 32 bit pixel must be cleared
+				Arrays.fill(destData, (byte) 0xFF);
+				reflection_blit(srcData, src[0], srcStride, src[1], width, height, src[2], src[3], src[4],
+					destData, dest[0], destStride, dest[1], destWidth, destHeight, dest[2], dest[3], dest[4], flipX, flipY);
+
+				ImageData scaled = indices.scaledTo(flipX ? -destWidth : destWidth, flipY ? -destHeight : destHeight);
+				String message = ":" + Arrays.toString(src) + "->" + Arrays.toString(dest) + Arrays.toString(size);
+				for (int y = 0; y < destHeight; y++) {
+					for (int x = 0; x < destWidth; x++) {
+						int index = scaled.getPixel(x, y);
+						int srcPixel = getPixel(srcData, index / width * srcStride + index % width * srcBpp, src[0], src[1]);
+						int expected = toPixel(toRGB(srcPixel, src), dest);
+						assertEquals(message + x + "," + y, expected, getPixel(destData, y * destStride + x * destBpp, dest[0], dest[1]));
+					}
+				}
+			}
+		}
+	}
+}
+
 @Test
 public void test_setAlphaIII() {
 	int value;
@@ -1161,6 +1297,62 @@ public void test_setPixelsIII$II() {
 		assertSWTProblem("Incorrect exception thrown for putWidth < 0", SWT.ERROR_INVALID_ARGUMENT, e);
 	}
 }
+private static int toPixel(RGB rgb, int[] format) {
+	return channel(rgb.red, format[2]) | channel(rgb.green, format[3]) | channel(rgb.blue, format[4]);
+}
+
+private static int channel(int value, int mask) {
+	return value << Integer.numberOfTrailingZeros(mask) & mask;
+}
+
+private static RGB toRGB(int pixel, int[] format) {
+	return new RGB((pixel & format[2]) >>> Integer.numberOfTrailingZeros(format[2]),
+		(pixel & format[3]) >>> Integer.numberOfTrailingZeros(format[3]),
+		(pixel & format[4]) >>> Integer.numberOfTrailingZeros(format[4]));
+}
+
+private static int getPixel(byte[] data, int offset, int depth, int order) {
+	int pixel = 0;
+	int bpp = depth / 8;
+	for (int i = 0; i < bpp; i++) {
+		int shift = (depth == 32 && order == 0) ? i * 8 : (bpp - 1 - i) * 8;
+		pixel |= (data[offset + i] & 0xFF) << shift;
+	}
+	return pixel;
+}
+
+private static void putPixel(byte[] data, int offset, int depth, int order, int pixel) {
+	int bpp = depth / 8;
+	for (int i = 0; i < bpp; i++) {
+		int shift = (depth == 32 && order == 0) ? i * 8 : (bpp - 1 - i) * 8;
+		data[offset + i] = (byte) (pixel >>> shift);
+	}
+}
+
+private static void reflection_blit(byte[] srcData, int srcDepth, int srcStride, int srcOrder, int srcWidth, int srcHeight,
+		int srcRedMask, int srcGreenMask, int srcBlueMask,
+		byte[] destData, int destDepth, int destStride, int destOrder, int destWidth, int destHeight,
+		int destRedMask, int destGreenMask, int destBlueMask, boolean flipX, boolean flipY) {
+	final int BLIT_SRC = 1, ALPHA_OPAQUE = 255;
+	try {
+		Method method = ImageData.class.getDeclaredMethod("blit", int.class,
+			byte[].class, int.class, int.class, int.class, int.class, int.class, int.class, int.class,
+			int.class, int.class, int.class,
+			int.class, byte[].class, int.class, int.class, int.class,
+			byte[].class, int.class, int.class, int.class, int.class, int.class, int.class, int.class,
+			int.class, int.class, int.class,
+			boolean.class, boolean.class);
+		method.setAccessible(true);
+		method.invoke(null, BLIT_SRC,
+			srcData, srcDepth, srcStride, srcOrder, 0, 0, srcWidth, srcHeight, srcRedMask, srcGreenMask, srcBlueMask,
+			ALPHA_OPAQUE, null, 0, 0, 0,
+			destData, destDepth, destStride, destOrder, 0, 0, destWidth, destHeight, destRedMask, destGreenMask, destBlueMask,
+			flipX, flipY);
+	} catch (ReflectiveOperationException e) {
+		fail("reflection call to ImageData.blit() failed: " + e);
+	}
+}
+
 /* custom */
 ImageData imageData;
 final int IMAGE_DIMENSION = 10;
@@ -18,6 +18,8 @@ package org.eclipse.swt.tests.junit;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -25,14 +27,32 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.zip.InflaterInputStream;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
 import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageFrames;
 import org.eclipse.swt.graphics.ImageLoader;
 import org.eclipse.swt.graphics.ImageLoaderEvent;
 import org.eclipse.swt.graphics.ImageLoaderListener;
 import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.internal.image.FileFormat;
+import org.eclipse.swt.internal.image.GIFFrameLoader;
+import org.eclipse.swt.internal.image.TIFFPageLoader;
 import org.eclipse.swt.widgets.Display;
 import org.junit.Test;
 
@@ -109,6 +129,289 @@ public void test_loadLjava_io_InputStream() {
 		}
 }
 
+@Test
+public void test_loadLjava_io_InputStream_scaleDenominator() throws IOException {
+	ImageData full;
+	try (InputStream stream = SwtTestUtil.class.getResourceAsStream("folder.jpg")) {
+		full = new ImageLoader().load(stream)[0];
+	}
+	for (int denominator : new int[] {2, 4, 8}) {
+		ImageLoader loader = new ImageLoader();
+		loader.scaleDenominator = denominator;
+		try (InputStream stream = SwtTestUtil.class.getResourceAsStream("folder.jpg")) {
+			ImageData scaled = loader.load(stream)[0];
+			assertEquals("Incorrect width for scale 1/" + denominator, (full.width + denominator - 1) / denominator, scaled.width);
+			assertEquals("Incorrect height for scale 1/" + denominator, (full.height + denominator - 1) / denominator, scaled.height);
+		}
+		assertEquals("scaleDenominator must not be reset by load", denominator, loader.scaleDenominator);
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_progressiveJPEG() throws IOException {
+	ImageLoader loader = new ImageLoader();
+	int[] scans = new int[1];
+	ImageLoaderEvent[] lastEvent = new ImageLoaderEvent[1];
+	loader.addImageLoaderListener(e -> {
+		assertFalse("Event after the end of the image", lastEvent[0] != null && lastEvent[0].endOfImage);
+		assertEquals("Incorrect incrementCount", scans[0], e.incrementCount);
+		scans[0]++;
+		lastEvent[0] = e;
+	});
+	ImageData image;
+	try (InputStream stream = SwtTestUtil.class.getResourceAsStream("targetProgressive.jpg")) {
+		image = loader.load(stream)[0];
+	}
+	assertTrue("Expected an event per scan", scans[0] > 1);
+	assertTrue("Last event must be the end of the image", lastEvent[0].endOfImage);
+	assertArrayEquals("Last event must contain the final image", image.data, lastEvent[0].imageData.data);
+}
+
+@Test
+public void test_loadLjava_io_InputStream_parallelJPEG() {
+	// large enough for the parallel decoder, with partial MCUs at the right and bottom edges
+	ImageData imageData = new ImageData(700, 600, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+	for (int y = 0; y < imageData.height; y++) {
+		for (int x = 0; x < imageData.width; x++) {
+			imageData.setPixel(x, y, (x * 7 & 0xFF) << 16 | (y * 5 & 0xFF) << 8 | ((x + y) & 0xFF));
+		}
+	}
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] { imageData };
+	ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+	FileFormat.save(outStream, SWT.IMAGE_JPEG, saver);
+	byte[] bytes = outStream.toByteArray();
+
+	// decode with the SWT decoder on all platforms
+	ImageData serial = FileFormat.load(new ByteArrayInputStream(bytes), new ImageLoader())[0];
+	ImageLoader loader = new ImageLoader();
+	loader.parallel = true;
+	ImageData parallel = FileFormat.load(new ByteArrayInputStream(bytes), loader)[0];
+	assertEquals("Incorrect width", serial.width, parallel.width);
+	assertEquals("Incorrect height", serial.height, parallel.height);
+	assertEquals("Incorrect bytesPerLine", serial.bytesPerLine, parallel.bytesPerLine);
+	assertArrayEquals("Parallel decoding must give the same data as serial decoding", serial.data, parallel.data);
+}
+
+@Test
+public void test_loadLjava_io_InputStream_pngBands() {
+	ImageData imageData = new ImageData(50, 37, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+	for (int y = 0; y < imageData.height; y++) {
+		for (int x = 0; x < imageData.width; x++) {
+			imageData.setPixel(x, y, x << 16 | y << 8 | (x + y));
+		}
+	}
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] { imageData };
+	ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+	saver.save(outStream, SWT.IMAGE_PNG);
+	byte[] bytes = outStream.toByteArray();
+
+	ImageLoader loader = new ImageLoader();
+	List<ImageLoaderEvent> events = new ArrayList<>();
+	loader.addImageLoaderListener(events::add);
+	loader.load(new ByteArrayInputStream(bytes));
+	assertEquals("No events expected without a band height", 0, events.size());
+
+	loader.bandHeight = 8;
+	ImageData image = loader.load(new ByteArrayInputStream(bytes))[0];
+	assertEquals("bandHeight must not be reset by load", 8, loader.bandHeight);
+	assertEquals("Incorrect number of bands", 5, events.size());
+	for (int i = 0; i < events.size(); i++) {
+		ImageLoaderEvent event = events.get(i);
+		ImageData band = event.imageData;
+		assertEquals("Incorrect incrementCount", i, event.incrementCount);
+		assertEquals("Incorrect first row of band " + i, i * 8, band.y);
+		assertEquals("Incorrect rows in band " + i, Math.min(8, image.height - band.y), band.height);
+		assertEquals("Only the last band ends the image", i == events.size() - 1, event.endOfImage);
+		for (int y = 0; y < band.height; y++) {
+			for (int x = 0; x < band.width; x++) {
+				assertEquals("Incorrect pixel in band " + i, image.getPixel(x, band.y + y), band.getPixel(x, y));
+			}
+		}
+	}
+}
+
+@Test
+public void test_loadFramesLjava_io_InputStream_gif() {
+	ImageData[] frames = gifFrames(12);
+	byte[] bytes = saveGif(frames);
+
+	ImageLoader loader = new ImageLoader();
+	try (ImageFrames imageFrames = loader.loadFrames(new ByteArrayInputStream(bytes))) {
+		assertEquals("Incorrect frame count", frames.length, imageFrames.getFrameCount());
+		assertEquals("Incorrect logical screen width", 16, imageFrames.getLogicalScreenWidth());
+		assertEquals("Incorrect logical screen height", 16, imageFrames.getLogicalScreenHeight());
+		assertEquals("The frames of a GIF must not be loaded into the data of the loader", null, loader.data);
+		for (int i = frames.length - 1; i >= 0; i--) {
+			ImageData frame = imageFrames.getFrame(i);
+			assertArrayEquals("Incorrect data for frame " + i, frames[i].data, frame.data);
+			assertEquals("Incorrect delay for frame " + i, frames[i].delayTime, frame.delayTime);
+			assertEquals("Incorrect transparent pixel for frame " + i, frames[i].transparentPixel, frame.transparentPixel);
+		}
+		// every call answers a copy, so changing a frame does not change the cached one
+		ImageData frame = imageFrames.getFrame(0);
+		assertNotSame("A frame must not be shared", frame, imageFrames.getFrame(0));
+		frame.setPixel(0, 0, frame.getPixel(0, 0) + 1);
+		assertArrayEquals("Changing a frame must not change the next copy", frames[0].data, imageFrames.getFrame(0).data);
+		try {
+			imageFrames.getFrame(frames.length);
+			fail("No exception thrown for frame index out of range");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
+
+@Test
+public void test_loadFramesLjava_io_InputStream_gifTruncated() {
+	byte[] bytes = saveGif(gifFrames(3));
+	// the stream ends in the middle of a data sub-block of the last frame
+	byte[] truncated = Arrays.copyOf(bytes, bytes.length - 8);
+	try {
+		new GIFFrameLoader(new ByteArrayInputStream(truncated));
+		fail("No exception thrown for a truncated GIF");
+	} catch (SWTException e) {
+		assertEquals("Incorrect error for a truncated GIF", SWT.ERROR_INVALID_IMAGE, e.code);
+	}
+}
+
+@Test
+public void test_loadFramesLjava_lang_String() throws IOException {
+	ImageLoader loader = new ImageLoader();
+	String filename = null;
+	try {
+		loader.loadFrames(filename);
+		fail("No exception thrown for loadFrames filename == null");
+	} catch (IllegalArgumentException e) {
+	}
+
+	ImageData[] frames = gifFrames(4);
+	Path file = Files.createTempFile("swt", ".gif");
+	try {
+		Files.write(file, saveGif(frames));
+		try (ImageFrames imageFrames = loader.loadFrames(file.toString())) {
+			assertEquals("Incorrect frame count", frames.length, imageFrames.getFrameCount());
+			for (int i = 0; i < frames.length; i++) {
+				assertArrayEquals("Incorrect data for frame " + i, frames[i].data, imageFrames.getFrame(i).data);
+			}
+		}
+	} finally {
+		Files.delete(file);
+	}
+}
+
+@Test
+public void test_loadFramesLjava_io_InputStream_closed() {
+	ImageData page = tiffPage(8, 6, 1);
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] {page};
+	ByteArrayOutputStream png = new ByteArrayOutputStream();
+	saver.save(png, SWT.IMAGE_PNG);
+
+	// the frames of a GIF, the pages of a TIFF and the images of other formats are read differently
+	byte[][] images = {saveGif(gifFrames(3)), saveTiff(page), png.toByteArray()};
+	for (byte[] bytes : images) {
+		ImageFrames imageFrames = new ImageLoader().loadFrames(new ByteArrayInputStream(bytes));
+		assertTrue("Frames must be readable before closing", imageFrames.getFrameCount() > 0);
+		imageFrames.close();
+		imageFrames.close();
+		try {
+			imageFrames.getFrameCount();
+			fail("No exception thrown for getFrameCount after close");
+		} catch (SWTException e) {
+			assertEquals("Incorrect error for getFrameCount after close", SWT.ERROR_IO, e.code);
+		}
+		try {
+			imageFrames.getFrame(0);
+			fail("No exception thrown for getFrame after close");
+		} catch (SWTException e) {
+			assertEquals("Incorrect error for getFrame after close", SWT.ERROR_IO, e.code);
+		}
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_registeredFormat() throws IOException {
+	// the registry is global, so the signature must not match any other image
+	byte[] signature = "SWT-TEST-FORMAT-5".getBytes(StandardCharsets.US_ASCII);
+	Predicate<byte[]> matches = header -> header.length >= signature.length && Arrays.equals(Arrays.copyOf(header, signature.length), signature);
+	byte[] bytes = Arrays.copyOf(signature, signature.length + 2);
+	bytes[signature.length] = 7;
+	bytes[signature.length + 1] = 3;
+
+	try {
+		ImageLoader.registerFormat(null, (stream, loader) -> null);
+		fail("No exception thrown for registerFormat with null signature");
+	} catch (IllegalArgumentException e) {
+	}
+	try {
+		ImageLoader.registerFormat(matches, null);
+		fail("No exception thrown for registerFormat with null decoder");
+	} catch (IllegalArgumentException e) {
+	}
+	try {
+		ImageLoader.unregisterFormat(null);
+		fail("No exception thrown for unregisterFormat with null decoder");
+	} catch (IllegalArgumentException e) {
+	}
+
+	ImageLoader[] decoderLoader = new ImageLoader[1];
+	BiFunction<InputStream, ImageLoader, ImageData[]> decoder = (stream, loader) -> {
+		decoderLoader[0] = loader;
+		try {
+			// the stream is positioned at the start of the image
+			byte[] content = stream.readAllBytes();
+			assertArrayEquals("Incorrect stream content", bytes, content);
+			return new ImageData[] { new ImageData(content[signature.length], content[signature.length + 1], 1, new PaletteData(new RGB(0, 0, 0), new RGB(255, 255, 255))) };
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	};
+	BiFunction<InputStream, ImageLoader, ImageData[]> laterDecoder = (stream, l) -> new ImageData[] { new ImageData(1, 1, 1, new PaletteData(new RGB(0, 0, 0), new RGB(255, 255, 255))) };
+	ImageLoader.registerFormat(matches, decoder);
+	try {
+		assertTrue("Format must be registered", FileFormat.isRegisteredFormat(bytes));
+		assertTrue("Signature must be tested against the header only", FileFormat.isRegisteredFormat(Arrays.copyOf(bytes, 1024)));
+		assertFalse("Short data must not match", FileFormat.isRegisteredFormat(Arrays.copyOf(signature, 4)));
+		try (InputStream stream = SwtTestUtil.class.getResourceAsStream("target.png")) {
+			assertFalse("Built-in formats are not registered formats", FileFormat.isRegisteredFormat(stream.readAllBytes()));
+		}
+
+		ImageLoader loader = new ImageLoader();
+		ImageData[] data = loader.load(new ByteArrayInputStream(bytes));
+		assertSame("Decoder must be called with the loader", loader, decoderLoader[0]);
+		assertEquals("Incorrect number of images", 1, data.length);
+		assertEquals("Incorrect width", 7, data[0].width);
+		assertEquals("Incorrect height", 3, data[0].height);
+
+		// a format registered later takes precedence
+		ImageLoader.registerFormat(matches, laterDecoder);
+		data = new ImageLoader().load(new ByteArrayInputStream(bytes));
+		assertEquals("The last registered format must be used", 1, data[0].width);
+
+		// removing the later format makes the earlier one visible again
+		assertTrue("Format must be removed", ImageLoader.unregisterFormat(laterDecoder));
+		assertFalse("Format must only be removed once", ImageLoader.unregisterFormat(laterDecoder));
+		data = new ImageLoader().load(new ByteArrayInputStream(bytes));
+		assertEquals("The remaining registered format must be used", 7, data[0].width);
+
+		// built-in formats are still recognized
+		try (InputStream stream = SwtTestUtil.class.getResourceAsStream("target.png")) {
+			assertEquals("Incorrect image type", SWT.IMAGE_PNG, new ImageLoader().load(stream)[0].type);
+		}
+	} finally {
+		ImageLoader.unregisterFormat(decoder);
+		ImageLoader.unregisterFormat(laterDecoder);
+	}
+	assertFalse("Format must not be registered", FileFormat.isRegisteredFormat(bytes));
+	try {
+		new ImageLoader().load(new ByteArrayInputStream(bytes));
+		fail("No exception thrown for an unregistered format");
+	} catch (SWTException e) {
+		assertEquals("Incorrect error", SWT.ERROR_UNSUPPORTED_FORMAT, e.code);
+	}
+}
+
 @Test
 public void test_loadLjava_lang_String() {
 	ImageLoader loader = new ImageLoader();
@@ -120,6 +423,319 @@ public void test_loadLjava_lang_String() {
 	}
 }
 
+@Test
+public void test_loadLjava_lang_String_tiff() throws IOException {
+	// TIFF is saved with a scanline pad of 1 and a full color map
+	RGB[] rgbs = new RGB[256];
+	for (int i = 0; i < rgbs.length; i++) {
+		rgbs[i] = new RGB(i, 255 - i, i / 2);
+	}
+	ImageData imageData = new ImageData(300, 200, 8, new PaletteData(rgbs), 1, new byte[300 * 200]);
+	for (int y = 0; y < imageData.height; y++) {
+		for (int x = 0; x < imageData.width; x++) {
+			imageData.setPixel(x, y, (x / 3 + y) % rgbs.length);
+		}
+	}
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] { imageData };
+	Path file = Files.createTempFile("swt", ".tif");
+	try {
+		saver.save(file.toString(), SWT.IMAGE_TIFF);
+		ImageData fromStream;
+		try (InputStream stream = Files.newInputStream(file)) {
+			fromStream = new ImageLoader().load(stream)[0];
+		}
+		ImageData fromFile = new ImageLoader().load(file.toString())[0];
+		assertEquals("Incorrect width", fromStream.width, fromFile.width);
+		assertEquals("Incorrect height", fromStream.height, fromFile.height);
+		assertArrayEquals("Loading from a file and a stream must give the same data", fromStream.data, fromFile.data);
+	} finally {
+		Files.delete(file);
+	}
+}
+
+@Test
+public void test_loadLjava_lang_String_tiffUnsupported() throws IOException {
+	byte[] bytes = unsupportedTiff(tiffPage(40, 30, 0));
+	Path file = Files.createTempFile("swt", ".tif");
+	try {
+		Files.write(file, bytes);
+		try {
+			new ImageLoader().load(file.toString());
+			fail("No exception thrown for an unsupported TIFF");
+		} catch (SWTException e) {
+			assertEquals("Incorrect error for an unsupported TIFF", SWT.ERROR_UNSUPPORTED_FORMAT, e.code);
+		}
+	} finally {
+		Files.delete(file);
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_tiffPages() {
+	RGB[] rgbs = new RGB[256];
+	for (int i = 0; i < rgbs.length; i++) {
+		rgbs[i] = new RGB(i, i, i);
+	}
+	ImageData imageData = new ImageData(640, 480, 8, new PaletteData(rgbs), 1, new byte[640 * 480]);
+	for (int y = 0; y < imageData.height; y++) {
+		for (int x = 0; x < imageData.width; x++) {
+			imageData.setPixel(x, y, (x + y * 3) % rgbs.length);
+		}
+	}
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] { imageData };
+	ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+	saver.save(outStream, SWT.IMAGE_TIFF);
+
+	try (TIFFPageLoader pageLoader = new TIFFPageLoader(new ByteArrayInputStream(outStream.toByteArray()))) {
+		assertEquals("Incorrect page count", 1, pageLoader.getPageCount());
+		ImageData page = pageLoader.getPage(0);
+		assertEquals("Incorrect width", imageData.width, page.width);
+		assertEquals("Incorrect height", imageData.height, page.height);
+		assertArrayEquals("Incorrect data", imageData.data, page.data);
+		try {
+			pageLoader.getPage(1);
+			fail("No exception thrown for page index out of range");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_tiffMultiPage() throws IOException {
+	ImageData[] pages = { tiffPage(640, 480, 0), tiffPage(40, 30, 1), tiffPage(301, 17, 2) };
+	byte[] bytes = saveTiff(pages[0]);
+	for (int i = 1; i < pages.length; i++) {
+		bytes = appendTiffPage(bytes, saveTiff(pages[i]));
+	}
+
+	Path file = Files.createTempFile("swt", ".tif");
+	try {
+		Files.write(file, bytes);
+		try (TIFFPageLoader fromStream = new TIFFPageLoader(new ByteArrayInputStream(bytes));
+			TIFFPageLoader fromFile = new TIFFPageLoader(file.toString())) {
+			for (TIFFPageLoader pageLoader : new TIFFPageLoader[] { fromStream, fromFile }) {
+				assertEquals("Incorrect page count", pages.length, pageLoader.getPageCount());
+				// pages can be decoded in any order and more than once
+				for (int index : new int[] { 2, 0, 1, 2 }) {
+					ImageData page = pageLoader.getPage(index);
+					assertEquals("Incorrect width of page " + index, pages[index].width, page.width);
+					assertEquals("Incorrect height of page " + index, pages[index].height, page.height);
+					assertArrayEquals("Incorrect data of page " + index, pages[index].data, page.data);
+				}
+				try {
+					pageLoader.getPage(pages.length);
+					fail("No exception thrown for page index out of range");
+				} catch (IllegalArgumentException e) {
+				}
+				try {
+					pageLoader.getPage(-1);
+					fail("No exception thrown for negative page index");
+				} catch (IllegalArgumentException e) {
+				}
+			}
+		}
+	} finally {
+		Files.delete(file);
+	}
+}
+
+@Test
+public void test_loadFramesLjava_lang_String_tiff() throws IOException {
+	ImageData[] pages = { tiffPage(40, 30, 0), tiffPage(20, 10, 1) };
+	byte[] bytes = appendTiffPage(saveTiff(pages[0]), unsupportedTiff(pages[1]));
+
+	Path file = Files.createTempFile("swt", ".tif");
+	try {
+		Files.write(file, bytes);
+		ImageLoader loader = new ImageLoader();
+		try (ImageFrames fromStream = loader.loadFrames(new ByteArrayInputStream(bytes));
+			ImageFrames fromFile = loader.loadFrames(file.toString())) {
+			for (ImageFrames imageFrames : new ImageFrames[] { fromStream, fromFile }) {
+				assertEquals("Incorrect page count", pages.length, imageFrames.getFrameCount());
+				assertArrayEquals("Incorrect data of page 0", pages[0].data, imageFrames.getFrame(0).data);
+				try {
+					imageFrames.getFrame(1);
+					fail("No exception thrown for an unsupported page");
+				} catch (SWTException e) {
+					assertEquals("Incorrect error for an unsupported page", SWT.ERROR_UNSUPPORTED_FORMAT, e.code);
+				}
+			}
+			assertEquals("The pages of a TIFF must not be loaded into the data of the loader", null, loader.data);
+		}
+	} finally {
+		Files.delete(file);
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_tiffPageLoop() {
+	ImageData[] pages = { tiffPage(40, 30, 0), tiffPage(20, 10, 1) };
+	byte[] bytes = appendTiffPage(saveTiff(pages[0]), saveTiff(pages[1]));
+	ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	int first = buffer.getInt(4);
+	int second = buffer.getInt(nextTiffDirectory(buffer, first));
+
+	// the last directory points back to the first one
+	buffer.putInt(nextTiffDirectory(buffer, second), first);
+	try (TIFFPageLoader pageLoader = new TIFFPageLoader(new ByteArrayInputStream(bytes))) {
+		assertEquals("A loop must end at the first directory visited twice", 2, pageLoader.getPageCount());
+		assertArrayEquals("Incorrect data of page 0", pages[0].data, pageLoader.getPage(0).data);
+		assertArrayEquals("Incorrect data of page 1", pages[1].data, pageLoader.getPage(1).data);
+	}
+
+	// the first directory points to itself
+	buffer.putInt(nextTiffDirectory(buffer, first), first);
+	try (TIFFPageLoader pageLoader = new TIFFPageLoader(new ByteArrayInputStream(bytes))) {
+		assertEquals("A directory that points to itself is a single page", 1, pageLoader.getPageCount());
+		assertArrayEquals("Incorrect data of page 0", pages[0].data, pageLoader.getPage(0).data);
+	}
+}
+
+@Test
+public void test_loadLjava_io_InputStream_parallelTIFF() {
+	// large enough for the parallel decoder, in strips of 12 rows and a last strip of 10 rows
+	ImageData imageData = tiffPage(640, 490, 3);
+	byte[] bytes = saveTiff(imageData);
+
+	// listeners are notified per strip, so a loader with a listener decodes serially
+	ImageLoader serialLoader = new ImageLoader();
+	serialLoader.parallel = true;
+	List<ImageLoaderEvent> events = new ArrayList<>();
+	serialLoader.addImageLoaderListener(events::add);
+	ImageData serial = FileFormat.load(new ByteArrayInputStream(bytes), serialLoader)[0];
+	assertEquals("Incorrect number of strips", 41, events.size());
+	assertArrayEquals("Incorrect serial data", imageData.data, serial.data);
+
+	ImageLoader loader = new ImageLoader();
+	loader.parallel = true;
+	ImageData parallel = FileFormat.load(new ByteArrayInputStream(bytes), loader)[0];
+	ImageData page;
+	try (ImageFrames frames = loader.loadFrames(new ByteArrayInputStream(bytes))) {
+		page = frames.getFrame(0);
+	}
+	assertEquals("Incorrect width", serial.width, parallel.width);
+	assertEquals("Incorrect height", serial.height, parallel.height);
+	assertArrayEquals("Parallel decoding must give the same data as serial decoding", serial.data, parallel.data);
+	assertArrayEquals("Parallel decoding of a page must give the same data as serial decoding", serial.data, page.data);
+}
+
+/**
+ * Returns the frames of an animation whose pixels, delays and transparent pixels differ.
+ */
+private static ImageData[] gifFrames(int count) {
+	RGB[] rgbs = {new RGB(0, 0, 0), new RGB(255, 0, 0), new RGB(0, 255, 0), new RGB(0, 0, 255)};
+	ImageData[] frames = new ImageData[count];
+	for (int i = 0; i < frames.length; i++) {
+		ImageData frame = new ImageData(16, 16, 8, new PaletteData(rgbs));
+		for (int y = 0; y < frame.height; y++) {
+			for (int x = 0; x < frame.width; x++) {
+				frame.setPixel(x, y, (x + y + i) % rgbs.length);
+			}
+		}
+		frame.delayTime = i;
+		if (i % 2 == 0) frame.transparentPixel = i % rgbs.length;
+		frames[i] = frame;
+	}
+	return frames;
+}
+
+private static byte[] saveGif(ImageData[] frames) {
+	ImageLoader saver = new ImageLoader();
+	saver.data = frames;
+	saver.logicalScreenWidth = 16;
+	saver.logicalScreenHeight = 16;
+	ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+	FileFormat.save(outStream, SWT.IMAGE_GIF, saver);
+	return outStream.toByteArray();
+}
+
+/**
+ * Returns an 8-bit grayscale page, which the TIFF encoder saves with a color map.
+ */
+private static ImageData tiffPage(int width, int height, int seed) {
+	RGB[] rgbs = new RGB[256];
+	for (int i = 0; i < rgbs.length; i++) {
+		rgbs[i] = new RGB(i, i, i);
+	}
+	ImageData imageData = new ImageData(width, height, 8, new PaletteData(rgbs), 1, new byte[width * height]);
+	for (int y = 0; y < height; y++) {
+		for (int x = 0; x < width; x++) {
+			imageData.setPixel(x, y, (x + y * 3 + seed * 50) % rgbs.length);
+		}
+	}
+	return imageData;
+}
+
+private static byte[] saveTiff(ImageData imageData) {
+	ImageLoader saver = new ImageLoader();
+	saver.data = new ImageData[] { imageData };
+	ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+	FileFormat.save(outStream, SWT.IMAGE_TIFF, saver);
+	return outStream.toByteArray();
+}
+
+/**
+ * Returns a copy of a single page TIFF, as written by the SWT encoder, whose
+ * X resolution entry is replaced with T4 options that ask for 2-dimensional
+ * coding, which the decoder does not support.
+ */
+private static byte[] unsupportedTiff(ImageData imageData) {
+	byte[] bytes = saveTiff(imageData);
+	ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+	int directory = buffer.getInt(4);
+	int count = buffer.getShort(directory);
+	for (int i = 0; i < count; i++) {
+		int entry = directory + 2 + 12 * i;
+		if (buffer.getShort(entry) == 282) {
+			buffer.putShort(entry, (short) 292).putShort(entry + 2, (short) 4).putInt(entry + 4, 1).putInt(entry + 8, 1);
+		}
+	}
+	return bytes;
+}
+
+/**
+ * Returns the position of the offset of the directory that follows the given one.
+ */
+private static int nextTiffDirectory(ByteBuffer buffer, int directory) {
+	return directory + 2 + 12 * buffer.getShort(directory);
+}
+
+/**
+ * Appends the page of a single page TIFF, as written by the SWT encoder, to
+ * the chain of directories of a document. The page is copied without its
+ * header, so every offset it contains is moved by the length of the document
+ * minus the length of the header.
+ */
+private static byte[] appendTiffPage(byte[] document, byte[] page) {
+	int shift = document.length - 8;
+	ByteBuffer buffer = ByteBuffer.allocate(document.length + page.length - 8).order(ByteOrder.LITTLE_ENDIAN);
+	buffer.put(document).put(page, 8, page.length - 8);
+	int last = buffer.getInt(4);
+	while (buffer.getInt(nextTiffDirectory(buffer, last)) != 0) {
+		last = buffer.getInt(nextTiffDirectory(buffer, last));
+	}
+	int directory = 8 + shift;
+	buffer.putInt(nextTiffDirectory(buffer, last), directory);
+	int count = buffer.getShort(directory);
+	for (int i = 0; i < count; i++) {
+		int entry = directory + 2 + 12 * i;
+		int tag = buffer.getShort(entry) & 0xFFFF, type = buffer.getShort(entry + 2), n = buffer.getInt(entry + 4);
+		int size = n * (type == 3 ? 2 : type == 5 ? 8 : 4);
+		// values that do not fit in the entry are stored at an offset
+		if (size > 4 || tag == 273) buffer.putInt(entry + 8, buffer.getInt(entry + 8) + shift);
+		// the strip offsets themselves
+		if (tag == 273 && n > 1) {
+			int values = buffer.getInt(entry + 8);
+			for (int j = 0; j < n; j++) {
+				buffer.putInt(values + 4 * j, buffer.getInt(values + 4 * j) + shift);
+			}
+		}
+	}
+	return buffer.array();
+}
+
 @Test
 public void test_saveLjava_io_OutputStreamI() {
 	ImageLoader loader = new ImageLoader();
@@ -167,6 +783,96 @@ public void test_saveLjava_io_OutputStreamI() {
 	}
 }
 
+@Test
+public void test_saveLjava_io_OutputStreamI_saveThroughput() {
+	// indexed images are encoded by SWT on all platforms
+	RGB[] rgbs = {new RGB(0, 0, 0), new RGB(255, 0, 0), new RGB(0, 255, 0), new RGB(0, 0, 255)};
+	ImageData imageData = new ImageData(64, 64, 8, new PaletteData(rgbs));
+	for (int y = 0; y < imageData.height; y++) {
+		for (int x = 0; x < imageData.width; x++) {
+			imageData.setPixel(x, y, (x + y) % rgbs.length);
+		}
+	}
+	ImageLoader loader = new ImageLoader();
+	loader.data = new ImageData[] { imageData };
+	assertEquals(0, loader.saveThroughput);
+	loader.save(new ByteArrayOutputStream(), SWT.IMAGE_PNG);
+	assertTrue("PNG encoder did not report its throughput", loader.saveThroughput > 0);
+	loader.save(new ByteArrayOutputStream(), SWT.IMAGE_BMP);
+	assertEquals("saveThroughput must be reset by save", 0, loader.saveThroughput);
+}
+
+@Test
+public void test_saveLjava_io_OutputStreamI_parallelPNG() throws IOException {
+	for (boolean alpha : new boolean[] {false, true}) {
+		// 300x600 RGB(A) rows are several of the strips that are deflated in parallel
+		ImageData imageData = new ImageData(300, 600, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		Random random = new Random(0);
+		for (int y = 0; y < imageData.height; y++) {
+			for (int x = 0; x < imageData.width; x++) {
+				int pixel;
+				// bands of rows that are best compressed with different filters
+				switch (y / 8 % 5) {
+					case 0: pixel = random.nextInt(); break;
+					case 1: pixel = x * 0x010203; break;
+					case 2: pixel = y * 3 * 0x010101; break;
+					case 3: pixel = (x + y) * 2 * 0x010101; break;
+					default: pixel = (x * 3 + y * 5) * 0x010101 ^ (x >> 3); break;
+				}
+				imageData.setPixel(x, y, pixel & 0xFFFFFF);
+				if (alpha) imageData.setAlpha(x, y, y / 8 % 5 == 0 ? random.nextInt(256) : (x + y) & 0xFF);
+			}
+		}
+		ImageLoader saver = new ImageLoader();
+		saver.data = new ImageData[] { imageData };
+
+		// encode with the SWT encoder on all platforms
+		ByteArrayOutputStream serialStream = new ByteArrayOutputStream();
+		FileFormat.save(serialStream, SWT.IMAGE_PNG, saver);
+		ByteArrayOutputStream parallelStream = new ByteArrayOutputStream();
+		saver.parallel = true;
+		FileFormat.save(parallelStream, SWT.IMAGE_PNG, saver);
+		byte[] bytes = parallelStream.toByteArray();
+
+		// every filter type is used
+		ByteArrayOutputStream idat = new ByteArrayOutputStream();
+		for (int offset = 8; offset < bytes.length;) {
+			int length = (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+			if (new String(bytes, offset + 4, 4, StandardCharsets.US_ASCII).equals("IDAT")) {
+				idat.write(bytes, offset + 8, length);
+			}
+			offset += 12 + length;
+		}
+		byte[] rows;
+		try (InputStream stream = new InflaterInputStream(new ByteArrayInputStream(idat.toByteArray()))) {
+			rows = stream.readAllBytes();
+		}
+		int rowLength = 1 + imageData.width * (alpha ? 4 : 3);
+		assertEquals("Incorrect length of the inflated rows", imageData.height * rowLength, rows.length);
+		boolean[] filters = new boolean[5];
+		for (int y = 0; y < imageData.height; y++) {
+			filters[rows[y * rowLength]] = true;
+		}
+		for (int filter = 0; filter < filters.length; filter++) {
+			assertTrue("Filter type " + filter + " not used", filters[filter]);
+		}
+
+		ImageData serial = FileFormat.load(new ByteArrayInputStream(serialStream.toByteArray()), new ImageLoader())[0];
+		ImageData parallel = FileFormat.load(new ByteArrayInputStream(bytes), new ImageLoader())[0];
+		assertEquals("Incorrect width", serial.width, parallel.width);
+		assertEquals("Incorrect height", serial.height, parallel.height);
+		assertEquals("Incorrect depth", serial.depth, parallel.depth);
+		assertArrayEquals("Parallel encoding must decode to the same data", serial.data, parallel.data);
+		assertArrayEquals("Parallel encoding must decode to the same alpha data", serial.alphaData, parallel.alphaData);
+		for (int y = 0; y < imageData.height; y++) {
+			for (int x = 0; x < imageData.width; x++) {
+				assertEquals("Incorrect pixel", imageData.palette.getRGB(imageData.getPixel(x, y)), parallel.palette.getRGB(parallel.getPixel(x, y)));
+				assertEquals("Incorrect alpha", imageData.getAlpha(x, y), parallel.getAlpha(x, y));
+			}
+		}
+	}
+}
+
 @Test
 public void test_saveLjava_lang_StringI() {
 	ImageLoader loader = new ImageLoader();
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2023 Contributors to the Eclipse Foundation and others.
+ *
+ * This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     Contributors to the Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.swt.tests.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.swt.internal.TimerWheel;
+import org.junit.Test;
+
+/**
+ * Automated Test Suite for class org.eclipse.swt.internal.TimerWheel
+ *
+ * @see org.eclipse.swt.internal.TimerWheel
+ */
+public class Test_org_eclipse_swt_internal_TimerWheel {
+
+@Test
+public void test_ConstructorJII() {
+	try {
+		new TimerWheel(0, 0, 8);
+		fail("No exception thrown for tick < 1");
+	} catch (IllegalArgumentException e) {
+	}
+	try {
+		new TimerWheel(0, 1, 6);
+		fail("No exception thrown for a number of slots that is not a power of two");
+	} catch (IllegalArgumentException e) {
+	}
+	TimerWheel wheel = new TimerWheel(0, 1, 8);
+	assertEquals("A new wheel must be empty", 0, wheel.size());
+	assertEquals("A new wheel must have no delay", -1, wheel.getDelay(0));
+	assertNull("A new wheel must have no expired timer", wheel.poll());
+}
+
+@Test
+public void test_advanceJ_wrapAround() {
+	// 8 slots of 1 ms, the timers due at 4, 12 and 20 share a slot
+	TimerWheel wheel = new TimerWheel(0, 1, 8);
+	Runnable at20 = new Timer("at20"), at4 = new Timer("at4"), at12 = new Timer("at12"), at9 = new Timer("at9");
+	Runnable at9Later = new Timer("at9Later");
+	wheel.schedule(at20, 20);
+	wheel.schedule(at4, 4);
+	wheel.schedule(at12, 12);
+	wheel.schedule(at9, 9);
+	wheel.schedule(at9Later, 9);
+	assertEquals("Incorrect size", 5, wheel.size());
+	assertEquals("Incorrect delay of the first timer", 4, wheel.getDelay(0));
+
+	wheel.advance(3);
+	assertNull("A timer must not run early", wheel.poll());
+	assertEquals("Incorrect delay before the first timer", 1, wheel.getDelay(3));
+
+	// a turn of the wheel and more, the slots that are visited twice hold timers of later turns
+	wheel.advance(10);
+	assertEquals("Timers must run in the order of their due times", Arrays.asList(at4, at9, at9Later), pollAll(wheel));
+	assertEquals("Incorrect delay of a timer of the next turn", 2, wheel.getDelay(10));
+
+	// several turns of the wheel at once
+	wheel.advance(40);
+	assertEquals("Timers of later turns must run in the order of their due times", Arrays.asList(at12, at20), pollAll(wheel));
+	assertEquals("Incorrect size", 0, wheel.size());
+	assertEquals("Incorrect delay of an empty wheel", -1, wheel.getDelay(40));
+}
+
+@Test
+public void test_advanceJ_farTimer() {
+	// a timer that is due many turns later is found when no other timer is due within a turn
+	TimerWheel wheel = new TimerWheel(0, 1, 8);
+	Runnable far = new Timer("far");
+	wheel.schedule(far, 1000);
+	assertEquals("Incorrect delay of a timer many turns later", 1000, wheel.getDelay(0));
+	wheel.advance(999);
+	assertNull("A timer must not run early", wheel.poll());
+	assertEquals("Incorrect delay after advancing", 1, wheel.getDelay(999));
+	wheel.advance(1000);
+	assertSame("Incorrect expired timer", far, wheel.poll());
+	assertNull("A timer must run once", wheel.poll());
+}
+
+@Test
+public void test_cancelLjava_lang_Runnable() {
+	TimerWheel wheel = new TimerWheel(0, 1, 8);
+	Runnable runnable = new Timer("runnable"), other = new Timer("other");
+	assertFalse("A runnable without timer must not be canceled", wheel.cancel(runnable));
+
+	wheel.schedule(runnable, 5);
+	wheel.schedule(other, 5);
+	assertTrue("A scheduled timer must be canceled", wheel.cancel(runnable));
+	assertFalse("A timer must be canceled once", wheel.cancel(runnable));
+	assertEquals("Incorrect size after cancel", 1, wheel.size());
+
+	// adding the runnable again after cancel schedules a new timer
+	wheel.schedule(runnable, 7);
+	wheel.advance(6);
+	assertEquals("Only the other timer must have expired", Arrays.asList(other), pollAll(wheel));
+	assertEquals("Incorrect delay of the added timer", 1, wheel.getDelay(6));
+	wheel.advance(7);
+	assertEquals("The added timer must expire at its new time", Arrays.asList(runnable), pollAll(wheel));
+
+	// a timer that has expired and not been polled can still be canceled
+	wheel.schedule(runnable, 9);
+	wheel.advance(10);
+	assertEquals("An expired timer must be reported", 0, wheel.getDelay(10));
+	assertTrue("An expired timer must be canceled", wheel.cancel(runnable));
+	assertNull("A canceled timer must not be polled", wheel.poll());
+	assertEquals("Incorrect delay after canceling the expired timer", -1, wheel.getDelay(10));
+}
+
+@Test
+public void test_scheduleLjava_lang_RunnableJ() {
+	TimerWheel wheel = new TimerWheel(100, 1, 8);
+	Runnable runnable = new Timer("runnable"), late = new Timer("late");
+
+	// scheduling the same runnable again replaces its timer
+	wheel.schedule(runnable, 105);
+	wheel.schedule(runnable, 103);
+	assertEquals("A runnable must have one timer", 1, wheel.size());
+	assertEquals("Incorrect delay of the replaced timer", 3, wheel.getDelay(100));
+
+	// a timer that is due in a tick that has expired runs at the next advance, before the others
+	wheel.schedule(late, 50);
+	assertEquals("A late timer must be due at once", 0, wheel.getDelay(100));
+	assertNull("A late timer must not be polled before advance", wheel.poll());
+	wheel.advance(110);
+	assertEquals("A late timer must run first", Arrays.asList(late, runnable), pollAll(wheel));
+	assertEquals("Incorrect size", 0, wheel.size());
+}
+
+@Test
+public void test_tickProperty() {
+	String previous = System.getProperty(TimerWheel.TICK_PROPERTY);
+	TimerWheel wheel, invalid;
+	try {
+		System.setProperty(TimerWheel.TICK_PROPERTY, "16");
+		wheel = new TimerWheel(0);
+		System.setProperty(TimerWheel.TICK_PROPERTY, "0");
+		invalid = new TimerWheel(0);
+	} finally {
+		if (previous == null) {
+			System.clearProperty(TimerWheel.TICK_PROPERTY);
+		} else {
+			System.setProperty(TimerWheel.TICK_PROPERTY, previous);
+		}
+	}
+
+	// timers due within a tick of 16 ms expire together at the end of the tick
+	Runnable first = new Timer("first"), second = new Timer("second"), next = new Timer("next");
+	wheel.schedule(second, 15);
+	wheel.schedule(first, 1);
+	wheel.schedule(next, 17);
+	assertEquals("Timers must be coalesced to the end of the tick", 16, wheel.getDelay(0));
+	wheel.advance(15);
+	assertNull("A timer must not run early", wheel.poll());
+	wheel.advance(16);
+	assertEquals("Timers of a tick must run together in the order they were scheduled", Arrays.asList(second, first), pollAll(wheel));
+	assertEquals("Incorrect delay of the next tick", 16, wheel.getDelay(16));
+
+	// a tick shorter than 1 ms is 1 ms
+	invalid.schedule(first, 1);
+	assertEquals("Incorrect delay with a tick of 1 ms", 1, invalid.getDelay(0));
+}
+
+private static List<Runnable> pollAll(TimerWheel wheel) {
+	List<Runnable> runnables = new ArrayList<>();
+	Runnable runnable;
+	while ((runnable = wheel.poll()) != null) {
+		runnables.add(runnable);
+	}
+	return runnables;
+}
+
+/**
+ * A runnable that is named in the messages of failed assertions.
+ */
+private static class Timer implements Runnable {
+	final String name;
+
+	Timer(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
+}
@@ -18,12 +18,18 @@ import static org.eclipse.swt.tests.junit.SwtTestUtil.assertSWTProblem;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.swt.SWT;
@@ -37,6 +43,7 @@ import org.eclipse.swt.internal.DPIUtil;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.EventLoopMonitor;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Monitor;
 import org.eclipse.swt.widgets.Shell;
@@ -177,6 +184,112 @@ public void test_asyncExecLjava_lang_Runnable_dispose() {
 	}
 }
 
+@Test
+public void test_asyncExecLjava_lang_Runnable_threads() throws InterruptedException {
+	final Display display = new Display();
+	try {
+		final int threadCount = 4, runnableCount = 500;
+		// only touched by the user-interface thread
+		List<int[]> ran = new ArrayList<>();
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			final int thread = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+				}
+				for (int i = 0; i < runnableCount; i++) {
+					final int index = i;
+					display.asyncExec(() -> ran.add(new int[] {thread, index}));
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("Every runnable must run once", threadCount * runnableCount, ran.size());
+		// The runnables of each thread run in the order in which they were posted
+		int[] next = new int[threadCount];
+		for (int[] entry : ran) {
+			assertEquals("Runnable of thread " + entry[0] + " out of order", next[entry[0]]++, entry[1]);
+		}
+	} finally {
+		display.dispose();
+	}
+}
+
+@Test
+public void test_asyncExecLjava_lang_ObjectLjava_lang_Runnable() {
+	final Display display = new Display();
+	try {
+		StringBuilder ran = new StringBuilder();
+		long coalescedCount = display.getSynchronizer().getCoalescedCount();
+		display.asyncExec("a", () -> ran.append("a1"));
+		display.asyncExec("b", () -> ran.append("b1"));
+		display.asyncExec("a", () -> ran.append("a2"));
+		display.asyncExec("a", () -> ran.append("a3"));
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		// The last runnable of a key runs once, in the place of the first
+		assertEquals("a3b1", ran.toString());
+		assertEquals(coalescedCount + 2, display.getSynchronizer().getCoalescedCount());
+
+		display.asyncExec("a", () -> ran.append("a4"));
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("a3b1a4", ran.toString());
+
+		try {
+			display.asyncExec(null, () -> {});
+			fail("No exception thrown for null key");
+		} catch (IllegalArgumentException e) {
+			assertSWTProblem("Incorrect exception thrown for null key", SWT.ERROR_NULL_ARGUMENT, e);
+		}
+	} finally {
+		display.dispose();
+	}
+}
+
+@Test
+public void test_asyncExecLjava_lang_ObjectLjava_lang_Runnable_synchronizer() {
+	final Display display = new Display();
+	try {
+		class MySynchronizer extends Synchronizer {
+			int invoked;
+			MySynchronizer(Display d) {
+				super(d);
+			}
+			@Override
+			protected void asyncExec (Runnable runnable) {
+				invoked++;
+				super.asyncExec(runnable);
+			}
+		}
+		MySynchronizer mySynchronizer = new MySynchronizer(display);
+		display.setSynchronizer(mySynchronizer);
+		StringBuilder ran = new StringBuilder();
+		display.asyncExec("a", () -> ran.append("a1"));
+		display.asyncExec("a", () -> ran.append("a2"));
+		// Only the runnable that is queued passes through asyncExec(Runnable)
+		assertEquals(1, mySynchronizer.invoked);
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("a2", ran.toString());
+	} finally {
+		display.dispose();
+	}
+}
+
 @Test
 public void test_beep() {
 	Display display = new Display();
@@ -340,6 +453,135 @@ public void test_getDoubleClickTime() {
 	}
 }
 
+@Test
+public void test_getEventLoopMonitor() throws InterruptedException {
+	Display display = new Display();
+	try {
+		EventLoopMonitor monitor = display.getEventLoopMonitor();
+		assertSame(monitor, display.getEventLoopMonitor());
+
+		AtomicBoolean frozeInSleep = new AtomicBoolean();
+		monitor.setFreezeThreshold(100, stack -> {
+			if (Arrays.stream(stack).anyMatch(element -> "sleep".equals(element.getMethodName()))) {
+				frozeInSleep.set(true);
+			}
+		});
+		Runnable slow = () -> {
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+			}
+		};
+		display.asyncExec(slow);
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		monitor.setFreezeThreshold(0, null);
+
+		EventLoopMonitor.Statistics statistics = monitor.getStatistics(EventLoopMonitor.ASYNC_EXEC);
+		assertEquals(1, statistics.getCount());
+		assertTrue(statistics.getMaxTime() >= 500_000_000L);
+		assertEquals(1, Arrays.stream(statistics.getHistogram()).sum());
+		assertEquals(1, monitor.getRunnableStatistics().get(slow.getClass().getName()).getCount());
+		assertTrue(monitor.getStatistics(EventLoopMonitor.DISPATCH).getCount() > 0);
+
+		// The watchdog captured the stack of the user-interface thread while it slept
+		assertTrue(monitor.getFreezeCount() >= 1);
+		assertTrue(frozeInSleep.get());
+
+		monitor.reset();
+		assertEquals(0, monitor.getStatistics(EventLoopMonitor.ASYNC_EXEC).getCount());
+		assertTrue(monitor.getRunnableStatistics().isEmpty());
+	} finally {
+		display.dispose();
+	}
+}
+
+@Test
+public void test_getEventLoopMonitor_keyedRunnable() {
+	Display display = new Display();
+	try {
+		EventLoopMonitor monitor = display.getEventLoopMonitor();
+		Object key = new Object();
+		Runnable replaced = () -> {};
+		Runnable runnable = () -> {};
+		display.asyncExec(key, replaced);
+		display.asyncExec(key, runnable);
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+
+		// The statistics are those of the runnable that ran, not of the runnable that queued it
+		Map<String, EventLoopMonitor.Statistics> statistics = monitor.getRunnableStatistics();
+		assertEquals(1, statistics.get(runnable.getClass().getName()).getCount());
+		assertNull(statistics.get(replaced.getClass().getName()));
+		assertNull(statistics.get("org.eclipse.swt.widgets.Synchronizer$KeyedRunnable"));
+	} finally {
+		display.dispose();
+	}
+}
+
+@Test
+public void test_getEventLoopMonitor_freezeHandlerFailure() throws InterruptedException {
+	Display display = new Display();
+	try {
+		List<RuntimeException> exceptions = new ArrayList<>();
+		display.setRuntimeExceptionHandler(exceptions::add);
+		EventLoopMonitor monitor = display.getEventLoopMonitor();
+		IllegalStateException failure = new IllegalStateException();
+		monitor.setFreezeThreshold(100, stack -> {
+			throw failure;
+		});
+		display.asyncExec(() -> {
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+			}
+		});
+		// the failure is handed to the user-interface thread by asyncExec
+		long end = System.currentTimeMillis() + 5000;
+		while (exceptions.isEmpty() && System.currentTimeMillis() < end) {
+			if (!display.readAndDispatch()) {
+				Thread.sleep(10);
+			}
+		}
+		monitor.setFreezeThreshold(0, null);
+		assertSame(failure, exceptions.get(0));
+	} finally {
+		display.dispose();
+	}
+}
+
+@Test
+public void test_getEventLoopMonitor_dispose() {
+	Display display = new Display();
+	try {
+		EventLoopMonitor monitor = display.getEventLoopMonitor();
+		monitor.setFreezeThreshold(1000, null);
+		display.asyncExec(() -> {});
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals(1, monitor.getStatistics(EventLoopMonitor.ASYNC_EXEC).getCount());
+
+		monitor.dispose();
+		assertTrue(monitor.isDisposed());
+		assertEquals("Disposing the monitor must stop the watchdog", 0, monitor.getFreezeThreshold());
+		display.asyncExec(() -> {});
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("A disposed monitor must not measure", 1, monitor.getStatistics(EventLoopMonitor.ASYNC_EXEC).getCount());
+
+		EventLoopMonitor newMonitor = display.getEventLoopMonitor();
+		assertNotSame(monitor, newMonitor);
+		assertFalse(newMonitor.isDisposed());
+		assertEquals(0, newMonitor.getStatistics(EventLoopMonitor.ASYNC_EXEC).getCount());
+	} finally {
+		display.dispose();
+	}
+}
+
 @Test
 public void test_getFocusControl() {
 	Display display = new Display();
@@ -1314,6 +1556,42 @@ public void test_setSynchronizerLorg_eclipse_swt_widgets_Synchronizer() {
 	}
 }
 
+@Test
+public void test_setSynchronizerLorg_eclipse_swt_widgets_Synchronizer_pending() throws InterruptedException {
+	final Display display = new Display();
+	try {
+		StringBuilder ran = new StringBuilder();
+		display.asyncExec(() -> ran.append("a"));
+		display.asyncExec("k", () -> ran.append("k1"));
+		Thread thread = new Thread(() -> display.asyncExec(() -> ran.append("b")));
+		thread.start();
+		thread.join();
+
+		Synchronizer synchronizer = new Synchronizer(display);
+		display.setSynchronizer(synchronizer);
+		display.asyncExec(() -> ran.append("c"));
+		// The moved runnable of the key is still pending, so it is replaced
+		display.asyncExec("k", () -> ran.append("k2"));
+		assertEquals("No runnable may run before the event loop", "", ran.toString());
+		assertEquals(1, synchronizer.getCoalescedCount());
+
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		// The pending runnables are moved in order before the new ones
+		assertEquals("ak2bc", ran.toString());
+
+		display.asyncExec("k", () -> ran.append("k3"));
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("ak2bck3", ran.toString());
+		assertEquals(1, synchronizer.getCoalescedCount());
+	} finally {
+		display.dispose();
+	}
+}
+
 @Test
 public void test_sleep() {
 	final Display display = new Display();
@@ -1386,6 +1664,39 @@ public void test_syncExecLjava_lang_Runnable_dispose() {
 	}
 }
 
+@Test
+public void test_syncExecLjava_lang_Runnable_queuedAsync() {
+	final Display display = new Display();
+	try {
+		StringBuffer ran = new StringBuffer();
+		AtomicBoolean threadRan = new AtomicBoolean(false);
+		StringBuffer seenBySyncCaller = new StringBuffer();
+		display.asyncExec(() -> ran.append("u"));
+		Thread nonUIThread = new Thread(() -> {
+			display.asyncExec(() -> ran.append("a1"));
+			display.asyncExec(() -> ran.append("a2"));
+			// The runnable is queued behind the asyncs and has run when syncExec returns
+			display.syncExec(() -> ran.append("s"));
+			seenBySyncCaller.append(ran);
+			display.asyncExec(() -> ran.append("a3"));
+			threadRan.set(true);
+			display.wake();
+		});
+		nonUIThread.start();
+
+		while (!threadRan.get()) {
+			if (!display.readAndDispatch()) display.sleep ();
+		}
+		while (display.readAndDispatch()) {
+			// run the pending runnables
+		}
+		assertEquals("ua1a2s", seenBySyncCaller.toString());
+		assertEquals("ua1a2sa3", ran.toString());
+	} finally {
+		display.dispose();
+	}
+}
+
 @Test
 public void test_syncCall() {
 	final Display display = new Display();
@@ -1509,6 +1820,31 @@ public void test_timerExecILjava_lang_Runnable() {
 	}
 }
 
+@Test
+public void test_timerExecILjava_lang_Runnable_manyTimers() {
+	final Display display = new Display();
+	try {
+		StringBuilder ran = new StringBuilder();
+		Runnable canceled = () -> ran.append("canceled ");
+		Runnable rescheduled = () -> ran.append("rescheduled ");
+		display.timerExec(300, () -> ran.append("300 "));
+		display.timerExec(100, canceled);
+		display.timerExec(100, rescheduled);
+		display.timerExec(200, () -> ran.append("200 "));
+		display.timerExec(-1, canceled);
+		display.timerExec(400, rescheduled);
+		boolean[] done = {false};
+		display.timerExec(500, () -> done[0] = true);
+		while (!done[0]) {
+			if (!display.readAndDispatch ()) display.sleep();
+		}
+		// Timers run once, in the order they are due, and canceled timers do not run
+		assertEquals("200 300 rescheduled ", ran.toString());
+	} finally {
+		display.dispose();
+	}
+}
+
 @Test
 public void test_update() {
 	Display display = new Display();
@@ -13,6 +13,7 @@
  *******************************************************************************/
 package org.eclipse.swt.tests.junit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -129,6 +130,69 @@ public void test_notifyListenersILorg_eclipse_swt_widgets_Event() {
 	if (gc != null) gc.dispose();
 }
 @Test
+public void test_notifyListenersILorg_eclipse_swt_widgets_Event_hookWhileNotifying() {
+	int typeA = 5000, typeB = 5001;
+	StringBuilder log = new StringBuilder();
+	Listener b1 = e -> log.append("b1 ");
+	Listener a3 = e -> log.append("a3 ");
+	Listener a2 = e -> log.append("a2 ");
+	Listener a1 = e -> {
+		log.append("a1 ");
+		widget.removeListener(typeA, a2);
+		widget.addListener(typeA, a3);
+	};
+	widget.addListener(typeA, a1);
+	widget.addListener(typeB, b1);
+	widget.addListener(typeA, a2);
+	assertTrue(widget.isListening(typeA));
+	assertEquals(2, widget.getListeners(typeA).length);
+
+	// Listeners for a type run in the order they were added, and a
+	// listener added while notifying runs in the same notification
+	widget.notifyListeners(typeA, new Event());
+	assertEquals("a1 a3 ", log.toString());
+	assertArrayEquals(new Listener[] {a1, a3}, widget.getListeners(typeA));
+	assertArrayEquals(new Listener[] {b1}, widget.getListeners(typeB));
+
+	log.setLength(0);
+	widget.removeListener(typeA, a1);
+	widget.removeListener(typeA, a3);
+	assertFalse(widget.isListening(typeA));
+	widget.notifyListeners(typeA, new Event());
+	widget.notifyListeners(typeB, new Event());
+	assertEquals("b1 ", log.toString());
+	widget.removeListener(typeB, b1);
+}
+@Test
+public void test_notifyListenersILorg_eclipse_swt_widgets_Event_rehookWhileNotifying() {
+	int typeA = 5000;
+	StringBuilder log = new StringBuilder();
+	boolean[] listening = new boolean[1];
+	Listener a2 = e -> log.append("a2 ");
+	Listener[] a1 = new Listener[1];
+	a1[0] = e -> {
+		log.append("a1 ");
+		// the last listener of the type replaces itself
+		widget.removeListener(typeA, a1[0]);
+		listening[0] = widget.isListening(typeA);
+		widget.addListener(typeA, a2);
+	};
+	widget.addListener(typeA, a1[0]);
+
+	// The replacement is called by the same notification
+	widget.notifyListeners(typeA, new Event());
+	assertFalse("No listener is left after the only one removed itself", listening[0]);
+	assertEquals("a1 a2 ", log.toString());
+	assertTrue(widget.isListening(typeA));
+	assertArrayEquals(new Listener[] {a2}, widget.getListeners(typeA));
+
+	log.setLength(0);
+	widget.notifyListeners(typeA, new Event());
+	assertEquals("a2 ", log.toString());
+	widget.removeListener(typeA, a2);
+	assertFalse(widget.isListening(typeA));
+}
+@Test
 public void test_removeListenerILorg_eclipse_swt_widgets_Listener() {
 	// this method is further tested by all of the removeTypedListener tests
 	try {